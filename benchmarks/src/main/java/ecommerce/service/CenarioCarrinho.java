@@ -0,0 +1,93 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Gera carrinhos determinísticos para os benchmarks, variando tamanho e mistura de tipos.
+ */
+public final class CenarioCarrinho {
+
+	/** Mistura de {@link TipoProduto} dos itens do carrinho. */
+	public enum MixTipos {
+		/** Todos os itens do mesmo tipo. */
+		UNICO,
+		/** Itens distribuídos entre todos os tipos. */
+		MISTO
+	}
+
+	private static final long SEMENTE = 42L;
+
+	private CenarioCarrinho() {
+	}
+
+	static CarrinhoDeCompras carrinho(int tamanho, MixTipos mix) {
+		SplittableRandom random = new SplittableRandom(SEMENTE);
+		TipoProduto[] tipos = TipoProduto.values();
+
+		List<ItemCompra> itens = new ArrayList<>(tamanho);
+		for (int i = 0; i < tamanho; i++) {
+			TipoProduto tipo = mix == MixTipos.UNICO ? TipoProduto.ELETRONICO : tipos[i % tipos.length];
+			itens.add(new ItemCompra((long) i + 1, produto(i + 1L, tipo, random), 1L + random.nextInt(10)));
+		}
+
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.setId(1L);
+		carrinho.setItens(itens);
+		return carrinho;
+	}
+
+	/**
+	 * Carrinho de catálogo pesado: itens volumosos, em que o peso cúbico domina o peso físico e a divisão
+	 * de escala 10 é feita para todos os itens.
+	 */
+	static CarrinhoDeCompras carrinhoVolumoso(int tamanho) {
+		SplittableRandom random = new SplittableRandom(SEMENTE);
+		TipoProduto[] tipos = TipoProduto.values();
+
+		List<ItemCompra> itens = new ArrayList<>(tamanho);
+		for (int i = 0; i < tamanho; i++) {
+			long id = i + 1L;
+			BigDecimal preco = BigDecimal.valueOf(100 + random.nextInt(50_000), 2);
+			BigDecimal pesoFisico = BigDecimal.valueOf(random.nextInt(5_000), 3);
+			BigDecimal comprimento = BigDecimal.valueOf(300 + random.nextInt(900), 1);
+			BigDecimal largura = BigDecimal.valueOf(300 + random.nextInt(900), 1);
+			BigDecimal altura = BigDecimal.valueOf(300 + random.nextInt(900), 1);
+
+			Produto produto = new Produto(id, "Produto " + id, "Benchmark", preco, pesoFisico, comprimento, largura,
+					altura, false, tipos[i % tipos.length]);
+			itens.add(new ItemCompra(id, produto, 1L + random.nextInt(10)));
+		}
+
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.setId(1L);
+		carrinho.setItens(itens);
+		return carrinho;
+	}
+
+	static Cliente cliente(Regiao regiao, TipoCliente tipo) {
+		return new Cliente(1L, "Cliente", regiao, tipo);
+	}
+
+	private static Produto produto(long id, TipoProduto tipo, SplittableRandom random) {
+		BigDecimal preco = BigDecimal.valueOf(100 + random.nextInt(50_000), 2);
+		BigDecimal pesoFisico = BigDecimal.valueOf(random.nextInt(5_000), 3);
+		BigDecimal comprimento = BigDecimal.valueOf(1 + random.nextInt(60));
+		BigDecimal largura = BigDecimal.valueOf(1 + random.nextInt(60));
+		BigDecimal altura = BigDecimal.valueOf(1 + random.nextInt(60));
+		boolean fragil = random.nextInt(4) == 0;
+
+		return new Produto(id, "Produto " + id, "Benchmark", preco, pesoFisico, comprimento, largura, altura, fragil,
+				tipo);
+	}
+}
@@ -0,0 +1,124 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.external.EstoqueExternalStub;
+import ecommerce.external.PagamentoExternalStub;
+import ecommerce.service.CenarioCarrinho.MixTipos;
+
+/**
+ * Caminho quente de precificação e finalização de compra.
+ *
+ * Os parâmetros podem ser sobrescritos na linha de comando, por exemplo
+ * {@code -p tamanhoCarrinho=10000 -p regiao=NORTE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompraServiceBenchmark {
+
+	@Param({ "1", "10", "100", "1000", "10000" })
+	int tamanhoCarrinho;
+
+	@Param({ "UNICO", "MISTO" })
+	MixTipos mix;
+
+	@Param({ "SUDESTE", "NORTE" })
+	Regiao regiao;
+
+	@Param({ "BRONZE", "OURO" })
+	TipoCliente tipoCliente;
+
+	@Param({ "BIG_DECIMAL", "PONTO_FIXO" })
+	MotorPrecificacao motor;
+
+	private CompraService service;
+	private CarrinhoDeCompras carrinho;
+	private List<ItemCompra> itens;
+	private Cliente cliente;
+
+	@Setup
+	public void setup() {
+		carrinho = CenarioCarrinho.carrinho(tamanhoCarrinho, mix);
+		itens = new ArrayList<>(carrinho.getItens());
+		carrinho.setItens(itens);
+		cliente = CenarioCarrinho.cliente(regiao, tipoCliente);
+		carrinho.setCliente(cliente);
+
+		CarrinhoDeComprasService carrinhoService = new CarrinhoDeComprasService(null) {
+			private final Optional<CarrinhoDeCompras> encontrado = Optional.of(carrinho);
+
+			@Override
+			public Optional<CarrinhoDeCompras> buscarParaFinalizacao(Long carrinhoId, Long clienteId) {
+				return encontrado;
+			}
+		};
+		ClienteService clienteService = new ClienteService(null) {
+			@Override
+			public Cliente buscarPorId(Long clienteId) {
+				return cliente;
+			}
+		};
+
+		service = new CompraService(carrinhoService, clienteService, new EstoqueExternalStub(),
+				new PagamentoExternalStub(), ProvedorRegrasPrecificacao.padrao(), motor, ForkJoinPool.commonPool(),
+				null, Runnable::run, Duration.ofSeconds(5), null, null, null, new ComprasEmConferencia(1000));
+	}
+
+	@Benchmark
+	public BigDecimal calcularCustoTotal() {
+		return service.calcularCustoTotal(carrinho, cliente);
+	}
+
+	/** Re-cotação depois de alterar a quantidade de um item: o carrinho refaz só a parcela desse item. */
+	@Benchmark
+	public BigDecimal calcularCustoTotalAposAlterarItem() {
+		ItemCompra item = carrinho.getItens().get(0);
+		carrinho.alterarQuantidade(item, item.getQuantidade() == 1L ? 2L : 1L);
+		return service.calcularCustoTotal(carrinho, cliente);
+	}
+
+	/** Cotação com os totais do carrinho descartados, forçando a passada completa pelos itens. */
+	@Benchmark
+	public BigDecimal calcularCustoTotalRecalculoCompleto() {
+		carrinho.setItens(itens);
+		return service.calcularCustoTotal(carrinho, cliente);
+	}
+
+	@Benchmark
+	public BigDecimal calcularCustoProdutos() {
+		return service.calcularCustoProdutos(carrinho);
+	}
+
+	@Benchmark
+	public CompraDTO finalizarCompra() {
+		return service.finalizarCompra(carrinho.getId(), cliente.getId());
+	}
+}
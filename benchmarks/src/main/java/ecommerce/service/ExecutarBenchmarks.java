@@ -0,0 +1,32 @@
+package ecommerce.service;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do {@code benchmarks.jar}: aceita as mesmas opções do JMH e sempre habilita o
+ * profiler de GC (taxa de alocação) e o relatório JSON em {@code jmh-result.json}, para comparação
+ * entre versões.
+ */
+public final class ExecutarBenchmarks {
+
+	private ExecutarBenchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions linhaDeComando = new CommandLineOptions(args);
+
+		Options opcoes = new OptionsBuilder()
+				.parent(linhaDeComando)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(linhaDeComando.getResultFormat().orElse(ResultFormatType.JSON))
+				.result(linhaDeComando.getResult().orElse("jmh-result.json"))
+				.build();
+
+		new Runner(opcoes).run();
+	}
+}
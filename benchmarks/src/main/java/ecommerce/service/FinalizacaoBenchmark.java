@@ -0,0 +1,204 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalAssincrono;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.IPagamentoExternalAssincrono;
+import ecommerce.service.CenarioCarrinho.MixTipos;
+
+/**
+ * Um lote de finalizações simultâneas com estoque e pagamento lentos, pelo caminho bloqueante (um pool de
+ * {@code threads} threads, como o Tomcat) e pelo não bloqueante ({@link CompraAssincronaService}). Cada
+ * finalização faz três chamadas externas em sequência, de {@code latenciaMs} cada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinalizacaoBenchmark {
+
+	@Param({ "256" })
+	int finalizacoes;
+
+	@Param({ "32" })
+	int threads;
+
+	@Param({ "2" })
+	int latenciaMs;
+
+	private CompraService bloqueante;
+	private CompraAssincronaService assincrono;
+	private ExecutorService pool;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		CarrinhoDeCompras carrinho = CenarioCarrinho.carrinho(10, MixTipos.MISTO);
+		Cliente cliente = CenarioCarrinho.cliente(Regiao.SUDESTE, TipoCliente.BRONZE);
+		carrinho.setCliente(cliente);
+
+		CarrinhoDeComprasService carrinhoService = new CarrinhoDeComprasService(null) {
+			private final Optional<CarrinhoDeCompras> encontrado = Optional.of(carrinho);
+
+			@Override
+			public Optional<CarrinhoDeCompras> buscarParaFinalizacao(Long carrinhoId, Long clienteId) {
+				return encontrado;
+			}
+		};
+		ClienteService clienteService = new ClienteService(null) {
+			@Override
+			public Cliente buscarPorId(Long clienteId) {
+				return cliente;
+			}
+		};
+
+		long latenciaNanos = TimeUnit.MILLISECONDS.toNanos(latenciaMs);
+		ExternosLentos externos = new ExternosLentos(latenciaNanos);
+		ExternosLentosAssincronos externosAssincronos = new ExternosLentosAssincronos(latenciaNanos);
+		bloqueante = new CompraService(carrinhoService, clienteService, externos, externos,
+				ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.PONTO_FIXO, ForkJoinPool.commonPool(), null,
+				Runnable::run, Duration.ofSeconds(5), null, null, null, new ComprasEmConferencia(1000));
+		assincrono = new CompraAssincronaService(bloqueante, carrinhoService, clienteService, externosAssincronos,
+				externosAssincronos, Duration.ofSeconds(5), Runnable::run);
+		pool = Executors.newFixedThreadPool(threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Benchmark
+	public List<CompraDTO> bloqueante() throws Exception {
+		List<Future<CompraDTO>> pendentes = new ArrayList<>(finalizacoes);
+		for (int i = 0; i < finalizacoes; i++) {
+			pendentes.add(pool.submit(() -> bloqueante.finalizarCompra(1L, 1L)));
+		}
+
+		List<CompraDTO> compras = new ArrayList<>(finalizacoes);
+		for (Future<CompraDTO> pendente : pendentes) {
+			compras.add(pendente.get());
+		}
+		return compras;
+	}
+
+	@Benchmark
+	public List<CompraDTO> naoBloqueante() {
+		List<CompletableFuture<CompraDTO>> pendentes = new ArrayList<>(finalizacoes);
+		for (int i = 0; i < finalizacoes; i++) {
+			pendentes.add(assincrono.finalizarCompra(1L, 1L));
+		}
+
+		List<CompraDTO> compras = new ArrayList<>(finalizacoes);
+		for (CompletableFuture<CompraDTO> pendente : pendentes) {
+			compras.add(pendente.join());
+		}
+		return compras;
+	}
+
+	/** Estoque e pagamento que estacionam a thread chamadora pela latência. */
+	private static final class ExternosLentos implements IEstoqueExternal, IPagamentoExternal {
+
+		private final long latenciaNanos;
+
+		ExternosLentos(long latenciaNanos) {
+			this.latenciaNanos = latenciaNanos;
+		}
+
+		@Override
+		public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			LockSupport.parkNanos(latenciaNanos);
+			return new DisponibilidadeDTO(true, List.of());
+		}
+
+		@Override
+		public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			LockSupport.parkNanos(latenciaNanos);
+			return new EstoqueBaixaDTO(true);
+		}
+
+		@Override
+		public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+			LockSupport.parkNanos(latenciaNanos);
+			return new PagamentoDTO(true, ThreadLocalRandom.current().nextLong(1_000_000, 9_999_999));
+		}
+
+		@Override
+		public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+		}
+	}
+
+	/** Mesma latência, com a resposta entregue por um timer, sem thread esperando por chamada. */
+	private static final class ExternosLentosAssincronos
+			implements IEstoqueExternalAssincrono, IPagamentoExternalAssincrono {
+
+		private final long latenciaNanos;
+
+		ExternosLentosAssincronos(long latenciaNanos) {
+			this.latenciaNanos = latenciaNanos;
+		}
+
+		private <T> CompletableFuture<T> depoisDaLatencia(T resposta) {
+			return CompletableFuture.supplyAsync(() -> resposta,
+					CompletableFuture.delayedExecutor(latenciaNanos, TimeUnit.NANOSECONDS, Runnable::run));
+		}
+
+		@Override
+		public CompletableFuture<DisponibilidadeDTO> verificarDisponibilidade(List<Long> produtosIds,
+				List<Long> produtosQuantidades) {
+			return depoisDaLatencia(new DisponibilidadeDTO(true, List.of()));
+		}
+
+		@Override
+		public CompletableFuture<EstoqueBaixaDTO> darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			return depoisDaLatencia(new EstoqueBaixaDTO(true));
+		}
+
+		@Override
+		public CompletableFuture<PagamentoDTO> autorizarPagamento(Long clienteId, Double custoTotal) {
+			return depoisDaLatencia(
+					new PagamentoDTO(true, ThreadLocalRandom.current().nextLong(1_000_000, 9_999_999)));
+		}
+
+		@Override
+		public CompletableFuture<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+}
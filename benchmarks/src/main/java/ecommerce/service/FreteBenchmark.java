@@ -0,0 +1,62 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Frete estimado de um produto ({@code GET /frete}) pela tabela pré-montada, contra o cálculo em etapas
+ * sobre um carrinho de um item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FreteBenchmark {
+
+	@Param({ "SUDESTE", "NORTE" })
+	Regiao regiao;
+
+	@Param({ "BRONZE", "PRATA" })
+	TipoCliente tipoCliente;
+
+	private final CalculadoraFrete calculadora = new CalculadoraFrete();
+	private final RegrasPrecificacao regras = ProvedorRegrasPrecificacao.padrao().atual();
+	private Produto produto;
+
+	@Setup
+	public void setup() {
+		produto = new Produto(1L, "Produto", "Benchmark", new BigDecimal("129.90"), new BigDecimal("7.25"),
+				new BigDecimal("40"), new BigDecimal("30"), new BigDecimal("25"), true, TipoProduto.ELETRONICO);
+		produto.atualizarPesoTributavel();
+	}
+
+	@Benchmark
+	public BigDecimal estimarFrete() {
+		return calculadora.estimarFrete(produto, 3, regiao, tipoCliente, regras);
+	}
+
+	@Benchmark
+	public BigDecimal estimarFreteBigDecimal() {
+		BigDecimal pesoTotal = produto.getPesoTributavel().multiply(BigDecimal.valueOf(3));
+		return calculadora.calcularFrete(pesoTotal, 3, regiao, tipoCliente, regras);
+	}
+}
@@ -0,0 +1,66 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+
+/**
+ * Peso total de um carrinho de catálogo pesado: peso tributável recalculado a cada cotação
+ * ({@link Produto#calcularPesoTributavel()}) contra o valor persistido ({@link Produto#getPesoTributavel()}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PesoTributavelBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	int tamanhoCarrinho;
+
+	private CarrinhoDeCompras carrinho;
+
+	@Setup
+	public void setup() {
+		carrinho = CenarioCarrinho.carrinhoVolumoso(tamanhoCarrinho);
+		for (ItemCompra item : carrinho.getItens()) {
+			item.getProduto().atualizarPesoTributavel();
+		}
+	}
+
+	@Benchmark
+	public BigDecimal pesoTotalRecalculado() {
+		BigDecimal total = BigDecimal.ZERO;
+		for (ItemCompra item : carrinho.getItens()) {
+			BigDecimal qtd = BigDecimal.valueOf(item.getQuantidade());
+			total = total.add(item.getProduto().calcularPesoTributavel().multiply(qtd));
+		}
+		return total;
+	}
+
+	@Benchmark
+	public BigDecimal pesoTotalPersistido() {
+		BigDecimal total = BigDecimal.ZERO;
+		for (ItemCompra item : carrinho.getItens()) {
+			BigDecimal qtd = BigDecimal.valueOf(item.getQuantidade());
+			total = total.add(item.getProduto().getPesoTributavel().multiply(qtd));
+		}
+		return total;
+	}
+}
@@ -0,0 +1,112 @@
+package ecommerce.carga;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Popula o H2 da aplicação com um catálogo compartilhado, clientes de todas as regiões e tipos e carrinhos com
+ * produtos sorteados do catálogo. Determinístico para a mesma {@code carga.semente}.
+ */
+final class CenarioCarga {
+
+	/** Um par carrinho/cliente válido para {@code POST /finalizar}. */
+	record Alvo(long carrinhoId, long clienteId) {
+	}
+
+	private static final int CARRINHOS_POR_TRANSACAO = 500;
+
+	private CenarioCarga() {
+	}
+
+	static List<Alvo> popular(ApplicationContext contexto, ConfiguracaoCarga configuracao) {
+		TransactionTemplate transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+		ProdutoRepository produtoRepository = contexto.getBean(ProdutoRepository.class);
+		ClienteRepository clienteRepository = contexto.getBean(ClienteRepository.class);
+		CarrinhoDeComprasRepository carrinhoRepository = contexto.getBean(CarrinhoDeComprasRepository.class);
+		SplittableRandom aleatorio = new SplittableRandom(configuracao.semente());
+
+		List<Long> produtos = transacao.execute(status -> {
+			List<Long> ids = new ArrayList<>(configuracao.produtos());
+			for (int i = 0; i < configuracao.produtos(); i++) {
+				ids.add(produtoRepository.save(produto(i, aleatorio)).getId());
+			}
+			return ids;
+		});
+		List<Cliente> clientes = transacao.execute(status -> {
+			List<Cliente> salvos = new ArrayList<>(configuracao.clientes());
+			for (int i = 0; i < configuracao.clientes(); i++) {
+				salvos.add(clienteRepository.save(cliente(i)));
+			}
+			return salvos;
+		});
+
+		List<Alvo> alvos = new ArrayList<>(configuracao.carrinhos());
+		for (int inicio = 0; inicio < configuracao.carrinhos(); inicio += CARRINHOS_POR_TRANSACAO) {
+			int fim = Math.min(inicio + CARRINHOS_POR_TRANSACAO, configuracao.carrinhos());
+			transacao.executeWithoutResult(status -> {
+				for (int i = alvos.size(); i < fim; i++) {
+					Cliente cliente = clientes.get(aleatorio.nextInt(clientes.size()));
+					List<ItemCompra> itens = new ArrayList<>(configuracao.itensPorCarrinho());
+					for (int indice : indicesDistintos(produtos.size(), configuracao.itensPorCarrinho(), aleatorio)) {
+						// Referência gerenciada: a cascata de ItemCompra não tenta persistir o produto de novo.
+						Produto produto = produtoRepository.getReferenceById(produtos.get(indice));
+						itens.add(new ItemCompra(null, produto, 1L + aleatorio.nextInt(3)));
+					}
+					CarrinhoDeCompras carrinho = carrinhoRepository
+							.save(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+					alvos.add(new Alvo(carrinho.getId(), cliente.getId()));
+				}
+			});
+		}
+		return alvos;
+	}
+
+	private static Produto produto(int i, SplittableRandom aleatorio) {
+		TipoProduto[] tipos = TipoProduto.values();
+		BigDecimal preco = BigDecimal.valueOf(500 + aleatorio.nextInt(50_000), 2);
+		BigDecimal peso = BigDecimal.valueOf(1 + aleatorio.nextInt(200), 1);
+		return new Produto(null, "Produto " + (i + 1), "Produto da carga", preco, peso, dimensao(aleatorio),
+				dimensao(aleatorio), dimensao(aleatorio), aleatorio.nextInt(10) == 0, tipos[i % tipos.length]);
+	}
+
+	private static BigDecimal dimensao(SplittableRandom aleatorio) {
+		return BigDecimal.valueOf(5 + aleatorio.nextInt(60)).setScale(1, RoundingMode.UNNECESSARY);
+	}
+
+	private static Cliente cliente(int i) {
+		Regiao[] regioes = Regiao.values();
+		TipoCliente[] tipos = TipoCliente.values();
+		return new Cliente(null, "Cliente " + (i + 1), regioes[i % regioes.length], tipos[i % tipos.length]);
+	}
+
+	private static int[] indicesDistintos(int total, int quantidade, SplittableRandom aleatorio) {
+		// Sorteio de Floyd: quantidade índices distintos em [0, total) sem embaralhar o catálogo inteiro.
+		Set<Integer> escolhidos = new LinkedHashSet<>();
+		for (int j = total - quantidade; j < total; j++) {
+			int t = aleatorio.nextInt(j + 1);
+			escolhidos.add(escolhidos.contains(t) ? j : t);
+		}
+		return escolhidos.stream().mapToInt(Integer::intValue).toArray();
+	}
+}
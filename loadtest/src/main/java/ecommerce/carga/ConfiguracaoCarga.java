@@ -0,0 +1,68 @@
+package ecommerce.carga;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * Parâmetros do teste de carga, lidos das propriedades {@code carga.*} (linha de comando, variáveis de ambiente
+ * etc.), com os mesmos formatos das propriedades da aplicação ({@code --carga.duracao=2m}).
+ *
+ * @param taxa             chegadas por segundo (modelo aberto: não depende das respostas)
+ * @param chegadas         intervalo entre chegadas constante ou exponencial
+ * @param aquecimento      período inicial disparado mas fora das medidas
+ * @param maximoPendentes  requisições em andamento acima das quais a chegada é descartada e contada como erro
+ */
+record ConfiguracaoCarga(double taxa, Chegadas chegadas, Duration duracao, Duration aquecimento, int clientes,
+		int carrinhos, int produtos, int itensPorCarrinho, Duration timeout, int maximoPendentes, int threads,
+		long semente, String rotulo, Path relatorio, Path compararCom) {
+
+	/** Distribuição dos intervalos entre chegadas. */
+	enum Chegadas {
+		/** Uma chegada a cada {@code 1/taxa}. */
+		CONSTANTE,
+		/** Processo de Poisson: intervalos exponenciais com média {@code 1/taxa}. */
+		POISSON;
+
+		long proximoIntervaloNanos(double taxa, SplittableRandom aleatorio) {
+			double media = 1_000_000_000d / taxa;
+			return switch (this) {
+				case CONSTANTE -> Math.round(media);
+				case POISSON -> Math.round(-media * Math.log(1 - aleatorio.nextDouble()));
+			};
+		}
+	}
+
+	ConfiguracaoCarga {
+		if (taxa <= 0)
+			throw new IllegalArgumentException("carga.taxa deve ser positiva.");
+		if (duracao.isNegative() || duracao.isZero())
+			throw new IllegalArgumentException("carga.duracao deve ser positiva.");
+		if (clientes < 1 || carrinhos < 1 || itensPorCarrinho < 1 || produtos < itensPorCarrinho)
+			throw new IllegalArgumentException(
+					"carga.clientes e carga.carrinhos devem ser positivos e carga.produtos >= carga.itens-por-carrinho.");
+	}
+
+	static ConfiguracaoCarga de(Environment environment) {
+		Binder binder = Binder.get(environment);
+		return new ConfiguracaoCarga(
+				binder.bind("carga.taxa", Double.class).orElse(50d),
+				binder.bind("carga.chegadas", Chegadas.class).orElse(Chegadas.POISSON),
+				binder.bind("carga.duracao", Duration.class).orElse(Duration.ofSeconds(60)),
+				binder.bind("carga.aquecimento", Duration.class).orElse(Duration.ofSeconds(10)),
+				binder.bind("carga.clientes", Integer.class).orElse(200),
+				binder.bind("carga.carrinhos", Integer.class).orElse(1000),
+				binder.bind("carga.produtos", Integer.class).orElse(500),
+				binder.bind("carga.itens-por-carrinho", Integer.class).orElse(3),
+				binder.bind("carga.timeout", Duration.class).orElse(Duration.ofSeconds(30)),
+				binder.bind("carga.maximo-pendentes", Integer.class).orElse(10_000),
+				binder.bind("carga.threads", Integer.class).orElse(4),
+				binder.bind("carga.semente", Long.class).orElse(42L),
+				binder.bind("carga.rotulo", String.class).orElse("local"),
+				Path.of(binder.bind("carga.relatorio", String.class).orElse("target/carga.json")),
+				binder.bind("carga.comparar-com", String.class).map(Path::of).orElse(null));
+	}
+}
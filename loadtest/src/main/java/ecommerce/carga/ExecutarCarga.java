@@ -0,0 +1,63 @@
+package ecommerce.carga;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ecommerce.CompraApplication;
+import ecommerce.carga.CenarioCarga.Alvo;
+
+/**
+ * Sobe a aplicação no mesmo processo (H2 em memória, profile {@code simulador}, porta livre), popula a base e
+ * dispara {@code POST /finalizar} na taxa pedida, gravando o relatório em {@code carga.relatorio}.
+ *
+ * Os argumentos {@code --carga.*} configuram a carga ({@link ConfiguracaoCarga}); os demais vão para a aplicação,
+ * por exemplo {@code --compra.estoque.lote.habilitado=true} ou {@code --compra.simulador.pagamento.latencia.media=40ms}.
+ * Gerador e aplicação dividem a mesma máquina: compare relatórios gerados no mesmo ambiente.
+ */
+public final class ExecutarCarga {
+
+	private ExecutarCarga() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		SpringApplication aplicacao = new SpringApplication(CompraApplication.class);
+		aplicacao.setAdditionalProfiles("simulador");
+		aplicacao.setDefaultProperties(Map.of(
+				"server.port", "0",
+				"spring.main.banner-mode", "off",
+				"logging.level.root", "WARN"));
+
+		try (ConfigurableApplicationContext contexto = aplicacao.run(args)) {
+			ConfiguracaoCarga configuracao = ConfiguracaoCarga.de(contexto.getEnvironment());
+			int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+
+			System.out.printf("Populando %d produtos, %d clientes e %d carrinhos...%n", configuracao.produtos(),
+					configuracao.clientes(), configuracao.carrinhos());
+			List<Alvo> alvos = CenarioCarga.popular(contexto, configuracao);
+
+			System.out.printf("Disparando %.1f chegadas/s por %s (aquecimento de %s)...%n", configuracao.taxa(),
+					configuracao.duracao(), configuracao.aquecimento());
+			Instant inicio = Instant.now();
+			GeradorCarga.Resultado resultado = new GeradorCarga(URI.create("http://localhost:" + porta),
+					configuracao, alvos).executar();
+
+			RelatorioCarga relatorio = RelatorioCarga.de(configuracao, resultado, inicio,
+					List.of(contexto.getEnvironment().getActiveProfiles()),
+					Arrays.stream(args).filter(a -> !a.startsWith("--carga.")).toList());
+			relatorio.gravar(configuracao.relatorio());
+			System.out.print(relatorio.resumo());
+			System.out.println("Relatório: " + configuracao.relatorio().toAbsolutePath());
+
+			if (configuracao.compararCom() != null && Files.exists(configuracao.compararCom()))
+				System.out.print(relatorio.comparar(RelatorioCarga.ler(configuracao.compararCom())));
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package ecommerce.carga;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import ecommerce.carga.CenarioCarga.Alvo;
+
+/**
+ * Dispara {@code POST /finalizar} em modelo aberto: as chegadas seguem um horário planejado a partir da taxa,
+ * sem esperar as respostas anteriores. Uma requisição que sai atrasada (gerador ou conexões saturados) tem a
+ * latência contada desde o horário planejado, como o cliente real a perceberia, evitando a omissão coordenada;
+ * {@code latenciaServico} conta só a partir do envio.
+ *
+ * Latências em microssegundos num {@link ConcurrentHistogram} com 3 dígitos significativos. Só entram nas medidas
+ * as chegadas planejadas depois do aquecimento.
+ */
+final class GeradorCarga {
+
+	/** Totais da janela medida. */
+	record Resultado(long planejadas, long enviadas, long respondidas, long sucessos, Map<String, Long> status,
+			Map<String, Long> erros, Histogram latencia, Histogram latenciaServico, long atrasoMaximoEnvioNanos,
+			long duracaoNanos) {
+	}
+
+	private final URI base;
+	private final ConfiguracaoCarga configuracao;
+	private final List<Alvo> alvos;
+	private final ExecutorService executor;
+	private final HttpClient http;
+
+	private final Histogram latencia = new ConcurrentHistogram(3);
+	private final Histogram latenciaServico = new ConcurrentHistogram(3);
+	private final Map<Integer, LongAdder> status = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> erros = new ConcurrentHashMap<>();
+	private final LongAdder planejadas = new LongAdder();
+	private final LongAdder enviadas = new LongAdder();
+	private final LongAdder falhas = new LongAdder();
+	private final LongAccumulator atrasoMaximoEnvio = new LongAccumulator(Math::max, 0);
+	private final AtomicInteger pendentes = new AtomicInteger();
+
+	GeradorCarga(URI base, ConfiguracaoCarga configuracao, List<Alvo> alvos) {
+		this.base = base;
+		this.configuracao = configuracao;
+		this.alvos = alvos;
+		this.executor = Executors.newFixedThreadPool(configuracao.threads());
+		this.http = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(configuracao.timeout())
+				.executor(executor)
+				.build();
+	}
+
+	Resultado executar() throws InterruptedException {
+		SplittableRandom aleatorio = new SplittableRandom(configuracao.semente());
+		long inicio = System.nanoTime();
+		long inicioMedida = inicio + configuracao.aquecimento().toNanos();
+		long fim = inicioMedida + configuracao.duracao().toNanos();
+
+		try {
+			for (long planejado = inicio; planejado < fim;
+					planejado += configuracao.chegadas().proximoIntervaloNanos(configuracao.taxa(), aleatorio)) {
+				aguardarAte(planejado);
+				disparar(alvos.get(aleatorio.nextInt(alvos.size())), planejado, planejado >= inicioMedida);
+			}
+			aguardarPendentes(System.nanoTime() + configuracao.timeout().toNanos());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Cópias: respostas que ainda chegarem depois do prazo não alteram o resultado.
+		Histogram latenciaFinal = latencia.copy();
+		Map<String, Long> errosFinais = totais(erros);
+		long semResposta = enviadas.sum() - latenciaFinal.getTotalCount() - falhas.sum();
+		if (semResposta > 0)
+			errosFinais.put("sem_resposta", semResposta);
+		return new Resultado(planejadas.sum(), enviadas.sum(), latenciaFinal.getTotalCount(),
+				status.entrySet().stream().filter(e -> e.getKey() / 100 == 2).mapToLong(e -> e.getValue().sum()).sum(),
+				totais(status), errosFinais, latenciaFinal, latenciaServico.copy(), atrasoMaximoEnvio.get(),
+				fim - inicioMedida);
+	}
+
+	private void disparar(Alvo alvo, long planejado, boolean medir) {
+		if (medir)
+			planejadas.increment();
+		if (pendentes.get() >= configuracao.maximoPendentes()) {
+			if (medir)
+				contarErro("pendentes_excedidos");
+			return;
+		}
+
+		HttpRequest requisicao = HttpRequest.newBuilder(base.resolve("/finalizar?carrinhoId=" + alvo.carrinhoId()
+				+ "&clienteId=" + alvo.clienteId()))
+				.timeout(configuracao.timeout())
+				.POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+
+		pendentes.incrementAndGet();
+		long envio = System.nanoTime();
+		if (medir) {
+			enviadas.increment();
+			atrasoMaximoEnvio.accumulate(envio - planejado);
+		}
+		http.sendAsync(requisicao, HttpResponse.BodyHandlers.discarding()).whenComplete((resposta, erro) -> {
+			long agora = System.nanoTime();
+			pendentes.decrementAndGet();
+			if (!medir)
+				return;
+			if (erro != null) {
+				falhas.increment();
+				contarErro(tipoErro(erro));
+				return;
+			}
+			status.computeIfAbsent(resposta.statusCode(), s -> new LongAdder()).increment();
+			latencia.recordValue(TimeUnit.NANOSECONDS.toMicros(agora - planejado));
+			latenciaServico.recordValue(TimeUnit.NANOSECONDS.toMicros(agora - envio));
+		});
+	}
+
+	private void contarErro(String tipo) {
+		erros.computeIfAbsent(tipo, t -> new LongAdder()).increment();
+	}
+
+	private void aguardarPendentes(long prazo) throws InterruptedException {
+		while (pendentes.get() > 0 && System.nanoTime() < prazo) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static void aguardarAte(long instante) {
+		long falta;
+		while ((falta = instante - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(falta);
+		}
+	}
+
+	private static String tipoErro(Throwable erro) {
+		Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+		if (causa instanceof ConnectException || causa instanceof HttpConnectTimeoutException)
+			return "conexao";
+		if (causa instanceof HttpTimeoutException)
+			return "timeout";
+		return causa.getClass().getSimpleName();
+	}
+
+	private static <K> Map<String, Long> totais(Map<K, LongAdder> contadores) {
+		Map<String, Long> totais = new TreeMap<>();
+		contadores.forEach((chave, contador) -> totais.put(String.valueOf(chave), contador.sum()));
+		return totais;
+	}
+}
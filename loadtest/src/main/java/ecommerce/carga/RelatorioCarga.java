@@ -0,0 +1,123 @@
+package ecommerce.carga;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Relatório de uma execução, gravado em JSON para comparar builds. Latências em milissegundos; o histograma
+ * completo vai em {@code histogramaHdr} (formato comprimido do HdrHistogram em Base64, em microssegundos) para
+ * recalcular qualquer percentil ou somar execuções.
+ */
+record RelatorioCarga(String rotulo, String inicio, String java, int processadores, Configuracao configuracao,
+		long planejadas, long enviadas, long respondidas, long sucessos, double vazao, double vazaoSucesso,
+		double atrasoMaximoEnvioMs, Map<String, Long> respostasPorStatus, Map<String, Long> erros,
+		Latencias latencia, Latencias latenciaServico, String histogramaHdr) {
+
+	/** Parâmetros que influenciam o resultado, incluindo as propriedades da aplicação passadas na linha de comando. */
+	record Configuracao(double taxa, String chegadas, double duracaoSegundos, double aquecimentoSegundos,
+			int clientes, int carrinhos, int produtos, int itensPorCarrinho, List<String> profiles,
+			List<String> argumentos) {
+	}
+
+	record Latencias(long contagem, double media, double p50, double p90, double p95, double p99,
+			@JsonProperty("p99.9") double p999, double max) {
+
+		static Latencias de(Histogram histograma) {
+			return new Latencias(histograma.getTotalCount(), histograma.getMean() / 1000, ms(histograma, 50),
+					ms(histograma, 90), ms(histograma, 95), ms(histograma, 99), ms(histograma, 99.9),
+					histograma.getMaxValue() / 1000d);
+		}
+
+		private static double ms(Histogram histograma, double percentil) {
+			return histograma.getValueAtPercentile(percentil) / 1000d;
+		}
+	}
+
+	private static final ObjectMapper JSON = new ObjectMapper()
+			.enable(SerializationFeature.INDENT_OUTPUT)
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	static RelatorioCarga de(ConfiguracaoCarga configuracao, GeradorCarga.Resultado resultado, Instant inicio,
+			List<String> profiles, List<String> argumentos) {
+		double segundos = resultado.duracaoNanos() / 1e9;
+		return new RelatorioCarga(configuracao.rotulo(), inicio.toString(), Runtime.version().toString(),
+				Runtime.getRuntime().availableProcessors(),
+				new Configuracao(configuracao.taxa(), configuracao.chegadas().name(),
+						configuracao.duracao().toMillis() / 1000d, configuracao.aquecimento().toMillis() / 1000d,
+						configuracao.clientes(), configuracao.carrinhos(), configuracao.produtos(),
+						configuracao.itensPorCarrinho(), profiles, argumentos),
+				resultado.planejadas(), resultado.enviadas(), resultado.respondidas(), resultado.sucessos(),
+				resultado.respondidas() / segundos, resultado.sucessos() / segundos,
+				resultado.atrasoMaximoEnvioNanos() / 1e6, resultado.status(), resultado.erros(),
+				Latencias.de(resultado.latencia()), Latencias.de(resultado.latenciaServico()),
+				comprimir(resultado.latencia()));
+	}
+
+	static RelatorioCarga ler(Path arquivo) throws IOException {
+		return JSON.readValue(arquivo.toFile(), RelatorioCarga.class);
+	}
+
+	void gravar(Path arquivo) throws IOException {
+		if (arquivo.toAbsolutePath().getParent() != null)
+			Files.createDirectories(arquivo.toAbsolutePath().getParent());
+		JSON.writeValue(arquivo.toFile(), this);
+	}
+
+	String resumo() {
+		StringBuilder texto = new StringBuilder();
+		texto.append(String.format("Carga '%s': %.1f chegadas/s (%s) por %.0fs%n", rotulo, configuracao.taxa(),
+				configuracao.chegadas(), configuracao.duracaoSegundos()));
+		texto.append(String.format("  planejadas %d, enviadas %d, respondidas %d, sucessos %d%n", planejadas,
+				enviadas, respondidas, sucessos));
+		texto.append(String.format("  vazão %.1f/s (sucesso %.1f/s), atraso máximo de envio %.1f ms%n", vazao,
+				vazaoSucesso, atrasoMaximoEnvioMs));
+		texto.append(String.format("  status %s, erros %s%n", respostasPorStatus, erros));
+		texto.append(String.format("  latência (ms)         p50 %8.1f  p95 %8.1f  p99 %8.1f  p99.9 %8.1f  max %8.1f%n",
+				latencia.p50(), latencia.p95(), latencia.p99(), latencia.p999(), latencia.max()));
+		texto.append(String.format("  latência serviço (ms) p50 %8.1f  p95 %8.1f  p99 %8.1f  p99.9 %8.1f  max %8.1f%n",
+				latenciaServico.p50(), latenciaServico.p95(), latenciaServico.p99(), latenciaServico.p999(),
+				latenciaServico.max()));
+		return texto.toString();
+	}
+
+	/** Diferença relativa desta execução para {@code base}; positivo em latência é piora. */
+	String comparar(RelatorioCarga base) {
+		StringBuilder texto = new StringBuilder(String.format("Comparado a '%s' (%s):%n", base.rotulo, base.inicio));
+		texto.append(String.format("  vazão sucesso %8.1f/s -> %8.1f/s (%+.1f%%)%n", base.vazaoSucesso, vazaoSucesso,
+				variacao(base.vazaoSucesso, vazaoSucesso)));
+		linha(texto, "p50", base.latencia.p50(), latencia.p50());
+		linha(texto, "p95", base.latencia.p95(), latencia.p95());
+		linha(texto, "p99", base.latencia.p99(), latencia.p99());
+		linha(texto, "p99.9", base.latencia.p999(), latencia.p999());
+		return texto.toString();
+	}
+
+	private static void linha(StringBuilder texto, String percentil, double antes, double depois) {
+		texto.append(String.format("  %-13s %8.1f ms -> %8.1f ms (%+.1f%%)%n", percentil, antes, depois,
+				variacao(antes, depois)));
+	}
+
+	private static double variacao(double antes, double depois) {
+		return antes == 0 ? 0 : (depois - antes) * 100 / antes;
+	}
+
+	private static String comprimir(Histogram histograma) {
+		ByteBuffer buffer = ByteBuffer.allocate(histograma.getNeededByteBufferCapacity());
+		int tamanho = histograma.encodeIntoCompressedByteBuffer(buffer);
+		return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), tamanho));
+	}
+}
@@ -0,0 +1,77 @@
+package ecommerce.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@Configuration
+public class CheckoutConfig
+{
+
+	private static final String PREFIXO_THREADS = "checkout-externo-";
+	private static final String PREFIXO_THREADS_FINALIZACAO = "checkout-finalizacao-";
+
+	/**
+	 * Threads das chamadas externas que rodam em paralelo com a finalização de compra (verificação de
+	 * disponibilidade). São chamadas bloqueantes, por isso ficam fora do pool de cotações.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService executorChamadasExternas(@Value("${compra.checkout.threads-externas:64}") int threads)
+	{
+		return pool(PREFIXO_THREADS, threads);
+	}
+
+	/**
+	 * Threads das finalizações bloqueantes que saem da thread da requisição (variante não bloqueante com
+	 * {@code Idempotency-Key}, reservas locais ou baixas em lote). Cada uma espera chamadas que ela mesma envia ao
+	 * {@code executorChamadasExternas}; num pool separado, finalizações paradas não ocupam as threads dessas
+	 * chamadas.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService executorFinalizacoes(@Value("${compra.checkout.threads-finalizacao:32}") int threads)
+	{
+		return pool(PREFIXO_THREADS_FINALIZACAO, threads);
+	}
+
+	/**
+	 * Com {@code spring.threads.virtual.enabled=true} (Java 21) as requisições já rodam em virtual threads e
+	 * cada chamada externa ganha a sua, sem pool a dimensionar; {@code compra.checkout.threads-externas} é
+	 * ignorado. O mesmo vale para {@code compra.checkout.threads-finalizacao}.
+	 */
+	@Bean("executorChamadasExternas")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public Executor executorChamadasExternasVirtual()
+	{
+		return new VirtualThreadTaskExecutor(PREFIXO_THREADS);
+	}
+
+	@Bean("executorFinalizacoes")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public Executor executorFinalizacoesVirtual()
+	{
+		return new VirtualThreadTaskExecutor(PREFIXO_THREADS_FINALIZACAO);
+	}
+
+	private static ExecutorService pool(String prefixo, int threads)
+	{
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory(prefixo);
+		fabrica.setDaemon(true);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), fabrica);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+}
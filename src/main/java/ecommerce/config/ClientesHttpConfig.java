@@ -0,0 +1,63 @@
+package ecommerce.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import ecommerce.external.EstoqueClient;
+import ecommerce.external.PagamentoClient;
+import feign.RequestInterceptor;
+
+/**
+ * Clientes HTTP de estoque e pagamento (profile {@code feign}). O pool de conexões do Apache HttpClient 5 e os
+ * prazos ficam em {@code application-feign.properties}; as latências por chamada saem em
+ * {@code http.client.requests}, por {@code http.url}.
+ */
+@Configuration
+@Profile("feign")
+@EnableFeignClients(clients = { EstoqueClient.class, PagamentoClient.class })
+public class ClientesHttpConfig
+{
+
+	/**
+	 * Comprime com gzip os corpos a partir de {@code compra.externo.http.comprimir-a-partir-de}, como as listas de
+	 * itens de carrinhos grandes. Corpos menores vão sem compressão, que não compensaria.
+	 */
+	@Bean
+	public RequestInterceptor compressaoCorpo(
+			@Value("${compra.externo.http.comprimir-a-partir-de:2KB}") DataSize minimo)
+	{
+		long minimoBytes = minimo.toBytes();
+		return template -> {
+			byte[] corpo = template.body();
+			if (corpo == null || corpo.length < minimoBytes || template.headers().containsKey(HttpHeaders.CONTENT_ENCODING))
+				return;
+
+			template.body(gzip(corpo), null);
+			template.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		};
+	}
+
+	private static byte[] gzip(byte[] corpo)
+	{
+		ByteArrayOutputStream saida = new ByteArrayOutputStream(corpo.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(saida))
+		{
+			gzip.write(corpo);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return saida.toByteArray();
+	}
+}
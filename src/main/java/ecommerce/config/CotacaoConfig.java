@@ -0,0 +1,22 @@
+package ecommerce.config;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CotacaoConfig
+{
+
+	/**
+	 * Pool dedicado às cotações em lote, para que um lote grande não ocupe o common pool da JVM.
+	 * Paralelismo 0 usa o número de processadores disponíveis.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ForkJoinPool poolCotacoes(@Value("${compra.cotacoes.paralelismo:0}") int paralelismo)
+	{
+		return new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+	}
+}
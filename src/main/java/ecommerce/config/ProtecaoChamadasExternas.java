@@ -0,0 +1,113 @@
+package ecommerce.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.EstoqueExternalProtegido;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.PagamentoExternalProtegido;
+import ecommerce.external.ProtecaoDependencia;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Envolve a implementação ativa de {@link IEstoqueExternal} e de {@link IPagamentoExternal}, seja ela qual for, com
+ * a {@link ProtecaoDependencia} configurada em {@code compra.externo.estoque.*} e {@code compra.externo.pagamento.*}.
+ *
+ * Métricas com a tag {@code dependencia}: {@code externo.circuito.aberto} (1 aberto, 0,5 em teste, 0 fechado),
+ * {@code externo.vagas.livres}, {@code externo.falhas} e {@code externo.recusas} (tag {@code motivo}: circuito,
+ * lotacao ou tempo).
+ */
+@Component
+@ConditionalOnProperty(name = "compra.externo.protecao.habilitada", havingValue = "true", matchIfMissing = true)
+public class ProtecaoChamadasExternas implements BeanPostProcessor, MeterBinder, DisposableBean
+{
+
+	private final ProtecaoDependencia estoque;
+	private final ProtecaoDependencia pagamento;
+
+	public ProtecaoChamadasExternas(Environment environment)
+	{
+		Binder binder = Binder.get(environment);
+		this.estoque = protecao(binder, "estoque", "Serviço de estoque");
+		this.pagamento = protecao(binder, "pagamento", "Serviço de pagamento");
+	}
+
+	private static ProtecaoDependencia protecao(Binder binder, String nome, String descricao)
+	{
+		String prefixo = "compra.externo." + nome + ".";
+		return new ProtecaoDependencia(nome, descricao,
+				binder.bind(prefixo + "timeout", Duration.class).orElse(Duration.ofSeconds(2)),
+				binder.bind(prefixo + "maximo-concorrentes", Integer.class).orElse(32),
+				binder.bind(prefixo + "espera-vaga", Duration.class).orElse(Duration.ZERO),
+				binder.bind(prefixo + "falhas-para-abrir", Integer.class).orElse(5),
+				binder.bind(prefixo + "tempo-aberto", Duration.class).orElse(Duration.ofSeconds(10)));
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+	{
+		if (bean instanceof IEstoqueExternal estoqueExternal && !(bean instanceof EstoqueExternalProtegido))
+			return new EstoqueExternalProtegido(estoqueExternal, estoque);
+		if (bean instanceof IPagamentoExternal pagamentoExternal && !(bean instanceof PagamentoExternalProtegido))
+			return new PagamentoExternalProtegido(pagamentoExternal, pagamento);
+		return bean;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry)
+	{
+		for (ProtecaoDependencia protecao : List.of(estoque, pagamento))
+		{
+			Gauge.builder("externo.circuito.aberto", protecao, ProtecaoChamadasExternas::circuitoAberto)
+					.tag("dependencia", protecao.nome()).register(registry);
+			Gauge.builder("externo.vagas.livres", protecao, ProtecaoDependencia::vagasLivres)
+					.tag("dependencia", protecao.nome()).register(registry);
+			FunctionCounter.builder("externo.falhas", protecao, ProtecaoDependencia::falhas)
+					.tag("dependencia", protecao.nome()).register(registry);
+			FunctionCounter.builder("externo.recusas", protecao, ProtecaoDependencia::recusasCircuito)
+					.tags("dependencia", protecao.nome(), "motivo", "circuito").register(registry);
+			FunctionCounter.builder("externo.recusas", protecao, ProtecaoDependencia::recusasLotacao)
+					.tags("dependencia", protecao.nome(), "motivo", "lotacao").register(registry);
+			FunctionCounter.builder("externo.recusas", protecao, ProtecaoDependencia::temposEsgotados)
+					.tags("dependencia", protecao.nome(), "motivo", "tempo").register(registry);
+		}
+	}
+
+	private static double circuitoAberto(ProtecaoDependencia protecao)
+	{
+		return switch (protecao.estado())
+		{
+			case FECHADO -> 0.0;
+			case MEIO_ABERTO -> 0.5;
+			case ABERTO -> 1.0;
+		};
+	}
+
+	ProtecaoDependencia estoque()
+	{
+		return estoque;
+	}
+
+	ProtecaoDependencia pagamento()
+	{
+		return pagamento;
+	}
+
+	@Override
+	public void destroy()
+	{
+		estoque.encerrar();
+		pagamento.encerrar();
+	}
+}
@@ -1,14 +1,47 @@
 package ecommerce.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraJobDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.CotacaoRequisicaoDTO;
+import ecommerce.dto.FreteDTO;
+import ecommerce.dto.RespostaFinalizacaoDTO;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.service.CompraAssincronaService;
 import ecommerce.service.CompraService;
+import ecommerce.service.FalhaCompra;
+import ecommerce.service.FilaCompras;
+import ecommerce.service.FreteService;
+import ecommerce.service.RegistroIdempotencia;
 
 @RestController
 @RequestMapping("/")
@@ -16,32 +49,190 @@ public class CompraController
 {
 
 	private final CompraService compraService;
+	private final CompraAssincronaService compraAssincronaService;
+	private final FreteService freteService;
+	private final RegistroIdempotencia registroIdempotencia;
+	private final FilaCompras filaCompras;
+	private final ObjectMapper objectMapper;
+	private final int maximoCotacoesPorLote;
 
-	public CompraController(CompraService compraService)
+	public CompraController(CompraService compraService, CompraAssincronaService compraAssincronaService,
+			FreteService freteService, RegistroIdempotencia registroIdempotencia,
+			@Nullable FilaCompras filaCompras, ObjectMapper objectMapper,
+			@Value("${compra.cotacoes.maximo-por-lote:1000}") int maximoCotacoesPorLote)
 	{
 		this.compraService = compraService;
+		this.compraAssincronaService = compraAssincronaService;
+		this.freteService = freteService;
+		this.registroIdempotencia = registroIdempotencia;
+		this.filaCompras = filaCompras;
+		this.objectMapper = objectMapper;
+		this.maximoCotacoesPorLote = maximoCotacoesPorLote;
 	}
 
+	/**
+	 * Com o cabeçalho {@code Idempotency-Key}, repetições da mesma requisição (por exemplo, novas tentativas
+	 * após timeout) devolvem a compra já finalizada sem verificar estoque nem cobrar de novo.
+	 *
+	 * Com {@code compra.checkout.fila.habilitada=true} a compra vai para a {@link FilaCompras} e a resposta é
+	 * {@code 202 Accepted} com o {@link CompraJobDTO}, a consultar em {@code GET /compras/{jobId}}.
+	 */
 	@PostMapping("/finalizar")
-	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId)
+	public ResponseEntity<RespostaFinalizacaoDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId,
+			@RequestHeader(name = "Idempotency-Key", required = false) String chaveIdempotencia)
 	{
+		Supplier<CompraDTO> compra = chaveIdempotencia == null
+				? () -> compraService.finalizarCompra(carrinhoId, clienteId)
+				: () -> registroIdempotencia.executar(chaveIdempotencia, carrinhoId, clienteId,
+						() -> compraService.finalizarCompra(carrinhoId, clienteId));
+
+		if (filaCompras != null)
+			return enfileirarCompra(compra);
+
 		try
 		{
-			CompraDTO compraDTO = compraService.finalizarCompra(carrinhoId, clienteId);
-			return ResponseEntity.ok(compraDTO);
+			return ResponseEntity.ok(compra.get());
 		}
-		catch (IllegalArgumentException e)
+		catch (Exception e)
+		{
+			return statusDaFalha(FalhaCompra.de(e)).body(FalhaCompra.corpo(e));
+		}
+	}
+
+	@GetMapping("/compras/{jobId}")
+	public ResponseEntity<CompraJobDTO> consultarCompra(@PathVariable String jobId)
+	{
+		CompraJobDTO job = filaCompras == null ? null : filaCompras.buscar(jobId);
+		return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+	}
+
+	/**
+	 * Mesma finalização de {@code /finalizar}, com estoque e pagamento não bloqueantes: a thread do servidor é
+	 * liberada enquanto as chamadas externas respondem e a resposta é escrita quando o future completa.
+	 *
+	 * Com {@code Idempotency-Key}, a finalização passa pelo {@link RegistroIdempotencia} como em {@code /finalizar},
+	 * no executor das chamadas externas.
+	 */
+	@PostMapping("/finalizar/assincrono")
+	public CompletableFuture<ResponseEntity<CompraDTO>> finalizarCompraAssincrona(@RequestParam Long carrinhoId,
+			@RequestParam Long clienteId,
+			@RequestHeader(name = "Idempotency-Key", required = false) String chaveIdempotencia)
+	{
+		CompletableFuture<CompraDTO> compra = chaveIdempotencia == null
+				? compraAssincronaService.finalizarCompra(carrinhoId, clienteId)
+				: compraAssincronaService.finalizarBloqueante(() -> registroIdempotencia.executar(chaveIdempotencia,
+						carrinhoId, clienteId, () -> compraService.finalizarCompra(carrinhoId, clienteId)));
+
+		return compra.handle((compraDTO, erro) -> erro == null ? ResponseEntity.ok(compraDTO) : falhaNaCompra(erro));
+	}
+
+	/**
+	 * Cota vários carrinhos de uma vez. A resposta é NDJSON (um {@link CotacaoDTO} por linha), escrita à
+	 * medida que cada cotação fica pronta, portanto fora da ordem da requisição.
+	 */
+	@PostMapping(value = "/cotacoes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> cotar(@RequestBody List<CotacaoRequisicaoDTO> requisicoes)
+	{
+		if (requisicoes == null || requisicoes.isEmpty())
 		{
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, e.getMessage()));
+			return recusarLote("Lote de cotações deve possuir pelo menos 1 carrinho.");
 		}
-		catch (IllegalStateException e)
+		if (requisicoes.size() > maximoCotacoesPorLote)
 		{
-			return ResponseEntity.status(HttpStatus.CONFLICT).body(new CompraDTO(false, null, e.getMessage()));
+			return recusarLote("Lote de cotações deve possuir no máximo " + maximoCotacoesPorLote + " carrinhos.");
+		}
+
+		StreamingResponseBody corpo = saida -> compraService.cotarEmLote(requisicoes,
+				cotacao -> escreverLinha(saida, cotacao));
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(corpo);
+	}
+
+	/**
+	 * Disponibilidade dos itens do carrinho para a página do carrinho. Pode vir do cache de disponibilidade, com
+	 * alguns segundos de defasagem; {@code /finalizar} sempre confere no estoque antes do pagamento.
+	 *
+	 * Erros têm os status e o corpo ({@link CompraDTO}) de {@code /finalizar}.
+	 */
+	@GetMapping("/disponibilidade")
+	public ResponseEntity<?> consultarDisponibilidade(@RequestParam Long carrinhoId, @RequestParam Long clienteId)
+	{
+		try
+		{
+			return ResponseEntity.ok(compraService.consultarDisponibilidade(carrinhoId, clienteId));
 		}
 		catch (Exception e)
 		{
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-					.body(new CompraDTO(false, null, "Erro ao processar compra."));
+			return falhaNaCompra(e);
+		}
+	}
+
+	/** Frete estimado de um produto para a página do produto, sem carrinho nem cliente cadastrado. */
+	@GetMapping("/frete")
+	public ResponseEntity<FreteDTO> estimarFrete(@RequestParam Long produtoId,
+			@RequestParam(defaultValue = "1") Long quantidade, @RequestParam Regiao regiao,
+			@RequestParam(defaultValue = "BRONZE") TipoCliente tipoCliente)
+	{
+		try
+		{
+			BigDecimal frete = freteService.estimarFrete(produtoId, quantidade, regiao, tipoCliente);
+			return ResponseEntity.ok(FreteDTO.sucesso(produtoId, quantidade, frete));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(FreteDTO.falha(produtoId, quantidade, e.getMessage()));
+		}
+	}
+
+	private ResponseEntity<RespostaFinalizacaoDTO> enfileirarCompra(Supplier<CompraDTO> compra)
+	{
+		try
+		{
+			CompraJobDTO job = filaCompras.enfileirar(compra);
+			return ResponseEntity.accepted().location(URI.create("/compras/" + job.jobId())).body(job);
+		}
+		catch (RejectedExecutionException e)
+		{
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+					.body(new CompraDTO(false, null, e.getMessage()));
+		}
+	}
+
+	private static ResponseEntity<CompraDTO> falhaNaCompra(Throwable erro)
+	{
+		return statusDaFalha(FalhaCompra.de(erro)).body(FalhaCompra.corpo(erro));
+	}
+
+	/** Status e cabeçalhos da resposta de erro de uma finalização; o corpo é {@link FalhaCompra#corpo}. */
+	private static ResponseEntity.BodyBuilder statusDaFalha(FalhaCompra falha)
+	{
+		return switch (falha)
+		{
+			case DEPENDENCIA_INDISPONIVEL -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, "1");
+			case REQUISICAO_INVALIDA -> ResponseEntity.status(HttpStatus.BAD_REQUEST);
+			case RECUSADA -> ResponseEntity.status(HttpStatus.CONFLICT);
+			case ERRO_INTERNO -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR);
+		};
+	}
+
+	private ResponseEntity<StreamingResponseBody> recusarLote(String mensagem)
+	{
+		CotacaoDTO falha = CotacaoDTO.falha(null, null, mensagem);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_NDJSON)
+				.body(saida -> escreverLinha(saida, falha));
+	}
+
+	private void escreverLinha(OutputStream saida, CotacaoDTO cotacao)
+	{
+		try
+		{
+			saida.write(objectMapper.writeValueAsBytes(cotacao));
+			saida.write('\n');
+			saida.flush();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
 		}
 	}
 }
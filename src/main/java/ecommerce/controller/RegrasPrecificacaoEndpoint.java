@@ -0,0 +1,54 @@
+package ecommerce.controller;
+
+import java.io.UncheckedIOException;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import ecommerce.dto.RegrasPrecificacaoDTO;
+import ecommerce.service.ProvedorRegrasPrecificacao;
+import ecommerce.service.RegrasPrecificacao;
+
+/**
+ * {@code GET /actuator/regrasprecificacao} mostra o snapshot em uso; {@code POST} relê o arquivo de regras. Arquivo
+ * inválido ou ilegível dá 400 com o motivo, e o snapshot anterior continua valendo.
+ */
+@Component
+@Endpoint(id = "regrasprecificacao")
+public class RegrasPrecificacaoEndpoint
+{
+
+	private final ProvedorRegrasPrecificacao provedor;
+
+	public RegrasPrecificacaoEndpoint(ProvedorRegrasPrecificacao provedor)
+	{
+		this.provedor = provedor;
+	}
+
+	@ReadOperation
+	public RegrasPrecificacaoDTO regras()
+	{
+		return paraDTO(provedor.atual());
+	}
+
+	@WriteOperation
+	public RegrasPrecificacaoDTO recarregar()
+	{
+		try
+		{
+			return paraDTO(provedor.recarregar());
+		}
+		catch (IllegalArgumentException | UncheckedIOException e)
+		{
+			throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+		}
+	}
+
+	private RegrasPrecificacaoDTO paraDTO(RegrasPrecificacao regras)
+	{
+		return new RegrasPrecificacaoDTO(regras.getVersao(), regras.getCarregadaEm(), regras.getOrigem());
+	}
+}
@@ -0,0 +1,5 @@
+package ecommerce.dto;
+
+public record AutorizacaoPagamentoDTO(Long clienteId, Double custoTotal)
+{
+}
@@ -1,5 +1,5 @@
 package ecommerce.dto;
 
-public record CompraDTO(Boolean sucesso, Long transacaoPagamentoId, String mensagem)
+public record CompraDTO(Boolean sucesso, Long transacaoPagamentoId, String mensagem) implements RespostaFinalizacaoDTO
 {
 }
@@ -0,0 +1,11 @@
+package ecommerce.dto;
+
+/** Situação de uma finalização de compra enfileirada; {@code compra} só é preenchida quando ela termina. */
+public record CompraJobDTO(String jobId, Status status, CompraDTO compra) implements RespostaFinalizacaoDTO
+{
+
+	public enum Status
+	{
+		PENDENTE, PROCESSANDO, CONCLUIDA, FALHOU
+	}
+}
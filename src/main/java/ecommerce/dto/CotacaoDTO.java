@@ -0,0 +1,17 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+public record CotacaoDTO(Long carrinhoId, Long clienteId, Boolean sucesso, BigDecimal custoTotal, String mensagem)
+{
+
+	public static CotacaoDTO sucesso(Long carrinhoId, Long clienteId, BigDecimal custoTotal)
+	{
+		return new CotacaoDTO(carrinhoId, clienteId, true, custoTotal, null);
+	}
+
+	public static CotacaoDTO falha(Long carrinhoId, Long clienteId, String mensagem)
+	{
+		return new CotacaoDTO(carrinhoId, clienteId, false, null, mensagem);
+	}
+}
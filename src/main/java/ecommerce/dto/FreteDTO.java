@@ -0,0 +1,17 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+public record FreteDTO(Long produtoId, Long quantidade, Boolean sucesso, BigDecimal frete, String mensagem)
+{
+
+	public static FreteDTO sucesso(Long produtoId, Long quantidade, BigDecimal frete)
+	{
+		return new FreteDTO(produtoId, quantidade, true, frete, null);
+	}
+
+	public static FreteDTO falha(Long produtoId, Long quantidade, String mensagem)
+	{
+		return new FreteDTO(produtoId, quantidade, false, null, mensagem);
+	}
+}
@@ -0,0 +1,8 @@
+package ecommerce.dto;
+
+import java.util.List;
+
+/** Corpo das chamadas HTTP ao estoque: ids e quantidades em listas paralelas, na ordem dos itens. */
+public record ItensEstoqueDTO(List<Long> produtosIds, List<Long> produtosQuantidades)
+{
+}
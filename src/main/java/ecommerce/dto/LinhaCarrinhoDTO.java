@@ -0,0 +1,48 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Item do carrinho com apenas o que a precificação lê, projetado pela consulta JPQL: imutável e fora do
+ * contexto de persistência. {@code produtoId} nulo indica item sem produto.
+ *
+ * @param pesoTributavel o valor persistido em {@link Produto}; se vier nulo e houver peso e dimensões, é
+ *                       calculado como em {@link Produto#getPesoTributavel()}
+ */
+public record LinhaCarrinhoDTO(Long produtoId, Long quantidade, BigDecimal preco, TipoProduto tipo,
+		BigDecimal pesoFisico, BigDecimal comprimento, BigDecimal largura, BigDecimal altura, Boolean fragil,
+		BigDecimal pesoTributavel)
+{
+
+	public LinhaCarrinhoDTO
+	{
+		if (pesoTributavel == null && pesoFisico != null && comprimento != null && largura != null && altura != null)
+			pesoTributavel = Produto.calcularPesoTributavel(pesoFisico, comprimento, largura, altura);
+	}
+
+	/** Mesmas mensagens e ordem de {@link ItemCompra#motivoInvalidoParaCalculo()}. */
+	public String motivoInvalidoParaCalculo()
+	{
+		if (quantidade == null || quantidade <= 0)
+			return "Quantidade do item deve ser maior que zero.";
+		if (produtoId == null)
+			return "Produto do item não pode ser nulo.";
+		return Produto.motivoInvalidoParaCalculo(tipo, preco, pesoFisico, comprimento, largura, altura, fragil);
+	}
+
+	/** Ver {@link Produto#getPrecoEmCentavos()}. */
+	public long precoEmCentavos()
+	{
+		return Produto.escalar(preco, 2);
+	}
+
+	/** Ver {@link Produto#getPesoTributavelEscalado()}. */
+	public long pesoTributavelEscalado()
+	{
+		return Produto.escalar(pesoTributavel, Produto.ESCALA_PESO);
+	}
+}
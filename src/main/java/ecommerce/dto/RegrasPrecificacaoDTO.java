@@ -0,0 +1,7 @@
+package ecommerce.dto;
+
+import java.time.Instant;
+
+public record RegrasPrecificacaoDTO(Long versao, Instant carregadaEm, String origem)
+{
+}
@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+/**
+ * Corpo de {@code POST /finalizar}: a compra ({@link CompraDTO}) ou, com a fila de finalizações habilitada, o job
+ * que a executará ({@link CompraJobDTO}).
+ */
+public sealed interface RespostaFinalizacaoDTO permits CompraDTO, CompraJobDTO
+{
+}
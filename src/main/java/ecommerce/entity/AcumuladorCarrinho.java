@@ -0,0 +1,250 @@
+package ecommerce.entity;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Agregados do carrinho usados na precificação: subtotal e quantidade por {@link TipoProduto} (indexados
+ * pelo ordinal), peso tributável total e unidades frágeis.
+ *
+ * Os totais em ponto fixo (centavos e 10^-10 kg) são sempre acumulados; os totais em BigDecimal só
+ * quando pedidos em {@link #limpar(boolean)}, para que o motor de ponto fixo não aloque por item.
+ * Itens podem ser somados e subtraídos, o que permite manter os totais de um {@link CarrinhoDeCompras}
+ * incrementalmente, e os totais podem ser gravados em texto com o carrinho. Não é thread-safe;
+ * {@link #copiaSomenteLeitura()} dá uma cópia que pode ser compartilhada.
+ */
+public final class AcumuladorCarrinho {
+
+	public static final int TIPOS = TipoProduto.values().length;
+
+	private static final String FORMATO = "1";
+	private static final TipoProduto[] TIPOS_PRODUTO = TipoProduto.values();
+
+	private final long[] quantidadePorTipo = new long[TIPOS];
+	private long unidadesFrageis;
+
+	private final long[] subtotalPorTipoEmCentavos = new long[TIPOS];
+	private long pesoTotalEscalado;
+	/** Itens somados cujo preço ou peso não cabe na escala de ponto fixo. */
+	private int itensForaDeEscala;
+	/** Overflow em alguma soma; os totais em ponto fixo deixam de valer até o próximo {@link #limpar}. */
+	private boolean overflow;
+
+	private final BigDecimal[] subtotalPorTipo = new BigDecimal[TIPOS];
+	private BigDecimal pesoTotal;
+	private boolean comBigDecimal;
+
+	private final boolean somenteLeitura;
+
+	public AcumuladorCarrinho() {
+		this.somenteLeitura = false;
+	}
+
+	private AcumuladorCarrinho(AcumuladorCarrinho origem) {
+		System.arraycopy(origem.quantidadePorTipo, 0, quantidadePorTipo, 0, TIPOS);
+		unidadesFrageis = origem.unidadesFrageis;
+		System.arraycopy(origem.subtotalPorTipoEmCentavos, 0, subtotalPorTipoEmCentavos, 0, TIPOS);
+		pesoTotalEscalado = origem.pesoTotalEscalado;
+		itensForaDeEscala = origem.itensForaDeEscala;
+		overflow = origem.overflow;
+		System.arraycopy(origem.subtotalPorTipo, 0, subtotalPorTipo, 0, TIPOS);
+		pesoTotal = origem.pesoTotal;
+		comBigDecimal = origem.comBigDecimal;
+		somenteLeitura = true;
+	}
+
+	/** Cópia dos totais atuais que lança {@link IllegalStateException} em {@link #limpar}, somas e subtrações. */
+	public AcumuladorCarrinho copiaSomenteLeitura() {
+		return new AcumuladorCarrinho(this);
+	}
+
+	public AcumuladorCarrinho limpar(boolean comBigDecimal) {
+		verificarAlteravel();
+		Arrays.fill(quantidadePorTipo, 0L);
+		unidadesFrageis = 0;
+
+		Arrays.fill(subtotalPorTipoEmCentavos, 0L);
+		pesoTotalEscalado = 0;
+		itensForaDeEscala = 0;
+		overflow = false;
+
+		this.comBigDecimal = comBigDecimal;
+		Arrays.fill(subtotalPorTipo, BigDecimal.ZERO);
+		pesoTotal = BigDecimal.ZERO;
+		return this;
+	}
+
+	/** Soma um item já validado. */
+	public void somar(Produto produto, long quantidade) {
+		aplicar(produto, quantidade, 1);
+	}
+
+	/**
+	 * Soma um item já validado dado pelos valores do produto, como {@link #somar(Produto, long)}; para itens que
+	 * não vêm de uma entidade.
+	 */
+	public void somar(TipoProduto tipo, Boolean fragil, long precoEmCentavos, long pesoEscalado, BigDecimal preco,
+			BigDecimal pesoTributavel, long quantidade) {
+		aplicar(tipo, fragil, precoEmCentavos, pesoEscalado, preco, pesoTributavel, quantidade, 1);
+	}
+
+	/** Desfaz um {@link #somar} feito com o mesmo produto, sem alterações desde então, e a mesma quantidade. */
+	public void subtrair(Produto produto, long quantidade) {
+		aplicar(produto, quantidade, -1);
+	}
+
+	private void aplicar(Produto produto, long quantidade, int sinal) {
+		aplicar(produto.getTipo(), produto.isFragil(), produto.getPrecoEmCentavos(),
+				produto.getPesoTributavelEscalado(), produto.getPreco(), produto.getPesoTributavel(), quantidade, sinal);
+	}
+
+	private void aplicar(TipoProduto tipoProduto, Boolean fragil, long precoEmCentavos, long pesoEscalado,
+			BigDecimal preco, BigDecimal pesoTributavel, long quantidade, int sinal) {
+		verificarAlteravel();
+		int tipo = tipoProduto.ordinal();
+		long delta = sinal * quantidade;
+
+		quantidadePorTipo[tipo] += delta;
+		if (Boolean.TRUE.equals(fragil)) {
+			unidadesFrageis += delta;
+		}
+
+		aplicarPontoFixo(precoEmCentavos, pesoEscalado, tipo, delta, sinal);
+
+		if (comBigDecimal) {
+			BigDecimal qtd = BigDecimal.valueOf(delta);
+			subtotalPorTipo[tipo] = subtotalPorTipo[tipo].add(preco.multiply(qtd));
+			pesoTotal = pesoTotal.add(pesoTributavel.multiply(qtd));
+		}
+	}
+
+	private void aplicarPontoFixo(long preco, long peso, int tipo, long delta, int sinal) {
+		if (preco == Produto.FORA_DE_ESCALA || peso == Produto.FORA_DE_ESCALA) {
+			itensForaDeEscala += sinal;
+			return;
+		}
+		if (overflow) {
+			return;
+		}
+
+		try {
+			subtotalPorTipoEmCentavos[tipo] = Math.addExact(subtotalPorTipoEmCentavos[tipo],
+					Math.multiplyExact(preco, delta));
+			pesoTotalEscalado = Math.addExact(pesoTotalEscalado, Math.multiplyExact(peso, delta));
+		} catch (ArithmeticException e) {
+			overflow = true;
+		}
+	}
+
+	private void verificarAlteravel() {
+		if (somenteLeitura) {
+			throw new IllegalStateException("Totais do carrinho são somente leitura.");
+		}
+	}
+
+	public long quantidade(int tipo) {
+		return quantidadePorTipo[tipo];
+	}
+
+	public long unidadesFrageis() {
+		return unidadesFrageis;
+	}
+
+	/** {@code true} se todos os itens couberam nas escalas de ponto fixo. */
+	public boolean pontoFixoValido() {
+		return itensForaDeEscala == 0 && !overflow;
+	}
+
+	/** {@code true} se houve overflow; uma subtração não recupera os totais em ponto fixo. */
+	public boolean houveOverflow() {
+		return overflow;
+	}
+
+	public long subtotalEmCentavos(int tipo) {
+		return subtotalPorTipoEmCentavos[tipo];
+	}
+
+	public long pesoTotalEscalado() {
+		return pesoTotalEscalado;
+	}
+
+	public boolean comBigDecimal() {
+		return comBigDecimal;
+	}
+
+	public BigDecimal subtotal(int tipo) {
+		return subtotalPorTipo[tipo];
+	}
+
+	public BigDecimal pesoTotal() {
+		return pesoTotal;
+	}
+
+	/**
+	 * Os totais em texto, com os tipos pelo nome; {@link #restaurar} os lê de volta. Os valores BigDecimal mantêm a
+	 * escala, então restaurar e gravar de novo dá o mesmo texto.
+	 */
+	String gravar() {
+		StringBuilder texto = new StringBuilder(256).append(FORMATO).append('|').append(comBigDecimal).append('|')
+				.append(unidadesFrageis).append('|').append(pesoTotalEscalado).append('|').append(itensForaDeEscala)
+				.append('|').append(overflow).append('|').append(pesoTotal);
+		for (int tipo = 0; tipo < TIPOS; tipo++) {
+			texto.append('|').append(TIPOS_PRODUTO[tipo].name()).append(':').append(quantidadePorTipo[tipo])
+					.append(':').append(subtotalPorTipoEmCentavos[tipo]).append(':').append(subtotalPorTipo[tipo]);
+		}
+		return texto.toString();
+	}
+
+	/**
+	 * Substitui os totais pelos de {@code texto}, gravado por {@link #gravar}.
+	 *
+	 * @return {@code false} se o texto for de outro formato ou tiver um tipo desconhecido; os totais ficam limpos
+	 */
+	boolean restaurar(String texto) {
+		limpar(false);
+		String[] partes = texto.split("\\|");
+		if (partes.length < 7 || !FORMATO.equals(partes[0])) {
+			return false;
+		}
+		try {
+			comBigDecimal = Boolean.parseBoolean(partes[1]);
+			unidadesFrageis = Long.parseLong(partes[2]);
+			pesoTotalEscalado = Long.parseLong(partes[3]);
+			itensForaDeEscala = Integer.parseInt(partes[4]);
+			overflow = Boolean.parseBoolean(partes[5]);
+			pesoTotal = new BigDecimal(partes[6]);
+			for (int i = 7; i < partes.length; i++) {
+				String[] campos = partes[i].split(":");
+				int tipo = TipoProduto.valueOf(campos[0]).ordinal();
+				quantidadePorTipo[tipo] = Long.parseLong(campos[1]);
+				subtotalPorTipoEmCentavos[tipo] = Long.parseLong(campos[2]);
+				subtotalPorTipo[tipo] = new BigDecimal(campos[3]);
+			}
+			return true;
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			limpar(false);
+			return false;
+		}
+	}
+
+	/** Compara todos os totais (BigDecimal por valor, ignorando escala). */
+	public boolean mesmosTotais(AcumuladorCarrinho outro) {
+		if (!Arrays.equals(quantidadePorTipo, outro.quantidadePorTipo) || unidadesFrageis != outro.unidadesFrageis
+				|| pontoFixoValido() != outro.pontoFixoValido() || comBigDecimal != outro.comBigDecimal) {
+			return false;
+		}
+		if (pontoFixoValido() && (!Arrays.equals(subtotalPorTipoEmCentavos, outro.subtotalPorTipoEmCentavos)
+				|| pesoTotalEscalado != outro.pesoTotalEscalado)) {
+			return false;
+		}
+		if (comBigDecimal) {
+			for (int tipo = 0; tipo < TIPOS; tipo++) {
+				if (subtotalPorTipo[tipo].compareTo(outro.subtotalPorTipo[tipo]) != 0) {
+					return false;
+				}
+			}
+			return pesoTotal.compareTo(outro.pesoTotal) == 0;
+		}
+		return true;
+	}
+}
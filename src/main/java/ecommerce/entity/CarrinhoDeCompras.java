@@ -2,9 +2,13 @@ package ecommerce.entity;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -12,11 +16,22 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.Transient;
 
 @Entity
 public class CarrinhoDeCompras
 {
 
+	/**
+	 * Liga o modo de verificação: a cada consulta, os totais mantidos são comparados com um recálculo completo.
+	 * Usado nos testes ({@code -Dcompra.carrinho.verificar-totais=true}).
+	 */
+	static final boolean VERIFICAR_TOTAIS = Boolean.getBoolean("compra.carrinho.verificar-totais");
+
+	/** Tamanho da coluna dos totais gravados; totais maiores não são gravados e são refeitos ao carregar. */
+	static final int TAMANHO_TOTAIS = 1000;
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
@@ -31,6 +46,29 @@ public class CarrinhoDeCompras
 
 	private LocalDate data;
 
+	/** Totais como gravados na coluna {@code totais}; {@code null} se precisam ser refeitos. */
+	@Transient
+	private String totaisGravados;
+
+	/**
+	 * Totais dos itens para a precificação, atualizados em O(1) por {@link #adicionarItem}, {@link #removerItem}
+	 * e {@link #alterarQuantidade}. Valem enquanto {@link Produto#versaoCatalogo()} não mudar.
+	 */
+	@Transient
+	private AcumuladorCarrinho acumulador;
+	@Transient
+	private boolean calculados;
+	@Transient
+	private int invalidos;
+	@Transient
+	private long versaoCatalogo;
+	/** Totais calculados ou alterados e ainda não passados para {@link #totaisGravados}. */
+	@Transient
+	private boolean alterados;
+	/** Cópia somente leitura entregue aos chamadores; refeita na primeira consulta depois de uma mudança. */
+	@Transient
+	private AcumuladorCarrinho instantaneo;
+
 	public CarrinhoDeCompras()
 	{
 	}
@@ -64,14 +102,225 @@ public class CarrinhoDeCompras
 		this.cliente = cliente;
 	}
 
+	/** Somente leitura: os itens mudam por {@link #adicionarItem}, {@link #removerItem} e {@link #alterarQuantidade}. */
 	public List<ItemCompra> getItens()
 	{
-		return itens;
+		return itens == null ? null : Collections.unmodifiableList(itens);
 	}
 
-	public void setItens(List<ItemCompra> itens)
+	/** Troca todos os itens; a lista passa a ser do carrinho e os totais são refeitos na próxima consulta. */
+	public synchronized void setItens(List<ItemCompra> itens)
 	{
 		this.itens = itens;
+		descartarTotais();
+	}
+
+	public synchronized void adicionarItem(ItemCompra item)
+	{
+		if (item == null)
+			throw new IllegalArgumentException("Item do carrinho não pode ser nulo.");
+
+		if (itens == null)
+			itens = new ArrayList<>();
+		itens.add(item);
+		aplicar(item, 1);
+	}
+
+	/** @return {@code false} se o item não estava no carrinho */
+	public synchronized boolean removerItem(ItemCompra item)
+	{
+		int indice = indiceDe(item);
+		if (indice < 0)
+			return false;
+
+		itens.remove(indice);
+		aplicar(item, -1);
+		return true;
+	}
+
+	public synchronized void alterarQuantidade(ItemCompra item, Long quantidade)
+	{
+		if (indiceDe(item) < 0)
+			throw new IllegalArgumentException("Item não pertence ao carrinho.");
+
+		aplicar(item, -1);
+		item.setQuantidade(quantidade);
+		aplicar(item, 1);
+	}
+
+	/** Totais com os valores em BigDecimal; ver {@link #totaisParaCalculo(boolean)}. */
+	public AcumuladorCarrinho totaisParaCalculo()
+	{
+		return totaisParaCalculo(true);
+	}
+
+	/**
+	 * Totais correntes para a precificação, sem percorrer os itens: vêm dos totais mantidos a cada alteração ou
+	 * gravados com o carrinho. A passada completa só acontece no primeiro uso, depois de {@link #setItens}, quando
+	 * algum produto mudou em memória ({@link Produto#versaoCatalogo()}) ou quando a coluna foi zerada por
+	 * alteração de produto no banco. Devolve {@code null} se o carrinho estiver vazio ou tiver algum item
+	 * inválido; nesse caso o chamador faz a passada completa, que reporta o erro.
+	 *
+	 * Com {@code comBigDecimal} falso bastam os totais em ponto fixo, que não alocam por item; totais já
+	 * mantidos com BigDecimal também servem. O acumulador devolvido é uma cópia somente leitura, reaproveitada
+	 * enquanto nada mudar.
+	 */
+	public synchronized AcumuladorCarrinho totaisParaCalculo(boolean comBigDecimal)
+	{
+		if (itens == null || itens.isEmpty())
+			return null;
+
+		if (!totaisAtuais(comBigDecimal))
+			recalcular(comBigDecimal);
+		else if (VERIFICAR_TOTAIS)
+			verificar();
+
+		if (invalidos > 0)
+			return null;
+		if (instantaneo == null)
+			instantaneo = acumulador.copiaSomenteLeitura();
+		return instantaneo;
+	}
+
+	/**
+	 * Coluna {@code totais}, lida e escrita pelo Hibernate. Grava os totais mantidos em memória enquanto valem; se
+	 * algum produto mudou desde então, grava {@code null} e o próximo carregamento refaz a passada.
+	 */
+	@Access(AccessType.PROPERTY)
+	@Column(name = "totais", length = TAMANHO_TOTAIS)
+	protected synchronized String getTotaisGravados()
+	{
+		if (alterados)
+		{
+			String texto = totaisAtuais(false) ? invalidos + "|" + acumulador.gravar() : null;
+			totaisGravados = texto != null && texto.length() <= TAMANHO_TOTAIS ? texto : null;
+			alterados = false;
+		}
+		else if (totaisGravados != null && versaoCatalogo != Produto.versaoCatalogo())
+		{
+			totaisGravados = null;
+		}
+		return totaisGravados;
+	}
+
+	protected synchronized void setTotaisGravados(String totaisGravados)
+	{
+		this.totaisGravados = totaisGravados;
+		calculados = false;
+		alterados = false;
+		instantaneo = null;
+	}
+
+	/** Os totais carregados valem para os produtos como estão no banco. */
+	@PostLoad
+	synchronized void carregouTotais()
+	{
+		versaoCatalogo = Produto.versaoCatalogo();
+	}
+
+	/** Os totais em memória, ou os gravados, refletem os itens e os produtos como estão agora. */
+	private boolean totaisAtuais(boolean comBigDecimal)
+	{
+		if (versaoCatalogo != Produto.versaoCatalogo())
+			return false;
+		if (!calculados && totaisGravados != null)
+			restaurar();
+		return calculados && !acumulador.houveOverflow() && (!comBigDecimal || acumulador.comBigDecimal());
+	}
+
+	private void restaurar()
+	{
+		int separador = totaisGravados.indexOf('|');
+		if (acumulador == null)
+			acumulador = new AcumuladorCarrinho();
+		try
+		{
+			invalidos = Integer.parseInt(totaisGravados.substring(0, Math.max(separador, 0)));
+			calculados = acumulador.restaurar(totaisGravados.substring(separador + 1));
+		}
+		catch (NumberFormatException e)
+		{
+			calculados = false;
+		}
+		if (!calculados)
+			totaisGravados = null;
+	}
+
+	/** Soma ({@code sinal} 1) ou desfaz ({@code -1}) a parcela do item, se os totais estiverem em dia. */
+	private void aplicar(ItemCompra item, int sinal)
+	{
+		if (!totaisAtuais(false))
+		{
+			descartarTotais();
+			return;
+		}
+
+		if (item.motivoInvalidoParaCalculo() != null)
+			invalidos += sinal;
+		else if (sinal > 0)
+			acumulador.somar(item.getProduto(), item.getQuantidade());
+		else
+			acumulador.subtrair(item.getProduto(), item.getQuantidade());
+		alterados = true;
+		instantaneo = null;
+	}
+
+	private void recalcular(boolean comBigDecimal)
+	{
+		long versao = Produto.versaoCatalogo();
+		if (acumulador == null)
+			acumulador = new AcumuladorCarrinho();
+		acumulador.limpar(comBigDecimal);
+		invalidos = 0;
+
+		for (ItemCompra item : itens)
+		{
+			if (item == null || item.motivoInvalidoParaCalculo() != null)
+				invalidos++;
+			else
+				acumulador.somar(item.getProduto(), item.getQuantidade());
+		}
+		calculados = true;
+		versaoCatalogo = versao;
+		alterados = true;
+		instantaneo = null;
+	}
+
+	private void verificar()
+	{
+		AcumuladorCarrinho completo = new AcumuladorCarrinho().limpar(acumulador.comBigDecimal());
+		int invalidosCompleto = 0;
+		for (ItemCompra item : itens)
+		{
+			if (item == null || item.motivoInvalidoParaCalculo() != null)
+				invalidosCompleto++;
+			else
+				completo.somar(item.getProduto(), item.getQuantidade());
+		}
+
+		if (invalidosCompleto != invalidos || !completo.mesmosTotais(acumulador))
+			throw new IllegalStateException("Totais incrementais do carrinho divergem do recálculo completo.");
+	}
+
+	private void descartarTotais()
+	{
+		calculados = false;
+		totaisGravados = null;
+		alterados = false;
+		instantaneo = null;
+	}
+
+	private int indiceDe(ItemCompra item)
+	{
+		if (item == null || itens == null)
+			return -1;
+
+		for (int i = 0; i < itens.size(); i++)
+		{
+			if (itens.get(i) == item)
+				return i;
+		}
+		return -1;
 	}
 
 	public LocalDate getData()
@@ -0,0 +1,81 @@
+package ecommerce.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/** Resultado de uma finalização de compra, guardado pela {@code Idempotency-Key} da requisição. */
+@Entity
+public class CompraIdempotente
+{
+
+	@Id
+	@Column(length = 255)
+	private String chave;
+
+	private Long carrinhoId;
+
+	private Long clienteId;
+
+	private Boolean sucesso;
+
+	private Long transacaoPagamentoId;
+
+	private String mensagem;
+
+	private Instant criadaEm;
+
+	public CompraIdempotente()
+	{
+	}
+
+	public CompraIdempotente(String chave, Long carrinhoId, Long clienteId, Boolean sucesso,
+			Long transacaoPagamentoId, String mensagem, Instant criadaEm)
+	{
+		this.chave = chave;
+		this.carrinhoId = carrinhoId;
+		this.clienteId = clienteId;
+		this.sucesso = sucesso;
+		this.transacaoPagamentoId = transacaoPagamentoId;
+		this.mensagem = mensagem;
+		this.criadaEm = criadaEm;
+	}
+
+	// Getters
+	public String getChave()
+	{
+		return chave;
+	}
+
+	public Long getCarrinhoId()
+	{
+		return carrinhoId;
+	}
+
+	public Long getClienteId()
+	{
+		return clienteId;
+	}
+
+	public Boolean getSucesso()
+	{
+		return sucesso;
+	}
+
+	public Long getTransacaoPagamentoId()
+	{
+		return transacaoPagamentoId;
+	}
+
+	public String getMensagem()
+	{
+		return mensagem;
+	}
+
+	public Instant getCriadaEm()
+	{
+		return criadaEm;
+	}
+}
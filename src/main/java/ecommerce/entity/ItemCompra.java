@@ -63,4 +63,14 @@ public class ItemCompra
 	{
 		this.quantidade = quantidade;
 	}
+
+	/** Motivo pelo qual o item não pode ser precificado, ou {@code null} se for válido. */
+	public String motivoInvalidoParaCalculo()
+	{
+		if (quantidade == null || quantidade <= 0)
+			return "Quantidade do item deve ser maior que zero.";
+		if (produto == null)
+			return "Produto do item não pode ser nulo.";
+		return produto.motivoInvalidoParaCalculo();
+	}
 }
@@ -1,18 +1,37 @@
 package ecommerce.entity;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Transient;
 
 @Entity
 public class Produto
 {
 
+	private static final BigDecimal DIVISOR_PESO_CUBICO = new BigDecimal("6000");
+
+	/** Casas decimais do peso cúbico (kg). */
+	public static final int ESCALA_PESO = 10;
+
+	/** Valor devolvido pelas grandezas em ponto fixo quando não cabem na escala ou em um {@code long}. */
+	public static final long FORA_DE_ESCALA = -1L;
+
+	/** Alterações de precificação em qualquer produto desta JVM; ver {@link #versaoCatalogo()}. */
+	private static final AtomicLong VERSAO_CATALOGO = new AtomicLong();
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
@@ -38,6 +57,24 @@ public class Produto
 	@Enumerated(EnumType.STRING)
 	private TipoProduto tipo;
 
+	/** Peso tributável (kg), derivado do peso físico e das dimensões. Ver {@link #getPesoTributavel()}. */
+	@Column(precision = 38, scale = ESCALA_PESO)
+	private BigDecimal pesoTributavel;
+
+	private Long versaoPreco = 0L;
+
+	/** Peso tributável calculado enquanto o persistido não existe; não suja a entidade. */
+	@Transient
+	private BigDecimal pesoTributavelCalculado;
+
+	/** Cache das grandezas em ponto fixo, invalidado quando os dados de precificação mudam. */
+	@Transient
+	private volatile boolean pontoFixoCalculado;
+	@Transient
+	private long precoEmCentavos;
+	@Transient
+	private long pesoTributavelEscalado;
+
 	public Produto()
 	{
 	}
@@ -95,7 +132,10 @@ public class Produto
 
 	public void setPreco(BigDecimal preco)
 	{
+		if (mesmoValor(this.preco, preco))
+			return;
 		this.preco = preco;
+		alterouPrecificacao();
 	}
 
 	public BigDecimal getPesoFisico()
@@ -105,7 +145,10 @@ public class Produto
 
 	public void setPesoFisico(BigDecimal pesoFisico)
 	{
+		if (mesmoValor(this.pesoFisico, pesoFisico))
+			return;
 		this.pesoFisico = pesoFisico;
+		alterouPesoOuDimensoes();
 	}
 
 	public BigDecimal getComprimento()
@@ -115,7 +158,10 @@ public class Produto
 
 	public void setComprimento(BigDecimal comprimento)
 	{
+		if (mesmoValor(this.comprimento, comprimento))
+			return;
 		this.comprimento = comprimento;
+		alterouPesoOuDimensoes();
 	}
 
 	public BigDecimal getLargura()
@@ -125,7 +171,10 @@ public class Produto
 
 	public void setLargura(BigDecimal largura)
 	{
+		if (mesmoValor(this.largura, largura))
+			return;
 		this.largura = largura;
+		alterouPesoOuDimensoes();
 	}
 
 	public BigDecimal getAltura()
@@ -135,7 +184,10 @@ public class Produto
 
 	public void setAltura(BigDecimal altura)
 	{
+		if (mesmoValor(this.altura, altura))
+			return;
 		this.altura = altura;
+		alterouPesoOuDimensoes();
 	}
 
 	public Boolean isFragil()
@@ -145,7 +197,10 @@ public class Produto
 
 	public void setFragil(Boolean fragil)
 	{
+		if (Objects.equals(this.fragil, fragil))
+			return;
 		this.fragil = fragil;
+		alterouPrecificacao();
 	}
 
 	public TipoProduto getTipo()
@@ -155,6 +210,172 @@ public class Produto
 
 	public void setTipo(TipoProduto tipo)
 	{
+		if (Objects.equals(this.tipo, tipo))
+			return;
 		this.tipo = tipo;
+		alterouPrecificacao();
+	}
+
+	/**
+	 * Versão dos dados que afetam o preço da cotação (preço, peso, dimensões, fragilidade e tipo).
+	 * Incrementada quando um setter muda um desses valores e persistida, para que caches de cotação
+	 * e os totais de {@link CarrinhoDeCompras} reconheçam produtos alterados. Setters com o valor atual não a alteram.
+	 */
+	public long getVersaoPreco()
+	{
+		return versaoPreco == null ? 0L : versaoPreco;
+	}
+
+	/**
+	 * Contador global das alterações de {@link #getVersaoPreco()} feitas em memória, em qualquer produto. Permite
+	 * saber em O(1) se algum produto mudou desde um instante, sem percorrer os produtos, como nos totais de
+	 * {@link CarrinhoDeCompras}.
+	 */
+	public static long versaoCatalogo()
+	{
+		return VERSAO_CATALOGO.get();
+	}
+
+	/**
+	 * Peso tributável em kg: o maior entre o peso físico e o peso cúbico
+	 * ({@code comprimento * largura * altura / 6000}, escala 10).
+	 */
+	public BigDecimal calcularPesoTributavel()
+	{
+		return calcularPesoTributavel(pesoFisico, comprimento, largura, altura);
+	}
+
+	public static BigDecimal calcularPesoTributavel(BigDecimal pesoFisico, BigDecimal comprimento, BigDecimal largura,
+			BigDecimal altura)
+	{
+		BigDecimal volume = comprimento.multiply(largura).multiply(altura);
+		BigDecimal pesoCubico = volume.divide(DIVISOR_PESO_CUBICO, ESCALA_PESO, RoundingMode.HALF_UP);
+
+		return pesoFisico.compareTo(pesoCubico) >= 0 ? pesoFisico : pesoCubico;
+	}
+
+	/**
+	 * Peso tributável persistido, calculado ao criar ou atualizar o produto. Se ainda não houver valor
+	 * (produto novo ou dimensões alteradas desde o último flush), devolve o calculado pelas dimensões, sem
+	 * alterar o campo persistido.
+	 */
+	public BigDecimal getPesoTributavel()
+	{
+		if (pesoTributavel != null)
+			return pesoTributavel;
+		if (pesoTributavelCalculado == null && possuiPesoEDimensoes())
+			pesoTributavelCalculado = calcularPesoTributavel();
+		return pesoTributavelCalculado;
+	}
+
+	@PrePersist
+	@PreUpdate
+	public void atualizarPesoTributavel()
+	{
+		pesoTributavel = possuiPesoEDimensoes() ? calcularPesoTributavel() : null;
+	}
+
+	private boolean possuiPesoEDimensoes()
+	{
+		return pesoFisico != null && comprimento != null && largura != null && altura != null;
+	}
+
+	/** Motivo pelo qual o produto não pode ser precificado, ou {@code null} se for válido. */
+	public String motivoInvalidoParaCalculo()
+	{
+		return motivoInvalidoParaCalculo(tipo, preco, pesoFisico, comprimento, largura, altura, fragil);
+	}
+
+	public static String motivoInvalidoParaCalculo(TipoProduto tipo, BigDecimal preco, BigDecimal pesoFisico,
+			BigDecimal comprimento, BigDecimal largura, BigDecimal altura, Boolean fragil)
+	{
+		if (tipo == null)
+			return "Tipo do produto não pode ser nulo.";
+		if (preco == null || preco.signum() < 0)
+			return "Preço do produto deve ser maior ou igual a zero.";
+		if (pesoFisico == null)
+			return "Peso físico do produto não pode ser nulo.";
+		if (comprimento == null || largura == null || altura == null)
+			return "Dimensões do produto não podem ser nulas.";
+		if (fragil == null)
+			return "Flag fragil do produto não pode ser nula.";
+		if (pesoFisico.signum() < 0)
+			return "Peso físico do produto deve ser maior ou igual a zero.";
+		if (comprimento.signum() < 0)
+			return "Comprimento do produto deve ser maior ou igual a zero.";
+		if (largura.signum() < 0)
+			return "Largura do produto deve ser maior ou igual a zero.";
+		if (altura.signum() < 0)
+			return "Altura do produto deve ser maior ou igual a zero.";
+		return null;
+	}
+
+	/** Preço em centavos, ou {@link #FORA_DE_ESCALA} se tiver mais de duas casas decimais. */
+	public long getPrecoEmCentavos()
+	{
+		calcularPontoFixo();
+		return precoEmCentavos;
+	}
+
+	/** Peso tributável em unidades de 10^-10 kg, ou {@link #FORA_DE_ESCALA} se não representável. */
+	public long getPesoTributavelEscalado()
+	{
+		calcularPontoFixo();
+		return pesoTributavelEscalado;
+	}
+
+	/** Mesmo valor numérico, ignorando a escala: não altera a precificação. */
+	private static boolean mesmoValor(BigDecimal atual, BigDecimal novo)
+	{
+		return atual == null ? novo == null : novo != null && atual.compareTo(novo) == 0;
+	}
+
+	private void alterouPesoOuDimensoes()
+	{
+		this.pesoTributavel = null;
+		this.pesoTributavelCalculado = null;
+		alterouPrecificacao();
+	}
+
+	private void alterouPrecificacao()
+	{
+		this.versaoPreco = getVersaoPreco() + 1;
+		this.pontoFixoCalculado = false;
+		VERSAO_CATALOGO.incrementAndGet();
+	}
+
+	@PostLoad
+	void invalidarPontoFixo()
+	{
+		this.pesoTributavelCalculado = null;
+		this.pontoFixoCalculado = false;
+	}
+
+	private void calcularPontoFixo()
+	{
+		if (pontoFixoCalculado)
+			return;
+
+		precoEmCentavos = escalar(preco, 2);
+		pesoTributavelEscalado = possuiPesoEDimensoes()
+				? escalar(getPesoTributavel(), ESCALA_PESO)
+				: FORA_DE_ESCALA;
+		pontoFixoCalculado = true;
+	}
+
+	/** {@code valor} em unidades de 10^-{@code escala}, ou {@link #FORA_DE_ESCALA} se não representável. */
+	public static long escalar(BigDecimal valor, int escala)
+	{
+		if (valor == null || valor.signum() < 0)
+			return FORA_DE_ESCALA;
+
+		try
+		{
+			return valor.movePointRight(escala).longValueExact();
+		}
+		catch (ArithmeticException e)
+		{
+			return FORA_DE_ESCALA;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package ecommerce.external;
+
+/**
+ * Chamada a um serviço externo recusada ou abandonada pela {@link ProtecaoDependencia}: circuito aberto, limite de
+ * chamadas simultâneas atingido ou tempo esgotado. A mensagem é própria para o cliente.
+ */
+public class DependenciaIndisponivelException extends RuntimeException
+{
+
+	private static final long serialVersionUID = 1L;
+
+	public DependenciaIndisponivelException(String mensagem)
+	{
+		super(mensagem);
+	}
+}
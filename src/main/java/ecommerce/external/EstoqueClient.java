@@ -0,0 +1,27 @@
+package ecommerce.external;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ItensEstoqueDTO;
+
+/** API HTTP do serviço de estoque, usada por {@link EstoqueExternalHttp}. */
+@FeignClient(name = "estoque", url = "${compra.externo.estoque.url}")
+public interface EstoqueClient
+{
+
+	@PostMapping("/estoque/baixas")
+	EstoqueBaixaDTO darBaixa(@RequestBody ItensEstoqueDTO itens);
+
+	@PostMapping("/estoque/disponibilidade")
+	DisponibilidadeDTO verificarDisponibilidade(@RequestBody ItensEstoqueDTO itens);
+
+	@PostMapping("/estoque/saldos")
+	Map<Long, Long> consultarSaldos(@RequestBody List<Long> produtosIds);
+}
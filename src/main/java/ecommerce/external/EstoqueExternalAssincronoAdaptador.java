@@ -0,0 +1,48 @@
+package ecommerce.external;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * {@link IEstoqueExternalAssincrono} dos profiles {@code feign} e {@code simulador}: cada chamada vai para o
+ * {@link IEstoqueExternal} ativo, já com a {@link ProtecaoDependencia}, no executor das chamadas externas. A thread
+ * da requisição não espera; uma thread do executor, sim.
+ */
+@Service
+@Profile("feign | simulador")
+public class EstoqueExternalAssincronoAdaptador implements IEstoqueExternalAssincrono
+{
+
+	private final IEstoqueExternal estoqueExternal;
+	private final Executor executor;
+
+	public EstoqueExternalAssincronoAdaptador(IEstoqueExternal estoqueExternal,
+			@Qualifier("executorChamadasExternas") Executor executor)
+	{
+		this.estoqueExternal = estoqueExternal;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<EstoqueBaixaDTO> darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return CompletableFuture.supplyAsync(() -> estoqueExternal.darBaixa(produtosIds, produtosQuantidades),
+				executor);
+	}
+
+	@Override
+	public CompletableFuture<DisponibilidadeDTO> verificarDisponibilidade(List<Long> produtosIds,
+			List<Long> produtosQuantidades)
+	{
+		return CompletableFuture.supplyAsync(
+				() -> estoqueExternal.verificarDisponibilidade(produtosIds, produtosQuantidades), executor);
+	}
+}
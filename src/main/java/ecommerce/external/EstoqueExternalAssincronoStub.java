@@ -0,0 +1,29 @@
+package ecommerce.external;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+@Service
+@Profile("!feign & !simulador")
+public class EstoqueExternalAssincronoStub implements IEstoqueExternalAssincrono {
+
+    @Override
+    public CompletableFuture<EstoqueBaixaDTO> darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+        return CompletableFuture.completedFuture(new EstoqueBaixaDTO(true));
+    }
+
+    @Override
+    public CompletableFuture<DisponibilidadeDTO> verificarDisponibilidade(
+            List<Long> produtosIds,
+            List<Long> produtosQuantidades) {
+
+        return CompletableFuture.completedFuture(new DisponibilidadeDTO(true, Collections.emptyList()));
+    }
+}
@@ -0,0 +1,43 @@
+package ecommerce.external;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ItensEstoqueDTO;
+
+/** Estoque real, pelo {@link EstoqueClient}; ativo no profile {@code feign}. */
+@Service
+@Profile("feign")
+public class EstoqueExternalHttp implements IEstoqueExternal
+{
+
+	private final EstoqueClient client;
+
+	public EstoqueExternalHttp(EstoqueClient client)
+	{
+		this.client = client;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return client.darBaixa(new ItensEstoqueDTO(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return client.verificarDisponibilidade(new ItensEstoqueDTO(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public Map<Long, Long> consultarSaldos(List<Long> produtosIds)
+	{
+		return client.consultarSaldos(produtosIds);
+	}
+}
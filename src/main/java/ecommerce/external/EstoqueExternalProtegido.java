@@ -0,0 +1,39 @@
+package ecommerce.external;
+
+import java.util.List;
+import java.util.Map;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/** {@link IEstoqueExternal} com todas as chamadas passando pela {@link ProtecaoDependencia} do estoque. */
+public class EstoqueExternalProtegido implements IEstoqueExternal
+{
+
+	private final IEstoqueExternal estoqueExternal;
+	private final ProtecaoDependencia protecao;
+
+	public EstoqueExternalProtegido(IEstoqueExternal estoqueExternal, ProtecaoDependencia protecao)
+	{
+		this.estoqueExternal = estoqueExternal;
+		this.protecao = protecao;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return protecao.executar(() -> estoqueExternal.darBaixa(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return protecao.executar(() -> estoqueExternal.verificarDisponibilidade(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public Map<Long, Long> consultarSaldos(List<Long> produtosIds)
+	{
+		return protecao.executar(() -> estoqueExternal.consultarSaldos(produtosIds));
+	}
+}
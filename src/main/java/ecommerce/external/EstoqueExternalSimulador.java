@@ -0,0 +1,156 @@
+package ecommerce.external;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * Estoque simulado para testes de carga (profile {@code simulador}), configurado em {@code compra.simulador.estoque.*}.
+ *
+ * Cada produto começa com {@code saldo-inicial} unidades e as baixas descontam de verdade: uma baixa é tudo ou
+ * nada e, sob concorrência, nunca deixa saldo negativo. Cada chamada espera a {@link LatenciaSimulada} e falha com
+ * probabilidade {@code taxa-falha}, como um erro do serviço.
+ */
+@Service
+@Profile("simulador")
+public class EstoqueExternalSimulador implements IEstoqueExternal
+{
+
+	private final LatenciaSimulada latencia;
+	private final double taxaFalha;
+	private final long saldoInicial;
+	private final ConcurrentHashMap<Long, AtomicLong> saldos = new ConcurrentHashMap<>();
+
+	@Autowired
+	public EstoqueExternalSimulador(Environment environment)
+	{
+		this(Binder.get(environment).bind("compra.simulador.estoque.latencia", LatenciaSimulada.class)
+				.orElse(LatenciaSimulada.NENHUMA),
+				Binder.get(environment).bind("compra.simulador.estoque.taxa-falha", Double.class).orElse(0.0),
+				Binder.get(environment).bind("compra.simulador.estoque.saldo-inicial", Long.class).orElse(10_000L));
+	}
+
+	public EstoqueExternalSimulador(LatenciaSimulada latencia, double taxaFalha, long saldoInicial)
+	{
+		if (taxaFalha < 0 || taxaFalha > 1)
+			throw new IllegalArgumentException("Taxa de falha deve estar entre 0 e 1.");
+		if (saldoInicial < 0)
+			throw new IllegalArgumentException("Saldo inicial não pode ser negativo.");
+
+		this.latencia = latencia;
+		this.taxaFalha = taxaFalha;
+		this.saldoInicial = saldoInicial;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		simularChamada();
+
+		Map<Long, Long> pedidos = somarPorProduto(produtosIds, produtosQuantidades);
+		List<Map.Entry<Long, Long>> baixados = new ArrayList<>(pedidos.size());
+		for (Map.Entry<Long, Long> pedido : pedidos.entrySet())
+		{
+			if (!descontar(contador(pedido.getKey()), pedido.getValue()))
+			{
+				for (Map.Entry<Long, Long> baixado : baixados)
+					contador(baixado.getKey()).addAndGet(baixado.getValue());
+				return new EstoqueBaixaDTO(false);
+			}
+			baixados.add(pedido);
+		}
+		return new EstoqueBaixaDTO(true);
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		simularChamada();
+
+		List<Long> indisponiveis = new ArrayList<>();
+		for (Map.Entry<Long, Long> pedido : somarPorProduto(produtosIds, produtosQuantidades).entrySet())
+		{
+			if (contador(pedido.getKey()).get() < pedido.getValue())
+				indisponiveis.add(pedido.getKey());
+		}
+		return new DisponibilidadeDTO(indisponiveis.isEmpty(), indisponiveis);
+	}
+
+	@Override
+	public Map<Long, Long> consultarSaldos(List<Long> produtosIds)
+	{
+		simularChamada();
+
+		Map<Long, Long> encontrados = new HashMap<>();
+		for (Long produtoId : produtosIds)
+			encontrados.put(produtoId, contador(produtoId).get());
+		return encontrados;
+	}
+
+	/** Saldo atual do produto, sem latência nem falha simulada. */
+	public long saldo(long produtoId)
+	{
+		return contador(produtoId).get();
+	}
+
+	public void definirSaldo(long produtoId, long saldo)
+	{
+		contador(produtoId).set(saldo);
+	}
+
+	private AtomicLong contador(Long produtoId)
+	{
+		return saldos.computeIfAbsent(produtoId, id -> new AtomicLong(saldoInicial));
+	}
+
+	private static boolean descontar(AtomicLong saldo, long quantidade)
+	{
+		long atual;
+		do
+		{
+			atual = saldo.get();
+			if (atual < quantidade)
+				return false;
+		}
+		while (!saldo.compareAndSet(atual, atual - quantidade));
+		return true;
+	}
+
+	private void simularChamada()
+	{
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		latencia.aguardar(aleatorio);
+		if (taxaFalha > 0 && aleatorio.nextDouble() < taxaFalha)
+			throw new FalhaSimuladaException("Falha simulada no serviço de estoque.");
+	}
+
+	private static Map<Long, Long> somarPorProduto(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		if (produtosIds == null || produtosQuantidades == null || produtosIds.size() != produtosQuantidades.size())
+			throw new IllegalArgumentException("Listas de produtos e quantidades inconsistentes.");
+
+		Map<Long, Long> pedidos = new LinkedHashMap<>();
+		for (int i = 0; i < produtosIds.size(); i++)
+		{
+			Long quantidade = produtosQuantidades.get(i);
+			if (produtosIds.get(i) == null || quantidade == null || quantidade <= 0)
+				throw new IllegalArgumentException("Item inválido para o estoque.");
+			pedidos.merge(produtosIds.get(i), quantidade, Math::addExact);
+		}
+		return pedidos;
+	}
+}
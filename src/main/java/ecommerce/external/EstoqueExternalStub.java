@@ -1,16 +1,22 @@
 package ecommerce.external;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
 
 @Service
+@Profile("!feign & !simulador")
 public class EstoqueExternalStub implements IEstoqueExternal {
 
+    private static final long SALDO = 1_000_000L;
+
     @Override
     public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
         return new EstoqueBaixaDTO(true);
@@ -23,4 +29,13 @@ public class EstoqueExternalStub implements IEstoqueExternal {
 
         return new DisponibilidadeDTO(true, Collections.emptyList());
     }
+
+    @Override
+    public Map<Long, Long> consultarSaldos(List<Long> produtosIds) {
+        Map<Long, Long> saldos = new HashMap<>();
+        for (Long produtoId : produtosIds) {
+            saldos.put(produtoId, SALDO);
+        }
+        return saldos;
+    }
 }
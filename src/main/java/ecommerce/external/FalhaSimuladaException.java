@@ -0,0 +1,13 @@
+package ecommerce.external;
+
+/** Erro sorteado por um serviço simulado; a compra trata como qualquer falha do serviço real. */
+public class FalhaSimuladaException extends RuntimeException
+{
+
+	private static final long serialVersionUID = 1L;
+
+	public FalhaSimuladaException(String mensagem)
+	{
+		super(mensagem);
+	}
+}
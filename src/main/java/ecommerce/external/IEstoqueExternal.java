@@ -1,6 +1,7 @@
 package ecommerce.external;
 
 import java.util.List;
+import java.util.Map;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
@@ -12,4 +13,13 @@ public interface IEstoqueExternal
 
 	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades);
 
+	/**
+	 * Saldo atual de cada produto, pelo id. Produtos fora do mapa não têm saldo consultável; por padrão
+	 * nenhum tem.
+	 */
+	public default Map<Long, Long> consultarSaldos(List<Long> produtosIds)
+	{
+		return Map.of();
+	}
+
 }
@@ -0,0 +1,21 @@
+package ecommerce.external;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * Variante não bloqueante de {@link IEstoqueExternal}: as chamadas retornam assim que a requisição é enviada
+ * e o resultado chega pelo {@link CompletableFuture}.
+ */
+public interface IEstoqueExternalAssincrono
+{
+
+	public CompletableFuture<EstoqueBaixaDTO> darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades);
+
+	public CompletableFuture<DisponibilidadeDTO> verificarDisponibilidade(List<Long> produtosIds,
+			List<Long> produtosQuantidades);
+
+}
@@ -0,0 +1,14 @@
+package ecommerce.external;
+
+import java.util.concurrent.CompletableFuture;
+
+import ecommerce.dto.PagamentoDTO;
+
+/** Variante não bloqueante de {@link IPagamentoExternal}. */
+public interface IPagamentoExternalAssincrono
+{
+
+	CompletableFuture<PagamentoDTO> autorizarPagamento(Long clienteId, Double custoTotal);
+
+	CompletableFuture<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId);
+}
@@ -0,0 +1,89 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribuição da latência de um serviço simulado.
+ *
+ * <ul>
+ * <li>{@code NENHUMA}: responde na hora.</li>
+ * <li>{@code FIXA}: sempre {@code media}.</li>
+ * <li>{@code NORMAL}: normal com {@code media} e {@code desvio}, sem valores negativos.</li>
+ * <li>{@code CAUDA_LONGA}: a normal, mas com probabilidade {@code probabilidadePico} a chamada leva {@code pico};
+ * com 0,01 o pico aparece a partir do p99.</li>
+ * </ul>
+ */
+public record LatenciaSimulada(Tipo tipo, Duration media, Duration desvio, Duration pico, double probabilidadePico)
+{
+
+	public enum Tipo
+	{
+		NENHUMA, FIXA, NORMAL, CAUDA_LONGA
+	}
+
+	public static final LatenciaSimulada NENHUMA = new LatenciaSimulada(Tipo.NENHUMA, null, null, null, 0);
+
+	public LatenciaSimulada
+	{
+		tipo = tipo == null ? Tipo.NENHUMA : tipo;
+		media = media == null ? Duration.ZERO : media;
+		desvio = desvio == null ? Duration.ZERO : desvio;
+		pico = pico == null ? Duration.ZERO : pico;
+		if (media.isNegative() || desvio.isNegative() || pico.isNegative())
+			throw new IllegalArgumentException("Latência simulada não pode ser negativa.");
+		if (probabilidadePico < 0 || probabilidadePico > 1)
+			throw new IllegalArgumentException("Probabilidade de pico deve estar entre 0 e 1.");
+	}
+
+	public static LatenciaSimulada fixa(Duration media)
+	{
+		return new LatenciaSimulada(Tipo.FIXA, media, null, null, 0);
+	}
+
+	public static LatenciaSimulada normal(Duration media, Duration desvio)
+	{
+		return new LatenciaSimulada(Tipo.NORMAL, media, desvio, null, 0);
+	}
+
+	public static LatenciaSimulada caudaLonga(Duration media, Duration desvio, Duration pico, double probabilidadePico)
+	{
+		return new LatenciaSimulada(Tipo.CAUDA_LONGA, media, desvio, pico, probabilidadePico);
+	}
+
+	public long sortearNanos(RandomGenerator aleatorio)
+	{
+		return switch (tipo)
+		{
+			case NENHUMA -> 0L;
+			case FIXA -> media.toNanos();
+			case NORMAL -> normal(aleatorio);
+			case CAUDA_LONGA -> aleatorio.nextDouble() < probabilidadePico ? pico.toNanos() : normal(aleatorio);
+		};
+	}
+
+	private long normal(RandomGenerator aleatorio)
+	{
+		double nanos = media.toNanos() + desvio.toNanos() * aleatorio.nextGaussian();
+		return Math.max(0L, (long) nanos);
+	}
+
+	/** Dorme a latência sorteada, como uma chamada bloqueante. */
+	void aguardar(RandomGenerator aleatorio)
+	{
+		long nanos = sortearNanos(aleatorio);
+		if (nanos <= 0)
+			return;
+
+		try
+		{
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Chamada simulada interrompida.", e);
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package ecommerce.external;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+
+/** API HTTP do serviço de pagamento, usada por {@link PagamentoExternalHttp}. */
+@FeignClient(name = "pagamento", url = "${compra.externo.pagamento.url}")
+public interface PagamentoClient
+{
+
+	@PostMapping("/pagamentos")
+	PagamentoDTO autorizarPagamento(@RequestBody AutorizacaoPagamentoDTO autorizacao);
+
+	@DeleteMapping("/pagamentos/{transacaoId}")
+	void cancelarPagamento(@PathVariable("transacaoId") Long transacaoId, @RequestParam("clienteId") Long clienteId);
+}
@@ -0,0 +1,44 @@
+package ecommerce.external;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.PagamentoDTO;
+
+/**
+ * {@link IPagamentoExternalAssincrono} dos profiles {@code feign} e {@code simulador}, sobre o
+ * {@link IPagamentoExternal} ativo e sua {@link ProtecaoDependencia}; ver {@link EstoqueExternalAssincronoAdaptador}.
+ */
+@Service
+@Profile("feign | simulador")
+public class PagamentoExternalAssincronoAdaptador implements IPagamentoExternalAssincrono
+{
+
+	private final IPagamentoExternal pagamentoExternal;
+	private final Executor executor;
+
+	public PagamentoExternalAssincronoAdaptador(IPagamentoExternal pagamentoExternal,
+			@Qualifier("executorChamadasExternas") Executor executor)
+	{
+		this.pagamentoExternal = pagamentoExternal;
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<PagamentoDTO> autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return CompletableFuture.supplyAsync(() -> pagamentoExternal.autorizarPagamento(clienteId, custoTotal),
+				executor);
+	}
+
+	@Override
+	public CompletableFuture<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		return CompletableFuture.runAsync(() -> pagamentoExternal.cancelarPagamento(clienteId, pagamentoTransacaoId),
+				executor);
+	}
+}
@@ -0,0 +1,25 @@
+package ecommerce.external;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.PagamentoDTO;
+
+@Service
+@Profile("!feign & !simulador")
+public class PagamentoExternalAssincronoStub implements IPagamentoExternalAssincrono {
+
+    @Override
+    public CompletableFuture<PagamentoDTO> autorizarPagamento(Long clienteId, Double custoTotal) {
+        long transacaoId = ThreadLocalRandom.current().nextLong(1_000_000, 9_999_999);
+        return CompletableFuture.completedFuture(new PagamentoDTO(true, transacaoId));
+    }
+
+    @Override
+    public CompletableFuture<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,33 @@
+package ecommerce.external;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+
+/** Pagamento real, pelo {@link PagamentoClient}; ativo no profile {@code feign}. */
+@Service
+@Profile("feign")
+public class PagamentoExternalHttp implements IPagamentoExternal
+{
+
+	private final PagamentoClient client;
+
+	public PagamentoExternalHttp(PagamentoClient client)
+	{
+		this.client = client;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return client.autorizarPagamento(new AutorizacaoPagamentoDTO(clienteId, custoTotal));
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		client.cancelarPagamento(pagamentoTransacaoId, clienteId);
+	}
+}
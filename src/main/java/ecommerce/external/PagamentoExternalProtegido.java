@@ -0,0 +1,32 @@
+package ecommerce.external;
+
+import ecommerce.dto.PagamentoDTO;
+
+/** {@link IPagamentoExternal} com todas as chamadas passando pela {@link ProtecaoDependencia} do pagamento. */
+public class PagamentoExternalProtegido implements IPagamentoExternal
+{
+
+	private final IPagamentoExternal pagamentoExternal;
+	private final ProtecaoDependencia protecao;
+
+	public PagamentoExternalProtegido(IPagamentoExternal pagamentoExternal, ProtecaoDependencia protecao)
+	{
+		this.pagamentoExternal = pagamentoExternal;
+		this.protecao = protecao;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return protecao.executar(() -> pagamentoExternal.autorizarPagamento(clienteId, custoTotal));
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		protecao.executar(() -> {
+			pagamentoExternal.cancelarPagamento(clienteId, pagamentoTransacaoId);
+			return null;
+		});
+	}
+}
@@ -0,0 +1,95 @@
+package ecommerce.external;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.PagamentoDTO;
+
+/**
+ * Pagamento simulado para testes de carga (profile {@code simulador}), configurado em
+ * {@code compra.simulador.pagamento.*}: cada chamada espera a {@link LatenciaSimulada}, falha com probabilidade
+ * {@code taxa-falha} e, se não falhar, a autorização é negada com probabilidade {@code taxa-recusa}.
+ */
+@Service
+@Profile("simulador")
+public class PagamentoExternalSimulador implements IPagamentoExternal
+{
+
+	private final LatenciaSimulada latencia;
+	private final double taxaFalha;
+	private final double taxaRecusa;
+	private final AtomicLong proximaTransacao = new AtomicLong(1_000_000);
+	private final AtomicLong autorizados = new AtomicLong();
+	private final AtomicLong recusados = new AtomicLong();
+	private final AtomicLong cancelados = new AtomicLong();
+
+	@Autowired
+	public PagamentoExternalSimulador(Environment environment)
+	{
+		this(Binder.get(environment).bind("compra.simulador.pagamento.latencia", LatenciaSimulada.class)
+				.orElse(LatenciaSimulada.NENHUMA),
+				Binder.get(environment).bind("compra.simulador.pagamento.taxa-falha", Double.class).orElse(0.0),
+				Binder.get(environment).bind("compra.simulador.pagamento.taxa-recusa", Double.class).orElse(0.0));
+	}
+
+	public PagamentoExternalSimulador(LatenciaSimulada latencia, double taxaFalha, double taxaRecusa)
+	{
+		if (taxaFalha < 0 || taxaFalha > 1 || taxaRecusa < 0 || taxaRecusa > 1)
+			throw new IllegalArgumentException("Taxas de falha e de recusa devem estar entre 0 e 1.");
+
+		this.latencia = latencia;
+		this.taxaFalha = taxaFalha;
+		this.taxaRecusa = taxaRecusa;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		ThreadLocalRandom aleatorio = simularChamada();
+		if (taxaRecusa > 0 && aleatorio.nextDouble() < taxaRecusa)
+		{
+			recusados.incrementAndGet();
+			return new PagamentoDTO(false, null);
+		}
+
+		autorizados.incrementAndGet();
+		return new PagamentoDTO(true, proximaTransacao.getAndIncrement());
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		simularChamada();
+		cancelados.incrementAndGet();
+	}
+
+	public long autorizados()
+	{
+		return autorizados.get();
+	}
+
+	public long recusados()
+	{
+		return recusados.get();
+	}
+
+	public long cancelados()
+	{
+		return cancelados.get();
+	}
+
+	private ThreadLocalRandom simularChamada()
+	{
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		latencia.aguardar(aleatorio);
+		if (taxaFalha > 0 && aleatorio.nextDouble() < taxaFalha)
+			throw new FalhaSimuladaException("Falha simulada no serviço de pagamento.");
+		return aleatorio;
+	}
+}
@@ -2,11 +2,13 @@ package ecommerce.external;
 
 import java.util.concurrent.ThreadLocalRandom;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.PagamentoDTO;
 
 @Service
+@Profile("!feign & !simulador")
 public class PagamentoExternalStub implements IPagamentoExternal {
 
     @Override
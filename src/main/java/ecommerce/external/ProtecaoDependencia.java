@@ -0,0 +1,245 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Timeout, limite de chamadas simultâneas (bulkhead) e circuit breaker de um serviço externo.
+ *
+ * Cada chamada roda em uma thread da própria dependência e o chamador espera no máximo {@code timeout}. A chamada
+ * que passa do tempo não é interrompida, porque uma escrita já enviada pode ter efeito: o chamador recebe
+ * {@link ResultadoIncertoException} e a chamada segue até terminar. A vaga só é devolvida quando ela termina, então
+ * uma dependência lenta ocupa no máximo {@code maximoConcorrentes} threads. Depois de {@code falhasParaAbrir} falhas seguidas (exceções ou tempo
+ * esgotado) o circuito abre e as chamadas são recusadas por {@code tempoAberto}; então uma chamada de teste decide
+ * se ele fecha ou abre de novo. Respostas de negócio, como pagamento não autorizado, não contam como falha.
+ */
+public class ProtecaoDependencia
+{
+
+	public enum Estado
+	{
+		FECHADO, ABERTO, MEIO_ABERTO
+	}
+
+	private final String nome;
+	private final String descricao;
+	private final long timeoutNanos;
+	private final Semaphore vagas;
+	private final long esperaVagaNanos;
+	private final int falhasParaAbrir;
+	private final long tempoAbertoNanos;
+	private final LongSupplier relogio;
+	private final ExecutorService executor;
+
+	private Estado estado = Estado.FECHADO;
+	private int falhasSeguidas;
+	private long abertoAte;
+
+	private final AtomicLong recusasCircuito = new AtomicLong();
+	private final AtomicLong recusasLotacao = new AtomicLong();
+	private final AtomicLong temposEsgotados = new AtomicLong();
+	private final AtomicLong falhas = new AtomicLong();
+
+	/**
+	 * @param nome usado nas threads e nas métricas, como {@code estoque}
+	 * @param descricao início das mensagens de erro, como {@code Serviço de estoque}
+	 */
+	public ProtecaoDependencia(String nome, String descricao, Duration timeout, int maximoConcorrentes,
+			Duration esperaVaga, int falhasParaAbrir, Duration tempoAberto)
+	{
+		this(nome, descricao, timeout, maximoConcorrentes, esperaVaga, falhasParaAbrir, tempoAberto, System::nanoTime);
+	}
+
+	ProtecaoDependencia(String nome, String descricao, Duration timeout, int maximoConcorrentes, Duration esperaVaga,
+			int falhasParaAbrir, Duration tempoAberto, LongSupplier relogio)
+	{
+		if (maximoConcorrentes <= 0)
+			throw new IllegalArgumentException("Máximo de chamadas simultâneas deve ser maior que zero.");
+		if (falhasParaAbrir <= 0)
+			throw new IllegalArgumentException("Falhas para abrir o circuito deve ser maior que zero.");
+
+		this.nome = nome;
+		this.descricao = descricao;
+		this.timeoutNanos = timeout.toNanos();
+		this.vagas = new Semaphore(maximoConcorrentes);
+		this.esperaVagaNanos = esperaVaga.toNanos();
+		this.falhasParaAbrir = falhasParaAbrir;
+		this.tempoAbertoNanos = tempoAberto.toNanos();
+		this.relogio = relogio;
+
+		// Sem limite próprio: o semáforo já limita as threads ocupadas a maximoConcorrentes.
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("externo-" + nome + "-");
+		fabrica.setDaemon(true);
+		this.executor = Executors.newCachedThreadPool(fabrica);
+	}
+
+	public <T> T executar(Callable<T> chamada)
+	{
+		permitir();
+
+		try
+		{
+			if (!vagas.tryAcquire(esperaVagaNanos, TimeUnit.NANOSECONDS))
+			{
+				desistir();
+				recusasLotacao.incrementAndGet();
+				throw new DependenciaIndisponivelException(descricao + " sobrecarregado.");
+			}
+		}
+		catch (InterruptedException e)
+		{
+			desistir();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Chamada ao " + descricao.toLowerCase() + " interrompida.", e);
+		}
+
+		Future<T> resultado;
+		try
+		{
+			resultado = executor.submit(() -> {
+				try
+				{
+					return chamada.call();
+				}
+				finally
+				{
+					vagas.release();
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			vagas.release();
+			desistir();
+			throw new DependenciaIndisponivelException(descricao + " indisponível no momento.");
+		}
+
+		return aguardar(resultado);
+	}
+
+	private <T> T aguardar(Future<T> resultado)
+	{
+		try
+		{
+			T valor = resultado.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			registrarSucesso();
+			return valor;
+		}
+		catch (TimeoutException e)
+		{
+			temposEsgotados.incrementAndGet();
+			registrarFalha();
+			throw new ResultadoIncertoException("Tempo esgotado ao chamar o " + descricao.toLowerCase() + ".");
+		}
+		catch (InterruptedException e)
+		{
+			resultado.cancel(true);
+			desistir();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Chamada ao " + descricao.toLowerCase() + " interrompida.", e);
+		}
+		catch (ExecutionException e)
+		{
+			registrarFalha();
+			if (e.getCause() instanceof RuntimeException causa)
+				throw causa;
+			throw new IllegalStateException("Erro ao chamar o " + descricao.toLowerCase() + ".", e.getCause());
+		}
+	}
+
+	/** Recusa a chamada com o circuito aberto; passado o {@code tempoAberto}, deixa passar uma chamada de teste. */
+	private synchronized void permitir()
+	{
+		if (estado == Estado.FECHADO)
+			return;
+
+		if (estado == Estado.ABERTO && relogio.getAsLong() - abertoAte >= 0)
+		{
+			estado = Estado.MEIO_ABERTO;
+			return;
+		}
+
+		recusasCircuito.incrementAndGet();
+		throw new DependenciaIndisponivelException(descricao + " indisponível no momento.");
+	}
+
+	private synchronized void registrarSucesso()
+	{
+		falhasSeguidas = 0;
+		estado = Estado.FECHADO;
+	}
+
+	private synchronized void registrarFalha()
+	{
+		falhas.incrementAndGet();
+		falhasSeguidas++;
+		if (estado == Estado.MEIO_ABERTO || falhasSeguidas >= falhasParaAbrir)
+		{
+			estado = Estado.ABERTO;
+			abertoAte = relogio.getAsLong() + tempoAbertoNanos;
+		}
+	}
+
+	/** A chamada de teste não chegou a sair: o próximo chamador testa no lugar dela. */
+	private synchronized void desistir()
+	{
+		if (estado == Estado.MEIO_ABERTO)
+		{
+			estado = Estado.ABERTO;
+			abertoAte = relogio.getAsLong();
+		}
+	}
+
+	public String nome()
+	{
+		return nome;
+	}
+
+	public synchronized Estado estado()
+	{
+		return estado;
+	}
+
+	public int vagasLivres()
+	{
+		return vagas.availablePermits();
+	}
+
+	public long recusasCircuito()
+	{
+		return recusasCircuito.get();
+	}
+
+	public long recusasLotacao()
+	{
+		return recusasLotacao.get();
+	}
+
+	public long temposEsgotados()
+	{
+		return temposEsgotados.get();
+	}
+
+	public long falhas()
+	{
+		return falhas.get();
+	}
+
+	/** Interrompe as chamadas em andamento. */
+	public void encerrar()
+	{
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,16 @@
+package ecommerce.external;
+
+/**
+ * Chamada que passou do tempo na {@link ProtecaoDependencia}. Ela não é interrompida e pode ter efeito no serviço
+ * depois que o chamador desistiu: numa escrita, o resultado é desconhecido.
+ */
+public class ResultadoIncertoException extends DependenciaIndisponivelException
+{
+
+	private static final long serialVersionUID = 1L;
+
+	public ResultadoIncertoException(String mensagem)
+	{
+		super(mensagem);
+	}
+}
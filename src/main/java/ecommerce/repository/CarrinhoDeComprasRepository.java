@@ -1,10 +1,14 @@
 package ecommerce.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import ecommerce.dto.LinhaCarrinhoDTO;
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
 
@@ -13,4 +17,26 @@ public interface CarrinhoDeComprasRepository extends JpaRepository<CarrinhoDeCom
 {
 
 	Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente);
+
+	/**
+	 * Carrinho do cliente com cliente, itens e produtos em uma única consulta: nem o cliente nem cada produto
+	 * viram um select à parte. Vazio se o carrinho não existir ou for de outro cliente.
+	 */
+	@Query("select distinct c from CarrinhoDeCompras c join fetch c.cliente cl"
+			+ " left join fetch c.itens i left join fetch i.produto where c.id = :id and cl.id = :clienteId")
+	Optional<CarrinhoDeCompras> findComClienteEItensByIdAndClienteId(Long id, Long clienteId);
+
+	/**
+	 * Itens do carrinho do cliente só com as colunas da precificação, sem montar entidades. Vazia se o carrinho não
+	 * existir, for de outro cliente ou não tiver itens.
+	 */
+	@Query("select new ecommerce.dto.LinhaCarrinhoDTO(p.id, i.quantidade, p.preco, p.tipo, p.pesoFisico,"
+			+ " p.comprimento, p.largura, p.altura, p.fragil, p.pesoTributavel) from CarrinhoDeCompras c"
+			+ " join c.itens i left join i.produto p where c.id = :id and c.cliente.id = :clienteId")
+	List<LinhaCarrinhoDTO> findLinhasByIdAndClienteId(Long id, Long clienteId);
+
+	/** Carrega os carrinhos com cliente, itens e produtos em uma única consulta. */
+	@Query("select distinct c from CarrinhoDeCompras c left join fetch c.cliente"
+			+ " left join fetch c.itens i left join fetch i.produto where c.id in :ids")
+	List<CarrinhoDeCompras> findAllComItensByIdIn(Collection<Long> ids);
 }
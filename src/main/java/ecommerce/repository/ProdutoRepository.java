@@ -1,6 +1,10 @@
 package ecommerce.repository;
 
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import ecommerce.entity.Produto;
@@ -8,4 +12,9 @@ import ecommerce.entity.Produto;
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Long>
 {
+
+	/** Produtos gravados antes do peso tributável persistido e que já têm peso e dimensões. */
+	@Query("select p from Produto p where p.pesoTributavel is null and p.pesoFisico is not null"
+			+ " and p.comprimento is not null and p.largura is not null and p.altura is not null")
+	List<Produto> findSemPesoTributavel(Pageable pagina);
 }
@@ -0,0 +1,237 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.external.IEstoqueExternal;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Junta as baixas de estoque de finalizações simultâneas em uma única chamada a
+ * {@link IEstoqueExternal#darBaixa}, com as quantidades somadas por produto. Um lote é enviado
+ * {@code compra.estoque.lote.espera} depois da primeira baixa, em {@code compra.estoque.lote.threads-envio} threads
+ * próprias (o agendador só dispara o envio), ou assim que passar de {@code compra.estoque.lote.maximo-itens} itens,
+ * pela thread que o completou. As threads de envio não são as das chamadas externas, em que as finalizações que
+ * esperam o lote também enviam suas verificações de disponibilidade.
+ *
+ * Se o estoque responder que a baixa combinada não foi feita ({@code sucesso() == false}), cada finalização repete
+ * a sua própria baixa e recebe o resultado individual. Se a chamada lançar exceção ou passar do prazo, não se sabe
+ * o que foi baixado: todas as finalizações do lote recebem a exceção, sem nova tentativa, como numa baixa
+ * individual.
+ */
+@Component
+@ConditionalOnProperty(name = "compra.estoque.lote.habilitado", havingValue = "true")
+public class AgrupadorBaixasEstoque {
+
+	private final IEstoqueExternal estoqueExternal;
+	private final long esperaNanos;
+	private final int maximoItens;
+	private final Executor executorEnvio;
+	private final ExecutorService executorEnvioProprio;
+	private final ScheduledExecutorService agendador;
+
+	private Lote loteAtual;
+
+	@Autowired
+	public AgrupadorBaixasEstoque(
+			IEstoqueExternal estoqueExternal,
+			@Value("${compra.estoque.lote.espera:5ms}") Duration espera,
+			@Value("${compra.estoque.lote.maximo-itens:500}") int maximoItens,
+			@Value("${compra.estoque.lote.threads-envio:4}") int threadsEnvio) {
+		this(estoqueExternal, criarExecutorEnvio(threadsEnvio), true, espera, maximoItens);
+	}
+
+	/** {@code executorEnvio} é do chamador e não é encerrado aqui. */
+	AgrupadorBaixasEstoque(IEstoqueExternal estoqueExternal, Executor executorEnvio, Duration espera,
+			int maximoItens) {
+		this(estoqueExternal, executorEnvio, false, espera, maximoItens);
+	}
+
+	private AgrupadorBaixasEstoque(IEstoqueExternal estoqueExternal, Executor executorEnvio, boolean executorProprio,
+			Duration espera, int maximoItens) {
+		this.estoqueExternal = estoqueExternal;
+		this.executorEnvio = executorEnvio;
+		this.executorEnvioProprio = executorProprio ? (ExecutorService) executorEnvio : null;
+		this.esperaNanos = espera.toNanos();
+		this.maximoItens = maximoItens;
+
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("estoque-lote-");
+		fabrica.setDaemon(true);
+		this.agendador = Executors.newSingleThreadScheduledExecutor(fabrica);
+	}
+
+	/** Mesmo contrato de {@link IEstoqueExternal#darBaixa}; bloqueia até o lote da baixa ser enviado. */
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		Baixa baixa = new Baixa(produtosIds, produtosQuantidades);
+		Lote cheio = null;
+		synchronized (this) {
+			if (loteAtual == null) {
+				Lote novo = new Lote();
+				novo.envio = agendador.schedule(() -> enviarSeAtual(novo), esperaNanos, TimeUnit.NANOSECONDS);
+				loteAtual = novo;
+			}
+			loteAtual.adicionar(baixa);
+			if (loteAtual.itens >= maximoItens) {
+				cheio = loteAtual;
+				cheio.envio.cancel(false);
+				loteAtual = null;
+			}
+		}
+
+		if (cheio != null) {
+			enviar(cheio);
+		}
+
+		EstoqueBaixaDTO resultado = aguardar(baixa.resultado);
+		return resultado != null ? resultado : estoqueExternal.darBaixa(produtosIds, produtosQuantidades);
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		Lote pendente;
+		synchronized (this) {
+			pendente = loteAtual;
+			loteAtual = null;
+		}
+		if (pendente != null) {
+			enviar(pendente);
+		}
+		agendador.shutdownNow();
+		if (executorEnvioProprio != null) {
+			executorEnvioProprio.shutdown();
+		}
+	}
+
+	private static ExecutorService criarExecutorEnvio(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Baixas em lote exigem ao menos 1 thread de envio.");
+		}
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("estoque-lote-envio-");
+		fabrica.setDaemon(true);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), fabrica);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/** Roda no agendador: a chamada ao estoque vai para o executor, para não atrasar os prazos dos outros lotes. */
+	private void enviarSeAtual(Lote lote) {
+		synchronized (this) {
+			if (loteAtual != lote) {
+				return;
+			}
+			loteAtual = null;
+		}
+
+		try {
+			executorEnvio.execute(() -> enviar(lote));
+		} catch (RejectedExecutionException e) {
+			for (Baixa baixa : lote.baixas) {
+				baixa.resultado.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Uma baixa sozinha recebe direto o retorno ou a exceção da chamada. Em um lote, o resultado {@code null}
+	 * manda cada finalização repetir a própria baixa; só acontece quando o estoque nega a baixa combinada.
+	 */
+	private void enviar(Lote lote) {
+		if (lote.baixas.size() == 1) {
+			Baixa unica = lote.baixas.get(0);
+			try {
+				unica.resultado.complete(estoqueExternal.darBaixa(unica.produtosIds, unica.produtosQuantidades));
+			} catch (RuntimeException | Error e) {
+				unica.resultado.completeExceptionally(e);
+			}
+			return;
+		}
+
+		EstoqueBaixaDTO combinada;
+		try {
+			combinada = lote.combinada();
+		} catch (RuntimeException | Error e) {
+			for (Baixa baixa : lote.baixas) {
+				baixa.resultado.completeExceptionally(e);
+			}
+			return;
+		}
+
+		EstoqueBaixaDTO resultado = combinada != null && combinada.sucesso() ? combinada : null;
+		for (Baixa baixa : lote.baixas) {
+			baixa.resultado.complete(resultado);
+		}
+	}
+
+	private static EstoqueBaixaDTO aguardar(CompletableFuture<EstoqueBaixaDTO> resultado) {
+		try {
+			return resultado.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Baixa de estoque interrompida.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			throw new IllegalStateException("Erro ao dar baixa no estoque.", e.getCause());
+		}
+	}
+
+	private static final class Baixa {
+
+		final List<Long> produtosIds;
+		final List<Long> produtosQuantidades;
+		final CompletableFuture<EstoqueBaixaDTO> resultado = new CompletableFuture<>();
+
+		Baixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			this.produtosIds = produtosIds;
+			this.produtosQuantidades = produtosQuantidades;
+		}
+	}
+
+	private final class Lote {
+
+		final List<Baixa> baixas = new ArrayList<>();
+		int itens;
+		ScheduledFuture<?> envio;
+
+		void adicionar(Baixa baixa) {
+			baixas.add(baixa);
+			itens += baixa.produtosIds.size();
+		}
+
+		/** Uma única baixa com as quantidades somadas por produto, na ordem da primeira ocorrência. */
+		EstoqueBaixaDTO combinada() {
+			Map<Long, Long> quantidades = new LinkedHashMap<>();
+			for (Baixa baixa : baixas) {
+				for (int i = 0; i < baixa.produtosIds.size(); i++) {
+					quantidades.merge(baixa.produtosIds.get(i), baixa.produtosQuantidades.get(i), Math::addExact);
+				}
+			}
+			return estoqueExternal.darBaixa(new ArrayList<>(quantidades.keySet()),
+					new ArrayList<>(quantidades.values()));
+		}
+	}
+}
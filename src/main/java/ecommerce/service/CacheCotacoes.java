@@ -0,0 +1,68 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache de cotações de {@link CompraService#calcularCustoTotal}, limitado por tamanho e por tempo desde a
+ * escrita. A chave inclui a versão de preço de cada produto e a versão das regras, então alterações deixam
+ * as entradas antigas inalcançáveis; {@link #invalidarProduto(long)} as remove de imediato.
+ *
+ * Métricas publicadas como {@code cache.gets}, {@code cache.evictions} etc. com a tag {@code cache=cotacoes}.
+ */
+@Component
+@ConditionalOnProperty(name = "compra.cotacoes.cache.habilitado", havingValue = "true", matchIfMissing = true)
+public class CacheCotacoes {
+
+	static final String NOME = "cotacoes";
+
+	private final Cache<ChaveCotacao, BigDecimal> cache;
+
+	public CacheCotacoes(
+			@Value("${compra.cotacoes.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+			@Value("${compra.cotacoes.cache.expiracao:10m}") Duration expiracao,
+			MeterRegistry meterRegistry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(tamanhoMaximo)
+				.expireAfterWrite(expiracao)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+	}
+
+	BigDecimal buscar(ChaveCotacao chave) {
+		return cache.getIfPresent(chave);
+	}
+
+	void guardar(ChaveCotacao chave, BigDecimal custoTotal) {
+		cache.put(chave, custoTotal);
+	}
+
+	/** Remove as cotações de carrinhos que contêm o produto. Percorre o cache; usado só em alterações de catálogo. */
+	public void invalidarProduto(long produtoId) {
+		cache.asMap().keySet().removeIf(chave -> chave.contemProduto(produtoId));
+	}
+
+	public void invalidarTudo() {
+		cache.invalidateAll();
+	}
+
+	public CacheStats estatisticas() {
+		return cache.stats();
+	}
+
+	long tamanhoEstimado() {
+		return cache.estimatedSize();
+	}
+}
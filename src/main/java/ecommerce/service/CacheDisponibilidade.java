@@ -0,0 +1,349 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.external.IEstoqueExternal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Cache por produto de {@link IEstoqueExternal#verificarDisponibilidade}, com validade curta. Cada produto guarda
+ * a maior quantidade vista disponível e a menor vista indisponível (cache negativo, com validade própria); uma
+ * consulta entre as duas vai ao estoque. Consultas simultâneas que faltam no cache para o mesmo produto viram uma
+ * única chamada.
+ *
+ * Só serve leituras como a página do carrinho: a verificação que antecede o pagamento usa
+ * {@link #verificarSemCache}, que vai sempre ao estoque e atualiza o cache com a resposta.
+ *
+ * Métricas: {@code estoque.disponibilidade.consultas} por {@code resultado} (acerto, acerto_negativo, falta),
+ * {@code estoque.disponibilidade.chamadas}, {@code estoque.disponibilidade.idade} (idade da informação servida
+ * do cache) e {@code estoque.disponibilidade.cache.tamanho}.
+ */
+@Component
+@ConditionalOnProperty(name = "compra.estoque.disponibilidade.cache.habilitado", havingValue = "true",
+		matchIfMissing = true)
+public class CacheDisponibilidade {
+
+	private static final long SEM_DISPONIVEL = 0L;
+	private static final long SEM_INDISPONIVEL = Long.MAX_VALUE;
+
+	private final IEstoqueExternal estoqueExternal;
+	private final long validadeNanos;
+	private final long validadeNegativaNanos;
+	private final Ticker relogio;
+	private final Cache<Long, Limites> cache;
+	private final ConcurrentHashMap<Long, CompletableFuture<Void>> emAndamento = new ConcurrentHashMap<>();
+
+	private final Counter acertos;
+	private final Counter acertosNegativos;
+	private final Counter faltas;
+	private final Counter chamadas;
+	private final Timer idade;
+
+	@Autowired
+	public CacheDisponibilidade(
+			IEstoqueExternal estoqueExternal,
+			@Value("${compra.estoque.disponibilidade.cache.validade:2s}") Duration validade,
+			@Value("${compra.estoque.disponibilidade.cache.validade-negativa:1s}") Duration validadeNegativa,
+			@Value("${compra.estoque.disponibilidade.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+			MeterRegistry meterRegistry) {
+		this(estoqueExternal, validade, validadeNegativa, tamanhoMaximo, meterRegistry, Ticker.systemTicker());
+	}
+
+	CacheDisponibilidade(IEstoqueExternal estoqueExternal, Duration validade, Duration validadeNegativa,
+			long tamanhoMaximo, MeterRegistry meterRegistry, Ticker relogio) {
+		this.estoqueExternal = estoqueExternal;
+		this.validadeNanos = validade.toNanos();
+		this.validadeNegativaNanos = validadeNegativa.toNanos();
+		this.relogio = relogio;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(tamanhoMaximo)
+				.expireAfterWrite(Math.max(validadeNanos, validadeNegativaNanos), TimeUnit.NANOSECONDS)
+				.ticker(relogio)
+				.build();
+
+		this.acertos = contador(meterRegistry, "acerto");
+		this.acertosNegativos = contador(meterRegistry, "acerto_negativo");
+		this.faltas = contador(meterRegistry, "falta");
+		this.chamadas = Counter.builder("estoque.disponibilidade.chamadas")
+				.description("Chamadas a verificarDisponibilidade feitas pelo cache")
+				.register(meterRegistry);
+		this.idade = Timer.builder("estoque.disponibilidade.idade")
+				.description("Idade da disponibilidade servida do cache")
+				.register(meterRegistry);
+		Gauge.builder("estoque.disponibilidade.cache.tamanho", cache, Cache::estimatedSize)
+				.register(meterRegistry);
+	}
+
+	private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+		return Counter.builder("estoque.disponibilidade.consultas")
+				.description("Consultas de disponibilidade por produto atendidas pelo cache ou pelo estoque")
+				.tag("resultado", resultado)
+				.register(meterRegistry);
+	}
+
+	/** Mesmo contrato de {@link IEstoqueExternal#verificarDisponibilidade}, respondido do cache quando possível. */
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		Map<Long, Long> pedidos = somarPorProduto(produtosIds, produtosQuantidades);
+		if (pedidos == null) {
+			return verificarSemCache(produtosIds, produtosQuantidades);
+		}
+
+		Set<Long> indisponiveis = new HashSet<>();
+		Map<Long, Long> pendentes = resolverNoCache(pedidos, indisponiveis);
+
+		// Produtos sem chamada em andamento são consultados por esta thread, que publica a chamada antes de fazê-la;
+		// os demais aguardam a chamada em andamento e são conferidos de novo no cache.
+		Map<Long, Long> proprios = new LinkedHashMap<>();
+		Map<Long, CompletableFuture<Void>> alheios = new LinkedHashMap<>();
+		CompletableFuture<Void> chamada = new CompletableFuture<>();
+		for (Map.Entry<Long, Long> pendente : pendentes.entrySet()) {
+			CompletableFuture<Void> emCurso = emAndamento.putIfAbsent(pendente.getKey(), chamada);
+			if (emCurso == null) {
+				proprios.put(pendente.getKey(), pendente.getValue());
+			} else {
+				alheios.put(pendente.getKey(), emCurso);
+			}
+		}
+
+		boolean indeterminado = false;
+		if (!proprios.isEmpty()) {
+			try {
+				indeterminado = !consultarEstoque(proprios, indisponiveis);
+				chamada.complete(null);
+			} catch (RuntimeException e) {
+				chamada.completeExceptionally(e);
+				throw e;
+			} finally {
+				proprios.keySet().forEach(produtoId -> emAndamento.remove(produtoId, chamada));
+			}
+		}
+
+		if (!alheios.isEmpty()) {
+			aguardar(alheios.values());
+			Map<Long, Long> restantes = new LinkedHashMap<>();
+			for (Long produtoId : alheios.keySet()) {
+				restantes.put(produtoId, pendentes.get(produtoId));
+			}
+			// Quantidade que a outra chamada não cobriu: consulta direta, sem esperar de novo.
+			restantes = resolverNoCache(restantes, indisponiveis);
+			if (!restantes.isEmpty()) {
+				indeterminado |= !consultarEstoque(restantes, indisponiveis);
+			}
+		}
+
+		List<Long> ordenados = new ArrayList<>(indisponiveis.size());
+		for (Long produtoId : pedidos.keySet()) {
+			if (indisponiveis.contains(produtoId)) {
+				ordenados.add(produtoId);
+			}
+		}
+		return new DisponibilidadeDTO(ordenados.isEmpty() && !indeterminado, ordenados);
+	}
+
+	/** Vai sempre ao estoque e guarda a resposta; para a verificação que antecede o pagamento. */
+	public DisponibilidadeDTO verificarSemCache(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		chamadas.increment();
+		long consultadoEm = relogio.read();
+		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds,
+				produtosQuantidades);
+
+		Map<Long, Long> pedidos = somarPorProduto(produtosIds, produtosQuantidades);
+		if (pedidos != null && disponibilidade != null) {
+			registrar(pedidos, disponibilidade, consultadoEm);
+		}
+		return disponibilidade;
+	}
+
+	/** Descarta o que se sabe dos produtos, por exemplo depois de uma baixa. */
+	public void invalidar(List<Long> produtosIds) {
+		for (Long produtoId : produtosIds) {
+			if (produtoId != null) {
+				cache.invalidate(produtoId);
+			}
+		}
+	}
+
+	long tamanhoEstimado() {
+		return cache.estimatedSize();
+	}
+
+	/** Responde pelo cache o que der; devolve os pedidos que faltaram. */
+	private Map<Long, Long> resolverNoCache(Map<Long, Long> pedidos, Set<Long> indisponiveis) {
+		Map<Long, Long> pendentes = new LinkedHashMap<>();
+		long agora = relogio.read();
+		for (Map.Entry<Long, Long> pedido : pedidos.entrySet()) {
+			Limites limites = cache.getIfPresent(pedido.getKey());
+			long quantidade = pedido.getValue();
+
+			if (limites != null && limites.disponivel(quantidade, agora, validadeNanos)) {
+				acertos.increment();
+				idade.record(agora - limites.disponivelEm, TimeUnit.NANOSECONDS);
+			} else if (limites != null && limites.indisponivel(quantidade, agora, validadeNegativaNanos)) {
+				acertosNegativos.increment();
+				idade.record(agora - limites.indisponivelEm, TimeUnit.NANOSECONDS);
+				indisponiveis.add(pedido.getKey());
+			} else {
+				faltas.increment();
+				pendentes.put(pedido.getKey(), quantidade);
+			}
+		}
+		return pendentes;
+	}
+
+	/** @return {@code false} se o estoque negou sem dizer quais produtos faltam */
+	private boolean consultarEstoque(Map<Long, Long> pedidos, Set<Long> indisponiveis) {
+		chamadas.increment();
+		long consultadoEm = relogio.read();
+		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(
+				new ArrayList<>(pedidos.keySet()), new ArrayList<>(pedidos.values()));
+		if (disponibilidade == null) {
+			throw new IllegalStateException("Erro ao verificar disponibilidade.");
+		}
+
+		if (!registrar(pedidos, disponibilidade, consultadoEm)) {
+			return false;
+		}
+		if (disponibilidade.idsProdutosIndisponiveis() != null) {
+			for (Long produtoId : disponibilidade.idsProdutosIndisponiveis()) {
+				if (pedidos.containsKey(produtoId)) {
+					indisponiveis.add(produtoId);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Guarda a resposta por produto. Uma negativa sem a lista de produtos indisponíveis não diz qual produto falta
+	 * e não é guardada.
+	 *
+	 * @return {@code false} nesse caso
+	 */
+	private boolean registrar(Map<Long, Long> pedidos, DisponibilidadeDTO disponibilidade, long consultadoEm) {
+		List<Long> listados = disponibilidade.idsProdutosIndisponiveis() == null ? List.of()
+				: disponibilidade.idsProdutosIndisponiveis();
+		boolean disponivel = Boolean.TRUE.equals(disponibilidade.disponivel());
+		if (!disponivel && listados.isEmpty()) {
+			return false;
+		}
+
+		Set<Long> indisponiveis = disponivel ? Set.of() : new HashSet<>(listados);
+		for (Map.Entry<Long, Long> pedido : pedidos.entrySet()) {
+			boolean produtoDisponivel = !indisponiveis.contains(pedido.getKey());
+			long quantidade = pedido.getValue();
+			cache.asMap().compute(pedido.getKey(), (produtoId, atuais) -> Limites.observar(atuais, quantidade,
+					produtoDisponivel, consultadoEm, relogio.read(), validadeNanos, validadeNegativaNanos));
+		}
+		return true;
+	}
+
+	private static void aguardar(Iterable<CompletableFuture<Void>> chamadas) {
+		for (CompletableFuture<Void> chamada : chamadas) {
+			try {
+				chamada.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException causa) {
+					throw causa;
+				}
+				throw e;
+			}
+		}
+	}
+
+	/** Quantidades somadas por produto, na ordem da primeira ocorrência; {@code null} se houver item inválido. */
+	private static Map<Long, Long> somarPorProduto(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		if (produtosIds == null || produtosQuantidades == null || produtosIds.size() != produtosQuantidades.size()) {
+			return null;
+		}
+
+		Map<Long, Long> pedidos = new LinkedHashMap<>();
+		for (int i = 0; i < produtosIds.size(); i++) {
+			Long produtoId = produtosIds.get(i);
+			Long quantidade = produtosQuantidades.get(i);
+			if (produtoId == null || quantidade == null || quantidade <= 0) {
+				return null;
+			}
+			pedidos.merge(produtoId, quantidade, Math::addExact);
+		}
+		return pedidos;
+	}
+
+	/**
+	 * O que se sabe de um produto: disponível até {@code disponivelAte} unidades e indisponível a partir de
+	 * {@code indisponivelDesde}, cada limite com o instante (do {@link Ticker}) da consulta que o estabeleceu.
+	 */
+	private record Limites(long disponivelAte, long disponivelEm, long indisponivelDesde, long indisponivelEm) {
+
+		boolean disponivel(long quantidade, long agora, long validade) {
+			return quantidade <= disponivelAte && agora - disponivelEm < validade;
+		}
+
+		boolean indisponivel(long quantidade, long agora, long validade) {
+			return quantidade >= indisponivelDesde && agora - indisponivelEm < validade;
+		}
+
+		/**
+		 * Junta uma resposta do estoque aos limites ainda válidos. Um limite mais amplo e ainda válido é mantido com
+		 * o seu instante; o limite contrário que a resposta desmente é descartado.
+		 */
+		static Limites observar(Limites atuais, long quantidade, boolean disponivel, long consultadoEm, long agora,
+				long validade, long validadeNegativa) {
+			long disponivelAte = SEM_DISPONIVEL;
+			long disponivelEm = consultadoEm;
+			long indisponivelDesde = SEM_INDISPONIVEL;
+			long indisponivelEm = consultadoEm;
+			if (atuais != null) {
+				if (agora - atuais.disponivelEm < validade) {
+					disponivelAte = atuais.disponivelAte;
+					disponivelEm = atuais.disponivelEm;
+				}
+				if (agora - atuais.indisponivelEm < validadeNegativa) {
+					indisponivelDesde = atuais.indisponivelDesde;
+					indisponivelEm = atuais.indisponivelEm;
+				}
+			}
+
+			if (disponivel) {
+				if (quantidade >= disponivelAte) {
+					disponivelAte = quantidade;
+					disponivelEm = consultadoEm;
+				}
+				if (indisponivelDesde <= quantidade) {
+					indisponivelDesde = SEM_INDISPONIVEL;
+				}
+			} else {
+				if (quantidade <= indisponivelDesde) {
+					indisponivelDesde = quantidade;
+					indisponivelEm = consultadoEm;
+				}
+				if (disponivelAte >= quantidade) {
+					disponivelAte = SEM_DISPONIVEL;
+				}
+			}
+			return new Limites(disponivelAte, disponivelEm, indisponivelDesde, indisponivelEm);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+
+/**
+ * Frete das cotações: faixa de peso, adicional frágil, multiplicador regional e fidelidade.
+ *
+ * Cada snapshot de {@link RegrasPrecificacao} traz uma {@link Tabela} com os valores de frete já multiplicados
+ * pelo fator de região e fidelidade, por (faixa de peso, {@link Regiao}, {@link TipoCliente}). Calcular o frete
+ * é achar a faixa e fazer três multiplicações; como a aritmética é exata, o valor é o mesmo de aplicar as
+ * etapas em sequência.
+ */
+final class CalculadoraFrete {
+
+	private final PrecificacaoPontoFixo precificacaoPontoFixo = new PrecificacaoPontoFixo();
+
+	/** Frete final, sem arredondamento. {@code pesoTotal} nulo conta como frete base zero. */
+	BigDecimal calcularFrete(BigDecimal pesoTotal, long unidadesFrageis, Regiao regiao, TipoCliente tipoCliente,
+			RegrasPrecificacao regras) {
+		Tabela tabela = regras.tabelaFrete();
+		int r = regiao.ordinal();
+		int t = tipoCliente.ordinal();
+
+		BigDecimal frete = tabela.taxaFragil[r][t].multiply(BigDecimal.valueOf(unidadesFrageis));
+		if (pesoTotal != null) {
+			int faixa = regras.faixaDePeso(pesoTotal);
+			frete = frete.add(pesoTotal.multiply(tabela.valorPorKg[faixa][r][t])).add(tabela.taxaFixa[faixa][r][t]);
+		}
+		return frete;
+	}
+
+	/**
+	 * Frete de {@code quantidade} unidades de um produto já validado, arredondado HALF_UP para centavos.
+	 * Usa a tabela em ponto fixo quando o peso cabe na escala e volta ao cálculo em BigDecimal caso contrário.
+	 */
+	BigDecimal estimarFrete(Produto produto, long quantidade, Regiao regiao, TipoCliente tipoCliente,
+			RegrasPrecificacao regras) {
+		long unidadesFrageis = Boolean.TRUE.equals(produto.isFragil()) ? quantidade : 0;
+
+		long centavos = precificacaoPontoFixo.calcularFreteEmCentavos(produto.getPesoTributavelEscalado(), quantidade,
+				unidadesFrageis, regiao, tipoCliente, regras);
+		if (centavos != PrecificacaoPontoFixo.FORA_DE_ESCALA) {
+			return BigDecimal.valueOf(centavos, 2);
+		}
+
+		BigDecimal pesoTotal = produto.getPesoTributavel().multiply(BigDecimal.valueOf(quantidade));
+		return calcularFrete(pesoTotal, unidadesFrageis, regiao, tipoCliente, regras).setScale(2, RoundingMode.HALF_UP);
+	}
+
+	/** Valores de frete de um snapshot multiplicados pelo fator de região x fidelidade, montados uma vez. */
+	static final class Tabela {
+
+		/** [faixa][regiao][tipoCliente] */
+		private final BigDecimal[][][] valorPorKg;
+		private final BigDecimal[][][] taxaFixa;
+		/** [regiao][tipoCliente] */
+		private final BigDecimal[][] taxaFragil;
+
+		Tabela(RegrasPrecificacao regras) {
+			int faixas = regras.quantidadeFaixas();
+			int regioes = Regiao.values().length;
+			int tiposCliente = TipoCliente.values().length;
+
+			valorPorKg = new BigDecimal[faixas][regioes][tiposCliente];
+			taxaFixa = new BigDecimal[faixas][regioes][tiposCliente];
+			taxaFragil = new BigDecimal[regioes][tiposCliente];
+			for (Regiao regiao : Regiao.values()) {
+				for (TipoCliente tipo : TipoCliente.values()) {
+					int r = regiao.ordinal();
+					int t = tipo.ordinal();
+					BigDecimal fator = regras.multiplicador(regiao).multiply(regras.fidelidade(tipo));
+
+					taxaFragil[r][t] = regras.taxaFragil().multiply(fator);
+					for (int faixa = 0; faixa < faixas; faixa++) {
+						valorPorKg[faixa][r][t] = regras.valorPorKg(faixa).multiply(fator);
+						taxaFixa[faixa][r][t] = regras.taxaFixa(faixa).multiply(fator);
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,7 +1,15 @@
 package ecommerce.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.springframework.stereotype.Service;
 
+import ecommerce.dto.LinhaCarrinhoDTO;
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
 import ecommerce.repository.CarrinhoDeComprasRepository;
@@ -21,4 +29,29 @@ public class CarrinhoDeComprasService
 		return repository.findByIdAndCliente(carrinhoId, cliente)
 				.orElseThrow(() -> new IllegalArgumentException("Carrinho não encontrado."));
 	}
+
+	/**
+	 * Carrinho do cliente para a finalização, com cliente, itens e produtos carregados em uma ida ao banco.
+	 * Vazio se o carrinho não existir ou não for do cliente.
+	 */
+	public Optional<CarrinhoDeCompras> buscarParaFinalizacao(Long carrinhoId, Long clienteId)
+	{
+		return repository.findComClienteEItensByIdAndClienteId(carrinhoId, clienteId);
+	}
+
+	/**
+	 * Itens do carrinho do cliente como projeção somente leitura, para quem só precisa precificar. Vazia se o
+	 * carrinho não existir, não for do cliente ou estiver vazio.
+	 */
+	public List<LinhaCarrinhoDTO> buscarLinhasParaPrecificacao(Long carrinhoId, Long clienteId)
+	{
+		return repository.findLinhasByIdAndClienteId(carrinhoId, clienteId);
+	}
+
+	/** Carrinhos encontrados, com itens e produtos já carregados, indexados pelo id. */
+	public Map<Long, CarrinhoDeCompras> buscarPorIds(Collection<Long> carrinhoIds)
+	{
+		return repository.findAllComItensByIdIn(carrinhoIds).stream()
+				.collect(Collectors.toMap(CarrinhoDeCompras::getId, Function.identity()));
+	}
 }
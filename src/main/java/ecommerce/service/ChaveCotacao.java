@@ -0,0 +1,93 @@
+package ecommerce.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+
+/**
+ * Impressão digital de uma cotação: (id do produto, quantidade, versão de preço) de cada item, na ordem
+ * do carrinho, mais região e tipo do cliente e a versão das regras de precificação. O hash é calculado
+ * uma vez na construção.
+ */
+final class ChaveCotacao {
+
+	private final long[] itens;
+	private final int regiao;
+	private final int tipoCliente;
+	private final long versaoRegras;
+	private final int hash;
+
+	private ChaveCotacao(long[] itens, int regiao, int tipoCliente, long versaoRegras) {
+		this.itens = itens;
+		this.regiao = regiao;
+		this.tipoCliente = tipoCliente;
+		this.versaoRegras = versaoRegras;
+
+		int h = Arrays.hashCode(itens);
+		h = 31 * h + regiao;
+		h = 31 * h + tipoCliente;
+		this.hash = 31 * h + Long.hashCode(versaoRegras);
+	}
+
+	/**
+	 * Monta a chave, ou devolve {@code null} se a cotação não puder ser identificada com segurança
+	 * (entrada nula ou produto ainda sem id). Nesses casos a cotação é calculada sem cache.
+	 */
+	static ChaveCotacao de(CarrinhoDeCompras carrinho, Cliente cliente, long versaoRegras) {
+		if (carrinho == null || cliente == null || cliente.getRegiao() == null || cliente.getTipo() == null) {
+			return null;
+		}
+		List<ItemCompra> itensCarrinho = carrinho.getItens();
+		if (itensCarrinho == null) {
+			return null;
+		}
+
+		long[] itens = new long[itensCarrinho.size() * 3];
+		int i = 0;
+		for (ItemCompra item : itensCarrinho) {
+			if (item == null || item.getQuantidade() == null) {
+				return null;
+			}
+			Produto produto = item.getProduto();
+			if (produto == null || produto.getId() == null) {
+				return null;
+			}
+
+			itens[i++] = produto.getId();
+			itens[i++] = item.getQuantidade();
+			itens[i++] = produto.getVersaoPreco();
+		}
+
+		return new ChaveCotacao(itens, cliente.getRegiao().ordinal(), cliente.getTipo().ordinal(), versaoRegras);
+	}
+
+	boolean contemProduto(long produtoId) {
+		for (int i = 0; i < itens.length; i += 3) {
+			if (itens[i] == produtoId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ChaveCotacao outra)) {
+			return false;
+		}
+		return hash == outra.hash && regiao == outra.regiao && tipoCliente == outra.tipoCliente
+				&& versaoRegras == outra.versaoRegras && Arrays.equals(itens, outra.itens);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -1,5 +1,10 @@
 package ecommerce.service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.springframework.stereotype.Service;
 
 import ecommerce.entity.Cliente;
@@ -21,4 +26,10 @@ public class ClienteService
 		return repository.findById(clienteId).orElseThrow(() -> new IllegalArgumentException("Cliente não encontrado"));
 	}
 
+	/** Clientes encontrados, indexados pelo id. */
+	public Map<Long, Cliente> buscarPorIds(Collection<Long> clienteIds)
+	{
+		return repository.findAllById(clienteIds).stream()
+				.collect(Collectors.toMap(Cliente::getId, Function.identity()));
+	}
 }
@@ -0,0 +1,198 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.external.IEstoqueExternalAssincrono;
+import ecommerce.external.IPagamentoExternalAssincrono;
+import ecommerce.external.ResultadoIncertoException;
+
+/**
+ * Finalização de compra não bloqueante, com as chamadas externas por {@link IEstoqueExternalAssincrono} e
+ * {@link IPagamentoExternalAssincrono}. A precificação é a de {@link CompraService#calcularCustoTotal}.
+ */
+@Service
+public class CompraAssincronaService {
+
+	private final CompraService compraService;
+	private final CarrinhoDeComprasService carrinhoService;
+	private final ClienteService clienteService;
+	private final IEstoqueExternalAssincrono estoqueExternal;
+	private final IPagamentoExternalAssincrono pagamentoExternal;
+	private final Duration timeoutDisponibilidade;
+	private final Executor executorFinalizacoes;
+
+	public CompraAssincronaService(
+			CompraService compraService,
+			CarrinhoDeComprasService carrinhoService,
+			ClienteService clienteService,
+			IEstoqueExternalAssincrono estoqueExternal,
+			IPagamentoExternalAssincrono pagamentoExternal,
+			@Value("${compra.checkout.timeout-disponibilidade:5s}") Duration timeoutDisponibilidade,
+			@Qualifier("executorFinalizacoes") Executor executorFinalizacoes) {
+		this.compraService = compraService;
+		this.carrinhoService = carrinhoService;
+		this.clienteService = clienteService;
+		this.estoqueExternal = estoqueExternal;
+		this.pagamentoExternal = pagamentoExternal;
+		this.timeoutDisponibilidade = timeoutDisponibilidade;
+		this.executorFinalizacoes = executorFinalizacoes;
+	}
+
+	/**
+	 * Mesmo fluxo e mesmas mensagens de {@link CompraService#finalizarCompra}. Cliente e carrinho são lidos e o
+	 * custo é calculado na thread chamadora, com a verificação de disponibilidade já enviada; pagamento e baixa
+	 * de estoque seguem encadeados nas respostas, sem thread parada esperando. Os erros chegam pelo future,
+	 * possivelmente embrulhados em {@link CompletionException}. Resultados incertos, cancelamento que falha e
+	 * compras em conferência seguem as mesmas regras da finalização bloqueante.
+	 *
+	 * Com reservas locais ou baixas em lote habilitadas, a finalização é a de {@link CompraService#finalizarCompra},
+	 * rodando no executor das finalizações.
+	 */
+	public CompletableFuture<CompraDTO> finalizarCompra(Long carrinhoId, Long clienteId) {
+		if (compraService.finalizacaoSoBloqueante()) {
+			return finalizarBloqueante(() -> compraService.finalizarCompra(carrinhoId, clienteId));
+		}
+
+		CarrinhoDeCompras carrinho;
+		try {
+			carrinho = CompraService.carregarCarrinho(carrinhoService, clienteService, carrinhoId, clienteId);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		Cliente cliente = carrinho.getCliente();
+
+		List<ItemCompra> itens = carrinho.getItens();
+		List<Long> produtosIds = new CompraService.ColunaDosItens(itens, true);
+		List<Long> produtosQtds = new CompraService.ColunaDosItens(itens, false);
+
+		CompletableFuture<DisponibilidadeDTO> verificacao = estoqueExternal.verificarDisponibilidade(produtosIds,
+				produtosQtds);
+		CompletableFuture<DisponibilidadeDTO> disponibilidade = noPrazo(verificacao);
+
+		BigDecimal custoTotal;
+		try {
+			custoTotal = compraService.calcularCustoTotal(carrinho, cliente);
+		} catch (RuntimeException e) {
+			verificacao.cancel(true);
+			return CompletableFuture.failedFuture(e);
+		}
+
+		return disponibilidade.thenCompose(disponibilidadeDTO -> {
+			if (!disponibilidadeDTO.disponivel()) {
+				throw new IllegalStateException("Itens fora de estoque.");
+			}
+			return autorizarPagamento(carrinhoId, cliente, custoTotal, produtosIds, produtosQtds);
+		}).thenCompose(pagamento -> {
+			if (!pagamento.autorizado()) {
+				throw new IllegalStateException("Pagamento não autorizado.");
+			}
+			return darBaixa(carrinhoId, cliente, pagamento, produtosIds, produtosQtds);
+		});
+	}
+
+	/**
+	 * Uma finalização bloqueante, como a de {@link RegistroIdempotencia#executar}, no executor das finalizações;
+	 * a thread chamadora não espera.
+	 */
+	public CompletableFuture<CompraDTO> finalizarBloqueante(Supplier<CompraDTO> finalizacao) {
+		return CompletableFuture.supplyAsync(finalizacao, executorFinalizacoes);
+	}
+
+	/** Autorização que passa do tempo vai para a conferência e recusa a compra sem convidar a nova tentativa. */
+	private CompletableFuture<PagamentoDTO> autorizarPagamento(Long carrinhoId, Cliente cliente, BigDecimal custoTotal,
+			List<Long> produtosIds, List<Long> produtosQtds) {
+		return pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue()).exceptionally(erro -> {
+			if (causa(erro) instanceof ResultadoIncertoException incerto) {
+				throw compraService.pagamentoIncerto(carrinhoId, cliente, produtosIds, produtosQtds, incerto);
+			}
+			throw propagar(erro);
+		});
+	}
+
+	/**
+	 * Baixa que passa do tempo conclui a compra em conferência; baixa negada ou que falha desfaz o pagamento e
+	 * termina com o mesmo erro da finalização bloqueante.
+	 */
+	private CompletableFuture<CompraDTO> darBaixa(Long carrinhoId, Cliente cliente, PagamentoDTO pagamento,
+			List<Long> produtosIds, List<Long> produtosQtds) {
+		return estoqueExternal.darBaixa(produtosIds, produtosQtds).handle((baixaDTO, erro) -> {
+			if (erro == null && baixaDTO.sucesso()) {
+				return concluida(produtosIds, pagamento);
+			}
+			if (causa(erro) instanceof ResultadoIncertoException incerto) {
+				return CompletableFuture.completedFuture(
+						compraService.baixaIncerta(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, incerto));
+			}
+			Throwable motivo = erro != null ? causa(erro) : new IllegalStateException("Erro ao dar baixa no estoque.");
+			return desfazerPagamento(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, motivo);
+		}).thenCompose(Function.identity());
+	}
+
+	/** A verificação com o prazo de {@code compra.checkout.timeout-disponibilidade}, contado a partir do envio. */
+	private CompletableFuture<DisponibilidadeDTO> noPrazo(CompletableFuture<DisponibilidadeDTO> verificacao) {
+		return verificacao.copy()
+				.orTimeout(timeoutDisponibilidade.toNanos(), TimeUnit.NANOSECONDS)
+				.handle((disponibilidadeDTO, erro) -> {
+					if (erro == null) {
+						return disponibilidadeDTO;
+					}
+					if (causa(erro) instanceof TimeoutException) {
+						verificacao.cancel(true);
+						throw new IllegalStateException("Tempo esgotado ao verificar disponibilidade.");
+					}
+					throw propagar(erro);
+				});
+	}
+
+	/** Cancela o pagamento e falha com {@code motivo}; se o cancelamento falhar, a compra vai para a conferência. */
+	private CompletableFuture<CompraDTO> desfazerPagamento(Long carrinhoId, Cliente cliente, PagamentoDTO pagamento,
+			List<Long> produtosIds, List<Long> produtosQtds, Throwable motivo) {
+		CompletableFuture<Void> cancelamento = pagamentoExternal.cancelarPagamento(cliente.getId(),
+				pagamento.transacaoId());
+		return cancelamento.handle((cancelado, erro) -> {
+			if (erro != null) {
+				throw compraService.cancelamentoFalhou(carrinhoId, cliente, pagamento, produtosIds, produtosQtds,
+						causa(erro), motivo);
+			}
+			throw propagar(motivo);
+		});
+	}
+
+	private CompletableFuture<CompraDTO> concluida(List<Long> produtosIds, PagamentoDTO pagamento) {
+		compraService.estoqueAlterado(produtosIds);
+		return CompletableFuture.completedFuture(
+				new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso."));
+	}
+
+	/** {@code erro} para relançar de dentro de uma etapa, sem embrulhar de novo. */
+	private static RuntimeException propagar(Throwable erro) {
+		if (erro instanceof CompletionException completionException) {
+			return completionException;
+		}
+		return erro instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(erro);
+	}
+
+	/** Exceção original de uma etapa, sem o {@link CompletionException} acrescentado pelo encadeamento. */
+	public static Throwable causa(Throwable erro) {
+		return erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+	}
+}
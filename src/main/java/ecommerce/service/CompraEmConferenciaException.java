@@ -0,0 +1,14 @@
+package ecommerce.service;
+
+/**
+ * Finalização interrompida depois que o pagamento pode ter sido autorizado: a compra foi registrada em
+ * {@link ComprasEmConferencia} e não deve ser repetida. Responde como recusa (409), sem {@code Retry-After}.
+ */
+public class CompraEmConferenciaException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CompraEmConferenciaException(String mensagem, Throwable causa) {
+		super(mensagem, causa);
+	}
+}
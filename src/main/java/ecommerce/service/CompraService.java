@@ -2,305 +2,568 @@ package ecommerce.service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.stream.Collectors;
-
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.CotacaoRequisicaoDTO;
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.LinhaCarrinhoDTO;
 import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.AcumuladorCarrinho;
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
 import ecommerce.entity.ItemCompra;
-import ecommerce.entity.Produto;
-import ecommerce.entity.Regiao;
-import ecommerce.entity.TipoCliente;
-import ecommerce.entity.TipoProduto;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
-import jakarta.transaction.Transactional;
+import ecommerce.external.ResultadoIncertoException;
 
 @Service
 public class CompraService {
 
 	private static final BigDecimal ZERO = BigDecimal.ZERO;
 
-	private static final BigDecimal DIVISOR_PESO_CUBICO = new BigDecimal("6000");
-
-	private static final BigDecimal TAXA_MINIMA_FRETE = new BigDecimal("12.00");
-	private static final BigDecimal TAXA_FRAGIL_POR_UNIDADE = new BigDecimal("5.00");
-
 	private final CarrinhoDeComprasService carrinhoService;
 	private final ClienteService clienteService;
 	private final IEstoqueExternal estoqueExternal;
 	private final IPagamentoExternal pagamentoExternal;
-
+	private final ProvedorRegrasPrecificacao regras;
+	private final MotorPrecificacao motor;
+	private final ForkJoinPool poolCotacoes;
+	private final CacheCotacoes cacheCotacoes;
+	private final Executor executorChamadasExternas;
+	private final Duration timeoutDisponibilidade;
+	private final AgrupadorBaixasEstoque agrupadorBaixas;
+	private final ReservasEstoque reservasEstoque;
+	private final CacheDisponibilidade cacheDisponibilidade;
+	private final ComprasEmConferencia emConferencia;
+	private final PrecificacaoPontoFixo precificacaoPontoFixo = new PrecificacaoPontoFixo();
+	private final CalculadoraFrete calculadoraFrete = new CalculadoraFrete();
+
+	/**
+	 * {@code cacheCotacoes} nulo desliga o cache de cotações. {@code executorChamadasExternas} roda a verificação
+	 * de disponibilidade enquanto a thread chamadora calcula o custo total; {@code timeoutDisponibilidade} conta a
+	 * partir do envio da verificação. Com {@code agrupadorBaixas}, a baixa de estoque vai no lote das finalizações
+	 * simultâneas. Com {@code reservasEstoque}, os itens de produtos com saldo local são reservados nele em vez de
+	 * verificados e baixados no estoque externo. Com {@code cacheDisponibilidade}, {@link #consultarDisponibilidade}
+	 * responde do cache; a verificação da finalização continua indo ao estoque, e a resposta atualiza o cache.
+	 * Finalizações com resultado incerto vão para {@code emConferencia}.
+	 */
+	@Autowired
 	public CompraService(
 			CarrinhoDeComprasService carrinhoService,
 			ClienteService clienteService,
 			IEstoqueExternal estoqueExternal,
-			IPagamentoExternal pagamentoExternal) {
+			IPagamentoExternal pagamentoExternal,
+			ProvedorRegrasPrecificacao regras,
+			@Value("${compra.precificacao.motor:BIG_DECIMAL}") MotorPrecificacao motor,
+			ForkJoinPool poolCotacoes,
+			@Nullable CacheCotacoes cacheCotacoes,
+			@Qualifier("executorChamadasExternas") Executor executorChamadasExternas,
+			@Value("${compra.checkout.timeout-disponibilidade:5s}") Duration timeoutDisponibilidade,
+			@Nullable AgrupadorBaixasEstoque agrupadorBaixas,
+			@Nullable ReservasEstoque reservasEstoque,
+			@Nullable CacheDisponibilidade cacheDisponibilidade,
+			ComprasEmConferencia emConferencia) {
 		this.carrinhoService = carrinhoService;
 		this.clienteService = clienteService;
 		this.estoqueExternal = estoqueExternal;
 		this.pagamentoExternal = pagamentoExternal;
+		this.regras = regras;
+		this.motor = motor;
+		this.poolCotacoes = poolCotacoes;
+		this.cacheCotacoes = cacheCotacoes;
+		this.executorChamadasExternas = executorChamadasExternas;
+		this.timeoutDisponibilidade = timeoutDisponibilidade;
+		this.agrupadorBaixas = agrupadorBaixas;
+		this.reservasEstoque = reservasEstoque;
+		this.cacheDisponibilidade = cacheDisponibilidade;
+		this.emConferencia = emConferencia;
 	}
 
-	@Transactional
+	/**
+	 * Sem transação própria: cliente, carrinho, itens e produtos são lidos numa única consulta somente leitura que
+	 * devolve a conexão ao pool antes das chamadas ao estoque e ao pagamento, e a gravação que vier depois (o
+	 * registro de idempotência) abre a sua. A latência dos serviços externos não prende conexões do banco.
+	 *
+	 * Uma autorização ou baixa que passa do tempo ({@link ResultadoIncertoException}) pode ter sido aplicada: nada
+	 * é desfeito e a compra vai para {@link ComprasEmConferencia}.
+	 */
 	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId) {
-		Cliente cliente = clienteService.buscarPorId(clienteId);
-		CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
-
-		List<Long> produtosIds = carrinho.getItens().stream()
-				.map(i -> i.getProduto().getId())
-				.collect(Collectors.toList());
-
-		List<Long> produtosQtds = carrinho.getItens().stream()
-				.map(ItemCompra::getQuantidade)
-				.collect(Collectors.toList());
+		CarrinhoDeCompras carrinho = carregarCarrinho(carrinhoService, clienteService, carrinhoId, clienteId);
+		Cliente cliente = carrinho.getCliente();
+
+		List<ItemCompra> itens = carrinho.getItens();
+		List<Long> produtosIds = new ColunaDosItens(itens, true);
+		List<Long> produtosQtds = new ColunaDosItens(itens, false);
+
+		// Com reservas locais o custo vem antes, para que um carrinho inválido falhe antes de qualquer consulta.
+		BigDecimal custoCalculado = null;
+		if (reservasEstoque != null) {
+			custoCalculado = calcularCustoTotal(carrinho, cliente);
+			if (reservasEstoque.carregar(produtosIds)) {
+				return finalizarComReserva(carrinhoId, cliente, custoCalculado, produtosIds, produtosQtds);
+			}
+		}
 
-		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds);
+		// Disponibilidade e precificação são independentes: a verificação vai para o executor enquanto o cálculo,
+		// sobre o carrinho já carregado, fica nesta thread. O pagamento só sai depois da disponibilidade confirmada.
+		long prazo = System.nanoTime() + timeoutDisponibilidade.toNanos();
+		FutureTask<DisponibilidadeDTO> disponibilidade = new FutureTask<>(
+				() -> cacheDisponibilidade == null ? estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds)
+						: cacheDisponibilidade.verificarSemCache(produtosIds, produtosQtds));
+		executorChamadasExternas.execute(disponibilidade);
+
+		BigDecimal custoTotal;
+		try {
+			custoTotal = custoCalculado != null ? custoCalculado : calcularCustoTotal(carrinho, cliente);
+		} catch (RuntimeException e) {
+			disponibilidade.cancel(true);
+			throw e;
+		}
 
-		if (!disponibilidade.disponivel()) {
+		if (!aguardarDisponibilidade(disponibilidade, prazo).disponivel()) {
 			throw new IllegalStateException("Itens fora de estoque.");
 		}
 
-		BigDecimal custoTotal = calcularCustoTotal(carrinho, cliente);
-
-		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+		PagamentoDTO pagamento;
+		try {
+			pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+		} catch (ResultadoIncertoException e) {
+			throw pagamentoIncerto(carrinhoId, cliente, produtosIds, produtosQtds, e);
+		}
 
 		if (!pagamento.autorizado()) {
 			throw new IllegalStateException("Pagamento não autorizado.");
 		}
 
-		EstoqueBaixaDTO baixaDTO = estoqueExternal.darBaixa(produtosIds, produtosQtds);
+		EstoqueBaixaDTO baixaDTO;
+		try {
+			baixaDTO = agrupadorBaixas == null ? estoqueExternal.darBaixa(produtosIds, produtosQtds)
+					: agrupadorBaixas.darBaixa(produtosIds, produtosQtds);
+		} catch (ResultadoIncertoException e) {
+			return baixaIncerta(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, e);
+		} catch (RuntimeException e) {
+			// Baixa que falhou: o pagamento já autorizado é desfeito como numa baixa negada.
+			cancelarPagamento(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, e);
+			throw e;
+		}
 
 		if (!baixaDTO.sucesso()) {
-			pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
-			throw new IllegalStateException("Erro ao dar baixa no estoque.");
+			IllegalStateException negada = new IllegalStateException("Erro ao dar baixa no estoque.");
+			cancelarPagamento(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, negada);
+			throw negada;
 		}
+		estoqueAlterado(produtosIds);
 
 		return new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
 	}
 
-	public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho, Cliente cliente) {
-		validarEntradaParaCalculo(carrinho, cliente);
-
-		BigDecimal subtotalComDescontos = calcularCustoProdutos(carrinho);
-		BigDecimal freteFinal = calcularFreteFinal(carrinho, cliente);
+	/**
+	 * {@code true} se a finalização passa por reservas locais ou por baixas em lote, que só existem no fluxo
+	 * bloqueante.
+	 */
+	boolean finalizacaoSoBloqueante() {
+		return reservasEstoque != null || agrupadorBaixas != null;
+	}
 
-		BigDecimal total = subtotalComDescontos.add(freteFinal);
-		return total.setScale(2, RoundingMode.HALF_UP);
+	/** Houve baixa dos produtos: a disponibilidade em cache deixa de valer. */
+	void estoqueAlterado(List<Long> produtosIds) {
+		if (cacheDisponibilidade != null) {
+			cacheDisponibilidade.invalidar(produtosIds);
+		}
 	}
 
-	BigDecimal calcularCustoProdutos(CarrinhoDeCompras carrinho) {
-		validarCarrinhoParaCalculo(carrinho);
+	/**
+	 * Disponibilidade dos itens do carrinho para exibição, sem reservar nada. Com o cache de disponibilidade pode
+	 * estar defasada em até a validade do cache; a finalização confere de novo no estoque.
+	 */
+	public DisponibilidadeDTO consultarDisponibilidade(Long carrinhoId, Long clienteId) {
+		CarrinhoDeCompras carrinho = carregarCarrinho(carrinhoService, clienteService, carrinhoId, clienteId);
 
-		BigDecimal totalComDescontoPorTipo = calcularTotalComDescontoPorTipo(carrinho);
-		BigDecimal totalComDescontoPorValor = calcularTotalComDescontoPorValor(totalComDescontoPorTipo);
+		List<ItemCompra> itens = carrinho.getItens();
+		if (itens == null || itens.isEmpty()) {
+			throw new IllegalArgumentException("Carrinho deve possuir pelo menos 1 item.");
+		}
+		for (ItemCompra item : itens) {
+			validarItemParaCalculo(item);
+		}
+		List<Long> produtosIds = new ColunaDosItens(itens, true);
+		List<Long> produtosQtds = new ColunaDosItens(itens, false);
 
-		return totalComDescontoPorValor;
+		return cacheDisponibilidade == null ? estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds)
+				: cacheDisponibilidade.verificarDisponibilidade(produtosIds, produtosQtds);
 	}
 
-	private BigDecimal calcularTotalComDescontoPorValor(BigDecimal total) {
-		BigDecimal desconto = percentualDescontoValorTotal(total);
-		return aplicarDesconto(total, desconto);
+	/**
+	 * Carrinho com cliente, itens e produtos em uma consulta. Só quando ela não encontra nada o cliente é buscado
+	 * à parte, para distinguir cliente inexistente de carrinho inexistente.
+	 */
+	static CarrinhoDeCompras carregarCarrinho(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			Long carrinhoId, Long clienteId) {
+		Optional<CarrinhoDeCompras> carrinho = carrinhoService.buscarParaFinalizacao(carrinhoId, clienteId);
+		if (carrinho.isEmpty()) {
+			clienteService.buscarPorId(clienteId);
+			throw new IllegalArgumentException("Carrinho não encontrado.");
+		}
+		return carrinho.get();
 	}
 
-	private BigDecimal calcularTotalComDescontoPorTipo(CarrinhoDeCompras carrinho) {
-		Map<TipoProduto, Entry<BigDecimal, Long>> acumuladosPorTipo = acumularPorTipo(carrinho);
+	/**
+	 * Finalização pelas reservas locais: sem verificação nem baixa síncronas no estoque externo. A reserva é
+	 * devolvida se o pagamento não for autorizado, falhar ou passar do tempo. Nesse último caso nada foi baixado no
+	 * estoque externo, como na finalização sem reservas, e os itens seguem no registro da conferência.
+	 */
+	private CompraDTO finalizarComReserva(Long carrinhoId, Cliente cliente, BigDecimal custoTotal,
+			List<Long> produtosIds, List<Long> produtosQtds) {
+		ReservasEstoque.Reserva reserva = reservasEstoque.reservar(produtosIds, produtosQtds);
+
+		PagamentoDTO pagamento;
+		try {
+			pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+		} catch (RuntimeException e) {
+			reservasEstoque.liberar(reserva);
+			if (e instanceof ResultadoIncertoException incerto) {
+				throw pagamentoIncerto(carrinhoId, cliente, produtosIds, produtosQtds, incerto);
+			}
+			throw e;
+		}
 
-		BigDecimal total = ZERO;
+		if (!pagamento.autorizado()) {
+			reservasEstoque.liberar(reserva);
+			throw new IllegalStateException("Pagamento não autorizado.");
+		}
 
-		for (Entry<TipoProduto, Entry<BigDecimal, Long>> entry : acumuladosPorTipo.entrySet()) {
-			Entry<BigDecimal, Long> acumulado = entry.getValue();
+		reservasEstoque.confirmar(reserva);
+		estoqueAlterado(produtosIds);
+		return new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
+	}
 
-			BigDecimal subtotalTipo = acumulado.getKey();
-			Long quantidadeTipo = acumulado.getValue();
+	/**
+	 * A autorização pode ter sido concedida sem que a transação chegasse aqui. Recusa a compra sem convidar a nova
+	 * tentativa (409, não 503), que poderia cobrar duas vezes.
+	 */
+	CompraEmConferenciaException pagamentoIncerto(Long carrinhoId, Cliente cliente, List<Long> produtosIds,
+			List<Long> produtosQtds, ResultadoIncertoException causa) {
+		emConferencia.registrar(ComprasEmConferencia.Operacao.AUTORIZACAO_PAGAMENTO, carrinhoId, cliente.getId(), null,
+				produtosIds, produtosQtds, causa);
+		return new CompraEmConferenciaException("Resultado do pagamento incerto; compra em conferência.", causa);
+	}
 
-			BigDecimal descontoTipo = percentualDescontoPorQuantidade(quantidadeTipo);
-			BigDecimal subtotalComDesconto = aplicarDesconto(subtotalTipo, descontoTipo);
+	/**
+	 * O estoque pode ter baixado: cancelar o pagamento entregaria itens sem cobrança. A compra segue como concluída
+	 * e vai para a conferência.
+	 */
+	CompraDTO baixaIncerta(Long carrinhoId, Cliente cliente, PagamentoDTO pagamento, List<Long> produtosIds,
+			List<Long> produtosQtds, ResultadoIncertoException causa) {
+		emConferencia.registrar(ComprasEmConferencia.Operacao.BAIXA_ESTOQUE, carrinhoId, cliente.getId(),
+				pagamento.transacaoId(), produtosIds, produtosQtds, causa);
+		estoqueAlterado(produtosIds);
+		return new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada; baixa de estoque em conferência.");
+	}
 
-			total = total.add(subtotalComDesconto);
+	/** Desfaz o pagamento de uma compra que não vai seguir por {@code motivo}. */
+	private void cancelarPagamento(Long carrinhoId, Cliente cliente, PagamentoDTO pagamento, List<Long> produtosIds,
+			List<Long> produtosQtds, RuntimeException motivo) {
+		try {
+			pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+		} catch (RuntimeException e) {
+			throw cancelamentoFalhou(carrinhoId, cliente, pagamento, produtosIds, produtosQtds, e, motivo);
 		}
+	}
 
-		return total;
+	/**
+	 * O cancelamento falhou e a cobrança pode continuar autorizada: a compra vai para a conferência e a falha não
+	 * convida a nova tentativa.
+	 */
+	CompraEmConferenciaException cancelamentoFalhou(Long carrinhoId, Cliente cliente, PagamentoDTO pagamento,
+			List<Long> produtosIds, List<Long> produtosQtds, Throwable causa, Throwable motivo) {
+		emConferencia.registrar(ComprasEmConferencia.Operacao.CANCELAMENTO_PAGAMENTO, carrinhoId, cliente.getId(),
+				pagamento.transacaoId(), produtosIds, produtosQtds, causa);
+		CompraEmConferenciaException falha = new CompraEmConferenciaException(
+				"Pagamento não pôde ser cancelado; compra em conferência.", causa);
+		falha.addSuppressed(motivo);
+		return falha;
 	}
 
-	private BigDecimal aplicarDesconto(BigDecimal valor, BigDecimal desconto) {
-		if (valor == null)
-			return ZERO;
-		if (desconto == null)
-			return valor;
-		return valor.subtract(valor.multiply(desconto));
+	private DisponibilidadeDTO aguardarDisponibilidade(Future<DisponibilidadeDTO> disponibilidade, long prazo) {
+		try {
+			return disponibilidade.get(prazo - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			disponibilidade.cancel(true);
+			throw new IllegalStateException("Tempo esgotado ao verificar disponibilidade.");
+		} catch (InterruptedException e) {
+			disponibilidade.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Verificação de disponibilidade interrompida.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			throw new IllegalStateException("Erro ao verificar disponibilidade.", e.getCause());
+		}
 	}
 
-	private Map<TipoProduto, Entry<BigDecimal, Long>> acumularPorTipo(CarrinhoDeCompras carrinho) {
-		Map<TipoProduto, Entry<BigDecimal, Long>> acumulados = new HashMap<>();
+	/**
+	 * Cota vários carrinhos em paralelo no pool de cotações. Carrinhos e clientes são carregados em lote
+	 * antes do cálculo; cada resultado é entregue ao {@code consumidor}, na thread chamadora, assim que
+	 * fica pronto. Um carrinho inválido vira uma cotação com falha, sem interromper o lote.
+	 */
+	public void cotarEmLote(List<CotacaoRequisicaoDTO> requisicoes, Consumer<CotacaoDTO> consumidor) {
+		Set<Long> carrinhoIds = new HashSet<>();
+		Set<Long> clienteIds = new HashSet<>();
+		for (CotacaoRequisicaoDTO requisicao : requisicoes) {
+			if (requisicao != null && requisicao.carrinhoId() != null && requisicao.clienteId() != null) {
+				carrinhoIds.add(requisicao.carrinhoId());
+				clienteIds.add(requisicao.clienteId());
+			}
+		}
+
+		Map<Long, CarrinhoDeCompras> carrinhos = carrinhoIds.isEmpty() ? Map.of()
+				: carrinhoService.buscarPorIds(carrinhoIds);
+		Map<Long, Cliente> clientes = clienteIds.isEmpty() ? Map.of() : clienteService.buscarPorIds(clienteIds);
 
-		for (ItemCompra item : carrinho.getItens()) {
-			Produto produto = item.getProduto();
-			BigDecimal preco = produto.getPreco();
-			TipoProduto tipo = produto.getTipo();
-			Long quantidade = item.getQuantidade();
+		CompletionService<CotacaoDTO> cotacoes = new ExecutorCompletionService<>(poolCotacoes);
+		List<Future<CotacaoDTO>> pendentes = new ArrayList<>(requisicoes.size());
+		try {
+			for (CotacaoRequisicaoDTO requisicao : requisicoes) {
+				pendentes.add(cotacoes.submit(() -> cotar(requisicao, carrinhos, clientes)));
+			}
+			for (int i = 0; i < pendentes.size(); i++) {
+				consumidor.accept(cotacoes.take().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Cotação em lote interrompida.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Erro ao calcular cotação.", e.getCause());
+		} finally {
+			for (Future<CotacaoDTO> pendente : pendentes) {
+				pendente.cancel(true);
+			}
+		}
+	}
 
-			BigDecimal subtotalItem = preco.multiply(BigDecimal.valueOf(quantidade));
+	private CotacaoDTO cotar(CotacaoRequisicaoDTO requisicao, Map<Long, CarrinhoDeCompras> carrinhos,
+			Map<Long, Cliente> clientes) {
+		if (requisicao == null) {
+			return CotacaoDTO.falha(null, null, "Requisição de cotação não pode ser nula.");
+		}
 
-			Entry<BigDecimal, Long> atual = acumulados.get(tipo);
-			if (atual == null) {
-				atual = new SimpleEntry<>(ZERO, 0L);
+		Long carrinhoId = requisicao.carrinhoId();
+		Long clienteId = requisicao.clienteId();
+		try {
+			Cliente cliente = clienteId == null ? null : clientes.get(clienteId);
+			if (cliente == null) {
+				throw new IllegalArgumentException("Cliente não encontrado");
 			}
 
-			BigDecimal novoSubtotal = atual.getKey().add(subtotalItem);
-			Long novaQuantidade = atual.getValue() + quantidade;
+			CarrinhoDeCompras carrinho = carrinhoId == null ? null : carrinhos.get(carrinhoId);
+			if (carrinho == null || carrinho.getCliente() == null
+					|| !clienteId.equals(carrinho.getCliente().getId())) {
+				throw new IllegalArgumentException("Carrinho não encontrado.");
+			}
 
-			acumulados.put(tipo, new SimpleEntry<>(novoSubtotal, novaQuantidade));
+			return CotacaoDTO.sucesso(carrinhoId, clienteId, calcularCustoTotal(carrinho, cliente));
+		} catch (IllegalArgumentException e) {
+			return CotacaoDTO.falha(carrinhoId, clienteId, e.getMessage());
+		} catch (RuntimeException e) {
+			return CotacaoDTO.falha(carrinhoId, clienteId, "Erro ao calcular cotação.");
 		}
-
-		return acumulados;
 	}
 
-	private BigDecimal percentualDescontoPorQuantidade(Long quantidade) {
-		if (quantidade >= 8)
-			return new BigDecimal("0.15");
-		if (quantidade >= 5)
-			return new BigDecimal("0.10");
-		if (quantidade >= 3)
-			return new BigDecimal("0.05");
-		return ZERO;
-	}
+	public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho, Cliente cliente) {
+		RegrasPrecificacao regrasAtuais = regras.atual();
 
-	private BigDecimal percentualDescontoValorTotal(BigDecimal total) {
-		if (total == null)
-			return ZERO;
+		ChaveCotacao chave = cacheCotacoes == null ? null
+				: ChaveCotacao.de(carrinho, cliente, regrasAtuais.getVersao());
+		if (chave == null) {
+			return calcularCustoTotal(carrinho, cliente, regrasAtuais);
+		}
 
-		BigDecimal mil = new BigDecimal("1000.00");
-		BigDecimal quinhentos = new BigDecimal("500.00");
+		BigDecimal custoTotal = cacheCotacoes.buscar(chave);
+		if (custoTotal == null) {
+			custoTotal = calcularCustoTotal(carrinho, cliente, regrasAtuais);
+			cacheCotacoes.guardar(chave, custoTotal);
+		}
+		return custoTotal;
+	}
 
-		boolean gt500 = total.compareTo(quinhentos) > 0;
-		boolean le1000 = total.compareTo(mil) <= 0;
+	private BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho, Cliente cliente,
+			RegrasPrecificacao regrasAtuais) {
+		boolean pontoFixo = motor == MotorPrecificacao.PONTO_FIXO;
+		AcumuladorCarrinho acumulador = totais(carrinho, !pontoFixo);
+		validarClienteParaCalculo(cliente);
 
-		if (gt500 && le1000) {
-			return new BigDecimal("0.10");
-		}
-		if (total.compareTo(mil) > 0) {
-			return new BigDecimal("0.20");
+		if (pontoFixo) {
+			long centavos = precificacaoPontoFixo.calcularCustoTotalEmCentavos(acumulador, cliente, regrasAtuais);
+			if (centavos != PrecificacaoPontoFixo.FORA_DE_ESCALA) {
+				return BigDecimal.valueOf(centavos, 2);
+			}
+			if (!acumulador.comBigDecimal()) {
+				acumulador = totais(carrinho, true);
+			}
 		}
-		return ZERO;
+
+		return calcularComBigDecimal(acumulador, cliente, regrasAtuais);
 	}
 
-	private BigDecimal calcularFreteFinal(CarrinhoDeCompras carrinho, Cliente cliente) {
-		BigDecimal pesoTotal = calcularPesoTotalDaCompra(carrinho);
+	/**
+	 * Como {@link #calcularCustoTotal(CarrinhoDeCompras, Cliente)}, sobre os itens projetados por
+	 * {@link CarrinhoDeComprasService#buscarLinhasParaPrecificacao}: mesmas validações, mensagens e resultado, sem
+	 * entidades gerenciadas. Não passa pelo cache de cotações, cuja chave usa a versão de preço dos produtos.
+	 */
+	public BigDecimal calcularCustoTotalDasLinhas(List<LinhaCarrinhoDTO> linhas, Cliente cliente) {
+		RegrasPrecificacao regrasAtuais = regras.atual();
+		boolean pontoFixo = motor == MotorPrecificacao.PONTO_FIXO;
+		AcumuladorCarrinho acumulador = acumularValidando(linhas, new AcumuladorCarrinho().limpar(!pontoFixo));
+		validarClienteParaCalculo(cliente);
 
-		BigDecimal freteBase = calcularFretePorFaixaDePeso(pesoTotal);
-		BigDecimal adicionalFragil = calcularTaxaFragil(carrinho);
+		if (pontoFixo) {
+			long centavos = precificacaoPontoFixo.calcularCustoTotalEmCentavos(acumulador, cliente, regrasAtuais);
+			if (centavos != PrecificacaoPontoFixo.FORA_DE_ESCALA) {
+				return BigDecimal.valueOf(centavos, 2);
+			}
+			acumulador = acumularValidando(linhas, acumulador.limpar(true));
+		}
 
-		BigDecimal freteComTaxas = freteBase.add(adicionalFragil);
+		return calcularComBigDecimal(acumulador, cliente, regrasAtuais);
+	}
 
-		BigDecimal multiplicador = multiplicadorPorRegiao(cliente.getRegiao());
-		BigDecimal freteRegional = freteComTaxas.multiply(multiplicador);
+	private BigDecimal calcularComBigDecimal(AcumuladorCarrinho acumulador, Cliente cliente,
+			RegrasPrecificacao regrasAtuais) {
+		BigDecimal subtotalComDescontos = calcularCustoProdutos(acumulador, regrasAtuais);
+		BigDecimal freteFinal = calcularFreteFinal(acumulador, cliente, regrasAtuais);
 
-		BigDecimal freteComFidelidade = aplicarFidelidadeNoFrete(freteRegional, cliente.getTipo());
+		BigDecimal total = subtotalComDescontos.add(freteFinal);
+		return total.setScale(2, RoundingMode.HALF_UP);
+	}
 
-		return freteComFidelidade;
+	BigDecimal calcularCustoProdutos(CarrinhoDeCompras carrinho) {
+		return calcularCustoProdutos(totais(carrinho, true), regras.atual());
 	}
 
-	private BigDecimal aplicarFidelidadeNoFrete(BigDecimal frete, TipoCliente tipoCliente) {
-		if (frete == null)
-			return ZERO;
+	private BigDecimal calcularCustoProdutos(AcumuladorCarrinho acumulador, RegrasPrecificacao regrasAtuais) {
+		BigDecimal totalComDescontoPorTipo = calcularTotalComDescontoPorTipo(acumulador, regrasAtuais);
+		BigDecimal totalComDescontoPorValor = calcularTotalComDescontoPorValor(totalComDescontoPorTipo, regrasAtuais);
+
+		return totalComDescontoPorValor;
+	}
 
-		return switch (tipoCliente) {
-			case OURO -> ZERO;
-			case PRATA -> frete.multiply(new BigDecimal("0.50"));
-			case BRONZE -> frete;
-		};
+	private BigDecimal calcularTotalComDescontoPorValor(BigDecimal total, RegrasPrecificacao regrasAtuais) {
+		BigDecimal desconto = regrasAtuais.percentualDescontoPorValor(total);
+		return aplicarDesconto(total, desconto);
 	}
 
-	private BigDecimal calcularPesoTotalDaCompra(CarrinhoDeCompras carrinho) {
+	private BigDecimal calcularTotalComDescontoPorTipo(AcumuladorCarrinho acumulador, RegrasPrecificacao regrasAtuais) {
 		BigDecimal total = ZERO;
 
-		for (ItemCompra item : carrinho.getItens()) {
-			Produto produto = item.getProduto();
-			Long qtd = item.getQuantidade();
+		for (int tipo = 0; tipo < AcumuladorCarrinho.TIPOS; tipo++) {
+			long quantidadeTipo = acumulador.quantidade(tipo);
+			if (quantidadeTipo == 0) {
+				continue;
+			}
+
+			BigDecimal descontoTipo = regrasAtuais.percentualDescontoPorQuantidade(quantidadeTipo);
+			BigDecimal subtotalComDesconto = aplicarDesconto(acumulador.subtotal(tipo), descontoTipo);
 
-			BigDecimal pesoTributavel = calcularPesoTributavel(produto);
-			total = total.add(pesoTributavel.multiply(BigDecimal.valueOf(qtd)));
+			total = total.add(subtotalComDesconto);
 		}
 
 		return total;
 	}
 
-	private BigDecimal calcularPesoTributavel(Produto produto) {
-		BigDecimal pesoFisico = produto.getPesoFisico();
-		BigDecimal comprimento = produto.getComprimento();
-		BigDecimal largura = produto.getLargura();
-		BigDecimal altura = produto.getAltura();
-
-		BigDecimal volume = comprimento.multiply(largura).multiply(altura);
-		BigDecimal pesoCubico = volume.divide(DIVISOR_PESO_CUBICO, 10, RoundingMode.HALF_UP);
-
-		return max(pesoFisico, pesoCubico);
+	private BigDecimal aplicarDesconto(BigDecimal valor, BigDecimal desconto) {
+		if (valor == null)
+			return ZERO;
+		if (desconto == null)
+			return valor;
+		return valor.subtract(valor.multiply(desconto));
 	}
 
-	private BigDecimal calcularFretePorFaixaDePeso(BigDecimal pesoTotal) {
-		if (pesoTotal == null)
-			return ZERO;
+	private BigDecimal calcularFreteFinal(AcumuladorCarrinho acumulador, Cliente cliente,
+			RegrasPrecificacao regrasAtuais) {
+		return calculadoraFrete.calcularFrete(acumulador.pesoTotal(), acumulador.unidadesFrageis(),
+				cliente.getRegiao(), cliente.getTipo(), regrasAtuais);
+	}
 
-		if (pesoTotal.compareTo(new BigDecimal("5.00")) <= 0) {
-			return ZERO;
+	/**
+	 * Totais mantidos pelo carrinho ou, se ele estiver vazio ou tiver item inválido, a passada completa, que
+	 * reporta o erro. Sem BigDecimal os totais do carrinho são só arrays de {@code long}, sem alocação por item.
+	 */
+	private AcumuladorCarrinho totais(CarrinhoDeCompras carrinho, boolean comBigDecimal) {
+		AcumuladorCarrinho totais = carrinho == null ? null : carrinho.totaisParaCalculo(comBigDecimal);
+		if (totais != null) {
+			return totais;
 		}
+		return acumularValidando(carrinho, new AcumuladorCarrinho().limpar(comBigDecimal));
+	}
 
-		BigDecimal frete;
-
-		if (pesoTotal.compareTo(new BigDecimal("10.00")) <= 0) {
-			frete = pesoTotal.multiply(new BigDecimal("2.00"));
-			return frete.add(TAXA_MINIMA_FRETE);
+	/**
+	 * Valida o carrinho e acumula seus itens em uma única passada. As mensagens e a ordem das
+	 * validações são as mesmas de sempre: primeiro o carrinho, depois cada item na ordem da lista.
+	 */
+	private AcumuladorCarrinho acumularValidando(CarrinhoDeCompras carrinho, AcumuladorCarrinho acumulador) {
+		if (carrinho == null) {
+			throw new IllegalArgumentException("Carrinho não pode ser nulo.");
+		}
+		List<ItemCompra> itens = carrinho.getItens();
+		if (itens == null || itens.isEmpty()) {
+			throw new IllegalArgumentException("Carrinho deve possuir pelo menos 1 item.");
 		}
 
-		if (pesoTotal.compareTo(new BigDecimal("50.00")) <= 0) {
-			frete = pesoTotal.multiply(new BigDecimal("4.00"));
-			return frete.add(TAXA_MINIMA_FRETE);
+		for (ItemCompra item : itens) {
+			validarItemParaCalculo(item);
+			acumulador.somar(item.getProduto(), item.getQuantidade());
 		}
 
-		frete = pesoTotal.multiply(new BigDecimal("7.00"));
-		return frete.add(TAXA_MINIMA_FRETE);
+		return acumulador;
 	}
 
-	private BigDecimal calcularTaxaFragil(CarrinhoDeCompras carrinho) {
-		long unidadesFragil = 0;
+	private AcumuladorCarrinho acumularValidando(List<LinhaCarrinhoDTO> linhas, AcumuladorCarrinho acumulador) {
+		if (linhas == null || linhas.isEmpty()) {
+			throw new IllegalArgumentException("Carrinho deve possuir pelo menos 1 item.");
+		}
 
-		for (ItemCompra item : carrinho.getItens()) {
-			Produto p = item.getProduto();
-			if (Boolean.TRUE.equals(p.isFragil())) {
-				unidadesFragil += item.getQuantidade();
+		for (LinhaCarrinhoDTO linha : linhas) {
+			if (linha == null) {
+				throw new IllegalArgumentException("Item do carrinho não pode ser nulo.");
+			}
+			String motivo = linha.motivoInvalidoParaCalculo();
+			if (motivo != null) {
+				throw new IllegalArgumentException(motivo);
 			}
+			acumulador.somar(linha.tipo(), linha.fragil(), linha.precoEmCentavos(), linha.pesoTributavelEscalado(),
+					linha.preco(), linha.pesoTributavel(), linha.quantidade());
 		}
 
-		return TAXA_FRAGIL_POR_UNIDADE.multiply(BigDecimal.valueOf(unidadesFragil));
-	}
-
-	private BigDecimal multiplicadorPorRegiao(Regiao regiao) {
-		if (regiao == null)
-			return new BigDecimal("1.00");
-
-		return switch (regiao) {
-			case SUDESTE -> new BigDecimal("1.00");
-			case SUL -> new BigDecimal("1.05");
-			case NORDESTE -> new BigDecimal("1.10");
-			case CENTRO_OESTE -> new BigDecimal("1.20");
-			case NORTE -> new BigDecimal("1.30");
-		};
-	}
-
-	private void validarEntradaParaCalculo(CarrinhoDeCompras carrinho, Cliente cliente) {
-		validarCarrinhoParaCalculo(carrinho);
-		validarClienteParaCalculo(cliente);
+		return acumulador;
 	}
 
 	private void validarClienteParaCalculo(Cliente cliente) {
@@ -315,66 +578,44 @@ public class CompraService {
 		}
 	}
 
-	private void validarCarrinhoParaCalculo(CarrinhoDeCompras carrinho) {
-		if (carrinho == null) {
-			throw new IllegalArgumentException("Carrinho não pode ser nulo.");
-		}
-		if (carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
-			throw new IllegalArgumentException("Carrinho deve possuir pelo menos 1 item.");
+	private void validarItemParaCalculo(ItemCompra item) {
+		if (item == null) {
+			throw new IllegalArgumentException("Item do carrinho não pode ser nulo.");
 		}
 
-		for (ItemCompra item : carrinho.getItens()) {
-			if (item == null) {
-				throw new IllegalArgumentException("Item do carrinho não pode ser nulo.");
-			}
-
-			Long qtd = item.getQuantidade();
-			if (qtd == null || qtd <= 0) {
-				throw new IllegalArgumentException("Quantidade do item deve ser maior que zero.");
-			}
-
-			Produto produto = item.getProduto();
-			if (produto == null) {
-				throw new IllegalArgumentException("Produto do item não pode ser nulo.");
-			}
-
-			if (produto.getTipo() == null) {
-				throw new IllegalArgumentException("Tipo do produto não pode ser nulo.");
-			}
-
-			BigDecimal preco = produto.getPreco();
-			if (preco == null || preco.compareTo(ZERO) < 0) {
-				throw new IllegalArgumentException("Preço do produto deve ser maior ou igual a zero.");
-			}
-
-			if (produto.getPesoFisico() == null) {
-				throw new IllegalArgumentException("Peso físico do produto não pode ser nulo.");
-			}
-			if (produto.getComprimento() == null || produto.getLargura() == null || produto.getAltura() == null) {
-				throw new IllegalArgumentException("Dimensões do produto não podem ser nulas.");
-			}
-			if (produto.isFragil() == null) {
-				throw new IllegalArgumentException("Flag fragil do produto não pode ser nula.");
-			}
-
-			validarNaoNegativo(produto.getPesoFisico(), "Peso físico do produto deve ser maior ou igual a zero.");
-			validarNaoNegativo(produto.getComprimento(), "Comprimento do produto deve ser maior ou igual a zero.");
-			validarNaoNegativo(produto.getLargura(), "Largura do produto deve ser maior ou igual a zero.");
-			validarNaoNegativo(produto.getAltura(), "Altura do produto deve ser maior ou igual a zero.");
+		String motivo = item.motivoInvalidoParaCalculo();
+		if (motivo != null) {
+			throw new IllegalArgumentException(motivo);
 		}
 	}
 
-	private void validarNaoNegativo(BigDecimal valor, String mensagem) {
-		if (valor != null && valor.compareTo(ZERO) < 0) {
-			throw new IllegalArgumentException(mensagem);
+	/**
+	 * Ids dos produtos ou quantidades dos itens, lidos direto da lista do carrinho: nem cópia nem boxing
+	 * (os valores já são {@code Long} nas entidades). Somente leitura. O tamanho é lido na criação, o que
+	 * carrega uma coleção lazy na thread da transação antes de a visão seguir para o executor.
+	 */
+	static final class ColunaDosItens extends AbstractList<Long> implements RandomAccess {
+
+		private final List<ItemCompra> itens;
+		private final int tamanho;
+		private final boolean ids;
+
+		ColunaDosItens(List<ItemCompra> itens, boolean ids) {
+			this.itens = itens;
+			this.tamanho = itens.size();
+			this.ids = ids;
+		}
+
+		@Override
+		public Long get(int indice) {
+			Objects.checkIndex(indice, tamanho);
+			ItemCompra item = itens.get(indice);
+			return ids ? item.getProduto().getId() : item.getQuantidade();
 		}
-	}
 
-	private static BigDecimal max(BigDecimal a, BigDecimal b) {
-		if (a == null)
-			return b;
-		if (b == null)
-			return a;
-		return a.compareTo(b) >= 0 ? a : b;
+		@Override
+		public int size() {
+			return tamanho;
+		}
 	}
 }
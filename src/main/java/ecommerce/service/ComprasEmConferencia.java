@@ -0,0 +1,90 @@
+package ecommerce.service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Finalizações em que uma escrita no estoque ou no pagamento passou do tempo e pode ter tido efeito, ou em que o
+ * cancelamento do pagamento falhou. Nada é desfeito nelas: cada uma vai para o log, como erro, com carrinho,
+ * cliente e transação, para conferência com os serviços.
+ *
+ * O log é o registro durável. Aqui ficam só as {@code compra.conferencia.maximo-pendencias} mais recentes; as mais
+ * antigas são descartadas quando o limite é atingido.
+ *
+ * Métricas: {@code compra.conferencia.pendentes} e {@code compra.conferencia.descartadas}.
+ */
+@Component
+public class ComprasEmConferencia implements MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(ComprasEmConferencia.class);
+
+	/** Escrita cujo resultado ficou desconhecido ou que não pôde ser desfeita. */
+	public enum Operacao {
+		AUTORIZACAO_PAGAMENTO, BAIXA_ESTOQUE, CANCELAMENTO_PAGAMENTO
+	}
+
+	public record Pendencia(Operacao operacao, Long carrinhoId, Long clienteId, Long transacaoId,
+			List<Long> produtosIds, List<Long> produtosQuantidades, Instant registradaEm) {
+	}
+
+	private final int maximoPendencias;
+	private final Deque<Pendencia> pendencias = new ArrayDeque<>();
+	private final AtomicLong descartadas = new AtomicLong();
+
+	public ComprasEmConferencia(@Value("${compra.conferencia.maximo-pendencias:1000}") int maximoPendencias) {
+		if (maximoPendencias < 1) {
+			throw new IllegalArgumentException("Compras em conferência exigem espaço para ao menos 1 pendência.");
+		}
+		this.maximoPendencias = maximoPendencias;
+	}
+
+	/** {@code transacaoId} é nulo quando a incerteza é a própria autorização do pagamento. */
+	public void registrar(Operacao operacao, Long carrinhoId, Long clienteId, Long transacaoId,
+			List<Long> produtosIds, List<Long> produtosQuantidades, Throwable causa) {
+		Pendencia pendencia = new Pendencia(operacao, carrinhoId, clienteId, transacaoId, List.copyOf(produtosIds),
+				List.copyOf(produtosQuantidades), Instant.now());
+		log.error("Resultado incerto em {}: compra em conferência (carrinho {}, cliente {}, transação {}, produtos {} "
+				+ "quantidades {}).", operacao, carrinhoId, clienteId, transacaoId, pendencia.produtosIds(),
+				pendencia.produtosQuantidades(), causa);
+
+		synchronized (pendencias) {
+			if (pendencias.size() == maximoPendencias) {
+				pendencias.removeFirst();
+				descartadas.incrementAndGet();
+			}
+			pendencias.addLast(pendencia);
+		}
+	}
+
+	/** As pendências guardadas, da mais antiga para a mais recente. */
+	public List<Pendencia> pendentes() {
+		synchronized (pendencias) {
+			return List.copyOf(pendencias);
+		}
+	}
+
+	private int quantidade() {
+		synchronized (pendencias) {
+			return pendencias.size();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("compra.conferencia.pendentes", this, ComprasEmConferencia::quantidade).register(registry);
+		FunctionCounter.builder("compra.conferencia.descartadas", descartadas, AtomicLong::get).register(registry);
+	}
+}
@@ -0,0 +1,42 @@
+package ecommerce.service;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.external.DependenciaIndisponivelException;
+
+/**
+ * Classificação do erro de uma finalização, a mesma em {@code POST /finalizar}, na variante não bloqueante e nos
+ * jobs da {@link FilaCompras}: o controller escolhe o status HTTP por ela e todos usam o mesmo {@link #corpo}.
+ */
+public enum FalhaCompra {
+
+	/** Estoque ou pagamento recusou ou abandonou a chamada; vale tentar de novo. */
+	DEPENDENCIA_INDISPONIVEL,
+	/** Cliente, carrinho ou itens inválidos. */
+	REQUISICAO_INVALIDA,
+	/** Compra recusada: itens fora de estoque, pagamento não autorizado, baixa negada. */
+	RECUSADA,
+	/** Qualquer outro erro; a mensagem não chega ao cliente. */
+	ERRO_INTERNO;
+
+	public static FalhaCompra de(Throwable erro) {
+		Throwable causa = CompraAssincronaService.causa(erro);
+		if (causa instanceof DependenciaIndisponivelException) {
+			return DEPENDENCIA_INDISPONIVEL;
+		}
+		if (causa instanceof IllegalArgumentException) {
+			return REQUISICAO_INVALIDA;
+		}
+		if (causa instanceof IllegalStateException) {
+			return RECUSADA;
+		}
+		return ERRO_INTERNO;
+	}
+
+	/** Corpo da resposta de erro. */
+	public static CompraDTO corpo(Throwable erro) {
+		if (de(erro) == ERRO_INTERNO) {
+			return new CompraDTO(false, null, "Erro ao processar compra.");
+		}
+		return new CompraDTO(false, null, CompraAssincronaService.causa(erro).getMessage());
+	}
+}
@@ -0,0 +1,175 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraJobDTO;
+import ecommerce.dto.CompraJobDTO.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fila de finalizações de compra: {@link #enfileirar} devolve o job na hora e um pool fixo de workers executa
+ * as compras na ordem de chegada. A fila é limitada; cheia, a requisição é recusada em vez de esperar. Jobs
+ * ficam consultáveis por {@code compra.checkout.fila.retencao} depois de enfileirados, até no máximo
+ * {@code compra.checkout.fila.maximo-jobs} jobs.
+ *
+ * No encerramento a fila para de aceitar compras e os workers têm {@code compra.checkout.fila.encerramento} para
+ * terminar as já aceitas; as que não chegaram a começar nesse prazo ficam como {@link Status#FALHOU}. Compras em
+ * andamento não são interrompidas.
+ *
+ * Métricas: {@code compra.fila.tamanho} (jobs aguardando), {@code compra.fila.espera} (tempo entre enfileirar
+ * e um worker começar) e {@code compra.fila.recusas}.
+ */
+@Component
+@ConditionalOnProperty(name = "compra.checkout.fila.habilitada", havingValue = "true")
+public class FilaCompras {
+
+	private static final Logger log = LoggerFactory.getLogger(FilaCompras.class);
+
+	private final ThreadPoolExecutor workers;
+	private final Duration encerramento;
+	private final Cache<String, Job> jobs;
+	private final Timer espera;
+	private final Counter recusas;
+
+	public FilaCompras(
+			@Value("${compra.checkout.fila.workers:8}") int quantidadeWorkers,
+			@Value("${compra.checkout.fila.capacidade:1000}") int capacidade,
+			@Value("${compra.checkout.fila.retencao:10m}") Duration retencao,
+			@Value("${compra.checkout.fila.maximo-jobs:100000}") long maximoJobs,
+			@Value("${compra.checkout.fila.encerramento:30s}") Duration encerramento,
+			MeterRegistry meterRegistry) {
+		// Abaixo disso o limite descartaria jobs ainda na fila ou em execução, que o cliente não poderia consultar.
+		if (maximoJobs < (long) capacidade + quantidadeWorkers) {
+			throw new IllegalArgumentException(
+					"compra.checkout.fila.maximo-jobs deve ser pelo menos capacidade + workers.");
+		}
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("checkout-fila-");
+		fabrica.setDaemon(true);
+		this.workers = new ThreadPoolExecutor(quantidadeWorkers, quantidadeWorkers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacidade), fabrica);
+		this.jobs = Caffeine.newBuilder().expireAfterWrite(retencao).maximumSize(maximoJobs).build();
+		this.encerramento = encerramento;
+
+		BlockingQueue<Runnable> fila = workers.getQueue();
+		Gauge.builder("compra.fila.tamanho", fila, BlockingQueue::size)
+				.description("Finalizações aguardando um worker")
+				.register(meterRegistry);
+		this.espera = Timer.builder("compra.fila.espera")
+				.description("Tempo entre enfileirar a finalização e um worker começar")
+				.register(meterRegistry);
+		this.recusas = Counter.builder("compra.fila.recusas")
+				.description("Finalizações recusadas com a fila cheia")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Enfileira a compra e devolve o job pendente.
+	 *
+	 * @throws RejectedExecutionException se a fila estiver cheia
+	 */
+	public CompraJobDTO enfileirar(Supplier<CompraDTO> compra) {
+		Job job = new Job(UUID.randomUUID().toString(), compra);
+		CompraJobDTO pendente = job.situacao();
+		jobs.put(job.id, job);
+		try {
+			workers.execute(job);
+		} catch (RejectedExecutionException e) {
+			jobs.invalidate(job.id);
+			recusas.increment();
+			throw new RejectedExecutionException("Fila de compras cheia.", e);
+		}
+		return pendente;
+	}
+
+	/** Situação do job, ou {@code null} se ele não existir ou já tiver expirado. */
+	public CompraJobDTO buscar(String jobId) {
+		Job job = jobs.getIfPresent(jobId);
+		return job == null ? null : job.situacao();
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		workers.shutdown();
+		try {
+			if (workers.awaitTermination(encerramento.toNanos(), TimeUnit.NANOSECONDS)) {
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		List<Runnable> naoIniciados = new ArrayList<>();
+		workers.getQueue().drainTo(naoIniciados);
+		for (Runnable job : naoIniciados) {
+			((Job) job).abandonar();
+		}
+		log.warn("Fila de compras encerrada com {} compras não iniciadas e {} em andamento.", naoIniciados.size(),
+				workers.getActiveCount());
+	}
+
+	private final class Job implements Runnable {
+
+		final String id;
+		final long enfileiradoEm = System.nanoTime();
+		private final Supplier<CompraDTO> compra;
+		private volatile Status status = Status.PENDENTE;
+		private volatile CompraDTO resultado;
+
+		Job(String id, Supplier<CompraDTO> compra) {
+			this.id = id;
+			this.compra = compra;
+		}
+
+		@Override
+		public void run() {
+			espera.record(System.nanoTime() - enfileiradoEm, TimeUnit.NANOSECONDS);
+			status = Status.PROCESSANDO;
+			try {
+				resultado = compra.get();
+				status = Status.CONCLUIDA;
+			} catch (Throwable e) {
+				resultado = FalhaCompra.corpo(e);
+				status = Status.FALHOU;
+				if (e instanceof Error erro) {
+					throw erro;
+				}
+			}
+		}
+
+		void abandonar() {
+			resultado = new CompraDTO(false, null, "Compra não processada: serviço encerrando.");
+			status = Status.FALHOU;
+		}
+
+		/** O status é escrito depois do resultado: lido como terminado, o resultado já está visível. */
+		CompraJobDTO situacao() {
+			Status atual = status;
+			boolean terminado = atual == Status.CONCLUIDA || atual == Status.FALHOU;
+			return new CompraJobDTO(id, atual, terminado ? resultado : null);
+		}
+	}
+}
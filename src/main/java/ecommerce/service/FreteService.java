@@ -0,0 +1,53 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+
+import org.springframework.stereotype.Service;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Frete estimado de um produto, sem carrinho. Só a busca do produto vai ao banco; o cálculo usa as tabelas
+ * de frete pré-montadas no snapshot de regras corrente.
+ */
+@Service
+public class FreteService {
+
+	private final ProdutoRepository produtoRepository;
+	private final ProvedorRegrasPrecificacao regras;
+	private final CalculadoraFrete calculadoraFrete = new CalculadoraFrete();
+
+	public FreteService(ProdutoRepository produtoRepository, ProvedorRegrasPrecificacao regras) {
+		this.produtoRepository = produtoRepository;
+		this.regras = regras;
+	}
+
+	/**
+	 * Frete de {@code quantidade} unidades do produto para a região e o tipo de cliente, com 2 casas decimais.
+	 *
+	 * @throws IllegalArgumentException se o produto não existir ou os parâmetros forem inválidos
+	 */
+	public BigDecimal estimarFrete(Long produtoId, long quantidade, Regiao regiao, TipoCliente tipoCliente) {
+		if (quantidade <= 0) {
+			throw new IllegalArgumentException("Quantidade do item deve ser maior que zero.");
+		}
+		if (regiao == null) {
+			throw new IllegalArgumentException("Região do cliente não pode ser nula.");
+		}
+		if (tipoCliente == null) {
+			throw new IllegalArgumentException("Tipo do cliente não pode ser nulo.");
+		}
+
+		Produto produto = produtoRepository.findById(produtoId)
+				.orElseThrow(() -> new IllegalArgumentException("Produto não encontrado."));
+		String motivo = produto.motivoInvalidoParaCalculo();
+		if (motivo != null) {
+			throw new IllegalArgumentException(motivo);
+		}
+
+		return calculadoraFrete.estimarFrete(produto, quantidade, regiao, tipoCliente, regras.atual());
+	}
+}
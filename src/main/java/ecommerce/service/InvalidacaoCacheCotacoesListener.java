@@ -0,0 +1,63 @@
+package ecommerce.service;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import ecommerce.entity.Produto;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Invalida as cotações em cache quando um {@link Produto} é alterado ou removido. Registrado nos eventos do
+ * Hibernate na inicialização, para que a entidade não dependa da camada de serviço; sem {@link CacheCotacoes} no
+ * contexto não faz nada.
+ */
+@Component
+public class InvalidacaoCacheCotacoesListener implements PostUpdateEventListener, PostDeleteEventListener {
+
+	private final ObjectProvider<CacheCotacoes> cacheCotacoes;
+	private final EntityManagerFactory entityManagerFactory;
+
+	public InvalidacaoCacheCotacoesListener(ObjectProvider<CacheCotacoes> cacheCotacoes,
+			EntityManagerFactory entityManagerFactory) {
+		this.cacheCotacoes = cacheCotacoes;
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	@PostConstruct
+	void registrar() {
+		EventListenerRegistry registro = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry().getService(EventListenerRegistry.class);
+		registro.appendListeners(EventType.POST_UPDATE, this);
+		registro.appendListeners(EventType.POST_DELETE, this);
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent evento) {
+		produtoAlterado(evento.getEntity());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent evento) {
+		produtoAlterado(evento.getEntity());
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+
+	private void produtoAlterado(Object entidade) {
+		if (entidade instanceof Produto produto && produto.getId() != null) {
+			cacheCotacoes.ifAvailable(cache -> cache.invalidarProduto(produto.getId()));
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package ecommerce.service;
+
+import java.sql.PreparedStatement;
+import java.util.Objects;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Produto;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Zera os totais gravados dos {@link CarrinhoDeCompras} que têm um {@link Produto} cuja precificação mudou
+ * ({@link Produto#getVersaoPreco()}), na mesma transação da alteração; esses carrinhos refazem os totais no próximo
+ * uso. Registrado nos eventos do Hibernate na inicialização, como {@link InvalidacaoCacheCotacoesListener}.
+ */
+@Component
+public class InvalidacaoTotaisCarrinhoListener implements PostUpdateEventListener {
+
+	private static final String ZERAR_TOTAIS = "update carrinho_de_compras set totais = null "
+			+ "where totais is not null and id in (select carrinho_id from item_compra where produto_id = ?)";
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	public InvalidacaoTotaisCarrinhoListener(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	@PostConstruct
+	void registrar() {
+		entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+				.getService(EventListenerRegistry.class).appendListeners(EventType.POST_UPDATE, this);
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent evento) {
+		if (!(evento.getEntity() instanceof Produto produto) || produto.getId() == null
+				|| !alterouPrecificacao(evento)) {
+			return;
+		}
+
+		evento.getSession().doWork(conexao -> {
+			try (PreparedStatement comando = conexao.prepareStatement(ZERAR_TOTAIS)) {
+				comando.setLong(1, produto.getId());
+				comando.executeUpdate();
+			}
+		});
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+
+	/** Sem o estado anterior (entidade não carregada na sessão), trata como alterada. */
+	private static boolean alterouPrecificacao(PostUpdateEvent evento) {
+		if (evento.getOldState() == null) {
+			return true;
+		}
+		int versao = evento.getPersister().getPropertyIndex("versaoPreco");
+		return !Objects.equals(evento.getOldState()[versao], evento.getState()[versao]);
+	}
+}
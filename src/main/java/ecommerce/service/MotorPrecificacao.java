@@ -0,0 +1,14 @@
+package ecommerce.service;
+
+/**
+ * Implementação usada por {@link CompraService#calcularCustoTotal}, selecionada por
+ * {@code compra.precificacao.motor}.
+ */
+public enum MotorPrecificacao
+{
+	/** Cálculo de referência com {@link java.math.BigDecimal}. */
+	BIG_DECIMAL,
+
+	/** Cálculo em {@code long} escalado ({@link PrecificacaoPontoFixo}), com retorno ao BigDecimal fora da escala. */
+	PONTO_FIXO
+}
@@ -0,0 +1,227 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+
+import ecommerce.entity.AcumuladorCarrinho;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+
+/**
+ * Mesmas regras de {@link CompraService#calcularCustoTotal}, calculadas em {@code long} escalado.
+ *
+ * Unidades: preço em centavos, peso em 10^-10 kg (escala do peso cúbico), percentuais inteiros.
+ * Todos os produtos intermediários são exatos, então o único arredondamento é o HALF_UP final para
+ * centavos, como no caminho BigDecimal. Quando algum valor não cabe na escala ou há overflow,
+ * devolve {@link #FORA_DE_ESCALA} e o chamador usa o caminho de referência.
+ *
+ * Consome os totais de um {@link AcumuladorCarrinho} já validado.
+ */
+final class PrecificacaoPontoFixo {
+
+	static final long FORA_DE_ESCALA = Produto.FORA_DE_ESCALA;
+
+	/** Maior escala total do frete que ainda permite somar os restos sem overflow. */
+	private static final int ESCALA_MAXIMA_FRETE = 10;
+
+	private static final long[] POTENCIAS_DE_10 = new long[19];
+
+	static {
+		POTENCIAS_DE_10[0] = 1;
+		for (int i = 1; i < POTENCIAS_DE_10.length; i++) {
+			POTENCIAS_DE_10[i] = POTENCIAS_DE_10[i - 1] * 10;
+		}
+	}
+
+	long calcularCustoTotalEmCentavos(AcumuladorCarrinho acumulador, Cliente cliente, RegrasPrecificacao regras) {
+		Tabela tabela = regras.tabelaPontoFixo();
+		if (tabela == null || !acumulador.pontoFixoValido()) {
+			return FORA_DE_ESCALA;
+		}
+
+		try {
+			long produtos = tabela.calcularCustoProdutos(acumulador);
+			long frete = tabela.calcularFrete(acumulador.pesoTotalEscalado(), acumulador.unidadesFrageis());
+
+			int regiao = cliente.getRegiao().ordinal();
+			int tipoCliente = cliente.getTipo().ordinal();
+			long freteFinal = Math.multiplyExact(frete, tabela.fatorFrete[regiao][tipoCliente]);
+
+			return somarEArredondar(produtos, freteFinal, tabela.escalaFreteFinal[regiao][tipoCliente]);
+		} catch (ArithmeticException overflow) {
+			return FORA_DE_ESCALA;
+		}
+	}
+
+	/**
+	 * Frete final de {@code quantidade} unidades com peso unitário {@code pesoEscalado} (10^-10 kg), arredondado
+	 * HALF_UP para centavos, ou {@link #FORA_DE_ESCALA}.
+	 */
+	long calcularFreteEmCentavos(long pesoEscalado, long quantidade, long unidadesFrageis, Regiao regiao,
+			TipoCliente tipoCliente, RegrasPrecificacao regras) {
+		Tabela tabela = regras.tabelaPontoFixo();
+		if (tabela == null || pesoEscalado == FORA_DE_ESCALA) {
+			return FORA_DE_ESCALA;
+		}
+
+		try {
+			long frete = tabela.calcularFrete(Math.multiplyExact(pesoEscalado, quantidade), unidadesFrageis);
+
+			int r = regiao.ordinal();
+			int t = tipoCliente.ordinal();
+			return somarEArredondar(0, Math.multiplyExact(frete, tabela.fatorFrete[r][t]), tabela.escalaFreteFinal[r][t]);
+		} catch (ArithmeticException overflow) {
+			return FORA_DE_ESCALA;
+		}
+	}
+
+	/**
+	 * Soma produtos (10^-6 reais) e frete (10^-(10 + escalaFrete) reais) e arredonda HALF_UP para
+	 * centavos, separando as partes inteiras em centavos para não estourar o {@code long}.
+	 */
+	private static long somarEArredondar(long produtos, long frete, int escalaFrete) {
+		long unidadesPorCentavoFrete = POTENCIAS_DE_10[8 + escalaFrete];
+
+		long centavos = Math.addExact(produtos / 10_000, frete / unidadesPorCentavoFrete);
+		long resto = (produtos % 10_000) * POTENCIAS_DE_10[4 + escalaFrete] + frete % unidadesPorCentavoFrete;
+
+		centavos += resto / unidadesPorCentavoFrete;
+		if ((resto % unidadesPorCentavoFrete) * 2 >= unidadesPorCentavoFrete) {
+			centavos++;
+		}
+		return centavos;
+	}
+
+	/**
+	 * Regras de um {@link RegrasPrecificacao} convertidas para {@code long}, montadas uma vez por snapshot.
+	 *
+	 * Percentuais em centésimos, limites de valor em 10^-4 reais, limites de peso em 10^-10 kg. Os valores
+	 * de frete usam a menor escala {@code s} que representa todos eles exatamente: valor por kg em 10^-s
+	 * reais e taxas em 10^-(10 + s) reais.
+	 */
+	static final class Tabela {
+
+		private final long[] quantidadesMinimas;
+		private final long[] percentuaisPorQuantidade;
+		private final long[] limitesValor;
+		private final long[] percentuaisPorValor;
+
+		private final long[] limitesPeso;
+		private final long[] valorPorKg;
+		private final long[] taxaFixa;
+		private final long taxaFragil;
+
+		/** Fator regional x fidelidade por [regiao][tipoCliente] como {@code numerador / 10^escala}. */
+		private final long[][] fatorFrete;
+		/** Escala do frete final (escala dos valores de frete + escala do fator). */
+		private final int[][] escalaFreteFinal;
+
+		private Tabela(RegrasPrecificacao regras) {
+			quantidadesMinimas = regras.quantidadesMinimas().clone();
+			percentuaisPorQuantidade = escalar(regras.percentuaisPorQuantidade(), 2);
+			limitesValor = escalar(regras.limitesValor(), 4);
+			percentuaisPorValor = escalar(regras.percentuaisPorValor(), 2);
+			limitesPeso = escalar(regras.limitesPeso(), Produto.ESCALA_PESO);
+
+			int faixas = regras.quantidadeFaixas();
+			int escalaFrete = Math.max(0, regras.taxaFragil().stripTrailingZeros().scale());
+			for (int i = 0; i < faixas; i++) {
+				escalaFrete = Math.max(escalaFrete, regras.valorPorKg(i).stripTrailingZeros().scale());
+				escalaFrete = Math.max(escalaFrete, regras.taxaFixa(i).stripTrailingZeros().scale());
+			}
+
+			valorPorKg = new long[faixas];
+			taxaFixa = new long[faixas];
+			for (int i = 0; i < faixas; i++) {
+				valorPorKg[i] = escalar(regras.valorPorKg(i), escalaFrete);
+				taxaFixa[i] = escalar(regras.taxaFixa(i), Produto.ESCALA_PESO + escalaFrete);
+			}
+			taxaFragil = escalar(regras.taxaFragil(), Produto.ESCALA_PESO + escalaFrete);
+
+			fatorFrete = new long[Regiao.values().length][TipoCliente.values().length];
+			escalaFreteFinal = new int[Regiao.values().length][TipoCliente.values().length];
+			for (Regiao regiao : Regiao.values()) {
+				for (TipoCliente tipo : TipoCliente.values()) {
+					BigDecimal fator = regras.multiplicador(regiao).multiply(regras.fidelidade(tipo));
+					int escalaFator = fator.signum() == 0 ? 0 : Math.max(0, fator.stripTrailingZeros().scale());
+					int escalaTotal = escalaFrete + escalaFator;
+					if (escalaTotal > ESCALA_MAXIMA_FRETE) {
+						throw new ArithmeticException("Escala do frete acima do suportado.");
+					}
+
+					fatorFrete[regiao.ordinal()][tipo.ordinal()] = fator.movePointRight(escalaFator).longValueExact();
+					escalaFreteFinal[regiao.ordinal()][tipo.ordinal()] = escalaTotal;
+				}
+			}
+		}
+
+		/** Monta a tabela, ou devolve {@code null} se alguma regra não for representável. */
+		static Tabela de(RegrasPrecificacao regras) {
+			try {
+				return new Tabela(regras);
+			} catch (ArithmeticException e) {
+				return null;
+			}
+		}
+
+		/** Subtotal com descontos por tipo e por valor, em 10^-6 reais. */
+		long calcularCustoProdutos(AcumuladorCarrinho acumulador) {
+			long total = 0;
+			for (int tipo = 0; tipo < AcumuladorCarrinho.TIPOS; tipo++) {
+				long desconto = percentualDescontoPorQuantidade(acumulador.quantidade(tipo));
+				total = Math.addExact(total, Math.multiplyExact(acumulador.subtotalEmCentavos(tipo), 100 - desconto));
+			}
+
+			return Math.multiplyExact(total, 100 - percentualDescontoPorValor(total));
+		}
+
+		/** Frete antes dos fatores de região e fidelidade, em 10^-(10 + s) reais. */
+		long calcularFrete(long pesoTotal, long unidadesFrageis) {
+			int faixa = faixaDePeso(pesoTotal);
+
+			long freteBase = Math.addExact(Math.multiplyExact(pesoTotal, valorPorKg[faixa]), taxaFixa[faixa]);
+			return Math.addExact(freteBase, Math.multiplyExact(unidadesFrageis, taxaFragil));
+		}
+
+		private long percentualDescontoPorQuantidade(long quantidade) {
+			for (int i = quantidadesMinimas.length - 1; i >= 0; i--) {
+				if (quantidade >= quantidadesMinimas[i]) {
+					return percentuaisPorQuantidade[i];
+				}
+			}
+			return 0;
+		}
+
+		/** {@code total} em 10^-4 reais. */
+		private long percentualDescontoPorValor(long total) {
+			for (int i = limitesValor.length - 1; i >= 0; i--) {
+				if (total > limitesValor[i]) {
+					return percentuaisPorValor[i];
+				}
+			}
+			return 0;
+		}
+
+		private int faixaDePeso(long pesoTotal) {
+			for (int i = 0; i < limitesPeso.length; i++) {
+				if (pesoTotal <= limitesPeso[i]) {
+					return i;
+				}
+			}
+			return limitesPeso.length;
+		}
+
+		private static long[] escalar(BigDecimal[] valores, int escala) {
+			long[] escalados = new long[valores.length];
+			for (int i = 0; i < valores.length; i++) {
+				escalados[i] = escalar(valores[i], escala);
+			}
+			return escalados;
+		}
+
+		private static long escalar(BigDecimal valor, int escala) {
+			return valor.movePointRight(escala).longValueExact();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package ecommerce.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import ecommerce.entity.Produto;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Preenche, na subida da aplicação, o peso tributável dos produtos gravados antes de a coluna existir.
+ * Processa em lotes; cada lote é gravado na própria transação do {@code saveAll}.
+ */
+@Component
+public class PreenchimentoPesoTributavel implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(PreenchimentoPesoTributavel.class);
+
+	private final ProdutoRepository repository;
+	private final int tamanhoLote;
+
+	public PreenchimentoPesoTributavel(
+			ProdutoRepository repository,
+			@Value("${compra.peso-tributavel.lote-preenchimento:500}") int tamanhoLote) {
+		this.repository = repository;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		preencher();
+	}
+
+	/** @return quantidade de produtos atualizados */
+	public long preencher() {
+		long atualizados = 0;
+
+		List<Produto> lote = repository.findSemPesoTributavel(PageRequest.of(0, tamanhoLote));
+		while (!lote.isEmpty()) {
+			for (Produto produto : lote) {
+				produto.atualizarPesoTributavel();
+			}
+			repository.saveAll(lote);
+			atualizados += lote.size();
+
+			lote = repository.findSemPesoTributavel(PageRequest.of(0, tamanhoLote));
+		}
+
+		if (atualizados > 0) {
+			log.info("Peso tributável preenchido em {} produtos.", atualizados);
+		}
+		return atualizados;
+	}
+}
@@ -0,0 +1,83 @@
+package ecommerce.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mantém o snapshot corrente de {@link RegrasPrecificacao} (copy-on-write).
+ *
+ * Leituras são um único acesso volátil; {@link #recarregar()} monta o novo snapshot fora do caminho
+ * das cotações e só então o publica. Se o arquivo for inválido, o snapshot anterior continua valendo.
+ */
+@Component
+public class ProvedorRegrasPrecificacao {
+
+	static final String ARQUIVO_PADRAO = "regras-precificacao.properties";
+
+	private final Resource origem;
+	private long ultimaVersao;
+	private volatile RegrasPrecificacao atual;
+
+	@Autowired
+	public ProvedorRegrasPrecificacao(
+			ResourceLoader resourceLoader,
+			@Value("${compra.precificacao.regras:classpath:" + ARQUIVO_PADRAO + "}") String local) {
+		this(resourceLoader.getResource(local));
+	}
+
+	public ProvedorRegrasPrecificacao(Resource origem) {
+		this.origem = origem;
+		this.atual = ler();
+	}
+
+	/** Regras do arquivo padrão do classpath, compartilhadas por instâncias criadas fora do Spring. */
+	static ProvedorRegrasPrecificacao padrao() {
+		return Padrao.INSTANCIA;
+	}
+
+	public RegrasPrecificacao atual() {
+		return atual;
+	}
+
+	/**
+	 * Relê o arquivo de regras e publica o novo snapshot. Cotações em andamento terminam com o anterior.
+	 *
+	 * @throws IllegalArgumentException se o arquivo tiver regras ausentes ou inválidas
+	 */
+	public synchronized RegrasPrecificacao recarregar() {
+		RegrasPrecificacao novas = ler();
+		atual = novas;
+		return novas;
+	}
+
+	private synchronized RegrasPrecificacao ler() {
+		Properties propriedades = new Properties();
+		try (InputStream entrada = origem.getInputStream();
+				Reader leitor = new InputStreamReader(entrada, StandardCharsets.UTF_8)) {
+			propriedades.load(leitor);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível ler as regras de precificação em " + origem + ".", e);
+		}
+
+		RegrasPrecificacao regras = RegrasPrecificacao.de(propriedades, ultimaVersao + 1, origem.getDescription());
+		ultimaVersao = regras.getVersao();
+		return regras;
+	}
+
+	private static final class Padrao {
+		static final ProvedorRegrasPrecificacao INSTANCIA = new ProvedorRegrasPrecificacao(
+				new ClassPathResource(ARQUIVO_PADRAO));
+	}
+}
@@ -0,0 +1,291 @@
+package ecommerce.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CompraIdempotente;
+import ecommerce.repository.CompraIdempotenteRepository;
+
+/**
+ * Finalizações de compra por {@code Idempotency-Key}. A primeira requisição com uma chave executa a compra;
+ * repetições recebem o mesmo {@link CompraDTO}, e repetições simultâneas esperam a execução em andamento em vez
+ * de rodar de novo, por até {@code compra.idempotencia.espera}. Se a execução falhar, quem esperava recebe a mesma
+ * exceção. A chave fica livre para uma nova tentativa só quando a falha não deixou cobrança: erro antes do
+ * pagamento, pagamento negado ou já cancelado. Uma {@link CompraEmConferenciaException} ou um erro não classificado
+ * (que pode ter vindo depois da autorização) fica guardado como resultado final da chave.
+ *
+ * As chaves ficam em faixas independentes (uma potência de 2), cada uma com seu lock e seu limite LRU, por até
+ * {@code compra.idempotencia.expiracao}; o LRU nunca descarta uma execução em andamento. Com
+ * {@code compra.idempotencia.persistir=true} o resultado também é gravado em {@link CompraIdempotente}, consultada
+ * quando a chave não está na memória (por exemplo, depois de um reinício); uma falha final gravada volta como
+ * {@link CompraEmConferenciaException}. Se a gravação falhar, a chave continua na memória com o resultado e a falha
+ * é registrada no log.
+ */
+@Component
+public class RegistroIdempotencia {
+
+	private static final Logger log = LoggerFactory.getLogger(RegistroIdempotencia.class);
+
+	static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+	private final Faixa[] faixas;
+	private final Duration expiracao;
+	private final Duration espera;
+	private final CompraIdempotenteRepository repository;
+	private final Clock relogio;
+
+	@Autowired
+	public RegistroIdempotencia(
+			@Value("${compra.idempotencia.faixas:16}") int faixas,
+			@Value("${compra.idempotencia.tamanho-maximo:100000}") int tamanhoMaximo,
+			@Value("${compra.idempotencia.expiracao:24h}") Duration expiracao,
+			@Value("${compra.idempotencia.espera:30s}") Duration espera,
+			@Value("${compra.idempotencia.persistir:false}") boolean persistir,
+			CompraIdempotenteRepository repository) {
+		this(faixas, tamanhoMaximo, expiracao, espera, persistir ? repository : null, Clock.systemUTC());
+	}
+
+	/** {@code repository} nulo mantém as chaves só em memória. */
+	RegistroIdempotencia(int faixas, int tamanhoMaximo, Duration expiracao, Duration espera,
+			@Nullable CompraIdempotenteRepository repository, Clock relogio) {
+		if (faixas < 1 || Integer.bitCount(faixas) != 1) {
+			throw new IllegalArgumentException("Quantidade de faixas de idempotência deve ser potência de 2.");
+		}
+		if (tamanhoMaximo < faixas) {
+			throw new IllegalArgumentException("Registro de idempotência exige ao menos 1 chave por faixa.");
+		}
+		this.faixas = new Faixa[faixas];
+		for (int i = 0; i < faixas; i++) {
+			this.faixas[i] = new Faixa(tamanhoMaximo / faixas);
+		}
+		this.expiracao = expiracao;
+		this.espera = espera;
+		this.repository = repository;
+		this.relogio = relogio;
+	}
+
+	/**
+	 * Resultado da compra identificada por {@code chave}, executando {@code compra} só se a chave for nova.
+	 *
+	 * @throws IllegalArgumentException se a chave for inválida ou já tiver sido usada com outro carrinho ou
+	 *         cliente
+	 */
+	public CompraDTO executar(String chave, Long carrinhoId, Long clienteId, Supplier<CompraDTO> compra) {
+		validarChave(chave);
+
+		Instant agora = relogio.instant();
+		Execucao nova = new Execucao(carrinhoId, clienteId, agora.plus(expiracao));
+		Faixa faixa = faixa(chave);
+		Execucao existente;
+		synchronized (faixa) {
+			existente = faixa.get(chave);
+			if (existente == null || existente.expirada(agora)) {
+				faixa.put(chave, nova);
+				existente = null;
+			}
+		}
+
+		if (existente != null) {
+			existente.validarRequisicao(carrinhoId, clienteId);
+			return existente.aguardar(espera);
+		}
+
+		CompraDTO compraDTO;
+		boolean executada = false;
+		try {
+			compraDTO = buscarPersistida(chave, carrinhoId, clienteId, agora);
+			if (compraDTO == null) {
+				executada = true;
+				compraDTO = compra.get();
+			}
+		} catch (RuntimeException | Error e) {
+			if (executada ? podeTerCobrado(e) : e instanceof CompraEmConferenciaException) {
+				nova.resultado.completeExceptionally(e);
+				if (executada) {
+					persistir(chave, carrinhoId, clienteId, FalhaCompra.corpo(e), agora);
+				}
+			} else {
+				synchronized (faixa) {
+					faixa.remove(chave, nova);
+				}
+				nova.resultado.completeExceptionally(e);
+			}
+			throw e;
+		}
+
+		// A compra já aconteceu: daqui em diante a chave não pode ser liberada, ou uma nova tentativa cobraria de novo.
+		nova.resultado.complete(compraDTO);
+		if (executada) {
+			persistir(chave, carrinhoId, clienteId, compraDTO, agora);
+		}
+		return compraDTO;
+	}
+
+	/**
+	 * A compra pode ter deixado uma cobrança: pagamento incerto ou não cancelado, ou um erro fora das falhas
+	 * conhecidas da finalização, que não diz em que ponto ela parou.
+	 */
+	private static boolean podeTerCobrado(Throwable erro) {
+		return CompraAssincronaService.causa(erro) instanceof CompraEmConferenciaException
+				|| FalhaCompra.de(erro) == FalhaCompra.ERRO_INTERNO;
+	}
+
+	int tamanho() {
+		int tamanho = 0;
+		for (Faixa faixa : faixas) {
+			synchronized (faixa) {
+				tamanho += faixa.size();
+			}
+		}
+		return tamanho;
+	}
+
+	private Faixa faixa(String chave) {
+		int hash = chave.hashCode();
+		return faixas[(hash ^ (hash >>> 16)) & (faixas.length - 1)];
+	}
+
+	private CompraDTO buscarPersistida(String chave, Long carrinhoId, Long clienteId, Instant agora) {
+		if (repository == null) {
+			return null;
+		}
+
+		CompraIdempotente registro = repository.findById(chave).orElse(null);
+		if (registro == null || !registro.getCriadaEm().plus(expiracao).isAfter(agora)) {
+			return null;
+		}
+		if (!Objects.equals(registro.getCarrinhoId(), carrinhoId) || !Objects.equals(registro.getClienteId(), clienteId)) {
+			throw new IllegalArgumentException("Idempotency-Key já usada em outra compra.");
+		}
+		if (!Boolean.TRUE.equals(registro.getSucesso())) {
+			throw new CompraEmConferenciaException(registro.getMensagem(), null);
+		}
+		return new CompraDTO(registro.getSucesso(), registro.getTransacaoPagamentoId(), registro.getMensagem());
+	}
+
+	/** Falha ao gravar fica só no log: a chave continua na memória, mas não sobrevive a um reinício. */
+	private void persistir(String chave, Long carrinhoId, Long clienteId, CompraDTO compraDTO, Instant agora) {
+		if (repository == null) {
+			return;
+		}
+		try {
+			repository.save(new CompraIdempotente(chave, carrinhoId, clienteId, compraDTO.sucesso(),
+					compraDTO.transacaoPagamentoId(), compraDTO.mensagem(), agora));
+		} catch (RuntimeException e) {
+			log.warn("Resultado da compra com Idempotency-Key {} (carrinho {}, cliente {}, transação {}) não gravado; "
+					+ "a chave vale só na memória desta instância.", chave, carrinhoId, clienteId,
+					compraDTO.transacaoPagamentoId(), e);
+		}
+	}
+
+	private static void validarChave(String chave) {
+		if (chave == null || chave.isBlank()) {
+			throw new IllegalArgumentException("Idempotency-Key não pode ser vazia.");
+		}
+		if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+			throw new IllegalArgumentException(
+					"Idempotency-Key deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+		}
+	}
+
+	/** Execução em andamento ou concluída de uma chave. */
+	private static final class Execucao {
+
+		final Long carrinhoId;
+		final Long clienteId;
+		final Instant expiraEm;
+		final CompletableFuture<CompraDTO> resultado = new CompletableFuture<>();
+
+		Execucao(Long carrinhoId, Long clienteId, Instant expiraEm) {
+			this.carrinhoId = carrinhoId;
+			this.clienteId = clienteId;
+			this.expiraEm = expiraEm;
+		}
+
+		boolean expirada(Instant agora) {
+			return !expiraEm.isAfter(agora);
+		}
+
+		void validarRequisicao(Long carrinhoId, Long clienteId) {
+			if (!Objects.equals(this.carrinhoId, carrinhoId) || !Objects.equals(this.clienteId, clienteId)) {
+				throw new IllegalArgumentException("Idempotency-Key já usada em outra compra.");
+			}
+		}
+
+		boolean emAndamento() {
+			return !resultado.isDone();
+		}
+
+		CompraDTO aguardar(Duration espera) {
+			try {
+				return resultado.get(espera.toNanos(), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				throw new IllegalStateException("Compra com esta Idempotency-Key ainda em andamento.");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Espera pela compra em andamento interrompida.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException causa) {
+					throw causa;
+				}
+				if (e.getCause() instanceof Error causa) {
+					throw causa;
+				}
+				throw new IllegalStateException("Erro ao processar compra.", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Chaves de uma faixa em ordem de acesso; acima da capacidade sai a menos recente já concluída. Execuções em
+	 * andamento ficam, mesmo que a faixa passe da capacidade por um tempo.
+	 */
+	private static final class Faixa extends LinkedHashMap<String, Execucao> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacidade;
+
+		Faixa(int capacidade) {
+			super(16, 0.75f, true);
+			this.capacidade = capacidade;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Execucao> maisAntiga) {
+			if (size() <= capacidade) {
+				return false;
+			}
+			if (!maisAntiga.getValue().emAndamento()) {
+				return true;
+			}
+
+			Iterator<Execucao> execucoes = values().iterator();
+			while (execucoes.hasNext()) {
+				if (!execucoes.next().emAndamento()) {
+					execucoes.remove();
+					break;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Properties;
+
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+
+/**
+ * Snapshot imutável das regras de desconto e frete, pré-montado em tabelas de limites ordenados e
+ * {@link EnumMap}s. Uma cotação lê o snapshot uma única vez, então uma recarga nunca mistura regras
+ * antigas e novas no mesmo cálculo.
+ */
+public final class RegrasPrecificacao {
+
+	private static final String DESCONTO_QUANTIDADE = "desconto.quantidade";
+	private static final String DESCONTO_VALOR = "desconto.valor";
+	private static final String FRETE_FAIXAS = "frete.faixas";
+	private static final String FRETE_TAXA_FRAGIL = "frete.taxa-fragil";
+	private static final String FRETE_REGIAO = "frete.regiao.";
+	private static final String FRETE_FIDELIDADE = "frete.fidelidade.";
+	private static final String FAIXA_ABERTA = "*";
+
+	private final long versao;
+	private final Instant carregadaEm;
+	private final String origem;
+
+	/** Quantidades mínimas em ordem crescente e o percentual correspondente. */
+	private final long[] quantidadesMinimas;
+	private final BigDecimal[] percentuaisPorQuantidade;
+
+	/** Limites de valor (exclusivos) em ordem crescente e o percentual correspondente. */
+	private final BigDecimal[] limitesValor;
+	private final BigDecimal[] percentuaisPorValor;
+
+	/** Limites superiores (inclusivos) das faixas de peso; a última faixa não tem limite. */
+	private final BigDecimal[] limitesPeso;
+	private final BigDecimal[] valorPorKg;
+	private final BigDecimal[] taxaFixa;
+	private final BigDecimal taxaFragil;
+
+	private final EnumMap<Regiao, BigDecimal> multiplicadorPorRegiao;
+	private final EnumMap<TipoCliente, BigDecimal> fidelidadePorTipoCliente;
+
+	/** Frete pré-multiplicado por faixa, região e fidelidade. */
+	private final CalculadoraFrete.Tabela tabelaFrete;
+
+	/** Mesmas regras em {@code long} escalado, ou {@code null} se alguma não couber na escala. */
+	private final PrecificacaoPontoFixo.Tabela tabelaPontoFixo;
+
+	private RegrasPrecificacao(long versao, String origem, Properties propriedades) {
+		this.versao = versao;
+		this.carregadaEm = Instant.now();
+		this.origem = origem;
+
+		String[][] quantidade = pares(propriedades, DESCONTO_QUANTIDADE, 2);
+		this.quantidadesMinimas = new long[quantidade.length];
+		this.percentuaisPorQuantidade = new BigDecimal[quantidade.length];
+		for (int i = 0; i < quantidade.length; i++) {
+			quantidadesMinimas[i] = Long.parseLong(quantidade[i][0]);
+			percentuaisPorQuantidade[i] = percentual(quantidade[i][1], DESCONTO_QUANTIDADE);
+			if (quantidadesMinimas[i] <= 0 || (i > 0 && quantidadesMinimas[i] <= quantidadesMinimas[i - 1])) {
+				throw invalida(DESCONTO_QUANTIDADE, "quantidades devem ser positivas e crescentes");
+			}
+		}
+
+		String[][] valor = pares(propriedades, DESCONTO_VALOR, 2);
+		this.limitesValor = new BigDecimal[valor.length];
+		this.percentuaisPorValor = new BigDecimal[valor.length];
+		for (int i = 0; i < valor.length; i++) {
+			limitesValor[i] = naoNegativo(valor[i][0], DESCONTO_VALOR);
+			percentuaisPorValor[i] = percentual(valor[i][1], DESCONTO_VALOR);
+			if (i > 0 && limitesValor[i].compareTo(limitesValor[i - 1]) <= 0) {
+				throw invalida(DESCONTO_VALOR, "limites devem ser crescentes");
+			}
+		}
+
+		String[][] faixas = pares(propriedades, FRETE_FAIXAS, 3);
+		if (faixas.length == 0 || !FAIXA_ABERTA.equals(faixas[faixas.length - 1][0])) {
+			throw invalida(FRETE_FAIXAS, "a última faixa deve ter limite '" + FAIXA_ABERTA + "'");
+		}
+		this.limitesPeso = new BigDecimal[faixas.length - 1];
+		this.valorPorKg = new BigDecimal[faixas.length];
+		this.taxaFixa = new BigDecimal[faixas.length];
+		for (int i = 0; i < faixas.length; i++) {
+			if (i < limitesPeso.length) {
+				limitesPeso[i] = naoNegativo(faixas[i][0], FRETE_FAIXAS);
+				if (i > 0 && limitesPeso[i].compareTo(limitesPeso[i - 1]) <= 0) {
+					throw invalida(FRETE_FAIXAS, "limites devem ser crescentes");
+				}
+			}
+			valorPorKg[i] = naoNegativo(faixas[i][1], FRETE_FAIXAS);
+			taxaFixa[i] = naoNegativo(faixas[i][2], FRETE_FAIXAS);
+		}
+
+		this.taxaFragil = naoNegativo(obrigatoria(propriedades, FRETE_TAXA_FRAGIL), FRETE_TAXA_FRAGIL);
+
+		this.multiplicadorPorRegiao = new EnumMap<>(Regiao.class);
+		for (Regiao regiao : Regiao.values()) {
+			String chave = FRETE_REGIAO + regiao.name();
+			multiplicadorPorRegiao.put(regiao, naoNegativo(obrigatoria(propriedades, chave), chave));
+		}
+
+		this.fidelidadePorTipoCliente = new EnumMap<>(TipoCliente.class);
+		for (TipoCliente tipo : TipoCliente.values()) {
+			String chave = FRETE_FIDELIDADE + tipo.name();
+			fidelidadePorTipoCliente.put(tipo, naoNegativo(obrigatoria(propriedades, chave), chave));
+		}
+
+		this.tabelaFrete = new CalculadoraFrete.Tabela(this);
+		this.tabelaPontoFixo = PrecificacaoPontoFixo.Tabela.de(this);
+	}
+
+	/**
+	 * Monta as regras a partir das propriedades do arquivo de regras.
+	 *
+	 * @throws IllegalArgumentException se alguma regra estiver ausente ou inválida
+	 */
+	static RegrasPrecificacao de(Properties propriedades, long versao, String origem) {
+		try {
+			return new RegrasPrecificacao(versao, origem, propriedades);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Regra de precificação inválida: valor numérico mal formado.", e);
+		}
+	}
+
+	BigDecimal percentualDescontoPorQuantidade(long quantidade) {
+		for (int i = quantidadesMinimas.length - 1; i >= 0; i--) {
+			if (quantidade >= quantidadesMinimas[i]) {
+				return percentuaisPorQuantidade[i];
+			}
+		}
+		return BigDecimal.ZERO;
+	}
+
+	BigDecimal percentualDescontoPorValor(BigDecimal total) {
+		for (int i = limitesValor.length - 1; i >= 0; i--) {
+			if (total.compareTo(limitesValor[i]) > 0) {
+				return percentuaisPorValor[i];
+			}
+		}
+		return BigDecimal.ZERO;
+	}
+
+	int faixaDePeso(BigDecimal pesoTotal) {
+		for (int i = 0; i < limitesPeso.length; i++) {
+			if (pesoTotal.compareTo(limitesPeso[i]) <= 0) {
+				return i;
+			}
+		}
+		return limitesPeso.length;
+	}
+
+	BigDecimal valorPorKg(int faixa) {
+		return valorPorKg[faixa];
+	}
+
+	BigDecimal taxaFixa(int faixa) {
+		return taxaFixa[faixa];
+	}
+
+	BigDecimal taxaFragil() {
+		return taxaFragil;
+	}
+
+	BigDecimal multiplicador(Regiao regiao) {
+		return multiplicadorPorRegiao.get(regiao);
+	}
+
+	BigDecimal fidelidade(TipoCliente tipo) {
+		return fidelidadePorTipoCliente.get(tipo);
+	}
+
+	long[] quantidadesMinimas() {
+		return quantidadesMinimas;
+	}
+
+	BigDecimal[] percentuaisPorQuantidade() {
+		return percentuaisPorQuantidade;
+	}
+
+	BigDecimal[] limitesValor() {
+		return limitesValor;
+	}
+
+	BigDecimal[] percentuaisPorValor() {
+		return percentuaisPorValor;
+	}
+
+	BigDecimal[] limitesPeso() {
+		return limitesPeso;
+	}
+
+	int quantidadeFaixas() {
+		return valorPorKg.length;
+	}
+
+	CalculadoraFrete.Tabela tabelaFrete() {
+		return tabelaFrete;
+	}
+
+	PrecificacaoPontoFixo.Tabela tabelaPontoFixo() {
+		return tabelaPontoFixo;
+	}
+
+	public long getVersao() {
+		return versao;
+	}
+
+	public Instant getCarregadaEm() {
+		return carregadaEm;
+	}
+
+	public String getOrigem() {
+		return origem;
+	}
+
+	private static String obrigatoria(Properties propriedades, String chave) {
+		String valor = propriedades.getProperty(chave);
+		if (valor == null || valor.isBlank()) {
+			throw invalida(chave, "regra ausente");
+		}
+		return valor.trim();
+	}
+
+	private static String[][] pares(Properties propriedades, String chave, int campos) {
+		String[] entradas = obrigatoria(propriedades, chave).split(",");
+		String[][] pares = new String[entradas.length][];
+		for (int i = 0; i < entradas.length; i++) {
+			String[] partes = entradas[i].trim().split(":");
+			if (partes.length != campos) {
+				throw invalida(chave, "esperados " + campos + " campos separados por ':' em '" + entradas[i].trim() + "'");
+			}
+			for (int j = 0; j < partes.length; j++) {
+				partes[j] = partes[j].trim();
+			}
+			pares[i] = partes;
+		}
+		return pares;
+	}
+
+	private static BigDecimal naoNegativo(String valor, String chave) {
+		BigDecimal numero = new BigDecimal(valor);
+		if (numero.signum() < 0) {
+			throw invalida(chave, "valor negativo " + valor);
+		}
+		return numero;
+	}
+
+	private static BigDecimal percentual(String valor, String chave) {
+		BigDecimal numero = naoNegativo(valor, chave);
+		if (numero.compareTo(BigDecimal.ONE) > 0) {
+			throw invalida(chave, "percentual maior que 1: " + valor);
+		}
+		return numero;
+	}
+
+	private static IllegalArgumentException invalida(String chave, String motivo) {
+		return new IllegalArgumentException("Regra de precificação inválida (" + chave + "): " + motivo + ".");
+	}
+}
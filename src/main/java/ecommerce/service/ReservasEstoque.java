@@ -0,0 +1,409 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.external.IEstoqueExternal;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Livro local de reservas de estoque, na frente de {@link IEstoqueExternal}. A finalização reserva os itens
+ * aqui, em um passo e sem chamada remota; a baixa no estoque externo é enviada depois, em segundo plano, e
+ * reservas de compras que não chegam ao pagamento são devolvidas.
+ *
+ * O saldo de cada produto é dividido em faixas atômicas e cada thread começa pela sua, de modo que reservas
+ * simultâneas do mesmo produto não disputam um único contador nem um lock. Só quando nenhuma faixa sozinha
+ * cobre a quantidade a reserva junta várias, sob o lock daquele produto.
+ *
+ * O saldo inicial vem de {@link IEstoqueExternal#consultarSaldos}; a cada {@code compra.estoque.reservas.reconciliacao}
+ * as baixas recusadas pelo estoque são reenviadas e o saldo local é realinhado ao remoto, descontado o que ainda
+ * está em uso localmente. Uma baixa cuja chamada lançou exceção pode ter sido aplicada: não é reenviada, fica
+ * registrada como incerta e seus itens continuam fora do saldo local até a conferência manual.
+ *
+ * Cada instância semeia o próprio livro com o saldo remoto inteiro; com mais de uma réplica, a soma das reservas
+ * locais pode passar do estoque.
+ */
+@Component
+@ConditionalOnProperty(name = "compra.estoque.reservas.habilitado", havingValue = "true")
+public class ReservasEstoque {
+
+	private static final Logger log = LoggerFactory.getLogger(ReservasEstoque.class);
+
+	private final IEstoqueExternal estoqueExternal;
+	private final Executor executorChamadasExternas;
+	private final int quantidadeFaixas;
+	private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+	private final Queue<Reserva> naoSincronizadas = new ConcurrentLinkedQueue<>();
+	private final Queue<Reserva> incertas = new ConcurrentLinkedQueue<>();
+	private final ScheduledExecutorService agendador;
+
+	@Autowired
+	public ReservasEstoque(
+			IEstoqueExternal estoqueExternal,
+			@Qualifier("executorChamadasExternas") Executor executorChamadasExternas,
+			@Value("${compra.estoque.reservas.faixas:8}") int faixas,
+			@Value("${compra.estoque.reservas.reconciliacao:30s}") Duration reconciliacao) {
+		this(estoqueExternal, executorChamadasExternas, faixas, criarAgendador());
+		agendador.scheduleWithFixedDelay(this::reconciliar, reconciliacao.toNanos(), reconciliacao.toNanos(),
+				TimeUnit.NANOSECONDS);
+	}
+
+	/** Sem reconciliação periódica: ela só acontece chamando {@link #reconciliar()}. */
+	ReservasEstoque(IEstoqueExternal estoqueExternal, Executor executorChamadasExternas, int faixas) {
+		this(estoqueExternal, executorChamadasExternas, faixas, (ScheduledExecutorService) null);
+	}
+
+	private ReservasEstoque(IEstoqueExternal estoqueExternal, Executor executorChamadasExternas, int faixas,
+			ScheduledExecutorService agendador) {
+		if (faixas < 1) {
+			throw new IllegalArgumentException("Reservas de estoque exigem ao menos 1 faixa por produto.");
+		}
+		this.estoqueExternal = estoqueExternal;
+		this.executorChamadasExternas = executorChamadasExternas;
+		this.quantidadeFaixas = Integer.highestOneBit(faixas);
+		this.agendador = agendador;
+	}
+
+	/**
+	 * Garante o saldo local dos produtos, consultando o estoque externo uma única vez pelos que faltam.
+	 *
+	 * @return {@code false} se algum produto não tiver saldo consultável; a finalização segue pelo estoque externo
+	 */
+	public boolean carregar(List<Long> produtosIds) {
+		List<Long> faltantes = null;
+		for (Long produtoId : produtosIds) {
+			if (!saldos.containsKey(produtoId)) {
+				if (faltantes == null) {
+					faltantes = new ArrayList<>();
+				}
+				faltantes.add(produtoId);
+			}
+		}
+		if (faltantes == null) {
+			return true;
+		}
+
+		Map<Long, Long> remotos;
+		try {
+			remotos = estoqueExternal.consultarSaldos(faltantes);
+		} catch (RuntimeException e) {
+			log.warn("Não foi possível consultar o saldo de {} produtos.", faltantes.size(), e);
+			return false;
+		}
+		boolean todos = true;
+		for (Long produtoId : faltantes) {
+			Long saldo = remotos.get(produtoId);
+			if (saldo == null) {
+				todos = false;
+			} else {
+				saldos.putIfAbsent(produtoId, new Saldo(quantidadeFaixas, saldo));
+			}
+		}
+		return todos;
+	}
+
+	/**
+	 * Reserva todos os itens ou nenhum. Os produtos devem ter sido {@linkplain #carregar carregados}.
+	 *
+	 * @throws IllegalStateException se algum item não tiver saldo suficiente
+	 */
+	public Reserva reservar(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		int itens = produtosIds.size();
+		Saldo[] reservados = new Saldo[itens];
+		long[] quantidades = new long[itens];
+		for (int i = 0; i < itens; i++) {
+			Saldo saldo = saldos.get(produtosIds.get(i));
+			long quantidade = produtosQuantidades.get(i);
+			if (saldo == null || !saldo.reservar(quantidade)) {
+				for (int j = 0; j < i; j++) {
+					reservados[j].devolver(quantidades[j]);
+				}
+				throw new IllegalStateException("Itens fora de estoque.");
+			}
+			reservados[i] = saldo;
+			quantidades[i] = quantidade;
+		}
+		return new Reserva(List.copyOf(produtosIds), List.copyOf(produtosQuantidades), reservados, quantidades);
+	}
+
+	/** Devolve os itens ao saldo. Sem efeito em reserva já confirmada ou liberada. */
+	public void liberar(Reserva reserva) {
+		if (reserva.encerrada.compareAndSet(false, true)) {
+			for (int i = 0; i < reserva.saldos.length; i++) {
+				reserva.saldos[i].devolver(reserva.quantidades[i]);
+			}
+		}
+	}
+
+	/** Efetiva a reserva e envia a baixa ao estoque externo em segundo plano. */
+	public void confirmar(Reserva reserva) {
+		if (!reserva.encerrada.compareAndSet(false, true)) {
+			throw new IllegalStateException("Reserva de estoque já encerrada.");
+		}
+		try {
+			executorChamadasExternas.execute(() -> sincronizar(reserva));
+		} catch (RejectedExecutionException e) {
+			naoSincronizadas.add(reserva);
+		}
+	}
+
+	/**
+	 * Reenvia as baixas recusadas e realinha o saldo local ao do estoque externo. Baixas concluídas depois que o
+	 * realinhamento começou podem não constar no saldo consultado e são descontadas de novo.
+	 */
+	public void reconciliar() {
+		try {
+			for (int pendentes = naoSincronizadas.size(); pendentes > 0; pendentes--) {
+				Reserva reserva = naoSincronizadas.poll();
+				if (reserva == null) {
+					break;
+				}
+				sincronizar(reserva);
+			}
+
+			List<Long> produtosIds = new ArrayList<>(saldos.keySet());
+			if (produtosIds.isEmpty()) {
+				return;
+			}
+			Map<Long, Long> sincronizadasAntes = new HashMap<>();
+			for (Long produtoId : produtosIds) {
+				sincronizadasAntes.put(produtoId, saldos.get(produtoId).sincronizadas());
+			}
+			Map<Long, Long> remotos = estoqueExternal.consultarSaldos(produtosIds);
+			for (Map.Entry<Long, Long> remoto : remotos.entrySet()) {
+				Saldo saldo = saldos.get(remoto.getKey());
+				Long antes = sincronizadasAntes.get(remoto.getKey());
+				if (saldo != null && antes != null && remoto.getValue() != null) {
+					saldo.realinhar(remoto.getValue(), antes);
+				}
+			}
+		} catch (RuntimeException e) {
+			log.warn("Falha ao reconciliar as reservas de estoque.", e);
+		}
+	}
+
+	/** Saldo local do produto, ou {@code null} se não carregado. */
+	Long disponivel(Long produtoId) {
+		Saldo saldo = saldos.get(produtoId);
+		return saldo == null ? null : saldo.disponivel();
+	}
+
+	int baixasNaoSincronizadas() {
+		return naoSincronizadas.size();
+	}
+
+	int baixasIncertas() {
+		return incertas.size();
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		if (agendador != null) {
+			agendador.shutdownNow();
+		}
+	}
+
+	/**
+	 * Só a recusa explícita volta para a fila de reenvio. Depois de uma exceção não se sabe se o estoque aplicou a
+	 * baixa; reenviar poderia baixar duas vezes.
+	 */
+	private void sincronizar(Reserva reserva) {
+		boolean sucesso;
+		try {
+			EstoqueBaixaDTO baixa = estoqueExternal.darBaixa(reserva.produtosIds, reserva.produtosQuantidades);
+			sucesso = baixa != null && Boolean.TRUE.equals(baixa.sucesso());
+		} catch (RuntimeException e) {
+			incertas.add(reserva);
+			log.error("Baixa de estoque com resultado incerto, não será reenviada; conferir produtos {} quantidades {}.",
+					reserva.produtosIds, reserva.produtosQuantidades, e);
+			return;
+		}
+
+		if (!sucesso) {
+			naoSincronizadas.add(reserva);
+			return;
+		}
+		for (int i = 0; i < reserva.saldos.length; i++) {
+			reserva.saldos[i].sincronizado(reserva.quantidades[i]);
+		}
+	}
+
+	private static ScheduledExecutorService criarAgendador() {
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("estoque-reservas-");
+		fabrica.setDaemon(true);
+		return Executors.newSingleThreadScheduledExecutor(fabrica);
+	}
+
+	/** Itens reservados por uma finalização. */
+	public static final class Reserva {
+
+		private final List<Long> produtosIds;
+		private final List<Long> produtosQuantidades;
+		private final Saldo[] saldos;
+		private final long[] quantidades;
+		private final AtomicBoolean encerrada = new AtomicBoolean();
+
+		private Reserva(List<Long> produtosIds, List<Long> produtosQuantidades, Saldo[] saldos,
+				long[] quantidades) {
+			this.produtosIds = produtosIds;
+			this.produtosQuantidades = produtosQuantidades;
+			this.saldos = saldos;
+			this.quantidades = quantidades;
+		}
+	}
+
+	/**
+	 * Saldo local de um produto. {@code emUso} conta o que foi retirado das faixas e ainda não consta no saldo
+	 * remoto (reservas abertas e baixas não sincronizadas ou incertas); é incrementado antes da retirada e
+	 * decrementado só depois da devolução, para que o realinhamento erre sempre para menos. {@code sincronizadas}
+	 * acumula as baixas concluídas, e cresce antes de {@code emUso} diminuir pelo mesmo motivo.
+	 */
+	private static final class Saldo {
+
+		private final AtomicLongArray faixas;
+		private final int mascara;
+		private final AtomicLong emUso = new AtomicLong();
+		private final AtomicLong sincronizadas = new AtomicLong();
+
+		Saldo(int quantidadeFaixas, long disponivel) {
+			this.faixas = new AtomicLongArray(quantidadeFaixas);
+			this.mascara = quantidadeFaixas - 1;
+			distribuir(disponivel);
+		}
+
+		boolean reservar(long quantidade) {
+			emUso.addAndGet(quantidade);
+			if (retirar(quantidade)) {
+				return true;
+			}
+			emUso.addAndGet(-quantidade);
+			return false;
+		}
+
+		void devolver(long quantidade) {
+			faixas.addAndGet(faixaDaThread(), quantidade);
+			emUso.addAndGet(-quantidade);
+		}
+
+		void sincronizado(long quantidade) {
+			sincronizadas.addAndGet(quantidade);
+			emUso.addAndGet(-quantidade);
+		}
+
+		long sincronizadas() {
+			return sincronizadas.get();
+		}
+
+		/**
+		 * {@code sincronizadasAntes} é o valor de {@link #sincronizadas()} antes da consulta de {@code saldoRemoto};
+		 * o que foi sincronizado desde então já saiu de {@code emUso} e talvez não do saldo remoto.
+		 *
+		 * As faixas são zeradas antes de ler {@code emUso}, e {@code emUso} antes de {@code sincronizadas}: uma
+		 * devolução que chega às faixas depois de zeradas ainda consta em {@code emUso} ou já está no saldo remoto,
+		 * e uma baixa que sai de {@code emUso} já entrou em {@code sincronizadas}. Assim nada é contado duas vezes.
+		 */
+		synchronized void realinhar(long saldoRemoto, long sincronizadasAntes) {
+			for (int i = 0; i < faixas.length(); i++) {
+				faixas.getAndSet(i, 0);
+			}
+			long emUsoAgora = emUso.get();
+			long sincronizadasDepois = sincronizadas.get() - sincronizadasAntes;
+			distribuir(Math.max(0, saldoRemoto - emUsoAgora - sincronizadasDepois));
+		}
+
+		long disponivel() {
+			long total = 0;
+			for (int i = 0; i < faixas.length(); i++) {
+				total += faixas.get(i);
+			}
+			return total;
+		}
+
+		private boolean retirar(long quantidade) {
+			int inicio = faixaDaThread();
+			if (retirarDaFaixa(inicio, quantidade)) {
+				return true;
+			}
+
+			synchronized (this) {
+				for (int i = 1; i <= mascara; i++) {
+					if (retirarDaFaixa((inicio + i) & mascara, quantidade)) {
+						return true;
+					}
+				}
+
+				long retirado = 0;
+				for (int i = 0; i <= mascara && retirado < quantidade; i++) {
+					retirado += retirarAte(i, quantidade - retirado);
+				}
+				if (retirado == quantidade) {
+					return true;
+				}
+				faixas.addAndGet(inicio, retirado);
+				return false;
+			}
+		}
+
+		private boolean retirarDaFaixa(int faixa, long quantidade) {
+			long atual;
+			do {
+				atual = faixas.get(faixa);
+				if (atual < quantidade) {
+					return false;
+				}
+			} while (!faixas.compareAndSet(faixa, atual, atual - quantidade));
+			return true;
+		}
+
+		private long retirarAte(int faixa, long maximo) {
+			long atual;
+			long retirado;
+			do {
+				atual = faixas.get(faixa);
+				retirado = Math.min(Math.max(atual, 0), maximo);
+				if (retirado == 0) {
+					return 0;
+				}
+			} while (!faixas.compareAndSet(faixa, atual, atual - retirado));
+			return retirado;
+		}
+
+		private void distribuir(long total) {
+			int quantidade = faixas.length();
+			long parte = total / quantidade;
+			for (int i = 0; i < quantidade; i++) {
+				faixas.set(i, parte);
+			}
+			faixas.addAndGet(0, total - parte * quantidade);
+		}
+
+		private int faixaDaThread() {
+			int hash = Thread.currentThread().hashCode();
+			return (hash ^ (hash >>> 16)) & mascara;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+/**
+ * Carga de {@code POST /finalizar} com estoque e pagamento lentos, com threads de plataforma (Tomcat limitado a
+ * {@value #THREADS_TOMCAT} threads) e com {@code spring.threads.virtual.enabled=true}. Mede quantas finalizações
+ * ficam em andamento ao mesmo tempo e a vazão. Só roda em Java 21+.
+ *
+ * A vazão com virtual threads para de crescer quando a CPU satura (cliente e servidor dividem a mesma
+ * máquina), por isso o teste só exige que ela supere a de plataforma; a concorrência é o que muda de escala.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class CargaVirtualThreadsTest {
+
+	private static final int THREADS_TOMCAT = 20;
+	private static final int CLIENTES_SIMULTANEOS = 200;
+	private static final int AQUECIMENTO = 200;
+	private static final int FINALIZACOES = 600;
+	private static final long LATENCIA_EXTERNA_MS = 100;
+
+	@Test
+	void finalizar_quandoVirtualThreads_entaoSustentaMaisFinalizacoesSimultaneas() throws Exception {
+		Resultado plataforma = executarCarga(false);
+		Resultado virtual = executarCarga(true);
+
+		assertThat(plataforma.falhas()).as("plataforma: %s", plataforma).isZero();
+		assertThat(virtual.falhas()).as("virtual: %s", virtual).isZero();
+		assertThat(plataforma.simultaneasNoPico()).as("plataforma: %s", plataforma)
+				.isLessThanOrEqualTo(THREADS_TOMCAT);
+		assertThat(virtual.simultaneasNoPico()).as("virtual: %s", virtual).isGreaterThan(3 * THREADS_TOMCAT);
+		assertThat(virtual.vazao()).as("virtual: %s; plataforma: %s", virtual, plataforma)
+				.isGreaterThan(plataforma.vazao());
+	}
+
+	private Resultado executarCarga(boolean virtualThreads) throws Exception {
+		ExternosLentos externos = new ExternosLentos();
+
+		try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(CompraApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.main.banner-mode=off",
+						"logging.level.root=WARN",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"server.tomcat.threads.max=" + THREADS_TOMCAT)
+				.initializers(ctx -> ((GenericApplicationContext) ctx).registerBean("externosLentos",
+						ExternosLentos.class, () -> externos, bd -> bd.setPrimary(true)))
+				.run()) {
+
+			int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+			Cliente cliente = contexto.getBean(ClienteRepository.class)
+					.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+			CarrinhoDeCompras carrinho = contexto.getBean(CarrinhoDeComprasRepository.class).save(carrinho(cliente));
+			URI finalizar = URI.create("http://localhost:" + porta + "/finalizar?carrinhoId=" + carrinho.getId()
+					+ "&clienteId=" + cliente.getId());
+
+			disparar(finalizar, externos, AQUECIMENTO);
+			externos.pico.set(0);
+			return disparar(finalizar, externos, FINALIZACOES);
+		}
+	}
+
+	private Resultado disparar(URI finalizar, ExternosLentos externos, int finalizacoes)
+			throws InterruptedException {
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		HttpRequest requisicao = HttpRequest.newBuilder(finalizar).POST(HttpRequest.BodyPublishers.noBody()).build();
+		AtomicInteger restantes = new AtomicInteger(finalizacoes);
+		AtomicInteger falhas = new AtomicInteger();
+
+		ExecutorService clientes = Executors.newFixedThreadPool(CLIENTES_SIMULTANEOS);
+		long inicio = System.nanoTime();
+		for (int i = 0; i < CLIENTES_SIMULTANEOS; i++) {
+			clientes.execute(() -> {
+				while (restantes.getAndDecrement() > 0) {
+					try {
+						if (http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+							falhas.incrementAndGet();
+						}
+					} catch (Exception e) {
+						falhas.incrementAndGet();
+					}
+				}
+			});
+		}
+		clientes.shutdown();
+		assertThat(clientes.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+		long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+		return new Resultado(finalizacoes * 1000.0 / Math.max(1, decorridoMs), externos.pico.get(), falhas.get());
+	}
+
+	private static CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("100.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 2L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+
+	/** @param vazao finalizações por segundo */
+	private record Resultado(double vazao, int simultaneasNoPico, int falhas) {
+
+		@Override
+		public String toString() {
+			return String.format("%.0f finalizações/s, pico de %d simultâneas, %d falhas", vazao, simultaneasNoPico,
+					falhas);
+		}
+	}
+
+	/** Estoque e pagamento que sempre aprovam após {@value #LATENCIA_EXTERNA_MS} ms; conta as autorizações simultâneas. */
+	private static final class ExternosLentos implements IEstoqueExternal, IPagamentoExternal {
+
+		private final AtomicInteger emAndamento = new AtomicInteger();
+		private final AtomicInteger pico = new AtomicInteger();
+
+		@Override
+		public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			aguardar();
+			return new DisponibilidadeDTO(true, List.of());
+		}
+
+		@Override
+		public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			aguardar();
+			return new EstoqueBaixaDTO(true);
+		}
+
+		@Override
+		public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+			pico.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+			try {
+				aguardar();
+				return new PagamentoDTO(true, ThreadLocalRandom.current().nextLong(1_000_000, 9_999_999));
+			} finally {
+				emAndamento.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+		}
+
+		private static void aguardar() {
+			try {
+				Thread.sleep(LATENCIA_EXTERNA_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
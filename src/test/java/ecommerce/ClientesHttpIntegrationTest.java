@@ -0,0 +1,201 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** Clientes Feign do profile {@code feign} contra um servidor HTTP local no lugar dos serviços reais. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("feign")
+class ClientesHttpIntegrationTest {
+
+	private static final HttpServer SERVIDOR = iniciarServidor();
+	private static final List<Requisicao> REQUISICOES = new CopyOnWriteArrayList<>();
+	private static final Set<Integer> PORTAS_CLIENTE = ConcurrentHashMap.newKeySet();
+
+	@Autowired
+	private IEstoqueExternal estoqueExternal;
+
+	@Autowired
+	private IPagamentoExternal pagamentoExternal;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@DynamicPropertySource
+	static void urls(DynamicPropertyRegistry registry) {
+		String url = "http://localhost:" + SERVIDOR.getAddress().getPort();
+		registry.add("compra.externo.estoque.url", () -> url);
+		registry.add("compra.externo.pagamento.url", () -> url);
+	}
+
+	@AfterAll
+	static void pararServidor() {
+		SERVIDOR.stop(0);
+	}
+
+	@BeforeEach
+	void limpar() {
+		REQUISICOES.clear();
+		PORTAS_CLIENTE.clear();
+	}
+
+	@Test
+	void estoque_quandoVerificaDisponibilidade_entaoEnviaItensComoJson() {
+		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(List.of(1L, 2L),
+				List.of(3L, 4L));
+
+		assertThat(disponibilidade).isEqualTo(new DisponibilidadeDTO(false, List.of(2L)));
+		Requisicao requisicao = REQUISICOES.get(0);
+		assertThat(requisicao.metodo()).isEqualTo("POST");
+		assertThat(requisicao.caminho()).isEqualTo("/estoque/disponibilidade");
+		assertThat(requisicao.corpo()).isEqualTo("{\"produtosIds\":[1,2],\"produtosQuantidades\":[3,4]}");
+		assertThat(requisicao.contentEncoding()).isNull();
+	}
+
+	@Test
+	void estoque_quandoCarrinhoGrande_entaoCorpoVaiComGzip() {
+		List<Long> ids = new ArrayList<>();
+		List<Long> quantidades = new ArrayList<>();
+		for (long i = 1; i <= 1000; i++) {
+			ids.add(i);
+			quantidades.add(1L);
+		}
+
+		assertThat(estoqueExternal.darBaixa(ids, quantidades).sucesso()).isTrue();
+
+		Requisicao requisicao = REQUISICOES.get(0);
+		assertThat(requisicao.caminho()).isEqualTo("/estoque/baixas");
+		assertThat(requisicao.contentEncoding()).isEqualTo("gzip");
+		assertThat(requisicao.tamanhoRecebido()).isLessThan(requisicao.corpo().length() / 2);
+		assertThat(requisicao.corpo()).startsWith("{\"produtosIds\":[1,2,3,");
+	}
+
+	@Test
+	void estoque_quandoConsultaSaldos_entaoDevolveMapaPorProduto() {
+		assertThat(estoqueExternal.consultarSaldos(List.of(7L, 8L))).isEqualTo(Map.of(7L, 100L, 8L, 100L));
+	}
+
+	@Test
+	void pagamento_quandoAutorizaECancela_entaoUsaAsRotasDoServico() {
+		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(5L, 12.5);
+		pagamentoExternal.cancelarPagamento(5L, pagamento.transacaoId());
+
+		assertThat(pagamento).isEqualTo(new PagamentoDTO(true, 42L));
+		assertThat(REQUISICOES.get(0).corpo()).isEqualTo("{\"clienteId\":5,\"custoTotal\":12.5}");
+		assertThat(REQUISICOES.get(1).metodo()).isEqualTo("DELETE");
+		assertThat(REQUISICOES.get(1).caminho()).isEqualTo("/pagamentos/42?clienteId=5");
+	}
+
+	@Test
+	void pagamento_quandoServicoResponde500_entaoLancaExcecao() {
+		assertThatThrownBy(() -> pagamentoExternal.autorizarPagamento(500L, 1.0))
+				.isInstanceOf(FeignException.InternalServerError.class);
+	}
+
+	@Test
+	void clientes_quandoChamadasSeguidas_entaoReusamConexaoEMedemLatencia() {
+		for (int i = 0; i < 10; i++) {
+			estoqueExternal.verificarDisponibilidade(List.of(1L), List.of(1L));
+			pagamentoExternal.autorizarPagamento(5L, 1.0);
+		}
+
+		assertThat(PORTAS_CLIENTE).hasSize(1);
+		assertThat(meterRegistry.get("http.client.requests").tag("http.url", "/estoque/disponibilidade").timer().count())
+				.isGreaterThanOrEqualTo(10);
+		assertThat(meterRegistry.get("http.client.requests").tag("http.url", "/pagamentos").tag("http.status_code", "200").timer().count())
+				.isGreaterThanOrEqualTo(10);
+	}
+
+	private record Requisicao(String metodo, String caminho, String contentEncoding, int tamanhoRecebido,
+			String corpo) {
+	}
+
+	private static HttpServer iniciarServidor() {
+		try {
+			HttpServer servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			servidor.createContext("/estoque/disponibilidade",
+					troca -> responder(troca, 200, "{\"disponivel\":false,\"idsProdutosIndisponiveis\":[2]}"));
+			servidor.createContext("/estoque/baixas", troca -> responder(troca, 200, "{\"sucesso\":true}"));
+			servidor.createContext("/estoque/saldos", troca -> responder(troca, 200, "{\"7\":100,\"8\":100}"));
+			servidor.createContext("/pagamentos", troca -> {
+				if ("DELETE".equals(troca.getRequestMethod())) {
+					responder(troca, 204, null);
+				} else {
+					responder(troca, corpo -> corpo.contains("\"clienteId\":500,") ? 500 : 200,
+							"{\"autorizado\":true,\"transacaoId\":42}");
+				}
+			});
+			servidor.setExecutor(Executors.newFixedThreadPool(4));
+			servidor.start();
+			return servidor;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void responder(HttpExchange troca, int status, String resposta) throws IOException {
+		responder(troca, corpo -> status, resposta);
+	}
+
+	private static void responder(HttpExchange troca, ToIntFunction<String> status, String resposta)
+			throws IOException {
+		byte[] recebido = troca.getRequestBody().readAllBytes();
+		String encoding = troca.getRequestHeaders().getFirst("Content-Encoding");
+		InputStream corpo = new ByteArrayInputStream(recebido);
+		if ("gzip".equals(encoding)) {
+			corpo = new GZIPInputStream(corpo);
+		}
+		String caminho = troca.getRequestURI().getRawPath()
+				+ (troca.getRequestURI().getRawQuery() == null ? "" : "?" + troca.getRequestURI().getRawQuery());
+		String texto = new String(corpo.readAllBytes(), StandardCharsets.UTF_8);
+		REQUISICOES.add(new Requisicao(troca.getRequestMethod(), caminho, encoding, recebido.length, texto));
+		PORTAS_CLIENTE.add(troca.getRemoteAddress().getPort());
+
+		if (resposta == null) {
+			troca.sendResponseHeaders(status.applyAsInt(texto), -1);
+			troca.close();
+			return;
+		}
+		byte[] bytes = resposta.getBytes(StandardCharsets.UTF_8);
+		troca.getResponseHeaders().set("Content-Type", "application/json");
+		troca.sendResponseHeaders(status.applyAsInt(texto), bytes.length);
+		try (OutputStream saida = troca.getResponseBody()) {
+			saida.write(bytes);
+		}
+	}
+}
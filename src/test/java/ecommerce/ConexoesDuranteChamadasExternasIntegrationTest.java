@@ -0,0 +1,200 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+/**
+ * Pool de 2 conexões com espera máxima de 1s e 12 finalizações simultâneas: se a finalização segurasse a
+ * conexão durante o pagamento, as requisições na fila do pool estourariam a espera assim que a latência
+ * externa passasse dela.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.hikari.maximum-pool-size=2",
+		"spring.datasource.hikari.connection-timeout=1000" })
+class ConexoesDuranteChamadasExternasIntegrationTest {
+
+	private static final int FINALIZACOES = 12;
+	private static final PagamentoControlado PAGAMENTO = new PagamentoControlado();
+
+	@LocalServerPort
+	private int porta;
+
+	@Autowired
+	private HikariDataSource dataSource;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Test
+	void finalizar_quandoTodasAguardamPagamento_entaoNenhumaConexaoEmUso() throws Exception {
+		CarrinhoDeCompras carrinho = novoCarrinho();
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		PAGAMENTO.bloquear(FINALIZACOES);
+
+		ExecutorService clientes = Executors.newFixedThreadPool(FINALIZACOES);
+		try {
+			List<Future<Integer>> compras = disparar(clientes, carrinho);
+			assertThat(PAGAMENTO.chegaram.await(10, TimeUnit.SECONDS)).isTrue();
+
+			assertThat(pool.getActiveConnections()).isZero();
+			assertThat(pool.getThreadsAwaitingConnection()).isZero();
+
+			PAGAMENTO.liberar.countDown();
+			for (Future<Integer> compra : compras) {
+				assertThat(compra.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+			}
+		} finally {
+			PAGAMENTO.liberar.countDown();
+			clientes.shutdownNow();
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(longs = { 10, 100, 500 })
+	void finalizar_quandoLatenciaDoPagamentoCresce_entaoUsoDoPoolNaoCresce(long latenciaMs) throws Exception {
+		CarrinhoDeCompras carrinho = novoCarrinho();
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		PAGAMENTO.latencia(Duration.ofMillis(latenciaMs));
+		AtomicLong conexaoNanos = new AtomicLong();
+
+		ExecutorService clientes = Executors.newFixedThreadPool(FINALIZACOES + 1);
+		try {
+			// Integral de conexões em uso no tempo, amostrada a cada ~1ms.
+			Future<?> amostragem = clientes.submit(() -> {
+				long anterior = System.nanoTime();
+				while (!Thread.currentThread().isInterrupted()) {
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+					long agora = System.nanoTime();
+					conexaoNanos.addAndGet(pool.getActiveConnections() * (agora - anterior));
+					anterior = agora;
+				}
+			});
+			List<Future<Integer>> compras = disparar(clientes, carrinho);
+			for (Future<Integer> compra : compras) {
+				assertThat(compra.get(20, TimeUnit.SECONDS)).isEqualTo(200);
+			}
+			amostragem.cancel(true);
+		} finally {
+			clientes.shutdownNow();
+		}
+
+		// Segurando a conexão, cada finalização somaria pelo menos a latência do pagamento.
+		Duration conexaoPorFinalizacao = Duration.ofNanos(conexaoNanos.get() / FINALIZACOES);
+		assertThat(conexaoPorFinalizacao).isLessThan(Duration.ofMillis(100));
+	}
+
+	/** Com o HttpClient do JDK: o cliente do TestRestTemplate limita as conexões simultâneas por rota. */
+	private List<Future<Integer>> disparar(ExecutorService clientes, CarrinhoDeCompras carrinho) {
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta
+				+ "/finalizar?carrinhoId=" + carrinho.getId() + "&clienteId=" + carrinho.getCliente().getId()))
+				.POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+
+		List<Future<Integer>> compras = new ArrayList<>();
+		for (int i = 0; i < FINALIZACOES; i++) {
+			compras.add(clientes.submit(
+					() -> http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode()));
+		}
+		return compras;
+	}
+
+	private CarrinhoDeCompras novoCarrinho() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 1L));
+		return carrinhoRepository.save(new CarrinhoDeCompras(null, cliente, itens, null));
+	}
+
+	@TestConfiguration
+	static class Configuracao {
+
+		@Bean
+		@Primary
+		IPagamentoExternal pagamentoControlado() {
+			return PAGAMENTO;
+		}
+	}
+
+	/** Pagamento que espera uma latência fixa ou, em modo bloqueado, até {@code liberar}. */
+	static class PagamentoControlado implements IPagamentoExternal {
+
+		private volatile Duration latencia = Duration.ZERO;
+		volatile CountDownLatch chegaram = new CountDownLatch(0);
+		volatile CountDownLatch liberar = new CountDownLatch(0);
+
+		void latencia(Duration latencia) {
+			this.latencia = latencia;
+			this.chegaram = new CountDownLatch(0);
+			this.liberar = new CountDownLatch(0);
+		}
+
+		void bloquear(int chamadas) {
+			this.latencia = Duration.ZERO;
+			this.chegaram = new CountDownLatch(chamadas);
+			this.liberar = new CountDownLatch(1);
+		}
+
+		@Override
+		public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+			chegaram.countDown();
+			try {
+				liberar.await(10, TimeUnit.SECONDS);
+				Thread.sleep(latencia.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new PagamentoDTO(true, 1L);
+		}
+
+		@Override
+		public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.LinhaCarrinhoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.CompraService;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Cliente, carrinho, itens e produtos chegam numa única consulta, qualquer que seja o tamanho do carrinho. A
+ * projeção para precificação também é uma consulta só, e sem montar entidades.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+class ConsultasFinalizacaoIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Autowired
+	private CarrinhoDeComprasService carrinhoService;
+
+	@Autowired
+	private CompraService compraService;
+
+	private ContadorConsultas contador;
+
+	@BeforeEach
+	void setUp() {
+		contador = new ContadorConsultas(entityManagerFactory);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 50 })
+	void finalizar_quandoCarrinhoComItens_entaoUmaConsulta(int itens) {
+		CarrinhoDeCompras carrinho = novoCarrinho(itens);
+
+		long consultas = contador.contar(() -> {
+			ResponseEntity<CompraDTO> resposta = rest.postForEntity("/finalizar?carrinhoId={c}&clienteId={u}", null,
+					CompraDTO.class, carrinho.getId(), carrinho.getCliente().getId());
+			assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.OK);
+		});
+
+		assertThat(consultas).as(contador::resumo).isEqualTo(1);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 50 })
+	void disponibilidade_quandoCarrinhoComItens_entaoUmaConsulta(int itens) {
+		CarrinhoDeCompras carrinho = novoCarrinho(itens);
+
+		long consultas = contador.contar(() -> {
+			ResponseEntity<DisponibilidadeDTO> resposta = rest.getForEntity(
+					"/disponibilidade?carrinhoId={c}&clienteId={u}", DisponibilidadeDTO.class, carrinho.getId(),
+					carrinho.getCliente().getId());
+			assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.OK);
+		});
+
+		assertThat(consultas).as(contador::resumo).isEqualTo(1);
+	}
+
+	@Test
+	void disponibilidade_quandoCarrinhoDeOutroCliente_entaoRequisicaoInvalidaComMensagem() {
+		CarrinhoDeCompras carrinho = novoCarrinho(1);
+		Cliente outro = clienteRepository.save(new Cliente(null, "Outro", Regiao.SUL, TipoCliente.OURO));
+
+		ResponseEntity<CompraDTO> resposta = rest.getForEntity("/disponibilidade?carrinhoId={c}&clienteId={u}",
+				CompraDTO.class, carrinho.getId(), outro.getId());
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(resposta.getBody().sucesso()).isFalse();
+		assertThat(resposta.getBody().mensagem()).isEqualTo("Carrinho não encontrado.");
+	}
+
+	@Test
+	void linhas_quandoCarrinhoComItens_entaoUmaConsultaSemEntidadesEMesmoCusto() {
+		CarrinhoDeCompras carrinho = novoCarrinho(50);
+		Cliente cliente = carrinho.getCliente();
+		List<List<LinhaCarrinhoDTO>> linhas = new ArrayList<>();
+
+		long consultas = contador.contar(
+				() -> linhas.add(carrinhoService.buscarLinhasParaPrecificacao(carrinho.getId(), cliente.getId())));
+
+		assertThat(consultas).as(contador::resumo).isEqualTo(1);
+		assertThat(contador.entidadesCarregadas()).as(contador::resumo).isZero();
+		assertThat(linhas.get(0)).hasSize(50);
+		assertThat(compraService.calcularCustoTotalDasLinhas(linhas.get(0), cliente))
+				.isEqualTo(compraService.calcularCustoTotal(carrinho, cliente));
+	}
+
+	@Test
+	void linhas_quandoCarrinhoDeOutroCliente_entaoVazia() {
+		CarrinhoDeCompras carrinho = novoCarrinho(1);
+		Cliente outro = clienteRepository.save(new Cliente(null, "Outro", Regiao.SUL, TipoCliente.OURO));
+
+		assertThat(carrinhoService.buscarLinhasParaPrecificacao(carrinho.getId(), outro.getId())).isEmpty();
+	}
+
+	private CarrinhoDeCompras novoCarrinho(int quantidadeItens) {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		List<ItemCompra> itens = new ArrayList<>();
+		for (int i = 0; i < quantidadeItens; i++) {
+			Produto produto = new Produto(null, "Produto " + i, "Desc", new BigDecimal("10.00"),
+					new BigDecimal("1.0"), new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false,
+					TipoProduto.values()[i % TipoProduto.values().length]);
+			itens.add(new ItemCompra(null, produto, 1L));
+		}
+		return carrinhoRepository.save(new CarrinhoDeCompras(null, cliente, itens, null));
+	}
+}
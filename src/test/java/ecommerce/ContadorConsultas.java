@@ -0,0 +1,46 @@
+package ecommerce;
+
+import java.util.Arrays;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Conta os comandos SQL enviados pelo Hibernate durante uma operação, pelas estatísticas da {@link SessionFactory}:
+ * consultas, carregamentos de entidades e coleções preguiçosas, todos entram. Exige
+ * {@code spring.jpa.properties.hibernate.generate_statistics=true}. As estatísticas são globais: a operação medida
+ * não deve concorrer com outras que usem o banco.
+ */
+public final class ContadorConsultas {
+
+	private final Statistics estatisticas;
+
+	public ContadorConsultas(EntityManagerFactory entityManagerFactory) {
+		this.estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		if (!estatisticas.isStatisticsEnabled()) {
+			throw new IllegalStateException(
+					"Use spring.jpa.properties.hibernate.generate_statistics=true para contar consultas.");
+		}
+	}
+
+	/** Comandos SQL preparados enquanto {@code operacao} rodava. */
+	public long contar(Runnable operacao) {
+		estatisticas.clear();
+		operacao.run();
+		return estatisticas.getPrepareStatementCount();
+	}
+
+	/** Entidades montadas a partir de linhas de resultado desde a última contagem. */
+	public long entidadesCarregadas() {
+		return estatisticas.getEntityLoadCount();
+	}
+
+	/** O que a última contagem viu, para mensagens de falha. */
+	public String resumo() {
+		return String.format("%d comandos SQL; consultas %s; %d entidades e %d coleções carregadas à parte",
+				estatisticas.getPrepareStatementCount(), Arrays.toString(estatisticas.getQueries()),
+				estatisticas.getEntityFetchCount(), estatisticas.getCollectionFetchCount());
+	}
+}
@@ -0,0 +1,87 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.CotacaoRequisicaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CotacaoLoteIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Test
+	void cotacoes_quandoLoteComCarrinhoInexistente_entaoRespondeUmaLinhaPorCarrinho() throws Exception {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras primeiro = carrinhoRepository.save(carrinho(cliente, "10.00", 2L));
+		CarrinhoDeCompras segundo = carrinhoRepository.save(carrinho(cliente, "100.00", 3L));
+
+		List<CotacaoRequisicaoDTO> requisicoes = List.of(
+				new CotacaoRequisicaoDTO(primeiro.getId(), cliente.getId()),
+				new CotacaoRequisicaoDTO(segundo.getId(), cliente.getId()),
+				new CotacaoRequisicaoDTO(-1L, cliente.getId()));
+
+		ResponseEntity<String> resposta = rest.postForEntity("/cotacoes", requisicoes, String.class);
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		List<CotacaoDTO> cotacoes = new ArrayList<>();
+		for (String linha : resposta.getBody().split("\n")) {
+			cotacoes.add(objectMapper.readValue(linha, CotacaoDTO.class));
+		}
+
+		assertThat(cotacoes).containsExactlyInAnyOrder(
+				CotacaoDTO.sucesso(primeiro.getId(), cliente.getId(), new BigDecimal("20.00")),
+				CotacaoDTO.sucesso(segundo.getId(), cliente.getId(), new BigDecimal("285.00")),
+				CotacaoDTO.falha(-1L, cliente.getId(), "Carrinho não encontrado."));
+	}
+
+	@Test
+	void cotacoes_quandoLoteVazio_entaoRespondeBadRequest() {
+		ResponseEntity<String> resposta = rest.postForEntity("/cotacoes", List.of(), String.class);
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(resposta.getBody()).contains("pelo menos 1 carrinho");
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente, String preco, Long quantidade) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal(preco), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, quantidade));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+}
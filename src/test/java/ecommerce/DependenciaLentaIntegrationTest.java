@@ -0,0 +1,146 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+/**
+ * Pagamento que leva 3s e ignora interrupções, contra um servidor com 4 threads: sem a proteção, 12 finalizações
+ * simultâneas ocupariam todas as threads e o {@code /health} esperaria na fila.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"server.tomcat.threads.max=4",
+		"compra.externo.pagamento.timeout=200ms",
+		"compra.externo.pagamento.maximo-concorrentes=2",
+		"compra.externo.pagamento.falhas-para-abrir=3",
+		"compra.externo.pagamento.tempo-aberto=1m" })
+class DependenciaLentaIntegrationTest {
+
+	private static final Duration LATENCIA_PAGAMENTO = Duration.ofSeconds(3);
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	private static final PagamentoLento PAGAMENTO_LENTO = new PagamentoLento();
+
+	@Test
+	void finalizar_quandoPagamentoLento_entaoFalhaRapidoEServidorContinuaRespondendo() throws Exception {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente));
+
+		ExecutorService clientes = Executors.newFixedThreadPool(12);
+		try {
+			List<Future<ResponseEntity<CompraDTO>>> compras = new ArrayList<>();
+			for (int i = 0; i < 12; i++) {
+				compras.add(clientes.submit(() -> rest.postForEntity("/finalizar?carrinhoId={c}&clienteId={u}", null,
+						CompraDTO.class, carrinho.getId(), cliente.getId())));
+			}
+
+			long inicio = System.nanoTime();
+			ResponseEntity<String> health = rest.getForEntity("/health", String.class);
+			assertThat(health.getStatusCode()).isEqualTo(HttpStatus.OK);
+			assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(LATENCIA_PAGAMENTO);
+
+			for (Future<ResponseEntity<CompraDTO>> compra : compras) {
+				ResponseEntity<CompraDTO> resposta = compra.get(10, TimeUnit.SECONDS);
+				assertThat(resposta.getBody().sucesso()).isFalse();
+				// Autorização que passou do tempo pode ter sido concedida: recusada sem convite a nova tentativa.
+				if (resposta.getStatusCode() == HttpStatus.CONFLICT) {
+					assertThat(resposta.getBody().mensagem())
+							.isEqualTo("Resultado do pagamento incerto; compra em conferência.");
+				} else {
+					assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+					assertThat(resposta.getBody().mensagem()).containsAnyOf("sobrecarregado", "indisponível");
+				}
+			}
+			assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(LATENCIA_PAGAMENTO);
+		} finally {
+			clientes.shutdownNow();
+		}
+
+		assertThat(PAGAMENTO_LENTO.maximoSimultaneas.get()).isLessThanOrEqualTo(2);
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 1L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+
+	@TestConfiguration
+	static class Configuracao {
+
+		@Bean
+		@Primary
+		IPagamentoExternal pagamentoLento() {
+			return PAGAMENTO_LENTO;
+		}
+	}
+
+	static class PagamentoLento implements IPagamentoExternal {
+
+		final AtomicInteger simultaneas = new AtomicInteger();
+		final AtomicInteger maximoSimultaneas = new AtomicInteger();
+
+		@Override
+		public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+			maximoSimultaneas.accumulateAndGet(simultaneas.incrementAndGet(), Math::max);
+			try {
+				// Como uma leitura de socket bloqueada, não responde a interrupções.
+				long prazo = System.nanoTime() + LATENCIA_PAGAMENTO.toNanos();
+				while (System.nanoTime() < prazo) {
+					LockSupport.parkNanos(prazo - System.nanoTime());
+					Thread.interrupted();
+				}
+				return new PagamentoDTO(true, 1L);
+			} finally {
+				simultaneas.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraJobDTO;
+import ecommerce.dto.CompraJobDTO.Status;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "compra.checkout.fila.habilitada=true")
+class FilaComprasIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Test
+	void finalizar_quandoFilaHabilitada_entaoAceitaEConcluiNaConsulta() throws InterruptedException {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente));
+
+		ResponseEntity<CompraJobDTO> aceita = rest.postForEntity("/finalizar?carrinhoId={c}&clienteId={u}", null,
+				CompraJobDTO.class, carrinho.getId(), cliente.getId());
+
+		assertThat(aceita.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		assertThat(aceita.getHeaders().getLocation()).hasPath("/compras/" + aceita.getBody().jobId());
+
+		CompraJobDTO job = aguardarTermino(aceita.getBody().jobId());
+		assertThat(job.status()).isEqualTo(Status.CONCLUIDA);
+		assertThat(job.compra().sucesso()).isTrue();
+	}
+
+	@Test
+	void finalizar_quandoCarrinhoInexistente_entaoJobFalha() throws InterruptedException {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+
+		ResponseEntity<CompraJobDTO> aceita = rest.postForEntity("/finalizar?carrinhoId=-1&clienteId={u}", null,
+				CompraJobDTO.class, cliente.getId());
+
+		CompraJobDTO job = aguardarTermino(aceita.getBody().jobId());
+		assertThat(job.status()).isEqualTo(Status.FALHOU);
+		assertThat(job.compra()).isEqualTo(new CompraDTO(false, null, "Carrinho não encontrado."));
+	}
+
+	@Test
+	void compras_quandoJobInexistente_entaoNotFound() {
+		assertThat(rest.getForEntity("/compras/inexistente", CompraJobDTO.class).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	private CompraJobDTO aguardarTermino(String jobId) throws InterruptedException {
+		CompraJobDTO job = rest.getForObject("/compras/{id}", CompraJobDTO.class, jobId);
+		for (int tentativa = 0; tentativa < 500
+				&& (job.status() == Status.PENDENTE || job.status() == Status.PROCESSANDO); tentativa++) {
+			Thread.sleep(10);
+			job = rest.getForObject("/compras/{id}", CompraJobDTO.class, jobId);
+		}
+		return job;
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 2L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+}
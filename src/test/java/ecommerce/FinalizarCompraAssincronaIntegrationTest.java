@@ -0,0 +1,71 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FinalizarCompraAssincronaIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Test
+	void finalizarAssincrono_quandoCarrinhoValido_entaoFinalizaCompra() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente));
+
+		ResponseEntity<CompraDTO> resposta = rest.postForEntity("/finalizar/assincrono?carrinhoId={c}&clienteId={u}",
+				null, CompraDTO.class, carrinho.getId(), cliente.getId());
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(resposta.getBody().sucesso()).isTrue();
+		assertThat(resposta.getBody().transacaoPagamentoId()).isNotNull();
+	}
+
+	@Test
+	void finalizarAssincrono_quandoCarrinhoInexistente_entaoRespondeBadRequest() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+
+		ResponseEntity<CompraDTO> resposta = rest.postForEntity("/finalizar/assincrono?carrinhoId=-1&clienteId={u}",
+				null, CompraDTO.class, cliente.getId());
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(resposta.getBody()).isEqualTo(new CompraDTO(false, null, "Carrinho não encontrado."));
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 2L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+}
@@ -0,0 +1,49 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.FreteDTO;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.ProdutoRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FreteIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Test
+	void frete_quandoProdutoExistente_entaoRespondeFreteEstimado() {
+		Produto produto = produtoRepository.save(new Produto(null, "Produto", "Desc", new BigDecimal("10.00"),
+				new BigDecimal("3.0"), new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), true,
+				TipoProduto.MOVEL));
+
+		ResponseEntity<FreteDTO> resposta = rest.getForEntity(
+				"/frete?produtoId={id}&quantidade=2&regiao=SUL&tipoCliente=PRATA", FreteDTO.class, produto.getId());
+
+		// (6 * 2.00 + 12.00 + 2 * 5.00) * 1.05 * 0.50
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(resposta.getBody()).isEqualTo(FreteDTO.sucesso(produto.getId(), 2L, new BigDecimal("17.85")));
+	}
+
+	@Test
+	void frete_quandoProdutoInexistente_entaoRespondeBadRequest() {
+		ResponseEntity<FreteDTO> resposta = rest.getForEntity("/frete?produtoId=-1&regiao=SUDESTE", FreteDTO.class);
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(resposta.getBody()).isEqualTo(FreteDTO.falha(-1L, 1L, "Produto não encontrado."));
+	}
+}
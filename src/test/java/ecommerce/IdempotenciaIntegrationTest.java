@@ -0,0 +1,83 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class IdempotenciaIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Test
+	void finalizar_quandoMesmaIdempotencyKey_entaoDevolveMesmaCompra() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente));
+
+		ResponseEntity<CompraDTO> primeira = finalizar(carrinho.getId(), cliente.getId(), "pedido-1");
+		ResponseEntity<CompraDTO> repeticao = finalizar(carrinho.getId(), cliente.getId(), "pedido-1");
+		ResponseEntity<CompraDTO> outraChave = finalizar(carrinho.getId(), cliente.getId(), "pedido-2");
+
+		assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(repeticao.getBody()).isEqualTo(primeira.getBody());
+		assertThat(outraChave.getBody().transacaoPagamentoId()).isNotEqualTo(primeira.getBody().transacaoPagamentoId());
+	}
+
+	@Test
+	void finalizar_quandoIdempotencyKeyDeOutraCompra_entaoRespondeBadRequest() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente));
+		CarrinhoDeCompras outro = carrinhoRepository.save(carrinho(cliente));
+
+		finalizar(carrinho.getId(), cliente.getId(), "pedido-3");
+		ResponseEntity<CompraDTO> resposta = finalizar(outro.getId(), cliente.getId(), "pedido-3");
+
+		assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(resposta.getBody()).isEqualTo(new CompraDTO(false, null, "Idempotency-Key já usada em outra compra."));
+	}
+
+	private ResponseEntity<CompraDTO> finalizar(Long carrinhoId, Long clienteId, String chave) {
+		HttpHeaders cabecalhos = new HttpHeaders();
+		cabecalhos.set("Idempotency-Key", chave);
+		return rest.postForEntity("/finalizar?carrinhoId={c}&clienteId={u}", new HttpEntity<>(cabecalhos),
+				CompraDTO.class, carrinhoId, clienteId);
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 2L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+}
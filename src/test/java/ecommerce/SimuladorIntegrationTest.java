@@ -0,0 +1,113 @@
+package ecommerce;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.EstoqueExternalAssincronoAdaptador;
+import ecommerce.external.IEstoqueExternalAssincrono;
+import ecommerce.external.IPagamentoExternalAssincrono;
+import ecommerce.external.PagamentoExternalAssincronoAdaptador;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+
+/**
+ * Profile {@code simulador} sem latência nem falhas: o saldo simulado acaba depois de duas compras, pelos dois
+ * caminhos de finalização.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"compra.simulador.estoque.latencia.tipo=NENHUMA",
+		"compra.simulador.estoque.taxa-falha=0",
+		"compra.simulador.estoque.saldo-inicial=2",
+		"compra.simulador.pagamento.latencia.tipo=NENHUMA",
+		"compra.simulador.pagamento.taxa-falha=0",
+		"compra.simulador.pagamento.taxa-recusa=0" })
+@ActiveProfiles("simulador")
+class SimuladorIntegrationTest {
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Autowired
+	private IEstoqueExternalAssincrono estoqueAssincrono;
+
+	@Autowired
+	private IPagamentoExternalAssincrono pagamentoAssincrono;
+
+	@Test
+	void finalizar_quandoSaldoSimuladoAcaba_entaoItensForaDeEstoque() {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente, produto));
+
+		ResponseEntity<CompraDTO> primeira = finalizar(carrinho, cliente);
+		ResponseEntity<CompraDTO> segunda = finalizar(carrinho, cliente);
+		ResponseEntity<CompraDTO> terceira = finalizar(carrinho, cliente);
+
+		assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(segunda.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(segunda.getBody().transacaoPagamentoId()).isNotEqualTo(primeira.getBody().transacaoPagamentoId());
+		assertThat(terceira.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(terceira.getBody().mensagem()).isEqualTo("Itens fora de estoque.");
+	}
+
+	@Test
+	void finalizarAssincrono_quandoSaldoSimuladoAcaba_entaoUsaOMesmoEstoque() {
+		assertThat(estoqueAssincrono).isInstanceOf(EstoqueExternalAssincronoAdaptador.class);
+		assertThat(pagamentoAssincrono).isInstanceOf(PagamentoExternalAssincronoAdaptador.class);
+
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		Produto produto = new Produto(null, "Produto", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+		CarrinhoDeCompras carrinho = carrinhoRepository.save(carrinho(cliente, produto));
+
+		ResponseEntity<CompraDTO> primeira = finalizar("/finalizar/assincrono", carrinho, cliente);
+		ResponseEntity<CompraDTO> segunda = finalizar("/finalizar/assincrono", carrinho, cliente);
+		ResponseEntity<CompraDTO> terceira = finalizar("/finalizar/assincrono", carrinho, cliente);
+
+		assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(segunda.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(terceira.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(terceira.getBody().mensagem()).isEqualTo("Itens fora de estoque.");
+	}
+
+	private ResponseEntity<CompraDTO> finalizar(CarrinhoDeCompras carrinho, Cliente cliente) {
+		return finalizar("/finalizar", carrinho, cliente);
+	}
+
+	private ResponseEntity<CompraDTO> finalizar(String caminho, CarrinhoDeCompras carrinho, Cliente cliente) {
+		return rest.postForEntity(caminho + "?carrinhoId={c}&clienteId={u}", null, CompraDTO.class,
+				carrinho.getId(), cliente.getId());
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente, Produto produto) {
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(null, produto, 1L));
+		return new CarrinhoDeCompras(null, cliente, itens, null);
+	}
+}
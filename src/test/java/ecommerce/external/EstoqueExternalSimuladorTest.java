@@ -0,0 +1,81 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+
+public class EstoqueExternalSimuladorTest {
+
+	@Test
+	public void darBaixa_quandoConcorrente_entaoNuncaVendeMaisQueOSaldo() throws Exception {
+		EstoqueExternalSimulador estoque = new EstoqueExternalSimulador(LatenciaSimulada.NENHUMA, 0, 1000);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Integer>> tarefas = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				tarefas.add(() -> {
+					int sucessos = 0;
+					for (int i = 0; i < 200; i++) {
+						if (estoque.darBaixa(List.of(1L, 2L), List.of(1L, 1L)).sucesso()) {
+							sucessos++;
+						}
+					}
+					return sucessos;
+				});
+			}
+
+			int sucessos = 0;
+			for (Future<Integer> resultado : executor.invokeAll(tarefas)) {
+				sucessos += resultado.get();
+			}
+			assertThat(sucessos).isEqualTo(1000);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(estoque.saldo(1L)).isZero();
+		assertThat(estoque.saldo(2L)).isZero();
+	}
+
+	@Test
+	public void darBaixa_quandoUmProdutoSemSaldo_entaoNaoBaixaNenhum() {
+		EstoqueExternalSimulador estoque = new EstoqueExternalSimulador(LatenciaSimulada.NENHUMA, 0, 10);
+		estoque.definirSaldo(2L, 1L);
+
+		assertThat(estoque.darBaixa(List.of(1L, 2L), List.of(5L, 2L)).sucesso()).isFalse();
+
+		assertThat(estoque.saldo(1L)).isEqualTo(10L);
+		assertThat(estoque.saldo(2L)).isEqualTo(1L);
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoProdutoRepetido_entaoSomaAsQuantidades() {
+		EstoqueExternalSimulador estoque = new EstoqueExternalSimulador(LatenciaSimulada.NENHUMA, 0, 10);
+
+		DisponibilidadeDTO disponibilidade = estoque.verificarDisponibilidade(List.of(1L, 2L, 1L),
+				List.of(6L, 1L, 6L));
+
+		assertThat(disponibilidade).isEqualTo(new DisponibilidadeDTO(false, List.of(1L)));
+		assertThat(estoque.consultarSaldos(List.of(1L, 2L))).isEqualTo(Map.of(1L, 10L, 2L, 10L));
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoTaxaDeFalhaTotal_entaoLancaFalhaSimulada() {
+		EstoqueExternalSimulador estoque = new EstoqueExternalSimulador(LatenciaSimulada.NENHUMA, 1, 10);
+
+		assertThatThrownBy(() -> estoque.verificarDisponibilidade(List.of(1L), List.of(1L)))
+				.isInstanceOf(FalhaSimuladaException.class)
+				.hasMessage("Falha simulada no serviço de estoque.");
+	}
+}
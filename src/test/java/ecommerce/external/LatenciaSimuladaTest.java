@@ -0,0 +1,70 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class LatenciaSimuladaTest {
+
+	private static final int AMOSTRAS = 100_000;
+
+	private final SplittableRandom aleatorio = new SplittableRandom(42);
+
+	@Test
+	public void sortearNanos_quandoFixa_entaoSempreAMedia() {
+		LatenciaSimulada latencia = LatenciaSimulada.fixa(Duration.ofMillis(20));
+
+		assertThat(latencia.sortearNanos(aleatorio)).isEqualTo(Duration.ofMillis(20).toNanos());
+		assertThat(LatenciaSimulada.NENHUMA.sortearNanos(aleatorio)).isZero();
+	}
+
+	@Test
+	public void sortearNanos_quandoNormal_entaoMediaEDesvioProximosDoConfigurado() {
+		long[] amostras = amostras(LatenciaSimulada.normal(Duration.ofMillis(50), Duration.ofMillis(10)));
+
+		double media = Arrays.stream(amostras).average().orElseThrow();
+		double variancia = Arrays.stream(amostras).mapToDouble(a -> (a - media) * (a - media)).average().orElseThrow();
+		assertThat(media / 1e6).isCloseTo(50.0, within(0.5));
+		assertThat(Math.sqrt(variancia) / 1e6).isCloseTo(10.0, within(0.5));
+	}
+
+	@Test
+	public void sortearNanos_quandoDesvioMaiorQueMedia_entaoNuncaNegativa() {
+		long[] amostras = amostras(LatenciaSimulada.normal(Duration.ofMillis(1), Duration.ofMillis(10)));
+
+		assertThat(Arrays.stream(amostras).min().orElseThrow()).isZero();
+	}
+
+	@Test
+	public void sortearNanos_quandoCaudaLonga_entaoPicoSoAcimaDoP99() {
+		long[] amostras = amostras(LatenciaSimulada.caudaLonga(Duration.ofMillis(20), Duration.ofMillis(2),
+				Duration.ofSeconds(1), 0.01));
+		Arrays.sort(amostras);
+
+		long picos = Arrays.stream(amostras).filter(a -> a == Duration.ofSeconds(1).toNanos()).count();
+		assertThat(picos).isBetween((long) (AMOSTRAS * 0.008), (long) (AMOSTRAS * 0.012));
+		assertThat(amostras[(int) (AMOSTRAS * 0.98)]).isLessThan(Duration.ofMillis(40).toNanos());
+		assertThat(amostras[(int) (AMOSTRAS * 0.995)]).isEqualTo(Duration.ofSeconds(1).toNanos());
+	}
+
+	@Test
+	public void construtor_quandoProbabilidadeInvalida_entaoLancaExcecao() {
+		assertThatThrownBy(() -> LatenciaSimulada.caudaLonga(Duration.ZERO, Duration.ZERO, Duration.ZERO, 1.5))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Probabilidade de pico deve estar entre 0 e 1.");
+	}
+
+	private long[] amostras(LatenciaSimulada latencia) {
+		long[] amostras = new long[AMOSTRAS];
+		for (int i = 0; i < AMOSTRAS; i++) {
+			amostras[i] = latencia.sortearNanos(aleatorio);
+		}
+		return amostras;
+	}
+}
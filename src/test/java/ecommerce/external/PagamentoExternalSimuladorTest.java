@@ -0,0 +1,53 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.PagamentoDTO;
+
+public class PagamentoExternalSimuladorTest {
+
+	@Test
+	public void autorizarPagamento_quandoSemRecusa_entaoTransacoesDistintas() {
+		PagamentoExternalSimulador pagamento = new PagamentoExternalSimulador(LatenciaSimulada.NENHUMA, 0, 0);
+
+		PagamentoDTO primeiro = pagamento.autorizarPagamento(1L, 10.0);
+		PagamentoDTO segundo = pagamento.autorizarPagamento(1L, 10.0);
+
+		assertThat(primeiro.autorizado()).isTrue();
+		assertThat(segundo.transacaoId()).isNotEqualTo(primeiro.transacaoId());
+		assertThat(pagamento.autorizados()).isEqualTo(2);
+	}
+
+	@Test
+	public void autorizarPagamento_quandoTaxaDeRecusaTotal_entaoNaoAutoriza() {
+		PagamentoExternalSimulador pagamento = new PagamentoExternalSimulador(LatenciaSimulada.NENHUMA, 0, 1);
+
+		assertThat(pagamento.autorizarPagamento(1L, 10.0)).isEqualTo(new PagamentoDTO(false, null));
+		assertThat(pagamento.recusados()).isEqualTo(1);
+	}
+
+	@Test
+	public void autorizarPagamento_quandoTaxaDeFalhaTotal_entaoLancaFalhaSimulada() {
+		PagamentoExternalSimulador pagamento = new PagamentoExternalSimulador(LatenciaSimulada.NENHUMA, 1, 0);
+
+		assertThatThrownBy(() -> pagamento.autorizarPagamento(1L, 10.0))
+				.isInstanceOf(FalhaSimuladaException.class)
+				.hasMessage("Falha simulada no serviço de pagamento.");
+	}
+
+	@Test
+	public void autorizarPagamento_quandoLatenciaFixa_entaoEsperaALatencia() {
+		PagamentoExternalSimulador pagamento = new PagamentoExternalSimulador(
+				LatenciaSimulada.fixa(Duration.ofMillis(30)), 0, 0);
+
+		long inicio = System.nanoTime();
+		pagamento.autorizarPagamento(1L, 10.0);
+
+		assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isGreaterThanOrEqualTo(Duration.ofMillis(30));
+	}
+}
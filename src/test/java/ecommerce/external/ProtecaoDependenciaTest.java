@@ -0,0 +1,188 @@
+package ecommerce.external;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.external.ProtecaoDependencia.Estado;
+
+public class ProtecaoDependenciaTest {
+
+	private final AtomicLong agora = new AtomicLong();
+	private ProtecaoDependencia protecao;
+
+	@AfterEach
+	public void tearDown() {
+		if (protecao != null) {
+			protecao.encerrar();
+		}
+	}
+
+	@Test
+	public void executar_quandoChamadaPassaDoTimeout_entaoFalhaSemEsperarAChamada() {
+		protecao = protecao(Duration.ofMillis(100), 4, 5);
+		CountDownLatch liberar = new CountDownLatch(1);
+
+		long inicio = System.nanoTime();
+		assertThatThrownBy(() -> protecao.executar(() -> liberar.await(10, TimeUnit.SECONDS)))
+				.isInstanceOf(ResultadoIncertoException.class)
+				.hasMessage("Tempo esgotado ao chamar o serviço de pagamento.");
+
+		assertThat(Duration.ofNanos(System.nanoTime() - inicio)).isLessThan(Duration.ofSeconds(5));
+		assertThat(protecao.temposEsgotados()).isEqualTo(1);
+	}
+
+	@Test
+	public void executar_quandoTempoEsgota_entaoChamadaNaoEInterrompidaETermina() throws Exception {
+		protecao = protecao(Duration.ofMillis(50), 4, 5);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch aplicada = new CountDownLatch(1);
+
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			liberar.await(10, TimeUnit.SECONDS);
+			aplicada.countDown();
+			return null;
+		})).isInstanceOf(ResultadoIncertoException.class);
+
+		liberar.countDown();
+		assertThat(aplicada.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void executar_quandoVagasOcupadas_entaoRecusaSemChamar() throws Exception {
+		protecao = protecao(Duration.ofSeconds(5), 2, 5);
+		CountDownLatch ocupadas = new CountDownLatch(2);
+		CountDownLatch liberar = new CountDownLatch(1);
+		AtomicInteger chamadas = new AtomicInteger();
+
+		ExecutorService chamadores = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> a = chamadores.submit(() -> protecao.executar(() -> esperar(ocupadas, liberar)));
+			Future<?> b = chamadores.submit(() -> protecao.executar(() -> esperar(ocupadas, liberar)));
+			assertThat(ocupadas.await(5, TimeUnit.SECONDS)).isTrue();
+
+			assertThatThrownBy(() -> protecao.executar(chamadas::incrementAndGet))
+					.isInstanceOf(DependenciaIndisponivelException.class)
+					.hasMessage("Serviço de pagamento sobrecarregado.");
+
+			liberar.countDown();
+			a.get(5, TimeUnit.SECONDS);
+			b.get(5, TimeUnit.SECONDS);
+		} finally {
+			chamadores.shutdownNow();
+		}
+
+		assertThat(chamadas).hasValue(0);
+		assertThat(protecao.recusasLotacao()).isEqualTo(1);
+		assertThat(protecao.executar(chamadas::incrementAndGet)).isEqualTo(1);
+	}
+
+	@Test
+	public void executar_quandoTimeoutNaoInterrompeChamada_entaoVagaSoVoltaQuandoElaTermina() throws Exception {
+		protecao = protecao(Duration.ofMillis(50), 1, 5);
+		CountDownLatch liberar = new CountDownLatch(1);
+
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			ignorarInterrupcao(liberar);
+			return null;
+		})).isInstanceOf(DependenciaIndisponivelException.class);
+
+		assertThat(protecao.vagasLivres()).isZero();
+		assertThatThrownBy(() -> protecao.executar(() -> "ok")).hasMessage("Serviço de pagamento sobrecarregado.");
+
+		liberar.countDown();
+		long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (protecao.vagasLivres() == 0 && System.nanoTime() < prazo) {
+			Thread.sleep(10);
+		}
+		assertThat(protecao.executar(() -> "ok")).isEqualTo("ok");
+	}
+
+	@Test
+	public void executar_quandoFalhasSeguidas_entaoAbreCircuitoETestaDepoisDoTempoAberto() {
+		protecao = protecao(Duration.ofSeconds(5), 4, 3);
+		AtomicInteger chamadas = new AtomicInteger();
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> protecao.executar(() -> {
+				chamadas.incrementAndGet();
+				throw new IllegalStateException("Falha remota.");
+			})).hasMessage("Falha remota.");
+		}
+		assertThat(protecao.estado()).isEqualTo(Estado.ABERTO);
+
+		assertThatThrownBy(() -> protecao.executar(chamadas::incrementAndGet))
+				.isInstanceOf(DependenciaIndisponivelException.class)
+				.hasMessage("Serviço de pagamento indisponível no momento.");
+		assertThat(chamadas).hasValue(3);
+
+		agora.addAndGet(Duration.ofSeconds(10).toNanos());
+		assertThat(protecao.executar(chamadas::incrementAndGet)).isEqualTo(4);
+		assertThat(protecao.estado()).isEqualTo(Estado.FECHADO);
+	}
+
+	@Test
+	public void executar_quandoChamadaDeTesteFalha_entaoCircuitoReabre() {
+		protecao = protecao(Duration.ofSeconds(5), 4, 1);
+
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			throw new IllegalStateException("Falha remota.");
+		}));
+		agora.addAndGet(Duration.ofSeconds(10).toNanos());
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			throw new IllegalStateException("Falha remota.");
+		})).hasMessage("Falha remota.");
+
+		assertThat(protecao.estado()).isEqualTo(Estado.ABERTO);
+		assertThatThrownBy(() -> protecao.executar(() -> "ok")).isInstanceOf(DependenciaIndisponivelException.class);
+	}
+
+	@Test
+	public void executar_quandoSucessoEntreFalhas_entaoZeraContagem() {
+		protecao = protecao(Duration.ofSeconds(5), 4, 2);
+
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			throw new IllegalStateException("Falha remota.");
+		}));
+		protecao.executar(() -> "ok");
+		assertThatThrownBy(() -> protecao.executar(() -> {
+			throw new IllegalStateException("Falha remota.");
+		}));
+
+		assertThat(protecao.estado()).isEqualTo(Estado.FECHADO);
+		assertThat(protecao.falhas()).isEqualTo(2);
+	}
+
+	private ProtecaoDependencia protecao(Duration timeout, int maximoConcorrentes, int falhasParaAbrir) {
+		return new ProtecaoDependencia("pagamento", "Serviço de pagamento", timeout, maximoConcorrentes,
+				Duration.ZERO, falhasParaAbrir, Duration.ofSeconds(10), agora::get);
+	}
+
+	private static Object esperar(CountDownLatch ocupadas, CountDownLatch liberar) throws InterruptedException {
+		ocupadas.countDown();
+		return liberar.await(5, TimeUnit.SECONDS);
+	}
+
+	/** Como uma leitura de socket bloqueada: a interrupção do timeout não encerra a chamada. */
+	private static void ignorarInterrupcao(CountDownLatch liberar) {
+		long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (liberar.getCount() > 0 && System.nanoTime() < prazo) {
+			try {
+				liberar.await(10, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				// ignorada de propósito
+			}
+		}
+	}
+}
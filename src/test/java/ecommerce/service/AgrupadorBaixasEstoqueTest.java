@@ -0,0 +1,154 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.external.IEstoqueExternal;
+
+public class AgrupadorBaixasEstoqueTest {
+
+	private static final long ESPERA_MAXIMA_SEGUNDOS = 5;
+
+	private IEstoqueExternal estoqueExternal;
+	private ExecutorService executor;
+	private AgrupadorBaixasEstoque agrupador;
+
+	@BeforeEach
+	public void setUp() {
+		estoqueExternal = mock(IEstoqueExternal.class);
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+		if (agrupador != null) {
+			agrupador.encerrar();
+		}
+	}
+
+	@Test
+	public void darBaixa_quandoFinalizacoesSimultaneas_entaoUmaChamadaComQuantidadesSomadas() throws Exception {
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+		// O lote fecha no 6º item, bem antes da espera.
+		agrupador = new AgrupadorBaixasEstoque(estoqueExternal, executor, Duration.ofSeconds(30), 6);
+
+		List<EstoqueBaixaDTO> resultados = baixasSimultaneas(
+				List.of(List.of(1L, 2L), List.of(2L, 3L), List.of(3L, 4L)),
+				List.of(List.of(1L, 1L), List.of(2L, 1L), List.of(5L, 1L)));
+
+		assertThat(resultados).containsOnly(new EstoqueBaixaDTO(true)).hasSize(3);
+		ArgumentCaptor<List<Long>> ids = ArgumentCaptor.captor();
+		ArgumentCaptor<List<Long>> quantidades = ArgumentCaptor.captor();
+		verify(estoqueExternal).darBaixa(ids.capture(), quantidades.capture());
+		verifyNoMoreInteractions(estoqueExternal);
+
+		// A ordem dos produtos segue a chegada das threads.
+		Map<Long, Long> combinada = new HashMap<>();
+		for (int i = 0; i < ids.getValue().size(); i++) {
+			combinada.put(ids.getValue().get(i), quantidades.getValue().get(i));
+		}
+		assertThat(combinada).isEqualTo(Map.of(1L, 1L, 2L, 3L, 3L, 6L, 4L, 1L));
+	}
+
+	@Test
+	public void darBaixa_quandoBaixaCombinadaFalha_entaoCadaFinalizacaoRepeteASua() throws Exception {
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenAnswer(inv -> {
+			List<Long> ids = inv.getArgument(0);
+			if (ids.size() > 2) {
+				return new EstoqueBaixaDTO(false);
+			}
+			return new EstoqueBaixaDTO(!ids.contains(4L));
+		});
+		agrupador = new AgrupadorBaixasEstoque(estoqueExternal, executor, Duration.ofSeconds(30), 6);
+
+		List<EstoqueBaixaDTO> resultados = baixasSimultaneas(
+				List.of(List.of(1L, 2L), List.of(2L, 3L), List.of(3L, 4L)),
+				List.of(List.of(1L, 1L), List.of(1L, 1L), List.of(1L, 1L)));
+
+		assertThat(resultados).containsExactly(new EstoqueBaixaDTO(true), new EstoqueBaixaDTO(true),
+				new EstoqueBaixaDTO(false));
+		verify(estoqueExternal, times(4)).darBaixa(anyList(), anyList());
+	}
+
+	@Test
+	public void darBaixa_quandoBaixaCombinadaLancaExcecao_entaoTodasRecebemAExcecaoSemRepetir() throws Exception {
+		IllegalStateException falha = new IllegalStateException("Estoque indisponível.");
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenThrow(falha);
+		agrupador = new AgrupadorBaixasEstoque(estoqueExternal, executor, Duration.ofSeconds(30), 4);
+
+		List<Future<EstoqueBaixaDTO>> pendentes = baixasEmThreads(List.of(List.of(1L, 2L), List.of(3L, 4L)),
+				List.of(List.of(1L, 1L), List.of(1L, 1L)));
+
+		for (Future<EstoqueBaixaDTO> pendente : pendentes) {
+			assertThatThrownBy(() -> pendente.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS))
+					.isInstanceOf(ExecutionException.class)
+					.hasCause(falha);
+		}
+		verify(estoqueExternal, times(1)).darBaixa(anyList(), anyList());
+	}
+
+	@Test
+	public void darBaixa_quandoPrazoDoLoteVence_entaoChamadaForaDoAgendador() {
+		List<String> threads = new CopyOnWriteArrayList<>();
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenAnswer(inv -> {
+			threads.add(Thread.currentThread().getName());
+			return new EstoqueBaixaDTO(true);
+		});
+		agrupador = new AgrupadorBaixasEstoque(estoqueExternal, executor, Duration.ofMillis(5), 500);
+
+		assertThat(agrupador.darBaixa(List.of(1L), List.of(1L))).isEqualTo(new EstoqueBaixaDTO(true));
+
+		assertThat(threads).hasSize(1).noneMatch(nome -> nome.startsWith("estoque-lote-"));
+	}
+
+	@Test
+	public void darBaixa_quandoSozinhaNaJanela_entaoEnviadaAoFimDaEsperaComOsPropriosItens() {
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+		agrupador = new AgrupadorBaixasEstoque(estoqueExternal, executor, Duration.ofMillis(5), 500);
+
+		assertThat(agrupador.darBaixa(List.of(1L, 2L), List.of(3L, 4L))).isEqualTo(new EstoqueBaixaDTO(true));
+
+		verify(estoqueExternal).darBaixa(List.of(1L, 2L), List.of(3L, 4L));
+	}
+
+	/** Baixas em threads separadas, na ordem da lista; os resultados voltam na mesma ordem. */
+	private List<EstoqueBaixaDTO> baixasSimultaneas(List<List<Long>> ids, List<List<Long>> quantidades)
+			throws Exception {
+		List<EstoqueBaixaDTO> resultados = new ArrayList<>();
+		for (Future<EstoqueBaixaDTO> pendente : baixasEmThreads(ids, quantidades)) {
+			resultados.add(pendente.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS));
+		}
+		return resultados;
+	}
+
+	private List<Future<EstoqueBaixaDTO>> baixasEmThreads(List<List<Long>> ids, List<List<Long>> quantidades) {
+		List<Future<EstoqueBaixaDTO>> pendentes = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i++) {
+			List<Long> produtosIds = ids.get(i);
+			List<Long> produtosQuantidades = quantidades.get(i);
+			pendentes.add(executor.submit(() -> agrupador.darBaixa(produtosIds, produtosQuantidades)));
+		}
+		return pendentes;
+	}
+}
@@ -0,0 +1,120 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.EstoqueExternalStub;
+import ecommerce.external.PagamentoExternalStub;
+
+/**
+ * Orçamento de alocação do caminho quente com o motor {@link MotorPrecificacao#PONTO_FIXO}, medido pelos
+ * contadores de alocação por thread do {@link ThreadMXBean}. Os orçamentos são fixos e o carrinho tem
+ * {@value #ITENS} itens, então qualquer alocação por item os estoura.
+ */
+public class AlocacaoCheckoutTest {
+
+	private static final int ITENS = 1_000;
+	private static final int AQUECIMENTO = 20_000;
+	private static final int MEDICOES = 5_000;
+
+	/** Bytes por cotação com passada completa pelos itens: os totais do carrinho e o resultado. */
+	private static final long ORCAMENTO_COTACAO = 512;
+	/** Bytes por finalização com os stubs: cotação, DTOs dos serviços externos e visões das listas. */
+	private static final long ORCAMENTO_FINALIZACAO = 1_024;
+
+	private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private CarrinhoDeCompras carrinho;
+	private List<ItemCompra> itens;
+	private Cliente cliente;
+
+	@BeforeEach
+	public void setUp() {
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		itens = new ArrayList<>();
+		for (int i = 0; i < ITENS; i++) {
+			Produto produto = new Produto((long) i, "P", "D", BigDecimal.valueOf(100 + i, 2),
+					BigDecimal.valueOf(i % 7, 1), new BigDecimal("10"), new BigDecimal("12"), new BigDecimal("3"),
+					i % 5 == 0, TipoProduto.values()[i % TipoProduto.values().length]);
+			itens.add(new ItemCompra((long) i, produto, 1L + i % 4));
+		}
+		cliente = new Cliente(1L, "Cliente", Regiao.NORDESTE, TipoCliente.PRATA);
+		carrinho = new CarrinhoDeCompras(1L, cliente, itens, null);
+	}
+
+	@Test
+	public void calcularCustoTotal_quandoPontoFixoComPassadaCompleta_entaoAlocacaoDentroDoOrcamento() {
+		CompraService pontoFixo = CompraServiceBuilder.precificacao(MotorPrecificacao.PONTO_FIXO);
+		CompraService referencia = CompraServiceBuilder.precificacao(MotorPrecificacao.BIG_DECIMAL);
+
+		Runnable cotacaoPontoFixo = () -> {
+			carrinho.setItens(itens);
+			pontoFixo.calcularCustoTotal(carrinho, cliente);
+		};
+		Runnable cotacaoReferencia = () -> {
+			carrinho.setItens(itens);
+			referencia.calcularCustoTotal(carrinho, cliente);
+		};
+
+		assertThat(bytesPorOperacao(cotacaoPontoFixo)).isLessThanOrEqualTo(ORCAMENTO_COTACAO);
+		// Sanidade da medição: o caminho BigDecimal aloca por item.
+		assertThat(bytesPorOperacao(cotacaoReferencia)).isGreaterThan((long) ITENS * 16);
+	}
+
+	@Test
+	public void finalizarCompra_quandoPontoFixo_entaoAlocacaoDentroDoOrcamento() {
+		CarrinhoDeComprasService carrinhoService = new CarrinhoDeComprasService(null) {
+			private final Optional<CarrinhoDeCompras> encontrado = Optional.of(carrinho);
+
+			@Override
+			public Optional<CarrinhoDeCompras> buscarParaFinalizacao(Long carrinhoId, Long clienteId) {
+				return encontrado;
+			}
+		};
+		ClienteService clienteService = new ClienteService(null) {
+			@Override
+			public Cliente buscarPorId(Long clienteId) {
+				return cliente;
+			}
+		};
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(new EstoqueExternalStub(), new PagamentoExternalStub())
+				.motor(MotorPrecificacao.PONTO_FIXO)
+				.construir();
+
+		assertThat(bytesPorOperacao(() -> service.finalizarCompra(1L, 1L)))
+				.isLessThanOrEqualTo(ORCAMENTO_FINALIZACAO);
+	}
+
+	private long bytesPorOperacao(Runnable operacao) {
+		for (int i = 0; i < AQUECIMENTO; i++) {
+			operacao.run();
+		}
+
+		long antes = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < MEDICOES; i++) {
+			operacao.run();
+		}
+		return (threads.getCurrentThreadAllocatedBytes() - antes) / MEDICOES;
+	}
+}
@@ -0,0 +1,155 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheCotacoesTest {
+
+	@TempDir
+	Path diretorio;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CacheCotacoes cache = new CacheCotacoes(100, Duration.ofMinutes(10), meterRegistry);
+
+	private final Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+	@Test
+	public void calcularCustoTotal_quandoMesmoCarrinho_entaoUsaCache() {
+		CompraService service = service(ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.BIG_DECIMAL);
+		Produto produto = produto(1L, "10.00");
+
+		assertThat(service.calcularCustoTotal(carrinho(produto, 2L), cliente)).isEqualByComparingTo("20.00");
+		assertThat(service.calcularCustoTotal(carrinho(produto, 2L), cliente)).isEqualByComparingTo("20.00");
+
+		assertThat(cache.estatisticas().missCount()).isEqualTo(1);
+		assertThat(cache.estatisticas().hitCount()).isEqualTo(1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", CacheCotacoes.NOME).tag("result", "hit")
+				.functionCounter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void calcularCustoTotal_quandoQuantidadeOuClienteDiferente_entaoNaoReusaCotacao() {
+		CompraService service = service(ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.PONTO_FIXO);
+		Produto produto = new Produto(1L, "P", "D", new BigDecimal("10.00"), new BigDecimal("10.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+
+		BigDecimal sudeste = service.calcularCustoTotal(carrinho(produto, 1L), cliente);
+		BigDecimal norte = service.calcularCustoTotal(carrinho(produto, 1L),
+				new Cliente(1L, "C", Regiao.NORTE, TipoCliente.BRONZE));
+		BigDecimal ouro = service.calcularCustoTotal(carrinho(produto, 1L),
+				new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.OURO));
+		BigDecimal duasUnidades = service.calcularCustoTotal(carrinho(produto, 2L), cliente);
+
+		assertThat(sudeste).isEqualByComparingTo("42.00");
+		assertThat(norte).isEqualByComparingTo("51.60");
+		assertThat(ouro).isEqualByComparingTo("10.00");
+		assertThat(duasUnidades).isEqualByComparingTo("112.00");
+		assertThat(cache.estatisticas().hitCount()).isZero();
+	}
+
+	@Test
+	public void calcularCustoTotal_quandoPrecoOuDimensaoAlterados_entaoRecalcula() {
+		CompraService service = service(ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.BIG_DECIMAL);
+		Produto produto = produto(1L, "10.00");
+		CarrinhoDeCompras carrinho = carrinho(produto, 1L);
+
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("10.00");
+
+		produto.setPreco(new BigDecimal("12.00"));
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("12.00");
+
+		produto.setAltura(new BigDecimal("600"));
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("44.00");
+
+		assertThat(cache.estatisticas().hitCount()).isZero();
+		assertThat(cache.estatisticas().missCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void calcularCustoTotal_quandoRegrasRecarregadas_entaoRecalcula() throws IOException {
+		Path arquivo = diretorio.resolve("regras.properties");
+		String regrasPadrao;
+		try (InputStream entrada = getClass().getResourceAsStream("/" + ProvedorRegrasPrecificacao.ARQUIVO_PADRAO)) {
+			regrasPadrao = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		Files.writeString(arquivo, regrasPadrao);
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+		CompraService service = service(provedor, MotorPrecificacao.BIG_DECIMAL);
+		CarrinhoDeCompras carrinho = carrinho(produto(1L, "10.00"), 3L);
+
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("28.50");
+
+		Files.writeString(arquivo, regrasPadrao.replace("3:0.05", "3:0.10"));
+		provedor.recarregar();
+
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("27.00");
+	}
+
+	@Test
+	public void invalidarProduto_quandoCarrinhosEmCache_entaoRemoveSoOsQueContemOProduto() {
+		CompraService service = service(ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.BIG_DECIMAL);
+		Produto primeiro = produto(1L, "10.00");
+		Produto segundo = produto(2L, "20.00");
+
+		service.calcularCustoTotal(carrinho(primeiro, 1L), cliente);
+		service.calcularCustoTotal(carrinho(segundo, 1L), cliente);
+		assertThat(cache.tamanhoEstimado()).isEqualTo(2);
+
+		cache.invalidarProduto(1L);
+
+		assertThat(cache.tamanhoEstimado()).isEqualTo(1);
+		service.calcularCustoTotal(carrinho(segundo, 1L), cliente);
+		assertThat(cache.estatisticas().hitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void calcularCustoTotal_quandoProdutoSemId_entaoNaoUsaCache() {
+		CompraService service = service(ProvedorRegrasPrecificacao.padrao(), MotorPrecificacao.BIG_DECIMAL);
+
+		service.calcularCustoTotal(carrinho(produto(null, "10.00"), 1L), cliente);
+
+		assertThat(cache.tamanhoEstimado()).isZero();
+		assertThat(cache.estatisticas().requestCount()).isZero();
+	}
+
+	private CompraService service(ProvedorRegrasPrecificacao provedor, MotorPrecificacao motor) {
+		return CompraServiceBuilder.compraService().regras(provedor).motor(motor).cacheCotacoes(cache)
+				.construir();
+	}
+
+	private Produto produto(Long id, String preco) {
+		return new Produto(id, "P", "D", new BigDecimal(preco), new BigDecimal("1.0"),
+				new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+	}
+
+	private CarrinhoDeCompras carrinho(Produto produto, Long quantidade) {
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, produto, quantidade));
+
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.setItens(itens);
+		return carrinho;
+	}
+}
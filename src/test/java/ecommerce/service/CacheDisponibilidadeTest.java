@@ -0,0 +1,202 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheDisponibilidadeTest {
+
+	private final AtomicLong agora = new AtomicLong(1_000_000_000L);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private IEstoqueExternal estoqueExternal;
+	private CacheDisponibilidade cache;
+
+	@BeforeEach
+	public void setUp() {
+		estoqueExternal = mock(IEstoqueExternal.class);
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(true, List.of()));
+		cache = new CacheDisponibilidade(estoqueExternal, Duration.ofSeconds(2), Duration.ofSeconds(1), 100,
+				meterRegistry, agora::get);
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoRepetidaDentroDaValidade_entaoRespondeDoCache() {
+		assertThat(cache.verificarDisponibilidade(List.of(1L, 2L), List.of(3L, 1L)).disponivel()).isTrue();
+		agora.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+		// Quantidade menor que a já vista disponível também é acerto.
+		assertThat(cache.verificarDisponibilidade(List.of(1L, 2L), List.of(2L, 1L)).disponivel()).isTrue();
+
+		verify(estoqueExternal, times(1)).verificarDisponibilidade(anyList(), anyList());
+		assertThat(consultas("acerto")).isEqualTo(2.0);
+		assertThat(consultas("falta")).isEqualTo(2.0);
+		assertThat(meterRegistry.get("estoque.disponibilidade.idade").timer().max(TimeUnit.MILLISECONDS))
+				.isEqualTo(500.0);
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoValidadeExpira_entaoConsultaDeNovo() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(1L));
+		agora.addAndGet(Duration.ofSeconds(2).toNanos());
+		cache.verificarDisponibilidade(List.of(1L), List.of(1L));
+
+		verify(estoqueExternal, times(2)).verificarDisponibilidade(anyList(), anyList());
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoQuantidadeMaiorQueAVista_entaoConsultaEstoque() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(1L));
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+
+		verify(estoqueExternal).verificarDisponibilidade(List.of(1L), List.of(5L));
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoIndisponivel_entaoCacheNegativoComValidadePropria() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(false, List.of(2L)));
+
+		DisponibilidadeDTO primeira = cache.verificarDisponibilidade(List.of(1L, 2L), List.of(1L, 4L));
+		DisponibilidadeDTO segunda = cache.verificarDisponibilidade(List.of(2L, 1L), List.of(6L, 1L));
+
+		assertThat(primeira.disponivel()).isFalse();
+		assertThat(primeira.idsProdutosIndisponiveis()).containsExactly(2L);
+		assertThat(segunda.idsProdutosIndisponiveis()).containsExactly(2L);
+		verify(estoqueExternal, times(1)).verificarDisponibilidade(anyList(), anyList());
+		assertThat(consultas("acerto_negativo")).isEqualTo(1.0);
+
+		agora.addAndGet(Duration.ofSeconds(1).toNanos());
+		cache.verificarDisponibilidade(List.of(1L, 2L), List.of(1L, 4L));
+		// Só o produto 2 volta ao estoque: a disponibilidade do 1 ainda vale.
+		verify(estoqueExternal).verificarDisponibilidade(List.of(2L), List.of(4L));
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoNegativaSemProdutos_entaoNaoGuarda() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(false, List.of()));
+
+		assertThat(cache.verificarDisponibilidade(List.of(1L), List.of(1L)).disponivel()).isFalse();
+		assertThat(cache.verificarDisponibilidade(List.of(1L), List.of(1L)).disponivel()).isFalse();
+
+		verify(estoqueExternal, times(2)).verificarDisponibilidade(anyList(), anyList());
+		assertThat(cache.tamanhoEstimado()).isZero();
+	}
+
+	@Test
+	public void verificarDisponibilidade_quandoFaltasSimultaneas_entaoUmaChamadaAoEstoque() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenAnswer(inv -> {
+			liberar.await(5, TimeUnit.SECONDS);
+			return new DisponibilidadeDTO(true, List.of());
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DisponibilidadeDTO>> consultas = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				consultas.add(executor.submit(() -> cache.verificarDisponibilidade(List.of(1L), List.of(1L))));
+			}
+			Thread.sleep(100);
+			liberar.countDown();
+
+			for (Future<DisponibilidadeDTO> consulta : consultas) {
+				assertThat(consulta.get(5, TimeUnit.SECONDS).disponivel()).isTrue();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(estoqueExternal, times(1)).verificarDisponibilidade(anyList(), anyList());
+		assertThat(meterRegistry.get("estoque.disponibilidade.chamadas").counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void verificarSemCache_sempreConsultaEstoqueEAtualizaCache() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(1L));
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(false, List.of(1L)));
+
+		assertThat(cache.verificarSemCache(List.of(1L), List.of(1L)).disponivel()).isFalse();
+		assertThat(cache.verificarDisponibilidade(List.of(1L), List.of(1L)).disponivel()).isFalse();
+
+		verify(estoqueExternal, times(2)).verificarDisponibilidade(anyList(), anyList());
+	}
+
+	@Test
+	public void finalizarCompra_quandoCacheHabilitado_entaoVerificaNoEstoqueEInvalidaAposBaixa() {
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble())).thenReturn(new PagamentoDTO(true, 999L));
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+		CompraService service = compraService(pagamentoExternal);
+
+		assertThat(service.consultarDisponibilidade(10L, 20L).disponivel()).isTrue();
+		assertThat(service.consultarDisponibilidade(10L, 20L).disponivel()).isTrue();
+		verify(estoqueExternal, times(1)).verificarDisponibilidade(anyList(), anyList());
+
+		CompraDTO compra = service.finalizarCompra(10L, 20L);
+
+		assertThat(compra.sucesso()).isTrue();
+		verify(estoqueExternal, times(2)).verificarDisponibilidade(anyList(), anyList());
+		assertThat(cache.tamanhoEstimado()).isZero();
+	}
+
+	private double consultas(String resultado) {
+		return meterRegistry.get("estoque.disponibilidade.consultas").tag("resultado", resultado).counter().count();
+	}
+
+	private CompraService compraService(IPagamentoExternal pagamentoExternal) {
+		Cliente cliente = new Cliente(20L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(cliente)));
+
+		return CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.cacheDisponibilidade(cache)
+				.construir();
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto p1 = new Produto(1L, "Produto 1", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+		Produto p2 = new Produto(2L, "Produto 2", "Desc", new BigDecimal("20.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ELETRONICO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, p1, 1L));
+		itens.add(new ItemCompra(2L, p2, 2L));
+		return new CarrinhoDeCompras(10L, cliente, itens, null);
+	}
+}
@@ -0,0 +1,114 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.ProdutoRepository;
+
+public class CalculadoraFreteTest {
+
+	private final CalculadoraFrete calculadora = new CalculadoraFrete();
+	private final PrecificacaoPontoFixo pontoFixo = new PrecificacaoPontoFixo();
+	private final RegrasPrecificacao regras = ProvedorRegrasPrecificacao.padrao().atual();
+
+	private static final String[] PESOS = { "0.0", "1.0", "2.50", "5.00", "5.01", "10.00", "10.01", "50.00",
+			"50.01", "0.333", "123.4567" };
+	private static final long[] QUANTIDADES = { 1, 2, 3, 7, 10 };
+
+	@Test
+	public void estimarFrete_quandoTodasAsFaixasRegioesETipos_entaoIgualAoCalculoEmEtapas() {
+		for (String peso : PESOS) {
+			for (long quantidade : QUANTIDADES) {
+				for (boolean fragil : new boolean[] { false, true }) {
+					Produto produto = produto(peso, fragil);
+					for (Regiao regiao : Regiao.values()) {
+						for (TipoCliente tipo : TipoCliente.values()) {
+							assertThat(calculadora.estimarFrete(produto, quantidade, regiao, tipo, regras))
+									.as("peso=%s qtd=%d fragil=%s %s/%s", peso, quantidade, fragil, regiao, tipo)
+									.isEqualByComparingTo(freteEmEtapas(produto, quantidade, regiao, tipo));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void calcularFrete_quandoPesoNulo_entaoSoAdicionalFragil() {
+		BigDecimal frete = calculadora.calcularFrete(null, 2, Regiao.NORTE, TipoCliente.PRATA, regras);
+
+		assertThat(frete).isEqualByComparingTo("6.50");
+	}
+
+	@Test
+	public void estimarFrete_quandoPesoForaDaEscala_entaoUsaCaminhoBigDecimal() {
+		Produto produto = produto("7.00000000001", true);
+
+		assertThat(pontoFixo.calcularFreteEmCentavos(produto.getPesoTributavelEscalado(), 3, 3, Regiao.SUL,
+				TipoCliente.BRONZE, regras)).isEqualTo(PrecificacaoPontoFixo.FORA_DE_ESCALA);
+		assertThat(calculadora.estimarFrete(produto, 3, Regiao.SUL, TipoCliente.BRONZE, regras))
+				.isEqualTo(freteEmEtapas(produto, 3, Regiao.SUL, TipoCliente.BRONZE));
+	}
+
+	@Test
+	public void estimarFrete_quandoQuantidadeEstouraLong_entaoUsaCaminhoBigDecimal() {
+		Produto produto = produto("50.01", false);
+		long quantidade = Long.MAX_VALUE / 1_000;
+
+		assertThat(calculadora.estimarFrete(produto, quantidade, Regiao.NORDESTE, TipoCliente.BRONZE, regras))
+				.isEqualTo(freteEmEtapas(produto, quantidade, Regiao.NORDESTE, TipoCliente.BRONZE));
+	}
+
+	@Test
+	public void freteService_quandoProdutoValido_entaoEstimaFrete() {
+		ProdutoRepository repository = mock(ProdutoRepository.class);
+		when(repository.findById(1L)).thenReturn(Optional.of(produto("6.0", true)));
+		FreteService service = new FreteService(repository, ProvedorRegrasPrecificacao.padrao());
+
+		// (6 * 2.00 + 12.00 + 5.00) * 1.30
+		assertThat(service.estimarFrete(1L, 1, Regiao.NORTE, TipoCliente.BRONZE)).isEqualTo(new BigDecimal("37.70"));
+	}
+
+	@Test
+	public void freteService_quandoProdutoInexistenteOuQuantidadeInvalida_entaoLancaExcecao() {
+		ProdutoRepository repository = mock(ProdutoRepository.class);
+		when(repository.findById(2L)).thenReturn(Optional.empty());
+		FreteService service = new FreteService(repository, ProvedorRegrasPrecificacao.padrao());
+
+		assertThatThrownBy(() -> service.estimarFrete(2L, 1, Regiao.SUL, TipoCliente.OURO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Produto não encontrado.");
+		assertThatThrownBy(() -> service.estimarFrete(2L, 0, Regiao.SUL, TipoCliente.OURO))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Quantidade do item deve ser maior que zero.");
+	}
+
+	/** Frete aplicando faixa, adicional frágil, região e fidelidade em sequência, como antes da tabela. */
+	private BigDecimal freteEmEtapas(Produto produto, long quantidade, Regiao regiao, TipoCliente tipo) {
+		BigDecimal pesoTotal = produto.calcularPesoTributavel().multiply(BigDecimal.valueOf(quantidade));
+		int faixa = regras.faixaDePeso(pesoTotal);
+		BigDecimal frete = pesoTotal.multiply(regras.valorPorKg(faixa)).add(regras.taxaFixa(faixa));
+		if (produto.isFragil()) {
+			frete = frete.add(regras.taxaFragil().multiply(BigDecimal.valueOf(quantidade)));
+		}
+		return frete.multiply(regras.multiplicador(regiao)).multiply(regras.fidelidade(tipo))
+				.setScale(2, RoundingMode.HALF_UP);
+	}
+
+	private Produto produto(String peso, boolean fragil) {
+		return new Produto(1L, "P", "D", new BigDecimal("10.00"), new BigDecimal(peso), new BigDecimal("10"),
+				new BigDecimal("10"), new BigDecimal("10"), fragil, TipoProduto.ELETRONICO);
+	}
+}
@@ -0,0 +1,277 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.DependenciaIndisponivelException;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueExternalAssincrono;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.IPagamentoExternalAssincrono;
+import ecommerce.external.ResultadoIncertoException;
+
+public class CompraAssincronaServiceTest {
+
+	private final Cliente cliente = new Cliente(20L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+	private final ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+	private CarrinhoDeComprasService carrinhoService;
+	private ClienteService clienteService;
+	private IEstoqueExternalAssincrono estoqueExternal;
+	private IPagamentoExternalAssincrono pagamentoExternal;
+
+	@BeforeEach
+	public void setUp() {
+		carrinhoService = mock(CarrinhoDeComprasService.class);
+		clienteService = mock(ClienteService.class);
+		estoqueExternal = mock(IEstoqueExternalAssincrono.class);
+		pagamentoExternal = mock(IPagamentoExternalAssincrono.class);
+
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(1L)));
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble()))
+				.thenReturn(CompletableFuture.completedFuture(new PagamentoDTO(true, 999L)));
+		when(pagamentoExternal.cancelarPagamento(anyLong(), anyLong()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new EstoqueBaixaDTO(true)));
+	}
+
+	@Test
+	public void finalizarCompra_quandoDisponibilidadePendente_entaoRetornaSemBloquearEConcluiNaResposta() {
+		CompletableFuture<DisponibilidadeDTO> disponibilidade = new CompletableFuture<>();
+		when(estoqueExternal.verificarDisponibilidade(List.of(1L, 2L), List.of(1L, 1L))).thenReturn(disponibilidade);
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(retorno).isNotDone();
+		verifyNoInteractions(pagamentoExternal);
+
+		disponibilidade.complete(new DisponibilidadeDTO(true, List.of()));
+
+		assertThat(retorno).isCompletedWithValue(new CompraDTO(true, 999L, "Compra finalizada com sucesso."));
+		verify(pagamentoExternal).autorizarPagamento(20L, 30.00);
+		verify(estoqueExternal).darBaixa(List.of(1L, 2L), List.of(1L, 1L));
+	}
+
+	@Test
+	public void finalizarCompra_quandoSemEstoque_entaoFalhaSemAutorizarPagamento() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(false, List.of(2L))));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(IllegalStateException.class).hasMessage("Itens fora de estoque.");
+		verifyNoInteractions(pagamentoExternal);
+	}
+
+	@Test
+	public void finalizarCompra_quandoDisponibilidadeExcedeTimeout_entaoCancelaVerificacao() {
+		CompletableFuture<DisponibilidadeDTO> disponibilidade = new CompletableFuture<>();
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenReturn(disponibilidade);
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofMillis(50)).finalizarCompra(10L, 20L);
+
+		assertThat(retorno).failsWithin(Duration.ofSeconds(5));
+		assertThat(erro(retorno)).isInstanceOf(IllegalStateException.class)
+				.hasMessage("Tempo esgotado ao verificar disponibilidade.");
+		assertThat(disponibilidade).isCancelled();
+		verifyNoInteractions(pagamentoExternal);
+	}
+
+	@Test
+	public void finalizarCompra_quandoCarrinhoInvalido_entaoCancelaVerificacaoEmAndamento() {
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(0L)));
+		CompletableFuture<DisponibilidadeDTO> disponibilidade = new CompletableFuture<>();
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenReturn(disponibilidade);
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Quantidade do item deve ser maior que zero.");
+		assertThat(disponibilidade).isCancelled();
+		verifyNoInteractions(pagamentoExternal);
+	}
+
+	@Test
+	public void finalizarCompra_quandoClienteNaoEncontrado_entaoFalhaSemChamadasExternas() {
+		when(clienteService.buscarPorId(21L)).thenThrow(new IllegalArgumentException("Cliente não encontrado"));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 21L);
+
+		assertThat(erro(retorno)).isInstanceOf(IllegalArgumentException.class).hasMessage("Cliente não encontrado");
+		verifyNoInteractions(estoqueExternal, pagamentoExternal);
+	}
+
+	@Test
+	public void finalizarCompra_quandoBaixaFalha_entaoCancelaPagamento() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new EstoqueBaixaDTO(false)));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(IllegalStateException.class)
+				.hasMessage("Erro ao dar baixa no estoque.");
+		verify(pagamentoExternal).cancelarPagamento(20L, 999L);
+	}
+
+	@Test
+	public void finalizarCompra_quandoBaixaLancaExcecao_entaoCancelaPagamentoERepassaAFalha() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(CompletableFuture
+				.failedFuture(new DependenciaIndisponivelException("Serviço de estoque indisponível no momento.")));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(DependenciaIndisponivelException.class);
+		assertThat(FalhaCompra.de(erro(retorno))).isEqualTo(FalhaCompra.DEPENDENCIA_INDISPONIVEL);
+		verify(pagamentoExternal).cancelarPagamento(20L, 999L);
+		assertThat(emConferencia.pendentes()).isEmpty();
+	}
+
+	@Test
+	public void finalizarCompra_quandoCancelamentoFalha_entaoRecusaEDeixaEmConferencia() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new EstoqueBaixaDTO(false)));
+		when(pagamentoExternal.cancelarPagamento(20L, 999L)).thenReturn(CompletableFuture
+				.failedFuture(new DependenciaIndisponivelException("Serviço de pagamento indisponível no momento.")));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(CompraEmConferenciaException.class)
+				.hasMessage("Pagamento não pôde ser cancelado; compra em conferência.");
+		assertThat(FalhaCompra.de(erro(retorno))).isEqualTo(FalhaCompra.RECUSADA);
+		assertThat(emConferencia.pendentes()).extracting(ComprasEmConferencia.Pendencia::operacao)
+				.containsExactly(ComprasEmConferencia.Operacao.CANCELAMENTO_PAGAMENTO);
+	}
+
+	@Test
+	public void finalizarCompra_quandoBaixaPassaDoTempo_entaoConcluiEmConferenciaSemCancelarPagamento() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(CompletableFuture
+				.failedFuture(new ResultadoIncertoException("Tempo esgotado ao chamar o serviço de estoque.")));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(retorno).isCompletedWithValue(
+				new CompraDTO(true, 999L, "Compra finalizada; baixa de estoque em conferência."));
+		verify(pagamentoExternal, never()).cancelarPagamento(anyLong(), anyLong());
+		assertThat(emConferencia.pendentes()).extracting(ComprasEmConferencia.Pendencia::operacao)
+				.containsExactly(ComprasEmConferencia.Operacao.BAIXA_ESTOQUE);
+	}
+
+	@Test
+	public void finalizarCompra_quandoAutorizacaoPassaDoTempo_entaoRecusaSemBaixaEDeixaEmConferencia() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble())).thenReturn(CompletableFuture
+				.failedFuture(new ResultadoIncertoException("Tempo esgotado ao chamar o serviço de pagamento.")));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(CompraEmConferenciaException.class)
+				.hasMessage("Resultado do pagamento incerto; compra em conferência.");
+		assertThat(FalhaCompra.de(erro(retorno))).isEqualTo(FalhaCompra.RECUSADA);
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+		assertThat(emConferencia.pendentes()).extracting(ComprasEmConferencia.Pendencia::operacao)
+				.containsExactly(ComprasEmConferencia.Operacao.AUTORIZACAO_PAGAMENTO);
+	}
+
+	@Test
+	public void finalizarCompra_quandoPagamentoNegado_entaoNaoDaBaixa() {
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(CompletableFuture.completedFuture(new DisponibilidadeDTO(true, List.of())));
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble()))
+				.thenReturn(CompletableFuture.completedFuture(new PagamentoDTO(false, null)));
+
+		CompletableFuture<CompraDTO> retorno = servico(Duration.ofSeconds(10)).finalizarCompra(10L, 20L);
+
+		assertThat(erro(retorno)).isInstanceOf(IllegalStateException.class).hasMessage("Pagamento não autorizado.");
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+	}
+
+	@Test
+	public void finalizarCompra_quandoBaixasEmLote_entaoUsaFinalizacaoBloqueanteNoExecutorDasFinalizacoes() {
+		IEstoqueExternal estoqueBloqueante = mock(IEstoqueExternal.class);
+		IPagamentoExternal pagamentoBloqueante = mock(IPagamentoExternal.class);
+		AgrupadorBaixasEstoque agrupador = mock(AgrupadorBaixasEstoque.class);
+		when(estoqueBloqueante.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(true, List.of()));
+		when(pagamentoBloqueante.autorizarPagamento(eq(20L), anyDouble())).thenReturn(new PagamentoDTO(true, 777L));
+		when(agrupador.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+		CompraService compraService = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueBloqueante, pagamentoBloqueante)
+				.timeoutDisponibilidade(Duration.ofSeconds(10))
+				.agrupadorBaixas(agrupador)
+				.construir();
+
+		List<Runnable> finalizacoes = new ArrayList<>();
+
+		CompletableFuture<CompraDTO> retorno = new CompraAssincronaService(compraService, carrinhoService,
+				clienteService, estoqueExternal, pagamentoExternal, Duration.ofSeconds(10), finalizacoes::add)
+				.finalizarCompra(10L, 20L);
+
+		assertThat(retorno).isNotDone();
+		assertThat(finalizacoes).hasSize(1);
+		finalizacoes.get(0).run();
+
+		assertThat(retorno).isCompletedWithValue(new CompraDTO(true, 777L, "Compra finalizada com sucesso."));
+		verify(agrupador).darBaixa(List.of(1L, 2L), List.of(1L, 1L));
+		verifyNoInteractions(estoqueExternal, pagamentoExternal);
+	}
+
+	private CompraAssincronaService servico(Duration timeoutDisponibilidade) {
+		CompraService compraService = CompraServiceBuilder.compraService().servicos(carrinhoService, clienteService)
+				.emConferencia(emConferencia).construir();
+		return new CompraAssincronaService(compraService, carrinhoService, clienteService, estoqueExternal,
+				pagamentoExternal, timeoutDisponibilidade, Runnable::run);
+	}
+
+	/** Exceção com que o future falhou, sem o embrulho do encadeamento. */
+	private static Throwable erro(CompletableFuture<?> future) {
+		assertThat(future).isCompletedExceptionally();
+		return CompraAssincronaService.causa(catchThrowable(future::join));
+	}
+
+	private CarrinhoDeCompras carrinho(long quantidade) {
+		Produto p1 = new Produto(1L, "Produto 1", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+		Produto p2 = new Produto(2L, "Produto 2", "Desc", new BigDecimal("20.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ELETRONICO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, p1, 1L));
+		itens.add(new ItemCompra(2L, p2, quantidade));
+		return new CarrinhoDeCompras(10L, cliente, itens, null);
+	}
+}
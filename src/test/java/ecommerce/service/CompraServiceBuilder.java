@@ -0,0 +1,106 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+
+/**
+ * Monta um {@link CompraService} para os testes. O que não for informado fica nulo ou com o padrão da aplicação:
+ * regras padrão, motor BigDecimal, pool comum, verificação de disponibilidade na própria thread com 5 s de prazo e
+ * sem caches, lote de baixas ou reservas.
+ */
+final class CompraServiceBuilder {
+
+	private CarrinhoDeComprasService carrinhoService;
+	private ClienteService clienteService;
+	private IEstoqueExternal estoqueExternal;
+	private IPagamentoExternal pagamentoExternal;
+	private ProvedorRegrasPrecificacao regras = ProvedorRegrasPrecificacao.padrao();
+	private MotorPrecificacao motor = MotorPrecificacao.BIG_DECIMAL;
+	private ForkJoinPool poolCotacoes = ForkJoinPool.commonPool();
+	private CacheCotacoes cacheCotacoes;
+	private Executor executorChamadasExternas = Runnable::run;
+	private Duration timeoutDisponibilidade = Duration.ofSeconds(5);
+	private AgrupadorBaixasEstoque agrupadorBaixas;
+	private ReservasEstoque reservasEstoque;
+	private CacheDisponibilidade cacheDisponibilidade;
+	private ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+	private CompraServiceBuilder() {
+	}
+
+	static CompraServiceBuilder compraService() {
+		return new CompraServiceBuilder();
+	}
+
+	/** Só o cálculo de custo: sem serviços de carrinho, cliente, estoque ou pagamento. */
+	static CompraService precificacao(MotorPrecificacao motor) {
+		return compraService().motor(motor).construir();
+	}
+
+	CompraServiceBuilder servicos(CarrinhoDeComprasService carrinhoService, ClienteService clienteService) {
+		this.carrinhoService = carrinhoService;
+		this.clienteService = clienteService;
+		return this;
+	}
+
+	CompraServiceBuilder externos(IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal) {
+		this.estoqueExternal = estoqueExternal;
+		this.pagamentoExternal = pagamentoExternal;
+		return this;
+	}
+
+	CompraServiceBuilder regras(ProvedorRegrasPrecificacao regras) {
+		this.regras = regras;
+		return this;
+	}
+
+	CompraServiceBuilder motor(MotorPrecificacao motor) {
+		this.motor = motor;
+		return this;
+	}
+
+	CompraServiceBuilder cacheCotacoes(CacheCotacoes cacheCotacoes) {
+		this.cacheCotacoes = cacheCotacoes;
+		return this;
+	}
+
+	CompraServiceBuilder executorChamadasExternas(Executor executorChamadasExternas) {
+		this.executorChamadasExternas = executorChamadasExternas;
+		return this;
+	}
+
+	CompraServiceBuilder timeoutDisponibilidade(Duration timeoutDisponibilidade) {
+		this.timeoutDisponibilidade = timeoutDisponibilidade;
+		return this;
+	}
+
+	CompraServiceBuilder agrupadorBaixas(AgrupadorBaixasEstoque agrupadorBaixas) {
+		this.agrupadorBaixas = agrupadorBaixas;
+		return this;
+	}
+
+	CompraServiceBuilder reservasEstoque(ReservasEstoque reservasEstoque) {
+		this.reservasEstoque = reservasEstoque;
+		return this;
+	}
+
+	CompraServiceBuilder cacheDisponibilidade(CacheDisponibilidade cacheDisponibilidade) {
+		this.cacheDisponibilidade = cacheDisponibilidade;
+		return this;
+	}
+
+	CompraServiceBuilder emConferencia(ComprasEmConferencia emConferencia) {
+		this.emConferencia = emConferencia;
+		return this;
+	}
+
+	CompraService construir() {
+		return new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal, regras, motor,
+				poolCotacoes, cacheCotacoes, executorChamadasExternas, timeoutDisponibilidade, agrupadorBaixas,
+				reservasEstoque, cacheDisponibilidade, emConferencia);
+	}
+}
@@ -2,17 +2,23 @@ package ecommerce.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.CotacaoRequisicaoDTO;
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
 import ecommerce.dto.PagamentoDTO;
@@ -23,8 +29,10 @@ import ecommerce.entity.Produto;
 import ecommerce.entity.Regiao;
 import ecommerce.entity.TipoCliente;
 import ecommerce.entity.TipoProduto;
+import ecommerce.external.DependenciaIndisponivelException;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.ResultadoIncertoException;
 
 public class CompraServiceTest {
 
@@ -34,7 +42,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularCustoTotal() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -53,7 +61,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularSubTotalSimples() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -77,7 +85,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularCustoProdutosAoAplicarDescontoPorTipo() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -111,7 +119,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularCustoProdutosAoAplicarDescontoPorValorTotalDoCarrinho() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -132,7 +140,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularFrete_quandoPesoTotalAte5_entaoFreteIsento() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -151,7 +159,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularFrete_quandoPesoEntre5e10_entaoFretePorKgMaisTaxaMinima() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -170,7 +178,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularFrete_quandoPesoEntre10e50_entaoFrete4PorKgMaisTaxaMinima() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -189,7 +197,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularFrete_quandoProdutoFragil_entaoSoma5PorUnidade() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -208,7 +216,7 @@ public class CompraServiceTest {
 
 	@Test
 	public void calcularFrete_quandoRegiaoNorte_entaoMultiplicaPor130() {
-		CompraService service = new CompraService(null, null, null, null);
+		CompraService service = CompraServiceBuilder.compraService().construir();
 
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -234,7 +242,10 @@ public class CompraServiceTest {
 		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
 		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
 
-		CompraService service = new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal);
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.construir();
 
 		Long carrinhoId = 10L;
 		Long clienteId = 20L;
@@ -242,8 +253,8 @@ public class CompraServiceTest {
 		Cliente cliente = new Cliente(clienteId, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
 		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
 
-		when(clienteService.buscarPorId(clienteId)).thenReturn(cliente);
-		when(carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(carrinhoId, clienteId)).thenReturn(Optional.of(carrinho));
 
 		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
 				.thenReturn(new DisponibilidadeDTO(true, List.of()));
@@ -274,7 +285,10 @@ public class CompraServiceTest {
 		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
 		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
 
-		CompraService service = new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal);
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.construir();
 
 		Long carrinhoId = 1L;
 		Long clienteId = 2L;
@@ -282,8 +296,8 @@ public class CompraServiceTest {
 		Cliente cliente = new Cliente(clienteId, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
 		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
 
-		when(clienteService.buscarPorId(clienteId)).thenReturn(cliente);
-		when(carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(carrinhoId, clienteId)).thenReturn(Optional.of(carrinho));
 
 		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
 				.thenReturn(new DisponibilidadeDTO(false, List.of(1L)));
@@ -304,7 +318,10 @@ public class CompraServiceTest {
 		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
 		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
 
-		CompraService service = new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal);
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.construir();
 
 		Long carrinhoId = 1L;
 		Long clienteId = 2L;
@@ -312,8 +329,8 @@ public class CompraServiceTest {
 		Cliente cliente = new Cliente(clienteId, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
 		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
 
-		when(clienteService.buscarPorId(clienteId)).thenReturn(cliente);
-		when(carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(carrinhoId, clienteId)).thenReturn(Optional.of(carrinho));
 
 		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
 				.thenReturn(new DisponibilidadeDTO(true, List.of()));
@@ -336,7 +353,10 @@ public class CompraServiceTest {
 		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
 		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
 
-		CompraService service = new CompraService(carrinhoService, clienteService, estoqueExternal, pagamentoExternal);
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.construir();
 
 		Long carrinhoId = 1L;
 		Long clienteId = 2L;
@@ -344,8 +364,8 @@ public class CompraServiceTest {
 		Cliente cliente = new Cliente(clienteId, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
 		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
 
-		when(clienteService.buscarPorId(clienteId)).thenReturn(cliente);
-		when(carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(carrinhoId, clienteId)).thenReturn(Optional.of(carrinho));
 
 		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
 				.thenReturn(new DisponibilidadeDTO(true, List.of()));
@@ -363,6 +383,198 @@ public class CompraServiceTest {
 		verify(pagamentoExternal, times(1)).cancelarPagamento(clienteId, 777L);
 	}
 
+	@Test
+	public void finalizarCompra_quandoBaixaPassaDoTempo_entaoNaoCancelaPagamentoEDeixaEmConferencia() {
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.emConferencia(emConferencia)
+				.construir();
+
+		Cliente cliente = new Cliente(2L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(1L, 2L)).thenReturn(Optional.of(carrinho));
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(true, List.of()));
+		when(pagamentoExternal.autorizarPagamento(eq(2L), anyDouble())).thenReturn(new PagamentoDTO(true, 777L));
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenThrow(new ResultadoIncertoException("Tempo esgotado ao chamar o serviço de estoque."));
+
+		CompraDTO retorno = service.finalizarCompra(1L, 2L);
+
+		assertThat(retorno).isEqualTo(new CompraDTO(true, 777L, "Compra finalizada; baixa de estoque em conferência."));
+		verify(pagamentoExternal, never()).cancelarPagamento(anyLong(), anyLong());
+		assertThat(emConferencia.pendentes()).singleElement().satisfies(pendencia -> {
+			assertThat(pendencia.operacao()).isEqualTo(ComprasEmConferencia.Operacao.BAIXA_ESTOQUE);
+			assertThat(pendencia.carrinhoId()).isEqualTo(1L);
+			assertThat(pendencia.transacaoId()).isEqualTo(777L);
+		});
+	}
+
+	@Test
+	public void finalizarCompra_quandoAutorizacaoPassaDoTempo_entaoRecusaSemBaixaEDeixaEmConferencia() {
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.emConferencia(emConferencia)
+				.construir();
+
+		Cliente cliente = new Cliente(2L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(1L, 2L)).thenReturn(Optional.of(carrinho));
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(true, List.of()));
+		when(pagamentoExternal.autorizarPagamento(eq(2L), anyDouble()))
+				.thenThrow(new ResultadoIncertoException("Tempo esgotado ao chamar o serviço de pagamento."));
+
+		assertThatThrownBy(() -> service.finalizarCompra(1L, 2L))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Resultado do pagamento incerto; compra em conferência.");
+
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+		assertThat(FalhaCompra.de(catchThrowable(() -> service.finalizarCompra(1L, 2L))))
+				.isEqualTo(FalhaCompra.RECUSADA);
+		assertThat(emConferencia.pendentes()).extracting(ComprasEmConferencia.Pendencia::operacao)
+				.containsOnly(ComprasEmConferencia.Operacao.AUTORIZACAO_PAGAMENTO);
+	}
+
+	@Test
+	public void finalizarCompra_quandoCancelamentoFalhaAposBaixaNegada_entaoRecusaSemNovaTentativaEDeixaEmConferencia() {
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.emConferencia(emConferencia)
+				.construir();
+
+		Cliente cliente = new Cliente(2L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		CarrinhoDeCompras carrinho = carrinhoBasicoSemFrete();
+		carrinho.setCliente(cliente);
+		when(carrinhoService.buscarParaFinalizacao(1L, 2L)).thenReturn(Optional.of(carrinho));
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(true, List.of()));
+		when(pagamentoExternal.autorizarPagamento(eq(2L), anyDouble())).thenReturn(new PagamentoDTO(true, 777L));
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(false));
+		doThrow(new DependenciaIndisponivelException("Serviço de pagamento indisponível."))
+				.when(pagamentoExternal).cancelarPagamento(2L, 777L);
+
+		Throwable falha = catchThrowable(() -> service.finalizarCompra(1L, 2L));
+
+		assertThat(falha).isInstanceOf(CompraEmConferenciaException.class)
+				.hasMessage("Pagamento não pôde ser cancelado; compra em conferência.");
+		assertThat(falha.getSuppressed()).extracting(Throwable::getMessage)
+				.containsExactly("Erro ao dar baixa no estoque.");
+		assertThat(FalhaCompra.de(falha)).isEqualTo(FalhaCompra.RECUSADA);
+		assertThat(emConferencia.pendentes()).singleElement().satisfies(pendencia -> {
+			assertThat(pendencia.operacao()).isEqualTo(ComprasEmConferencia.Operacao.CANCELAMENTO_PAGAMENTO);
+			assertThat(pendencia.transacaoId()).isEqualTo(777L);
+		});
+	}
+
+	@Test
+	public void registrar_quandoLimiteAtingido_entaoDescartaAMaisAntiga() {
+		ComprasEmConferencia emConferencia = new ComprasEmConferencia(2);
+		RuntimeException causa = new ResultadoIncertoException("Tempo esgotado.");
+
+		for (long carrinhoId = 1; carrinhoId <= 3; carrinhoId++) {
+			emConferencia.registrar(ComprasEmConferencia.Operacao.BAIXA_ESTOQUE, carrinhoId, 2L, 777L, List.of(1L),
+					List.of(1L), causa);
+		}
+
+		assertThat(emConferencia.pendentes()).extracting(ComprasEmConferencia.Pendencia::carrinhoId)
+				.containsExactly(2L, 3L);
+	}
+
+	@Test
+	public void finalizarCompra_quandoConsultaNaoEncontraCarrinho_entaoDistingueClienteDeCarrinho() {
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		IEstoqueExternal estoqueExternal = mock(IEstoqueExternal.class);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+
+		CompraService service = CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.construir();
+
+		when(carrinhoService.buscarParaFinalizacao(anyLong(), anyLong())).thenReturn(Optional.empty());
+		when(clienteService.buscarPorId(2L)).thenReturn(new Cliente(2L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE));
+		when(clienteService.buscarPorId(3L)).thenThrow(new IllegalArgumentException("Cliente não encontrado"));
+
+		assertThatThrownBy(() -> service.finalizarCompra(1L, 2L))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Carrinho não encontrado.");
+		assertThatThrownBy(() -> service.finalizarCompra(1L, 3L))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Cliente não encontrado");
+
+		verifyNoInteractions(estoqueExternal, pagamentoExternal);
+	}
+
+	@Test
+	public void cotarEmLote_quandoAlgunsCarrinhosInvalidos_entaoReportaErroPorCarrinho() {
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+
+		CompraService service = CompraServiceBuilder.compraService().servicos(carrinhoService, clienteService)
+				.construir();
+
+		Cliente cliente = new Cliente(20L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		Cliente outro = new Cliente(21L, "Outro", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+		CarrinhoDeCompras valido = carrinhoBasicoSemFrete();
+		valido.setId(10L);
+		valido.setCliente(cliente);
+
+		CarrinhoDeCompras vazio = new CarrinhoDeCompras(11L, cliente, new ArrayList<>(), null);
+
+		CarrinhoDeCompras deOutroCliente = carrinhoBasicoSemFrete();
+		deOutroCliente.setId(12L);
+		deOutroCliente.setCliente(outro);
+
+		when(carrinhoService.buscarPorIds(anyCollection()))
+				.thenReturn(Map.of(10L, valido, 11L, vazio, 12L, deOutroCliente));
+		when(clienteService.buscarPorIds(anyCollection())).thenReturn(Map.of(20L, cliente));
+
+		List<CotacaoDTO> cotacoes = new CopyOnWriteArrayList<>();
+		service.cotarEmLote(List.of(
+				new CotacaoRequisicaoDTO(10L, 20L),
+				new CotacaoRequisicaoDTO(11L, 20L),
+				new CotacaoRequisicaoDTO(12L, 20L),
+				new CotacaoRequisicaoDTO(13L, 20L),
+				new CotacaoRequisicaoDTO(10L, 99L)), cotacoes::add);
+
+		assertThat(cotacoes).containsExactlyInAnyOrder(
+				CotacaoDTO.sucesso(10L, 20L, new BigDecimal("30.00")),
+				CotacaoDTO.falha(11L, 20L, "Carrinho deve possuir pelo menos 1 item."),
+				CotacaoDTO.falha(12L, 20L, "Carrinho não encontrado."),
+				CotacaoDTO.falha(13L, 20L, "Carrinho não encontrado."),
+				CotacaoDTO.falha(10L, 99L, "Cliente não encontrado"));
+
+		verify(carrinhoService, times(1)).buscarPorIds(anyCollection());
+		verify(clienteService, times(1)).buscarPorIds(anyCollection());
+		verify(carrinhoService, never()).buscarPorCarrinhoIdEClienteId(anyLong(), any());
+	}
+
 	private CarrinhoDeCompras carrinhoBasicoSemFrete() {
 		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
 		List<ItemCompra> itens = new ArrayList<>();
@@ -0,0 +1,176 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraJobDTO;
+import ecommerce.dto.CompraJobDTO.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class FilaComprasTest {
+
+	private static final long ESPERA_MAXIMA_SEGUNDOS = 5;
+	private static final CompraDTO SUCESSO = new CompraDTO(true, 999L, "Compra finalizada com sucesso.");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CountDownLatch liberar = new CountDownLatch(1);
+	private FilaCompras fila;
+
+	@AfterEach
+	public void tearDown() {
+		liberar.countDown();
+		fila.encerrar();
+	}
+
+	@Test
+	public void enfileirar_quandoWorkerLivre_entaoDevolvePendenteEConcluiDepois() throws InterruptedException {
+		fila = fila(1, 10);
+
+		CompraJobDTO job = fila.enfileirar(() -> {
+			aguardar(liberar);
+			return SUCESSO;
+		});
+
+		assertThat(job.status()).isEqualTo(Status.PENDENTE);
+		assertThat(job.compra()).isNull();
+		liberar.countDown();
+
+		assertThat(aguardarTermino(job.jobId())).isEqualTo(new CompraJobDTO(job.jobId(), Status.CONCLUIDA, SUCESSO));
+		assertThat(meterRegistry.get("compra.fila.espera").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void enfileirar_quandoCompraFalha_entaoJobFalhaComMensagem() throws InterruptedException {
+		fila = fila(1, 10);
+
+		CompraJobDTO job = fila.enfileirar(() -> {
+			throw new IllegalStateException("Itens fora de estoque.");
+		});
+
+		assertThat(aguardarTermino(job.jobId())).isEqualTo(new CompraJobDTO(job.jobId(), Status.FALHOU,
+				new CompraDTO(false, null, "Itens fora de estoque.")));
+	}
+
+	@Test
+	public void enfileirar_quandoFilaCheia_entaoRecusaEContaNasMetricas() throws InterruptedException {
+		fila = fila(1, 2);
+		CountDownLatch ocupado = new CountDownLatch(1);
+
+		fila.enfileirar(() -> {
+			ocupado.countDown();
+			aguardar(liberar);
+			return SUCESSO;
+		});
+		assertThat(ocupado.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		fila.enfileirar(() -> SUCESSO);
+		CompraJobDTO ultimo = fila.enfileirar(() -> SUCESSO);
+
+		assertThat(meterRegistry.get("compra.fila.tamanho").gauge().value()).isEqualTo(2);
+		assertThatThrownBy(() -> fila.enfileirar(() -> SUCESSO))
+				.isInstanceOf(RejectedExecutionException.class)
+				.hasMessage("Fila de compras cheia.");
+		assertThat(meterRegistry.get("compra.fila.recusas").counter().count()).isEqualTo(1);
+
+		liberar.countDown();
+		assertThat(aguardarTermino(ultimo.jobId()).status()).isEqualTo(Status.CONCLUIDA);
+		assertThat(meterRegistry.get("compra.fila.tamanho").gauge().value()).isZero();
+	}
+
+	@Test
+	public void buscar_quandoJobInexistente_entaoNulo() {
+		fila = fila(1, 10);
+
+		assertThat(fila.buscar("inexistente")).isNull();
+	}
+
+	@Test
+	public void enfileirar_quandoCompraLancaError_entaoJobFalhaEmVezDeFicarProcessando() throws InterruptedException {
+		fila = fila(1, 10);
+
+		CompraJobDTO job = fila.enfileirar(() -> {
+			throw new AssertionError("erro inesperado");
+		});
+
+		assertThat(aguardarTermino(job.jobId())).isEqualTo(new CompraJobDTO(job.jobId(), Status.FALHOU,
+				new CompraDTO(false, null, "Erro ao processar compra.")));
+	}
+
+	@Test
+	public void encerrar_quandoHaCompraAceitaNaFila_entaoTerminaDentroDoPrazo() {
+		fila = new FilaCompras(1, 10, Duration.ofMinutes(10), 100, Duration.ofSeconds(ESPERA_MAXIMA_SEGUNDOS),
+				meterRegistry);
+		CompraJobDTO emAndamento = fila.enfileirar(() -> {
+			aguardar(liberar);
+			return SUCESSO;
+		});
+		CompraJobDTO naFila = fila.enfileirar(() -> SUCESSO);
+
+		liberar.countDown();
+		fila.encerrar();
+
+		assertThat(fila.buscar(emAndamento.jobId()).status()).isEqualTo(Status.CONCLUIDA);
+		assertThat(fila.buscar(naFila.jobId()).status()).isEqualTo(Status.CONCLUIDA);
+	}
+
+	@Test
+	public void encerrar_quandoPrazoEsgota_entaoNaoIniciadasFalhamEEmAndamentoNaoEInterrompida()
+			throws InterruptedException {
+		fila = new FilaCompras(1, 10, Duration.ofMinutes(10), 100, Duration.ofMillis(50), meterRegistry);
+		CountDownLatch ocupado = new CountDownLatch(1);
+		CompraJobDTO emAndamento = fila.enfileirar(() -> {
+			ocupado.countDown();
+			aguardar(liberar);
+			return Thread.currentThread().isInterrupted() ? null : SUCESSO;
+		});
+		assertThat(ocupado.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		CompraJobDTO naFila = fila.enfileirar(() -> SUCESSO);
+
+		fila.encerrar();
+
+		assertThat(fila.buscar(naFila.jobId())).isEqualTo(new CompraJobDTO(naFila.jobId(), Status.FALHOU,
+				new CompraDTO(false, null, "Compra não processada: serviço encerrando.")));
+		assertThatThrownBy(() -> fila.enfileirar(() -> SUCESSO)).isInstanceOf(RejectedExecutionException.class);
+		liberar.countDown();
+		assertThat(aguardarTermino(emAndamento.jobId())).isEqualTo(
+				new CompraJobDTO(emAndamento.jobId(), Status.CONCLUIDA, SUCESSO));
+	}
+
+	@Test
+	public void construtor_quandoMaximoDeJobsMenorQueFilaMaisWorkers_entaoLanca() {
+		assertThatThrownBy(() -> new FilaCompras(2, 10, Duration.ofMinutes(10), 11, Duration.ofSeconds(1),
+				meterRegistry)).isInstanceOf(IllegalArgumentException.class);
+		fila = fila(1, 10);
+	}
+
+	private FilaCompras fila(int workers, int capacidade) {
+		return new FilaCompras(workers, capacidade, Duration.ofMinutes(10), 100, Duration.ofSeconds(1),
+				meterRegistry);
+	}
+
+	private CompraJobDTO aguardarTermino(String jobId) throws InterruptedException {
+		long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(ESPERA_MAXIMA_SEGUNDOS);
+		CompraJobDTO job = fila.buscar(jobId);
+		while ((job.status() == Status.PENDENTE || job.status() == Status.PROCESSANDO) && System.nanoTime() < prazo) {
+			Thread.sleep(5);
+			job = fila.buscar(jobId);
+		}
+		return job;
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+
+/**
+ * Verificação de disponibilidade em paralelo com a precificação em {@link CompraService#finalizarCompra}.
+ */
+public class FinalizarCompraConcorrenteTest {
+
+	private static final long ESPERA_MAXIMA_SEGUNDOS = 5;
+
+	private final Cliente cliente = new Cliente(20L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+	private ExecutorService executor;
+	private CarrinhoDeComprasService carrinhoService;
+	private ClienteService clienteService;
+	private IEstoqueExternal estoqueExternal;
+	private IPagamentoExternal pagamentoExternal;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+		carrinhoService = mock(CarrinhoDeComprasService.class);
+		clienteService = mock(ClienteService.class);
+		estoqueExternal = mock(IEstoqueExternal.class);
+		pagamentoExternal = mock(IPagamentoExternal.class);
+
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble())).thenReturn(new PagamentoDTO(true, 999L));
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void finalizarCompra_quandoExecutorDedicado_entaoDisponibilidadeEPrecificacaoSimultaneas() {
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(1L)));
+
+		// Cada etapa só termina depois que a outra começou: em sequência, as duas esperas esgotariam.
+		CountDownLatch disponibilidadeIniciada = new CountDownLatch(1);
+		CountDownLatch precificacaoIniciada = new CountDownLatch(1);
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenAnswer(inv -> {
+			disponibilidadeIniciada.countDown();
+			return precificacaoIniciada.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)
+					? new DisponibilidadeDTO(true, List.of())
+					: new DisponibilidadeDTO(false, List.of());
+		});
+		CompraService service = precificacaoAguardando(servico(Duration.ofSeconds(10)), disponibilidadeIniciada,
+				precificacaoIniciada);
+
+		CompraDTO retorno = service.finalizarCompra(10L, 20L);
+
+		assertThat(retorno).isEqualTo(new CompraDTO(true, 999L, "Compra finalizada com sucesso."));
+		verify(pagamentoExternal).autorizarPagamento(20L, 30.00);
+	}
+
+	@Test
+	public void finalizarCompra_quandoDisponibilidadeExcedeTimeout_entaoCancelaENaoAutorizaPagamento()
+			throws InterruptedException {
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(1L)));
+		CountDownLatch interrompida = new CountDownLatch(1);
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenAnswer(bloquear(interrompida));
+
+		CompraService service = servico(Duration.ofMillis(100));
+
+		assertThatThrownBy(() -> service.finalizarCompra(10L, 20L))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Tempo esgotado ao verificar disponibilidade.");
+
+		assertThat(interrompida.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		verifyNoInteractions(pagamentoExternal);
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+	}
+
+	@Test
+	public void finalizarCompra_quandoCarrinhoInvalido_entaoCancelaVerificacaoEmAndamento()
+			throws InterruptedException {
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(0L)));
+		CountDownLatch disponibilidadeIniciada = new CountDownLatch(1);
+		CountDownLatch interrompida = new CountDownLatch(1);
+		Answer<DisponibilidadeDTO> bloqueio = bloquear(interrompida);
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList())).thenAnswer(inv -> {
+			disponibilidadeIniciada.countDown();
+			return bloqueio.answer(inv);
+		});
+		CompraService service = precificacaoAguardando(servico(Duration.ofSeconds(10)), disponibilidadeIniciada,
+				new CountDownLatch(1));
+
+		assertThatThrownBy(() -> service.finalizarCompra(10L, 20L))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Quantidade do item deve ser maior que zero.");
+
+		assertThat(interrompida.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		verifyNoInteractions(pagamentoExternal);
+	}
+
+	@Test
+	public void finalizarCompra_quandoSemEstoqueOuErroNoEstoque_entaoNaoAutorizaPagamento() {
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(1L)));
+		when(estoqueExternal.verificarDisponibilidade(anyList(), anyList()))
+				.thenReturn(new DisponibilidadeDTO(false, List.of(1L)))
+				.thenThrow(new IllegalStateException("Estoque indisponível."));
+		CompraService service = servico(Duration.ofSeconds(10));
+
+		assertThatThrownBy(() -> service.finalizarCompra(10L, 20L))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Itens fora de estoque.");
+		assertThatThrownBy(() -> service.finalizarCompra(10L, 20L))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Estoque indisponível.");
+
+		verifyNoInteractions(pagamentoExternal);
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+	}
+
+	private CompraService servico(Duration timeoutDisponibilidade) {
+		return CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.executorChamadasExternas(executor)
+				.timeoutDisponibilidade(timeoutDisponibilidade)
+				.construir();
+	}
+
+	/** Espião em que o cálculo do custo só começa depois que a verificação de disponibilidade começou. */
+	private CompraService precificacaoAguardando(CompraService service, CountDownLatch disponibilidadeIniciada,
+			CountDownLatch precificacaoIniciada) {
+		CompraService espiao = spy(service);
+		doAnswer(inv -> {
+			precificacaoIniciada.countDown();
+			assertThat(disponibilidadeIniciada.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+			return inv.callRealMethod();
+		}).when(espiao).calcularCustoTotal(any(), any());
+		return espiao;
+	}
+
+	/** Bloqueia até ser interrompida, contando a interrupção. */
+	private static Answer<DisponibilidadeDTO> bloquear(CountDownLatch interrompida) {
+		return inv -> {
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				interrompida.countDown();
+			}
+			return new DisponibilidadeDTO(true, List.of());
+		};
+	}
+
+	private CarrinhoDeCompras carrinho(long quantidade) {
+		Produto p1 = new Produto(1L, "Produto 1", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+		Produto p2 = new Produto(2L, "Produto 2", "Desc", new BigDecimal("20.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ELETRONICO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, p1, 1L));
+		itens.add(new ItemCompra(2L, p2, quantidade));
+		return new CarrinhoDeCompras(10L, cliente, itens, null);
+	}
+}
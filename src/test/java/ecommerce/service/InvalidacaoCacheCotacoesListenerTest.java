@@ -0,0 +1,84 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@Import({ CacheCotacoes.class, InvalidacaoCacheCotacoesListener.class, SimpleMeterRegistry.class })
+public class InvalidacaoCacheCotacoesListenerTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private CacheCotacoes cache;
+
+	@BeforeEach
+	public void setUp() {
+		cache.invalidarTudo();
+	}
+
+	@Test
+	public void atualizar_quandoPrecoDoProdutoAlterado_entaoInvalidaCotacoesDoProduto() {
+		Produto produto = entityManager.persistFlushFind(new Produto(null, "P", "D", new BigDecimal("10.00"),
+				new BigDecimal("1.0"), new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false,
+				TipoProduto.LIVRO));
+		CompraService service = CompraServiceBuilder.compraService().cacheCotacoes(cache).construir();
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, produto, 1L));
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras(1L, null, itens, null);
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+		service.calcularCustoTotal(carrinho, cliente);
+		assertThat(cache.tamanhoEstimado()).isEqualTo(1);
+
+		produto.setPreco(new BigDecimal("12.00"));
+		entityManager.flush();
+
+		assertThat(cache.tamanhoEstimado()).isZero();
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("12.00");
+	}
+
+	@Test
+	public void atualizar_quandoSetterRecebeOValorAtual_entaoMantemVersaoECotacoes() {
+		Produto produto = entityManager.persistFlushFind(new Produto(null, "P", "D", new BigDecimal("10.00"),
+				new BigDecimal("1.0"), new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"), false,
+				TipoProduto.LIVRO));
+		CompraService service = CompraServiceBuilder.compraService().cacheCotacoes(cache).construir();
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, produto, 1L));
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras(1L, null, itens, null);
+		service.calcularCustoTotal(carrinho, new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE));
+		long versao = produto.getVersaoPreco();
+
+		produto.setPreco(new BigDecimal("10.0"));
+		produto.setAltura(new BigDecimal("10"));
+		produto.setFragil(false);
+		produto.setTipo(TipoProduto.LIVRO);
+		entityManager.flush();
+
+		assertThat(produto.getVersaoPreco()).isEqualTo(versao);
+		assertThat(cache.tamanhoEstimado()).isEqualTo(1);
+	}
+}
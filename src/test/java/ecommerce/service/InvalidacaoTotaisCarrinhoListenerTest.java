@@ -0,0 +1,93 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import ecommerce.entity.AcumuladorCarrinho;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+@DataJpaTest
+@Import(InvalidacaoTotaisCarrinhoListener.class)
+public class InvalidacaoTotaisCarrinhoListenerTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private final CompraService service = CompraServiceBuilder.precificacao(MotorPrecificacao.BIG_DECIMAL);
+	private final Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+	@Test
+	public void carregar_quandoTotaisGravados_entaoUsaOsTotaisDoCarrinho() {
+		Long id = carrinhoGravado(new BigDecimal("10.00"), 3L);
+		assertThat(totaisGravados(id)).isNotNull();
+
+		CarrinhoDeCompras carrinho = entityManager.find(CarrinhoDeCompras.class, id);
+		AcumuladorCarrinho totais = carrinho.totaisParaCalculo();
+
+		CarrinhoDeCompras recalculado = new CarrinhoDeCompras();
+		carrinho.getItens().forEach(recalculado::adicionarItem);
+		assertThat(totais.mesmosTotais(recalculado.totaisParaCalculo())).isTrue();
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("28.50");
+	}
+
+	@Test
+	public void atualizar_quandoPrecoDoProdutoAlterado_entaoZeraTotaisDosCarrinhosDoProduto() {
+		Long id = carrinhoGravado(new BigDecimal("10.00"), 3L);
+		Long outro = carrinhoGravado(new BigDecimal("20.00"), 1L);
+
+		CarrinhoDeCompras carrinho = entityManager.find(CarrinhoDeCompras.class, id);
+		carrinho.getItens().get(0).getProduto().setPreco(new BigDecimal("12.00"));
+		entityManager.flush();
+
+		assertThat(totaisGravados(id)).isNull();
+		assertThat(totaisGravados(outro)).isNotNull();
+
+		entityManager.clear();
+		carrinho = entityManager.find(CarrinhoDeCompras.class, id);
+		assertThat(service.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("34.20");
+	}
+
+	@Test
+	public void atualizar_quandoSoONomeDoProdutoAlterado_entaoMantemTotais() {
+		Long id = carrinhoGravado(new BigDecimal("10.00"), 3L);
+
+		CarrinhoDeCompras carrinho = entityManager.find(CarrinhoDeCompras.class, id);
+		carrinho.getItens().get(0).getProduto().setNome("Outro nome");
+		entityManager.flush();
+
+		assertThat(totaisGravados(id)).isNotNull();
+	}
+
+	/** Grava um carrinho com um item e os totais já calculados; a sessão termina limpa. */
+	private Long carrinhoGravado(BigDecimal preco, long quantidade) {
+		Produto produto = new Produto(null, "P", "D", preco, new BigDecimal("1.0"), new BigDecimal("10"),
+				new BigDecimal("10"), new BigDecimal("10"), false, TipoProduto.LIVRO);
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.adicionarItem(new ItemCompra(null, produto, quantidade));
+		carrinho.totaisParaCalculo();
+
+		Long id = entityManager.persistAndFlush(carrinho).getId();
+		entityManager.clear();
+		return id;
+	}
+
+	private Object totaisGravados(Long id) {
+		return entityManager.getEntityManager()
+				.createNativeQuery("select totais from carrinho_de_compras where id = ?1")
+				.setParameter(1, id)
+				.getSingleResult();
+	}
+}
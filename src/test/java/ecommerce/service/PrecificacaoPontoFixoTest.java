@@ -0,0 +1,134 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.AcumuladorCarrinho;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+public class PrecificacaoPontoFixoTest {
+
+	private final CompraService referencia = CompraServiceBuilder.precificacao(MotorPrecificacao.BIG_DECIMAL);
+	private final CompraService pontoFixo = CompraServiceBuilder.precificacao(MotorPrecificacao.PONTO_FIXO);
+	private final PrecificacaoPontoFixo motor = new PrecificacaoPontoFixo();
+	private final RegrasPrecificacao regras = ProvedorRegrasPrecificacao.padrao().atual();
+
+	private static final String[] PRECOS = { "0.00", "10.00", "99.99", "500.00", "500.01", "600.00", "1000.00",
+			"1000.01" };
+	private static final String[] PESOS = { "0.0", "1.0", "2.50", "3.0", "5.00", "5.01", "6.0", "10.00", "10.01",
+			"50.00", "50.01", "0.333" };
+	private static final String[][] DIMENSOES = { { "0", "0", "0" }, { "10", "10", "10" }, { "40", "30", "25" },
+			{ "33", "17", "7" }, { "12.5", "3", "1" } };
+	private static final long[] QUANTIDADES = { 1, 2, 3, 4, 5, 7, 8 };
+
+	@Test
+	public void pontoFixo_quandoCasosLimiteDeUmItem_entaoIgualAoBigDecimal() {
+		for (String preco : PRECOS) {
+			for (String peso : PESOS) {
+				for (String[] d : DIMENSOES) {
+					for (long qtd : QUANTIDADES) {
+						for (boolean fragil : new boolean[] { false, true }) {
+							Produto p = new Produto(1L, "P", "D", new BigDecimal(preco), new BigDecimal(peso),
+									new BigDecimal(d[0]), new BigDecimal(d[1]), new BigDecimal(d[2]), fragil,
+									TipoProduto.LIVRO);
+							compararEmTodosOsClientes(carrinho(new ItemCompra(1L, p, qtd)));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void pontoFixo_quandoCarrinhosAleatorios_entaoIgualAoBigDecimal() {
+		SplittableRandom random = new SplittableRandom(7L);
+
+		for (int i = 0; i < 2_000; i++) {
+			int tamanho = 1 + random.nextInt(12);
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int j = 0; j < tamanho; j++) {
+				itens.add(new ItemCompra((long) j, produtoAleatorio(j, random), 1L + random.nextInt(9)));
+			}
+			compararEmTodosOsClientes(carrinho(itens.toArray(ItemCompra[]::new)));
+		}
+	}
+
+	@Test
+	public void pontoFixo_quandoPrecoComMaisDeDuasCasas_entaoUsaCaminhoBigDecimal() {
+		Produto p = new Produto(1L, "P", "D", new BigDecimal("10.005"), new BigDecimal("6.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), true, TipoProduto.ALIMENTO);
+		CarrinhoDeCompras carrinho = carrinho(new ItemCompra(1L, p, 3L));
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUL, TipoCliente.PRATA);
+
+		assertThat(motor.calcularCustoTotalEmCentavos(acumular(carrinho), cliente, regras))
+				.isEqualTo(PrecificacaoPontoFixo.FORA_DE_ESCALA);
+		assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente))
+				.isEqualTo(referencia.calcularCustoTotal(carrinho, cliente));
+	}
+
+	@Test
+	public void pontoFixo_quandoPrecoAlterado_entaoRecalculaCentavos() {
+		Produto p = new Produto(1L, "P", "D", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+		CarrinhoDeCompras carrinho = carrinho(new ItemCompra(1L, p, 1L));
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+		assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("10.00");
+
+		p.setPreco(new BigDecimal("12.34"));
+
+		assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("12.34");
+	}
+
+	private void compararEmTodosOsClientes(CarrinhoDeCompras carrinho) {
+		for (Regiao regiao : Regiao.values()) {
+			for (TipoCliente tipo : TipoCliente.values()) {
+				Cliente cliente = new Cliente(1L, "C", regiao, tipo);
+
+				BigDecimal esperado = referencia.calcularCustoTotal(carrinho, cliente);
+
+				assertThat(motor.calcularCustoTotalEmCentavos(acumular(carrinho), cliente, regras))
+						.isNotEqualTo(PrecificacaoPontoFixo.FORA_DE_ESCALA);
+				assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente)).isEqualTo(esperado);
+			}
+		}
+	}
+
+	private Produto produtoAleatorio(long id, SplittableRandom random) {
+		TipoProduto[] tipos = TipoProduto.values();
+		return new Produto(id, "P" + id, "D",
+				BigDecimal.valueOf(random.nextInt(60_000), 2),
+				BigDecimal.valueOf(random.nextInt(8_000), 3),
+				BigDecimal.valueOf(random.nextInt(600), 1),
+				BigDecimal.valueOf(random.nextInt(60)),
+				BigDecimal.valueOf(random.nextInt(60)),
+				random.nextBoolean(),
+				tipos[random.nextInt(tipos.length)]);
+	}
+
+	private AcumuladorCarrinho acumular(CarrinhoDeCompras carrinho) {
+		AcumuladorCarrinho acumulador = new AcumuladorCarrinho().limpar(false);
+		for (ItemCompra item : carrinho.getItens()) {
+			acumulador.somar(item.getProduto(), item.getQuantidade());
+		}
+		return acumulador;
+	}
+
+	private CarrinhoDeCompras carrinho(ItemCompra... itens) {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.setItens(new ArrayList<>(List.of(itens)));
+		return carrinho;
+	}
+}
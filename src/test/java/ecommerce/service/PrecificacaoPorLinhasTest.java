@@ -0,0 +1,141 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.LinhaCarrinhoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+public class PrecificacaoPorLinhasTest {
+
+	private final CompraService bigDecimal = CompraServiceBuilder.precificacao(MotorPrecificacao.BIG_DECIMAL);
+	private final CompraService pontoFixo = CompraServiceBuilder.precificacao(MotorPrecificacao.PONTO_FIXO);
+
+	@Test
+	public void linhas_quandoCarrinhosAleatorios_entaoIgualAoCarrinho() {
+		SplittableRandom random = new SplittableRandom(11L);
+
+		for (int i = 0; i < 500; i++) {
+			int tamanho = 1 + random.nextInt(12);
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int j = 0; j < tamanho; j++) {
+				itens.add(new ItemCompra((long) j, produtoAleatorio(j, random), 1L + random.nextInt(9)));
+			}
+			compararEmTodosOsClientes(itens);
+		}
+	}
+
+	@Test
+	public void linhas_quandoPrecoComMaisDeDuasCasas_entaoIgualAoCarrinho() {
+		Produto p = new Produto(1L, "P", "D", new BigDecimal("10.005"), new BigDecimal("6.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), true, TipoProduto.ALIMENTO);
+
+		compararEmTodosOsClientes(List.of(new ItemCompra(1L, p, 3L)));
+	}
+
+	@Test
+	public void linhas_quandoPesoTributavelNaoVeioDaConsulta_entaoCalculaPelasDimensoes() {
+		LinhaCarrinhoDTO linha = new LinhaCarrinhoDTO(1L, 1L, new BigDecimal("10.00"), TipoProduto.LIVRO,
+				new BigDecimal("1.0"), new BigDecimal("40"), new BigDecimal("30"), new BigDecimal("25"), false, null);
+
+		assertThat(linha.pesoTributavel()).isEqualByComparingTo("5.0");
+	}
+
+	@Test
+	public void linhas_quandoItemInvalido_entaoMesmaMensagemDoCarrinho() {
+		List<ItemCompra> invalidos = List.of(
+				new ItemCompra(1L, produto(new BigDecimal("10.00"), TipoProduto.LIVRO), 0L),
+				new ItemCompra(1L, null, 1L),
+				new ItemCompra(1L, produto(null, TipoProduto.LIVRO), 1L),
+				new ItemCompra(1L, produto(new BigDecimal("-1.00"), TipoProduto.LIVRO), 1L),
+				new ItemCompra(1L, produto(new BigDecimal("10.00"), null), 1L));
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUL, TipoCliente.OURO);
+
+		for (ItemCompra item : invalidos) {
+			Throwable esperado = catchThrowable(() -> bigDecimal.calcularCustoTotal(carrinho(List.of(item)), cliente));
+
+			assertThat(esperado).isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> pontoFixo.calcularCustoTotalDasLinhas(linhas(List.of(item)), cliente))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage(esperado.getMessage());
+		}
+	}
+
+	@Test
+	public void linhas_quandoVaziasOuClienteNulo_entaoLancaComoCarrinho() {
+		LinhaCarrinhoDTO linha = linhas(List.of(new ItemCompra(1L, produto(new BigDecimal("10.00"),
+				TipoProduto.LIVRO), 1L))).get(0);
+
+		assertThatThrownBy(() -> pontoFixo.calcularCustoTotalDasLinhas(List.of(), new Cliente()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Carrinho deve possuir pelo menos 1 item.");
+		assertThatThrownBy(() -> pontoFixo.calcularCustoTotalDasLinhas(List.of(linha), null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Cliente não pode ser nulo.");
+	}
+
+	private void compararEmTodosOsClientes(List<ItemCompra> itens) {
+		CarrinhoDeCompras carrinho = carrinho(itens);
+		List<LinhaCarrinhoDTO> linhas = linhas(itens);
+
+		for (Regiao regiao : Regiao.values()) {
+			for (TipoCliente tipo : TipoCliente.values()) {
+				Cliente cliente = new Cliente(1L, "C", regiao, tipo);
+				BigDecimal esperado = bigDecimal.calcularCustoTotal(carrinho, cliente);
+
+				assertThat(bigDecimal.calcularCustoTotalDasLinhas(linhas, cliente)).isEqualTo(esperado);
+				assertThat(pontoFixo.calcularCustoTotalDasLinhas(linhas, cliente)).isEqualTo(esperado);
+			}
+		}
+	}
+
+	/** O que a consulta de projeção devolveria para esses itens. */
+	private List<LinhaCarrinhoDTO> linhas(List<ItemCompra> itens) {
+		List<LinhaCarrinhoDTO> linhas = new ArrayList<>();
+		for (ItemCompra item : itens) {
+			Produto p = item.getProduto();
+			linhas.add(p == null
+					? new LinhaCarrinhoDTO(null, item.getQuantidade(), null, null, null, null, null, null, null, null)
+					: new LinhaCarrinhoDTO(p.getId(), item.getQuantidade(), p.getPreco(), p.getTipo(), p.getPesoFisico(),
+							p.getComprimento(), p.getLargura(), p.getAltura(), p.isFragil(), p.getPesoTributavel()));
+		}
+		return linhas;
+	}
+
+	private CarrinhoDeCompras carrinho(List<ItemCompra> itens) {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.setItens(new ArrayList<>(itens));
+		return carrinho;
+	}
+
+	private Produto produto(BigDecimal preco, TipoProduto tipo) {
+		return new Produto(1L, "P", "D", preco, new BigDecimal("1.0"), new BigDecimal("10"), new BigDecimal("10"),
+				new BigDecimal("10"), false, tipo);
+	}
+
+	private Produto produtoAleatorio(long id, SplittableRandom random) {
+		TipoProduto[] tipos = TipoProduto.values();
+		return new Produto(id, "P" + id, "D",
+				BigDecimal.valueOf(random.nextInt(60_000), 2),
+				BigDecimal.valueOf(random.nextInt(8_000), 3),
+				BigDecimal.valueOf(random.nextInt(600), 1),
+				BigDecimal.valueOf(random.nextInt(60)),
+				BigDecimal.valueOf(random.nextInt(60)),
+				random.nextBoolean(),
+				tipos[random.nextInt(tipos.length)]);
+	}
+}
@@ -0,0 +1,76 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+
+@DataJpaTest
+@Import(PreenchimentoPesoTributavel.class)
+public class PreenchimentoPesoTributavelTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PreenchimentoPesoTributavel preenchimento;
+
+	@Test
+	public void persistir_quandoProdutoNovo_entaoGravaPesoTributavel() {
+		Long id = entityManager.persistAndGetId(produto("1.0", "40", "30", "25"), Long.class);
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(entityManager.find(Produto.class, id).getPesoTributavel()).isEqualByComparingTo("5.0");
+	}
+
+	@Test
+	public void atualizar_quandoDimensoesAlteradas_entaoRecalculaPesoTributavel() {
+		Long id = entityManager.persistAndGetId(produto("1.0", "40", "30", "25"), Long.class);
+		entityManager.flush();
+		entityManager.clear();
+
+		Produto produto = entityManager.find(Produto.class, id);
+		produto.setAltura(new BigDecimal("50"));
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(entityManager.find(Produto.class, id).getPesoTributavel()).isEqualByComparingTo("10.0");
+	}
+
+	@Test
+	public void preencher_quandoLinhasSemPesoTributavel_entaoCalculaParaTodas() {
+		Long cubico = entityManager.persistAndGetId(produto("0.1", "10", "10", "10"), Long.class);
+		Long fisico = entityManager.persistAndGetId(produto("7.5", "10", "10", "10"), Long.class);
+		Long semDimensoes = entityManager.persistAndGetId(produto("2.0", null, null, null), Long.class);
+		entityManager.flush();
+		entityManager.getEntityManager().createNativeQuery("update produto set peso_tributavel = null")
+				.executeUpdate();
+		entityManager.clear();
+
+		assertThat(preenchimento.preencher()).isEqualTo(2);
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(entityManager.find(Produto.class, cubico).getPesoTributavel())
+				.isEqualByComparingTo("0.1666666667");
+		assertThat(entityManager.find(Produto.class, fisico).getPesoTributavel()).isEqualByComparingTo("7.5");
+		assertThat(entityManager.find(Produto.class, semDimensoes).getPesoTributavel()).isNull();
+		assertThat(preenchimento.preencher()).isZero();
+	}
+
+	private Produto produto(String pesoFisico, String comprimento, String largura, String altura) {
+		return new Produto(null, "P", "D", new BigDecimal("10.00"), new BigDecimal(pesoFisico),
+				comprimento == null ? null : new BigDecimal(comprimento),
+				largura == null ? null : new BigDecimal(largura),
+				altura == null ? null : new BigDecimal(altura), false, TipoProduto.ALIMENTO);
+	}
+}
@@ -0,0 +1,221 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.FileSystemResource;
+
+import ecommerce.controller.RegrasPrecificacaoEndpoint;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+public class ProvedorRegrasPrecificacaoTest {
+
+	@TempDir
+	Path diretorio;
+
+	private Path arquivo;
+	private String regrasPadrao;
+
+	@BeforeEach
+	public void copiarRegrasPadrao() throws IOException {
+		try (InputStream entrada = getClass().getResourceAsStream("/" + ProvedorRegrasPrecificacao.ARQUIVO_PADRAO)) {
+			regrasPadrao = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		arquivo = diretorio.resolve("regras.properties");
+		Files.writeString(arquivo, regrasPadrao);
+	}
+
+	@Test
+	public void recarregar_quandoArquivoAlterado_entaoNovasCotacoesUsamNovasRegras() throws IOException {
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+		CompraService bigDecimal = service(provedor, MotorPrecificacao.BIG_DECIMAL);
+		CompraService pontoFixo = service(provedor, MotorPrecificacao.PONTO_FIXO);
+
+		CarrinhoDeCompras carrinho = carrinhoFragil();
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+		assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("54.00");
+
+		Files.writeString(arquivo, regrasPadrao.replace("frete.taxa-fragil=5.00", "frete.taxa-fragil=7.50"));
+		RegrasPrecificacao recarregadas = provedor.recarregar();
+
+		assertThat(recarregadas.getVersao()).isEqualTo(2L);
+		assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("59.00");
+		assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("59.00");
+	}
+
+	@Test
+	public void recarregar_quandoArquivoInvalido_entaoMantemRegrasAnteriores() throws IOException {
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+		RegrasPrecificacao anteriores = provedor.atual();
+
+		Files.writeString(arquivo, regrasPadrao.replace("frete.regiao.NORTE=1.30", ""));
+
+		assertThatThrownBy(provedor::recarregar)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("frete.regiao.NORTE");
+		assertThat(provedor.atual()).isSameAs(anteriores);
+
+		Files.writeString(arquivo, regrasPadrao.replace("3:0.05, 5:0.10", "5:0.05, 3:0.10"));
+
+		assertThatThrownBy(provedor::recarregar)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("crescentes");
+		assertThat(provedor.atual()).isSameAs(anteriores);
+	}
+
+	@Test
+	public void recarregar_quandoArquivoIlegivel_entaoEndpointRecusaEMantemRegrasAnteriores() throws IOException {
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+		RegrasPrecificacaoEndpoint endpoint = new RegrasPrecificacaoEndpoint(provedor);
+		RegrasPrecificacao anteriores = provedor.atual();
+
+		Files.delete(arquivo);
+
+		assertThatThrownBy(endpoint::recarregar)
+				.isInstanceOf(InvalidEndpointRequestException.class)
+				.hasMessageContaining("Não foi possível ler as regras de precificação");
+		assertThat(provedor.atual()).isSameAs(anteriores);
+	}
+
+	@Test
+	public void recarregar_quandoCotacoesEmAndamento_entaoCadaCotacaoUsaUmUnicoSnapshot() throws Exception {
+		Path alternativo = diretorio.resolve("alternativo.properties");
+		Files.writeString(alternativo, regrasPadrao
+				.replace("frete.taxa-fragil=5.00", "frete.taxa-fragil=7.50")
+				.replace("3:0.05, 5:0.10, 8:0.15", "3:0.07, 5:0.12, 8:0.18"));
+
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+		CarrinhoDeCompras carrinho = carrinhoFragil();
+		Cliente cliente = new Cliente(1L, "C", Regiao.NORTE, TipoCliente.PRATA);
+
+		BigDecimal comRegrasPadrao = service(provedor, MotorPrecificacao.BIG_DECIMAL).calcularCustoTotal(carrinho,
+				cliente);
+		BigDecimal comRegrasAlternativas = service(
+				new ProvedorRegrasPrecificacao(new FileSystemResource(alternativo)), MotorPrecificacao.BIG_DECIMAL)
+				.calcularCustoTotal(carrinho, cliente);
+		assertThat(comRegrasAlternativas).isNotEqualByComparingTo(comRegrasPadrao);
+
+		AtomicBoolean executando = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<Integer>> cotacoes = new ArrayList<>();
+			for (MotorPrecificacao motor : MotorPrecificacao.values()) {
+				CompraService service = service(provedor, motor);
+				cotacoes.add(executor.submit(() -> {
+					int realizadas = 0;
+					while (executando.get()) {
+						assertThat(service.calcularCustoTotal(carrinho, cliente))
+								.isIn(comRegrasPadrao, comRegrasAlternativas);
+						realizadas++;
+						Thread.yield();
+					}
+					return realizadas;
+				}));
+			}
+
+			for (int i = 0; i < 50; i++) {
+				Files.writeString(arquivo, i % 2 == 0 ? Files.readString(alternativo) : regrasPadrao);
+				provedor.recarregar();
+			}
+			executando.set(false);
+
+			for (Future<Integer> cotacao : cotacoes) {
+				assertThat(cotacao.get(10, TimeUnit.SECONDS)).isPositive();
+			}
+		} finally {
+			executando.set(false);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void pontoFixo_quandoRegrasComCentavosNoFrete_entaoIgualAoBigDecimal() throws IOException {
+		Files.writeString(arquivo, regrasPadrao
+				.replace("10.00:2.00:12.00", "10.00:2.35:12.99")
+				.replace("frete.regiao.SUL=1.05", "frete.regiao.SUL=1.075"));
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+
+		assertThat(provedor.atual().tabelaPontoFixo()).isNotNull();
+		compararMotores(provedor);
+	}
+
+	@Test
+	public void pontoFixo_quandoPercentualNaoRepresentavel_entaoUsaCaminhoBigDecimal() throws IOException {
+		Files.writeString(arquivo, regrasPadrao.replace("8:0.15", "8:0.125"));
+		ProvedorRegrasPrecificacao provedor = new ProvedorRegrasPrecificacao(new FileSystemResource(arquivo));
+
+		assertThat(provedor.atual().tabelaPontoFixo()).isNull();
+		compararMotores(provedor);
+	}
+
+	private void compararMotores(ProvedorRegrasPrecificacao provedor) {
+		CompraService bigDecimal = service(provedor, MotorPrecificacao.BIG_DECIMAL);
+		CompraService pontoFixo = service(provedor, MotorPrecificacao.PONTO_FIXO);
+		SplittableRandom random = new SplittableRandom(11L);
+		TipoProduto[] tipos = TipoProduto.values();
+
+		for (int i = 0; i < 500; i++) {
+			int tamanho = 1 + random.nextInt(10);
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int j = 0; j < tamanho; j++) {
+				Produto p = new Produto((long) j, "P", "D", BigDecimal.valueOf(random.nextInt(40_000), 2),
+						BigDecimal.valueOf(random.nextInt(9_000), 3), BigDecimal.valueOf(random.nextInt(50)),
+						BigDecimal.valueOf(random.nextInt(50)), BigDecimal.valueOf(random.nextInt(50)),
+						random.nextBoolean(), tipos[random.nextInt(tipos.length)]);
+				itens.add(new ItemCompra((long) j, p, 1L + random.nextInt(9)));
+			}
+			CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+			carrinho.setItens(itens);
+
+			for (Regiao regiao : Regiao.values()) {
+				for (TipoCliente tipo : TipoCliente.values()) {
+					Cliente cliente = new Cliente(1L, "C", regiao, tipo);
+					assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente))
+							.isEqualTo(bigDecimal.calcularCustoTotal(carrinho, cliente));
+				}
+			}
+		}
+	}
+
+	private CompraService service(ProvedorRegrasPrecificacao provedor, MotorPrecificacao motor) {
+		return CompraServiceBuilder.compraService().regras(provedor).motor(motor).construir();
+	}
+
+	private CarrinhoDeCompras carrinhoFragil() {
+		Produto p = new Produto(1L, "Produto", "Desc", new BigDecimal("10.00"),
+				new BigDecimal("3.0"), new BigDecimal("10"), new BigDecimal("10"), new BigDecimal("10"),
+				true, TipoProduto.ALIMENTO);
+
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, p, 2L));
+		carrinho.setItens(itens);
+		return carrinho;
+	}
+}
@@ -0,0 +1,319 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CompraIdempotente;
+import ecommerce.repository.CompraIdempotenteRepository;
+
+public class RegistroIdempotenciaTest {
+
+	private static final long ESPERA_MAXIMA_SEGUNDOS = 5;
+
+	private final RelogioAjustavel relogio = new RelogioAjustavel();
+	private final AtomicInteger execucoes = new AtomicInteger();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void executar_quandoChaveRepetida_entaoDevolveMesmaCompraSemExecutarDeNovo() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+
+		CompraDTO primeira = registro.executar("chave", 10L, 20L, compra(999L));
+		CompraDTO repeticao = registro.executar("chave", 10L, 20L, compra(888L));
+
+		assertThat(repeticao).isSameAs(primeira).isEqualTo(new CompraDTO(true, 999L, "Compra finalizada com sucesso."));
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoDuplicataSimultanea_entaoEsperaExecucaoEmAndamento() throws Exception {
+		RegistroIdempotencia registro = registro(16, 100, null);
+		CountDownLatch liberar = new CountDownLatch(1);
+
+		Future<CompraDTO> primeira = emAndamento(registro, "chave", 999L, liberar);
+		Future<CompraDTO> duplicata = executor.submit(() -> registro.executar("chave", 10L, 20L, compra(888L)));
+
+		assertThat(duplicata).isNotDone();
+		liberar.countDown();
+
+		assertThat(duplicata.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS))
+				.isSameAs(primeira.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS));
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoExecucaoFalha_entaoChaveLiberadaParaNovaTentativa() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, () -> {
+			throw new IllegalStateException("Tempo esgotado ao verificar disponibilidade.");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(registro.executar("chave", 10L, 20L, compra(999L)).transacaoPagamentoId()).isEqualTo(999L);
+		assertThat(registro.tamanho()).isEqualTo(1);
+	}
+
+	@Test
+	public void executar_quandoCompraFicaEmConferencia_entaoGuardaAFalhaSemExecutarDeNovo() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+		CompraEmConferenciaException incerta = new CompraEmConferenciaException(
+				"Resultado do pagamento incerto; compra em conferência.", null);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, () -> {
+			execucoes.incrementAndGet();
+			throw incerta;
+		})).isSameAs(incerta);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, compra(999L))).isSameAs(incerta);
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoErroNaoClassificado_entaoGuardaAFalhaSemExecutarDeNovo() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, () -> {
+			execucoes.incrementAndGet();
+			throw new NullPointerException();
+		})).isInstanceOf(NullPointerException.class);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, compra(999L)))
+				.isInstanceOf(NullPointerException.class);
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoFalhaEmConferenciaComPersistencia_entaoGravaEDevolveAposReinicio() {
+		CompraIdempotenteRepository repository = mock(CompraIdempotenteRepository.class);
+		when(repository.findById("chave")).thenReturn(Optional.empty());
+		RegistroIdempotencia registro = registro(16, 100, repository);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, () -> {
+			throw new CompraEmConferenciaException("Pagamento não pôde ser cancelado; compra em conferência.", null);
+		})).isInstanceOf(CompraEmConferenciaException.class);
+
+		verify(repository).save(argThat(registroSalvo -> !registroSalvo.getSucesso()
+				&& registroSalvo.getMensagem().equals("Pagamento não pôde ser cancelado; compra em conferência.")));
+
+		when(repository.findById("chave")).thenReturn(Optional.of(new CompraIdempotente("chave", 10L, 20L, false,
+				null, "Pagamento não pôde ser cancelado; compra em conferência.", relogio.instant())));
+		RegistroIdempotencia reiniciado = registro(16, 100, repository);
+
+		assertThatThrownBy(() -> reiniciado.executar("chave", 10L, 20L, compra(999L)))
+				.isInstanceOf(CompraEmConferenciaException.class)
+				.hasMessage("Pagamento não pôde ser cancelado; compra em conferência.");
+		assertThat(execucoes).hasValue(0);
+	}
+
+	@Test
+	public void executar_quandoChaveUsadaEmOutraCompra_entaoLancaExcecao() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+		registro.executar("chave", 10L, 20L, compra(999L));
+
+		assertThatThrownBy(() -> registro.executar("chave", 11L, 20L, compra(888L)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Idempotency-Key já usada em outra compra.");
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoChaveVaziaOuLonga_entaoLancaExcecao() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+
+		assertThatThrownBy(() -> registro.executar(" ", 10L, 20L, compra(999L)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Idempotency-Key não pode ser vazia.");
+		assertThatThrownBy(() -> registro.executar("x".repeat(256), 10L, 20L, compra(999L)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Idempotency-Key deve ter no máximo 255 caracteres.");
+		assertThat(execucoes).hasValue(0);
+	}
+
+	@Test
+	public void executar_quandoChaveExpirada_entaoExecutaDeNovo() {
+		RegistroIdempotencia registro = registro(16, 100, null);
+		registro.executar("chave", 10L, 20L, compra(999L));
+
+		relogio.avancar(Duration.ofHours(24));
+
+		assertThat(registro.executar("chave", 10L, 20L, compra(888L)).transacaoPagamentoId()).isEqualTo(888L);
+		assertThat(execucoes).hasValue(2);
+	}
+
+	@Test
+	public void executar_quandoFaixaCheia_entaoDescartaChaveMenosRecente() {
+		RegistroIdempotencia registro = registro(1, 2, null);
+		registro.executar("a", 10L, 20L, compra(1L));
+		registro.executar("b", 10L, 20L, compra(2L));
+		registro.executar("a", 10L, 20L, compra(3L));
+		registro.executar("c", 10L, 20L, compra(4L));
+
+		assertThat(registro.tamanho()).isEqualTo(2);
+		assertThat(registro.executar("a", 10L, 20L, compra(5L)).transacaoPagamentoId()).isEqualTo(1L);
+		assertThat(registro.executar("b", 10L, 20L, compra(6L)).transacaoPagamentoId()).isEqualTo(6L);
+	}
+
+	@Test
+	public void executar_quandoPersistidaEmOutraInstancia_entaoDevolveSemExecutar() {
+		CompraIdempotenteRepository repository = mock(CompraIdempotenteRepository.class);
+		when(repository.findById("chave")).thenReturn(Optional.of(new CompraIdempotente("chave", 10L, 20L, true,
+				777L, "Compra finalizada com sucesso.", relogio.instant().minus(Duration.ofHours(1)))));
+		RegistroIdempotencia registro = registro(16, 100, repository);
+
+		assertThat(registro.executar("chave", 10L, 20L, compra(999L)))
+				.isEqualTo(new CompraDTO(true, 777L, "Compra finalizada com sucesso."));
+		assertThat(execucoes).hasValue(0);
+		verify(repository, never()).save(any());
+	}
+
+	@Test
+	public void executar_quandoPersistenciaHabilitada_entaoGravaCompraConcluida() {
+		CompraIdempotenteRepository repository = mock(CompraIdempotenteRepository.class);
+		when(repository.findById("chave")).thenReturn(Optional.empty());
+		RegistroIdempotencia registro = registro(16, 100, repository);
+
+		registro.executar("chave", 10L, 20L, compra(999L));
+
+		verify(repository).save(argThat(registroSalvo -> registroSalvo.getChave().equals("chave")
+				&& registroSalvo.getCarrinhoId() == 10L && registroSalvo.getTransacaoPagamentoId() == 999L));
+	}
+
+	private RegistroIdempotencia registro(int faixas, int tamanhoMaximo, CompraIdempotenteRepository repository) {
+		return registro(faixas, tamanhoMaximo, Duration.ofSeconds(ESPERA_MAXIMA_SEGUNDOS), repository);
+	}
+
+	private RegistroIdempotencia registro(int faixas, int tamanhoMaximo, Duration espera,
+			CompraIdempotenteRepository repository) {
+		return new RegistroIdempotencia(faixas, tamanhoMaximo, Duration.ofHours(24), espera, repository, relogio);
+	}
+
+	/** Executa {@code chave} em outra thread, presa na compra até {@code liberar}; devolve quando ela já começou. */
+	private Future<CompraDTO> emAndamento(RegistroIdempotencia registro, String chave, long transacaoId,
+			CountDownLatch liberar) throws InterruptedException {
+		CountDownLatch iniciada = new CountDownLatch(1);
+		Future<CompraDTO> execucao = executor.submit(() -> registro.executar(chave, 10L, 20L, () -> {
+			iniciada.countDown();
+			aguardar(liberar);
+			return compra(transacaoId).get();
+		}));
+		assertThat(iniciada.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		return execucao;
+	}
+
+	@Test
+	public void executar_quandoGravacaoFalhaDepoisDaCompra_entaoMantemChaveSemExecutarDeNovo() {
+		CompraIdempotenteRepository repository = mock(CompraIdempotenteRepository.class);
+		when(repository.findById("chave")).thenReturn(Optional.empty());
+		when(repository.save(any())).thenThrow(new IllegalStateException("Banco indisponível."));
+		RegistroIdempotencia registro = registro(16, 100, repository);
+
+		CompraDTO primeira = registro.executar("chave", 10L, 20L, compra(999L));
+
+		assertThat(primeira.transacaoPagamentoId()).isEqualTo(999L);
+		assertThat(registro.executar("chave", 10L, 20L, compra(888L))).isSameAs(primeira);
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoDuplicataEsperaAlemDoLimite_entaoRecusaSemLiberarChave() throws Exception {
+		RegistroIdempotencia registro = registro(16, 100, Duration.ofMillis(50), null);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<CompraDTO> primeira = emAndamento(registro, "chave", 999L, liberar);
+
+		assertThatThrownBy(() -> registro.executar("chave", 10L, 20L, compra(888L)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Compra com esta Idempotency-Key ainda em andamento.");
+
+		liberar.countDown();
+		assertThat(primeira.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS).transacaoPagamentoId()).isEqualTo(999L);
+		assertThat(registro.executar("chave", 10L, 20L, compra(888L)).transacaoPagamentoId()).isEqualTo(999L);
+		assertThat(execucoes).hasValue(1);
+	}
+
+	@Test
+	public void executar_quandoFaixaCheiaComExecucaoEmAndamento_entaoNaoADescarta() throws Exception {
+		RegistroIdempotencia registro = registro(1, 1, null);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<CompraDTO> primeira = emAndamento(registro, "a", 1L, liberar);
+
+		registro.executar("b", 10L, 20L, compra(2L));
+		Future<CompraDTO> duplicata = executor.submit(() -> registro.executar("a", 10L, 20L, compra(3L)));
+		liberar.countDown();
+
+		assertThat(duplicata.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS))
+				.isSameAs(primeira.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS));
+		assertThat(execucoes).hasValue(2);
+	}
+
+	@Test
+	public void registro_quandoFaixasNaoSaoPotenciaDeDois_entaoLancaExcecao() {
+		assertThatThrownBy(() -> registro(12, 100, null))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Quantidade de faixas de idempotência deve ser potência de 2.");
+	}
+
+	private Supplier<CompraDTO> compra(long transacaoId) {
+		return () -> {
+			execucoes.incrementAndGet();
+			return new CompraDTO(true, transacaoId, "Compra finalizada com sucesso.");
+		};
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			assertThat(latch.await(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class RelogioAjustavel extends Clock {
+
+		private Instant agora = Instant.parse("2024-01-01T00:00:00Z");
+
+		void avancar(Duration duracao) {
+			agora = agora.plus(duracao);
+		}
+
+		@Override
+		public Instant instant() {
+			return agora;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+}
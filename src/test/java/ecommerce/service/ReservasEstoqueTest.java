@@ -0,0 +1,323 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.ResultadoIncertoException;
+
+public class ReservasEstoqueTest {
+
+	private final Map<Long, Long> saldosRemotos = new HashMap<>();
+	private IEstoqueExternal estoqueExternal;
+
+	@BeforeEach
+	public void setUp() {
+		estoqueExternal = mock(IEstoqueExternal.class);
+		when(estoqueExternal.consultarSaldos(anyList())).thenAnswer(inv -> {
+			Map<Long, Long> encontrados = new HashMap<>();
+			for (Long produtoId : inv.<List<Long>>getArgument(0)) {
+				if (saldosRemotos.containsKey(produtoId)) {
+					encontrados.put(produtoId, saldosRemotos.get(produtoId));
+				}
+			}
+			return encontrados;
+		});
+		when(estoqueExternal.darBaixa(anyList(), anyList())).thenReturn(new EstoqueBaixaDTO(true));
+	}
+
+	@Test
+	public void reservar_quandoSaldoSuficiente_entaoRetiraLocalmenteEBaixaAoConfirmar() {
+		saldosRemotos.put(1L, 10L);
+		saldosRemotos.put(2L, 5L);
+		ReservasEstoque reservas = reservas(8);
+
+		assertThat(reservas.carregar(List.of(1L, 2L))).isTrue();
+		ReservasEstoque.Reserva reserva = reservas.reservar(List.of(1L, 2L), List.of(3L, 5L));
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(7L);
+		assertThat(reservas.disponivel(2L)).isZero();
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+
+		reservas.confirmar(reserva);
+
+		verify(estoqueExternal).darBaixa(List.of(1L, 2L), List.of(3L, 5L));
+		verify(estoqueExternal, never()).verificarDisponibilidade(anyList(), anyList());
+	}
+
+	@Test
+	public void reservar_quandoUmItemSemSaldo_entaoNaoReservaNenhum() {
+		saldosRemotos.put(1L, 10L);
+		saldosRemotos.put(2L, 1L);
+		ReservasEstoque reservas = reservas(8);
+		reservas.carregar(List.of(1L, 2L));
+
+		assertThatThrownBy(() -> reservas.reservar(List.of(1L, 2L), List.of(3L, 2L)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Itens fora de estoque.");
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(10L);
+		assertThat(reservas.disponivel(2L)).isEqualTo(1L);
+	}
+
+	@Test
+	public void reservar_quandoSaldoEspalhadoNasFaixas_entaoJuntaVariasFaixas() {
+		saldosRemotos.put(1L, 4L);
+		ReservasEstoque reservas = reservas(4);
+		reservas.carregar(List.of(1L));
+
+		reservas.reservar(List.of(1L), List.of(3L));
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(1L);
+	}
+
+	@Test
+	public void liberar_quandoChamadoDuasVezes_entaoDevolveUmaVez() {
+		saldosRemotos.put(1L, 10L);
+		ReservasEstoque reservas = reservas(8);
+		reservas.carregar(List.of(1L));
+		ReservasEstoque.Reserva reserva = reservas.reservar(List.of(1L), List.of(4L));
+
+		reservas.liberar(reserva);
+		reservas.liberar(reserva);
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(10L);
+		assertThatThrownBy(() -> reservas.confirmar(reserva)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void carregar_quandoProdutoSemSaldoConsultavel_entaoFalso() {
+		saldosRemotos.put(1L, 10L);
+		ReservasEstoque reservas = reservas(8);
+
+		assertThat(reservas.carregar(List.of(1L, 2L))).isFalse();
+		assertThat(reservas.carregar(List.of(1L))).isTrue();
+
+		verify(estoqueExternal).consultarSaldos(List.of(1L, 2L));
+		verifyNoMoreInteractions(estoqueExternal);
+	}
+
+	@Test
+	public void reservar_quandoProdutoDisputadoPorVariasThreads_entaoNuncaVendeAlemDoSaldo() throws Exception {
+		saldosRemotos.put(1L, 5_000L);
+		ReservasEstoque reservas = reservas(8);
+		reservas.carregar(List.of(1L));
+
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Integer>> tarefas = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				tarefas.add(() -> {
+					int reservadas = 0;
+					for (int i = 0; i < 1_000; i++) {
+						try {
+							ReservasEstoque.Reserva reserva = reservas.reservar(List.of(1L), List.of(1L));
+							reservadas++;
+							if (i % 10 == 0) {
+								reservas.liberar(reserva);
+								reservadas--;
+							}
+						} catch (IllegalStateException e) {
+							// sem saldo
+						}
+					}
+					return reservadas;
+				});
+			}
+
+			int total = 0;
+			for (Future<Integer> resultado : threads.invokeAll(tarefas)) {
+				total += resultado.get();
+			}
+
+			assertThat(total).isLessThanOrEqualTo(5_000);
+			assertThat(total + reservas.disponivel(1L)).isEqualTo(5_000L);
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	@Test
+	public void reconciliar_quandoBaixaRecusada_entaoReenviaERealinhaComSaldoRemoto() {
+		saldosRemotos.put(1L, 10L);
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenReturn(new EstoqueBaixaDTO(false))
+				.thenReturn(new EstoqueBaixaDTO(true));
+		ReservasEstoque reservas = reservas(8);
+		reservas.carregar(List.of(1L));
+
+		reservas.confirmar(reservas.reservar(List.of(1L), List.of(4L)));
+		ReservasEstoque.Reserva aberta = reservas.reservar(List.of(1L), List.of(1L));
+		assertThat(reservas.baixasNaoSincronizadas()).isEqualTo(1);
+
+		// O estoque externo aplica a baixa reenviada e, por fora, recebe mais 20 unidades.
+		saldosRemotos.put(1L, 26L);
+		reservas.reconciliar();
+
+		assertThat(reservas.baixasNaoSincronizadas()).isZero();
+		assertThat(reservas.disponivel(1L)).isEqualTo(25L);
+
+		reservas.liberar(aberta);
+		assertThat(reservas.disponivel(1L)).isEqualTo(26L);
+	}
+
+	@Test
+	public void reconciliar_quandoBaixaLancouExcecao_entaoNaoReenviaEMantemItensForaDoSaldo() {
+		saldosRemotos.put(1L, 10L);
+		when(estoqueExternal.darBaixa(anyList(), anyList()))
+				.thenThrow(new IllegalStateException("Tempo esgotado."));
+		ReservasEstoque reservas = reservas(8);
+		reservas.carregar(List.of(1L));
+
+		reservas.confirmar(reservas.reservar(List.of(1L), List.of(4L)));
+		assertThat(reservas.baixasIncertas()).isEqualTo(1);
+		assertThat(reservas.baixasNaoSincronizadas()).isZero();
+
+		// O estoque externo tinha aplicado a baixa antes de a chamada falhar.
+		saldosRemotos.put(1L, 6L);
+		reservas.reconciliar();
+
+		verify(estoqueExternal, times(1)).darBaixa(anyList(), anyList());
+		assertThat(reservas.disponivel(1L)).isEqualTo(2L);
+	}
+
+	@Test
+	public void reconciliar_quandoBaixaConcluiDuranteAConsulta_entaoNaoSuperestimaOSaldo() {
+		saldosRemotos.put(1L, 10L);
+		List<Runnable> baixasPendentes = new ArrayList<>();
+		ReservasEstoque reservas = new ReservasEstoque(estoqueExternal, baixasPendentes::add, 8);
+		reservas.carregar(List.of(1L));
+		reservas.confirmar(reservas.reservar(List.of(1L), List.of(4L)));
+
+		// A consulta vê o saldo antes da baixa, e a baixa termina antes do realinhamento.
+		when(estoqueExternal.consultarSaldos(anyList())).thenAnswer(inv -> {
+			Map<Long, Long> antesDaBaixa = Map.of(1L, 10L);
+			baixasPendentes.forEach(Runnable::run);
+			saldosRemotos.put(1L, 6L);
+			return antesDaBaixa;
+		});
+		reservas.reconciliar();
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(6L);
+	}
+
+	@Test
+	public void finalizarCompra_quandoReservasLocais_entaoNaoConsultaEstoqueNaFinalizacao() {
+		saldosRemotos.put(1L, 10L);
+		saldosRemotos.put(2L, 10L);
+		ReservasEstoque reservas = reservas(8);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble())).thenReturn(new PagamentoDTO(true, 999L));
+
+		CompraDTO compra = compraService(reservas, pagamentoExternal).finalizarCompra(10L, 20L);
+
+		assertThat(compra).isEqualTo(new CompraDTO(true, 999L, "Compra finalizada com sucesso."));
+		verify(estoqueExternal, never()).verificarDisponibilidade(anyList(), anyList());
+		verify(estoqueExternal).darBaixa(List.of(1L, 2L), List.of(1L, 2L));
+		assertThat(reservas.disponivel(2L)).isEqualTo(8L);
+	}
+
+	@Test
+	public void finalizarCompra_quandoPagamentoNegado_entaoLiberaReserva() {
+		saldosRemotos.put(1L, 10L);
+		saldosRemotos.put(2L, 10L);
+		ReservasEstoque reservas = reservas(8);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+		assertThatThrownBy(() -> compraService(reservas, pagamentoExternal).finalizarCompra(10L, 20L))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Pagamento não autorizado.");
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(10L);
+		assertThat(reservas.disponivel(2L)).isEqualTo(10L);
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+	}
+
+	@Test
+	public void finalizarCompra_quandoAutorizacaoPassaDoTempo_entaoDevolveReservaEDeixaEmConferencia() {
+		saldosRemotos.put(1L, 10L);
+		saldosRemotos.put(2L, 10L);
+		ReservasEstoque reservas = reservas(8);
+		IPagamentoExternal pagamentoExternal = mock(IPagamentoExternal.class);
+		when(pagamentoExternal.autorizarPagamento(eq(20L), anyDouble()))
+				.thenThrow(new ResultadoIncertoException("Tempo esgotado ao chamar o serviço de pagamento."));
+
+		ComprasEmConferencia emConferencia = new ComprasEmConferencia(100);
+
+		assertThatThrownBy(() -> compraService(reservas, pagamentoExternal, emConferencia).finalizarCompra(10L, 20L))
+				.isInstanceOf(CompraEmConferenciaException.class)
+				.hasMessage("Resultado do pagamento incerto; compra em conferência.");
+
+		assertThat(reservas.disponivel(1L)).isEqualTo(10L);
+		assertThat(reservas.disponivel(2L)).isEqualTo(10L);
+		verify(estoqueExternal, never()).darBaixa(anyList(), anyList());
+		assertThat(emConferencia.pendentes()).singleElement().satisfies(pendencia -> {
+			assertThat(pendencia.operacao()).isEqualTo(ComprasEmConferencia.Operacao.AUTORIZACAO_PAGAMENTO);
+			assertThat(pendencia.produtosIds()).containsExactly(1L, 2L);
+			assertThat(pendencia.produtosQuantidades()).containsExactly(1L, 2L);
+		});
+	}
+
+	private ReservasEstoque reservas(int faixas) {
+		return new ReservasEstoque(estoqueExternal, Runnable::run, faixas);
+	}
+
+	private CompraService compraService(ReservasEstoque reservas, IPagamentoExternal pagamentoExternal) {
+		return compraService(reservas, pagamentoExternal, new ComprasEmConferencia(100));
+	}
+
+	private CompraService compraService(ReservasEstoque reservas, IPagamentoExternal pagamentoExternal,
+			ComprasEmConferencia emConferencia) {
+		Cliente cliente = new Cliente(20L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
+		CarrinhoDeComprasService carrinhoService = mock(CarrinhoDeComprasService.class);
+		ClienteService clienteService = mock(ClienteService.class);
+		when(carrinhoService.buscarParaFinalizacao(10L, 20L)).thenReturn(Optional.of(carrinho(cliente)));
+
+		return CompraServiceBuilder.compraService()
+				.servicos(carrinhoService, clienteService)
+				.externos(estoqueExternal, pagamentoExternal)
+				.reservasEstoque(reservas)
+				.emConferencia(emConferencia)
+				.construir();
+	}
+
+	private CarrinhoDeCompras carrinho(Cliente cliente) {
+		Produto p1 = new Produto(1L, "Produto 1", "Desc", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ALIMENTO);
+		Produto p2 = new Produto(2L, "Produto 2", "Desc", new BigDecimal("20.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.ELETRONICO);
+
+		List<ItemCompra> itens = new ArrayList<>();
+		itens.add(new ItemCompra(1L, p1, 1L));
+		itens.add(new ItemCompra(2L, p2, 2L));
+		return new CarrinhoDeCompras(10L, cliente, itens, null);
+	}
+}
@@ -18,7 +18,7 @@ import ecommerce.entity.TipoProduto;
 
 public class TesteParticao {
 
-    private final CompraService service = new CompraService(null, null, null, null);
+    private final CompraService service = CompraServiceBuilder.compraService().construir();
 
     private Cliente clientePadrao() {
         return new Cliente(1L, "Cliente", Regiao.SUDESTE, TipoCliente.BRONZE);
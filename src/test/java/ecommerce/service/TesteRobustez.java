@@ -1,5 +1,6 @@
 package ecommerce.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
@@ -18,7 +19,7 @@ import ecommerce.entity.TipoProduto;
 
 public class TesteRobustez {
 
-        private final CompraService service = new CompraService(null, null, null, null);
+        private final CompraService service = CompraServiceBuilder.compraService().construir();
 
         private CarrinhoDeCompras carrinhoNuloItens() {
                 CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
@@ -215,4 +216,34 @@ public class TesteRobustez {
                 assertThrows(IllegalArgumentException.class,
                                 () -> service.calcularCustoTotal(carrinhoComUmItem(p, 1L), clienteComTipoNulo()));
         }
+
+        @Test
+        public void robustez_quandoItemInvalidoAposItensValidos_entaoLancaExcecao() {
+                Produto valido = produto(new BigDecimal("10.00"), new BigDecimal("1.0"),
+                                new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), true);
+                Produto invalido = produto(new BigDecimal("-1.00"), new BigDecimal("1.0"),
+                                new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false);
+
+                CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+                List<ItemCompra> itens = new ArrayList<>();
+                for (long i = 0; i < 1_000; i++) {
+                        itens.add(new ItemCompra(i, valido, 1L));
+                }
+                itens.add(new ItemCompra(1_000L, invalido, 1L));
+                carrinho.setItens(itens);
+
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                () -> service.calcularCustoTotal(carrinho, clienteValido()));
+                assertEquals("Preço do produto deve ser maior ou igual a zero.", e.getMessage());
+        }
+
+        @Test
+        public void robustez_quandoItemInvalidoEClienteNulo_entaoLancaExcecaoDoItem() {
+                Produto p = produto(new BigDecimal("10.00"), null,
+                                new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false);
+
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                () -> service.calcularCustoTotal(carrinhoComUmItem(p, 1L), null));
+                assertEquals("Peso físico do produto não pode ser nulo.", e.getMessage());
+        }
 }
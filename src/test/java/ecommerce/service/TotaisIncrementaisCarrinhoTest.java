@@ -0,0 +1,174 @@
+package ecommerce.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.AcumuladorCarrinho;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+public class TotaisIncrementaisCarrinhoTest {
+
+	private final CompraService bigDecimal = CompraServiceBuilder.precificacao(MotorPrecificacao.BIG_DECIMAL);
+	private final CompraService pontoFixo = CompraServiceBuilder.precificacao(MotorPrecificacao.PONTO_FIXO);
+
+	@Test
+	public void totais_quandoItensAdicionadosRemovidosEAlterados_entaoIgualAoRecalculoCompleto() {
+		SplittableRandom random = new SplittableRandom(3L);
+		Cliente cliente = new Cliente(1L, "C", Regiao.NORDESTE, TipoCliente.PRATA);
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		List<ItemCompra> itens = new ArrayList<>();
+
+		for (int operacao = 0; operacao < 3_000; operacao++) {
+			int escolha = random.nextInt(10);
+			if (itens.isEmpty() || escolha < 5) {
+				ItemCompra item = new ItemCompra((long) operacao, produto(operacao, random), 1L + random.nextInt(9));
+				carrinho.adicionarItem(item);
+				itens.add(item);
+			} else if (escolha < 8) {
+				ItemCompra item = itens.get(random.nextInt(itens.size()));
+				carrinho.alterarQuantidade(item, 1L + random.nextInt(9));
+			} else {
+				ItemCompra item = itens.remove(random.nextInt(itens.size()));
+				assertThat(carrinho.removerItem(item)).isTrue();
+			}
+
+			if (itens.isEmpty()) {
+				continue;
+			}
+			CarrinhoDeCompras recalculado = new CarrinhoDeCompras();
+			recalculado.setItens(new ArrayList<>(itens));
+
+			assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente))
+					.isEqualTo(bigDecimal.calcularCustoTotal(recalculado, cliente));
+			assertThat(pontoFixo.calcularCustoTotal(carrinho, cliente))
+					.isEqualTo(bigDecimal.calcularCustoTotal(carrinho, cliente));
+		}
+	}
+
+	@Test
+	public void totais_quandoNadaMudou_entaoNaoRecalcula() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.adicionarItem(new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 2L));
+
+		AcumuladorCarrinho totais = carrinho.totaisParaCalculo();
+
+		assertThat(carrinho.totaisParaCalculo()).isSameAs(totais);
+	}
+
+	@Test
+	public void totais_quandoProdutoAlterado_entaoRecalcula() {
+		Produto produto = new Produto(1L, "P", "D", new BigDecimal("10.00"), new BigDecimal("1.0"),
+				new BigDecimal("0"), new BigDecimal("0"), new BigDecimal("0"), false, TipoProduto.LIVRO);
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		ItemCompra item = new ItemCompra(1L, produto, 1L);
+		carrinho.adicionarItem(item);
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+
+		assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("10.00");
+
+		produto.setPreco(new BigDecimal("15.00"));
+		assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("15.00");
+
+		carrinho.alterarQuantidade(item, 2L);
+		assertThat(bigDecimal.calcularCustoTotal(carrinho, cliente)).isEqualByComparingTo("30.00");
+	}
+
+	@Test
+	public void totais_quandoItemFicaInvalido_entaoCalculoLancaExcecaoDoItem() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		ItemCompra item = new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 1L);
+		carrinho.adicionarItem(item);
+		Cliente cliente = new Cliente(1L, "C", Regiao.SUDESTE, TipoCliente.BRONZE);
+		bigDecimal.calcularCustoTotal(carrinho, cliente);
+
+		carrinho.alterarQuantidade(item, 0L);
+
+		assertThat(carrinho.totaisParaCalculo()).isNull();
+		assertThatThrownBy(() -> bigDecimal.calcularCustoTotal(carrinho, cliente))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Quantidade do item deve ser maior que zero.");
+
+		carrinho.alterarQuantidade(item, 3L);
+
+		assertThat(carrinho.totaisParaCalculo()).isNotNull();
+	}
+
+	@Test
+	public void alterarQuantidade_quandoItemDeOutroCarrinho_entaoLancaExcecao() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		ItemCompra item = new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 1L);
+
+		assertThatThrownBy(() -> carrinho.alterarQuantidade(item, 2L))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Item não pertence ao carrinho.");
+	}
+
+	@Test
+	public void getItens_quandoListaAlteradaDireto_entaoLancaExcecao() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras(1L, null, new ArrayList<>(), null);
+		ItemCompra item = new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 2L);
+		carrinho.adicionarItem(item);
+
+		List<ItemCompra> itens = carrinho.getItens();
+
+		assertThatThrownBy(() -> itens.add(new ItemCompra(2L, item.getProduto(), 1L)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> itens.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+		assertThat(carrinho.getItens()).containsExactly(item);
+	}
+
+	@Test
+	public void totais_quandoProdutoForaDoCarrinhoAlterado_entaoRecalculaComOsMesmosTotais() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		carrinho.adicionarItem(new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 2L));
+		AcumuladorCarrinho totais = carrinho.totaisParaCalculo();
+
+		produto(2, new SplittableRandom(2L)).setPreco(new BigDecimal("1.00"));
+
+		AcumuladorCarrinho recalculados = carrinho.totaisParaCalculo();
+		assertThat(recalculados).isNotSameAs(totais);
+		assertThat(recalculados.mesmosTotais(totais)).isTrue();
+	}
+
+	@Test
+	public void totais_quandoDevolvidos_entaoSomenteLeitura() {
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+		ItemCompra item = new ItemCompra(1L, produto(1, new SplittableRandom(1L)), 2L);
+		carrinho.adicionarItem(item);
+		AcumuladorCarrinho totais = carrinho.totaisParaCalculo();
+		long quantidade = totais.quantidade(item.getProduto().getTipo().ordinal());
+
+		assertThatThrownBy(() -> totais.limpar(true)).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> totais.somar(item.getProduto(), 1L)).isInstanceOf(IllegalStateException.class);
+
+		carrinho.alterarQuantidade(item, 5L);
+
+		assertThat(carrinho.totaisParaCalculo()).isNotSameAs(totais);
+		assertThat(totais.quantidade(item.getProduto().getTipo().ordinal())).isEqualTo(quantidade);
+	}
+
+	private Produto produto(long id, SplittableRandom random) {
+		TipoProduto[] tipos = TipoProduto.values();
+		return new Produto(id, "P" + id, "D",
+				BigDecimal.valueOf(random.nextInt(60_000), random.nextInt(10) == 0 ? 3 : 2),
+				BigDecimal.valueOf(random.nextInt(8_000), 3),
+				BigDecimal.valueOf(random.nextInt(600), 1),
+				BigDecimal.valueOf(random.nextInt(60)),
+				BigDecimal.valueOf(random.nextInt(60)),
+				random.nextBoolean(),
+				tipos[random.nextInt(tipos.length)]);
+	}
+}